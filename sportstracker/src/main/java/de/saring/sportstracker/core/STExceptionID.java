@@ -60,6 +60,10 @@ public enum STExceptionID {
      * failed to validate database schema version
      */
     DBSTORAGE_INVALID_SCHEMA,
+    /**
+     * failed to migrate the database schema of an existing database
+     */
+    DBSTORAGE_MIGRATE_SCHEMA,
     /**
      * failed to commit all database changes
      */
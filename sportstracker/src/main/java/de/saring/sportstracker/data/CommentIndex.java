@@ -0,0 +1,151 @@
+package de.saring.sportstracker.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import de.saring.util.StringUtils;
+
+/**
+ * Inverted index for the comments of entries, it's used for the comment search in substring mode. It maps the
+ * normalized comment terms to the posting lists of the IDs of the entries which contain them.<br/>
+ * The terms are the lower case words of the comments, separated by whitespace characters (same as for the search
+ * words). So a search word is contained in a comment exactly when it is contained in one of its terms. For fast
+ * searching of these terms the sorted term dictionary contains all suffixes of all terms, the terms containing a
+ * search word are the terms of all suffixes starting with it (prefix search).
+ *
+ * @author Stefan Saring
+ */
+final class CommentIndex {
+
+    /** Posting lists: map of all terms to the IDs of the entries containing the term. */
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+
+    /** Sorted term dictionary: map of all term suffixes to the terms ending with them. */
+    private final TreeMap<String, Set<String>> suffixDictionary = new TreeMap<>();
+
+    /** Map of all indexed entry IDs to their terms (needed for removal). */
+    private final Map<Long, String[]> entryTerms = new HashMap<>();
+
+    /**
+     * Adds the specified comment of the entry to the index.
+     *
+     * @param entryId ID of the entry
+     * @param comment comment of the entry (can be null)
+     */
+    void add(final long entryId, final String comment) {
+        final String[] terms = tokenize(comment);
+        entryTerms.put(entryId, terms);
+
+        for (String term : terms) {
+            postings.computeIfAbsent(term, t -> {
+                addToSuffixDictionary(t);
+                return new HashSet<>();
+            }).add(entryId);
+        }
+    }
+
+    /**
+     * Removes the comment of the specified entry from the index.
+     *
+     * @param entryId ID of the entry
+     */
+    void remove(final long entryId) {
+        final String[] terms = entryTerms.remove(entryId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms) {
+            final Set<Long> entryIds = postings.get(term);
+            entryIds.remove(entryId);
+            if (entryIds.isEmpty()) {
+                postings.remove(term);
+                removeFromSuffixDictionary(term);
+            }
+        }
+    }
+
+    /**
+     * Removes all comments from the index.
+     */
+    void clear() {
+        postings.clear();
+        suffixDictionary.clear();
+        entryTerms.clear();
+    }
+
+    /**
+     * Returns the IDs of all entries which contain all the specified lower case search words in their comments
+     * (AND logic, the order of the words does not matter).
+     *
+     * @param words the lower case search words, must not contain whitespace characters
+     * @return set of the found entry IDs
+     */
+    Set<Long> findEntryIds(final String[] words) {
+        Set<Long> foundEntryIds = null;
+
+        for (String word : words) {
+            final Set<Long> wordEntryIds = findEntryIds(word);
+            if (foundEntryIds == null) {
+                foundEntryIds = wordEntryIds;
+            } else {
+                foundEntryIds.retainAll(wordEntryIds);
+            }
+
+            if (foundEntryIds.isEmpty()) {
+                break;
+            }
+        }
+        return foundEntryIds == null ? new HashSet<>() : foundEntryIds;
+    }
+
+    private Set<Long> findEntryIds(final String word) {
+        final Set<Long> entryIds = new HashSet<>();
+
+        for (Map.Entry<String, Set<String>> suffixEntry : suffixDictionary.tailMap(word, true).entrySet()) {
+            if (!suffixEntry.getKey().startsWith(word)) {
+                break;
+            }
+            suffixEntry.getValue().forEach(term -> entryIds.addAll(postings.get(term)));
+        }
+        return entryIds;
+    }
+
+    private void addToSuffixDictionary(final String term) {
+        for (int i = 0; i < term.length(); i++) {
+            suffixDictionary.computeIfAbsent(term.substring(i), s -> new HashSet<>()).add(term);
+        }
+    }
+
+    private void removeFromSuffixDictionary(final String term) {
+        for (int i = 0; i < term.length(); i++) {
+            final String suffix = term.substring(i);
+            final Set<String> terms = suffixDictionary.get(suffix);
+            terms.remove(term);
+            if (terms.isEmpty()) {
+                suffixDictionary.remove(suffix);
+            }
+        }
+    }
+
+    /**
+     * Returns the distinct lower case terms of the specified comment.
+     *
+     * @param comment the comment (can be null)
+     * @return array of terms
+     */
+    static String[] tokenize(final String comment) {
+        if (StringUtils.isNullOrEmpty(comment)) {
+            return new String[0];
+        }
+
+        return Arrays.stream(comment.toLowerCase().split("\\s+"))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+}
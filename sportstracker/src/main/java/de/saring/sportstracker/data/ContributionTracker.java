@@ -0,0 +1,59 @@
+package de.saring.sportstracker.data;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Stores the contributions of all entries added to an incrementally maintained structure (e.g. the added values
+ * of an exercise in the cumulative sums). When an entry is removed, its stored contribution will be subtracted and
+ * not its current values. So the entry can also be removed when it has been modified in the meantime. The entries
+ * are mapped by their identity, the same instance as added before needs to be passed for removal.
+ *
+ * @param <E> the entry type
+ * @param <C> the type of the contributions (must be immutable)
+ * @author Stefan Saring
+ */
+final class ContributionTracker<E, C> {
+
+    private final Map<E, C> contributions = new IdentityHashMap<>();
+    private final Function<E, C> contributionFactory;
+
+    /**
+     * Standard c'tor.
+     *
+     * @param contributionFactory function for creating the contribution of an entry
+     */
+    ContributionTracker(final Function<E, C> contributionFactory) {
+        this.contributionFactory = contributionFactory;
+    }
+
+    /**
+     * Creates and stores the contribution of the specified entry.
+     *
+     * @param entry the added entry
+     * @return the contribution of the entry
+     */
+    C add(final E entry) {
+        final C contribution = contributionFactory.apply(entry);
+        contributions.put(entry, contribution);
+        return contribution;
+    }
+
+    /**
+     * Removes the stored contribution of the specified entry.
+     *
+     * @param entry the removed entry
+     * @return the contribution of the entry or null when the entry has not been added
+     */
+    C remove(final E entry) {
+        return contributions.remove(entry);
+    }
+
+    /**
+     * Removes all stored contributions.
+     */
+    void clear() {
+        contributions.clear();
+    }
+}
@@ -0,0 +1,108 @@
+package de.saring.sportstracker.data;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all the application data lists for a specific data version. It can be used by background
+ * tasks (e.g. statistics, overview charts, equipment usage) for reading consistent data without locking, while the
+ * application data is modified by the UI thread.<br/>
+ * The entry lists are immutable and share their unmodified parts with the snapshots of the previous data versions.
+ * The contained entries are shared with the application data, they must not be modified.<br/>
+ * The sport types are deep copies, so later edits of the sport types in the application data have no effect on the
+ * snapshot. The exercises resolve their sport type references against the live sport type list, so background
+ * readers must not use Exercise.getSportType(), getSportSubType() or getEquipment(). They need to use the lookup
+ * methods of the snapshot instead, the ID index for them is created eagerly on snapshot creation.
+ *
+ * @author Stefan Saring
+ */
+public final class DocumentSnapshot {
+
+    private final long dataVersion;
+    private final List<SportType> sportTypes;
+    private final Map<Long, SportType> sportTypesById;
+    private final List<Exercise> exercises;
+    private final List<Note> notes;
+    private final List<Weight> weights;
+
+    /**
+     * Standard c'tor. It needs to be called in the thread which modifies the application data (the sport types
+     * are copied).
+     *
+     * @param dataVersion the version of the application data
+     * @param sportTypes list of all sport types (will be copied)
+     * @param exercises immutable list of all exercises
+     * @param notes immutable list of all notes
+     * @param weights immutable list of all weights
+     */
+    public DocumentSnapshot(final long dataVersion, final List<SportType> sportTypes, final List<Exercise> exercises,
+                            final List<Note> notes, final List<Weight> weights) {
+        this.dataVersion = dataVersion;
+        this.sportTypes = sportTypes.stream().map(SportType::clone).toList();
+        this.exercises = exercises;
+        this.notes = notes;
+        this.weights = weights;
+
+        final Map<Long, SportType> sportTypeMap = new HashMap<>();
+        this.sportTypes.stream()
+                .filter(sportType -> sportType.getId() != null)
+                .forEach(sportType -> sportTypeMap.put(sportType.getId(), sportType));
+        this.sportTypesById = Map.copyOf(sportTypeMap);
+    }
+
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    public List<SportType> getSportTypes() {
+        return sportTypes;
+    }
+
+    public List<Exercise> getExercises() {
+        return exercises;
+    }
+
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    public List<Weight> getWeights() {
+        return weights;
+    }
+
+    /**
+     * Returns the sport type with the specified ID of this snapshot.
+     *
+     * @param sportTypeId ID of the sport type (can be null)
+     * @return the sport type or null when not found
+     */
+    public SportType getSportType(final Long sportTypeId) {
+        return sportTypeId == null ? null : sportTypesById.get(sportTypeId);
+    }
+
+    /**
+     * Returns the sport subtype of the specified exercise, resolved by the IDs from the sport types of this
+     * snapshot.
+     *
+     * @param exercise the exercise
+     * @return the sport subtype or null when not found
+     */
+    public SportSubType getSportSubType(final Exercise exercise) {
+        final SportType sportType = getSportType(exercise.getSportTypeId());
+        return sportType == null || exercise.getSportSubTypeId() == null ? null :
+                sportType.getSportSubTypeList().getByID(exercise.getSportSubTypeId());
+    }
+
+    /**
+     * Returns the equipment of the specified exercise, resolved by the IDs from the sport types of this snapshot.
+     *
+     * @param exercise the exercise
+     * @return the equipment or null when not found or not used
+     */
+    public Equipment getEquipment(final Exercise exercise) {
+        final SportType sportType = getSportType(exercise.getSportTypeId());
+        return sportType == null || exercise.getEquipmentId() == null ? null :
+                sportType.getEquipmentList().getByID(exercise.getEquipmentId());
+    }
+}
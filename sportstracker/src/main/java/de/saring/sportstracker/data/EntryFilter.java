@@ -4,6 +4,8 @@ import de.saring.sportstracker.data.Exercise.IntensityType;
 
 import java.time.LocalDate;
 import java.time.temporal.TemporalAdjusters;
+import java.util.Objects;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * This class defines the criteria for filtering the entry list (e.g. for creation of statistics).
@@ -11,7 +13,7 @@ import java.time.temporal.TemporalAdjusters;
  *
  * @author Stefan Saring
  */
-public final class EntryFilter {
+public final class EntryFilter implements Cloneable {
 
     /**
      * Enumeration with all possible entry types to be filtered.
@@ -180,6 +182,17 @@ public final class EntryFilter {
         return filter;
     }
 
+    /**
+     * Creates an immutable matcher for the current criteria of this filter. It can be used for checking any number
+     * of entries, later modifications of this filter have no effect on the matcher.
+     *
+     * @return the matcher for this filter
+     * @throws PatternSyntaxException thrown on parsing problems of the regular expression for comment searching
+     */
+    public EntryFilterMatcher compile() throws PatternSyntaxException {
+        return new EntryFilterMatcher(this);
+    }
+
     /**
      * This method updates the sport type, subtype and equipment objects of this
      * filter. This is necessary when the sport type objects have been edited,
@@ -207,6 +220,51 @@ public final class EntryFilter {
         }
     }
 
+    /**
+     * Returns a copy of this filter. The referenced sport type, subtype and equipment objects are not copied.
+     *
+     * @return clone of this object
+     */
+    @Override
+    public EntryFilter clone() {
+        try {
+            // nothing more to do (contains only immutable values and references to shared objects)
+            // (the exception can't happen)
+            return (EntryFilter) super.clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Two filters are equal when all their criteria are equal (sport types, subtypes and equipment are compared
+     * by their IDs).
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EntryFilter other)) {
+            return false;
+        }
+        return regularExpressionMode == other.regularExpressionMode &&
+                Objects.equals(dateStart, other.dateStart) &&
+                Objects.equals(dateEnd, other.dateEnd) &&
+                entryType == other.entryType &&
+                Objects.equals(sportType, other.sportType) &&
+                Objects.equals(sportSubType, other.sportSubType) &&
+                intensity == other.intensity &&
+                Objects.equals(equipment, other.equipment) &&
+                Objects.equals(commentSubString, other.commentSubString);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(dateStart, dateEnd, entryType, sportType, sportSubType, intensity, equipment,
+                commentSubString, regularExpressionMode);
+    }
+
     @Override
     public String toString() {
 
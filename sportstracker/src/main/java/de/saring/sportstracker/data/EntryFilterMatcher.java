@@ -0,0 +1,165 @@
+package de.saring.sportstracker.data;
+
+import java.time.LocalDate;
+import java.util.regex.Pattern;
+
+import de.saring.sportstracker.data.Exercise.IntensityType;
+import de.saring.util.StringUtils;
+
+/**
+ * Immutable and reusable matcher for entries, created by {@link EntryFilter#compile()}. All the filter criteria
+ * are prepared once on creation (regular expression compiled, comment words tokenized, dates converted to epoch
+ * days), so checking many entries needs no further preparation work and no object allocation per entry.<br/>
+ * The criteria are checked in the order of their costs: sport type, intensity, subtype and equipment (ID
+ * comparisons), then date and finally the comment. The exercise references are compared by their IDs, so they
+ * don't need to be resolved and a matcher can also be used in background threads, e.g. on a document snapshot.
+ *
+ * @author Stefan Saring
+ */
+public final class EntryFilterMatcher {
+
+    private final EntryFilter.EntryType entryType;
+
+    private final long epochDayStart;
+    private final long epochDayEnd;
+
+    private final Long sportTypeId;
+    private final Long sportSubTypeId;
+    private final IntensityType intensity;
+    private final Long equipmentId;
+
+    /** Compiled comment pattern in regular expression mode, otherwise null. */
+    private final Pattern commentPattern;
+
+    /** Lower case comment words in substring mode, otherwise null. */
+    private final String[] commentWords;
+
+    /**
+     * Creates the matcher for the current criteria of the specified filter.
+     *
+     * @param filter the entry filter
+     * @throws java.util.regex.PatternSyntaxException thrown on parsing problems of the regular expression
+     */
+    EntryFilterMatcher(final EntryFilter filter) {
+        this.entryType = filter.getEntryType();
+        this.epochDayStart = toEpochDay(filter.getDateStart(), Long.MIN_VALUE);
+        this.epochDayEnd = toEpochDay(filter.getDateEnd(), Long.MAX_VALUE);
+        this.sportTypeId = filter.getSportType() == null ? null : filter.getSportType().getId();
+        this.sportSubTypeId = filter.getSportSubType() == null ? null : filter.getSportSubType().getId();
+        this.intensity = filter.getIntensity();
+        this.equipmentId = filter.getEquipment() == null ? null : filter.getEquipment().getId();
+
+        if (StringUtils.isNullOrEmpty(filter.getCommentSubString())) {
+            this.commentPattern = null;
+            this.commentWords = null;
+        } else {
+            final String commentSubString = trimCommentSubString(filter.getCommentSubString());
+            if (filter.isRegularExpressionMode()) {
+                // regular expression searching for substring (is case sensitive !)
+                this.commentPattern = Pattern.compile(commentSubString);
+                this.commentWords = null;
+            } else {
+                // normal search can contain multiple words separated by any whitespace character
+                // => each of these words needs to be contained in the entry comment (not case sensitive)
+                this.commentPattern = null;
+                this.commentWords = splitCommentWords(commentSubString);
+            }
+        }
+    }
+
+    /**
+     * Returns the entry type of the filter.
+     *
+     * @return entry type
+     */
+    public EntryFilter.EntryType getEntryType() {
+        return entryType;
+    }
+
+    /**
+     * Returns the lower case comment search words in substring mode.
+     *
+     * @return array of words or null when there are no comment criteria or in regular expression mode
+     */
+    String[] getCommentWords() {
+        return commentWords;
+    }
+
+    /**
+     * Checks whether the specified entry fulfills all the filter criteria. The exercise specific criteria are
+     * ignored for other entry types.
+     *
+     * @param entry entry to check
+     * @return true if the filter matches
+     */
+    public boolean matches(final Entry entry) {
+
+        if (entry instanceof Exercise exercise && !matchesExerciseAttributes(exercise)) {
+            return false;
+        }
+
+        // make sure that the entry is in the specified time period
+        if (!entry.isInDateRange(epochDayStart, epochDayEnd)) {
+            return false;
+        }
+
+        return matchesComment(entry.getComment());
+    }
+
+    private boolean matchesExerciseAttributes(final Exercise exercise) {
+        return (sportTypeId == null || sportTypeId.equals(exercise.getSportTypeId())) &&
+                (intensity == null || intensity == exercise.getIntensity()) &&
+                (sportSubTypeId == null || sportSubTypeId.equals(exercise.getSportSubTypeId())) &&
+                (equipmentId == null || equipmentId.equals(exercise.getEquipmentId()));
+    }
+
+    private boolean matchesComment(final String comment) {
+        if (commentPattern == null && commentWords == null) {
+            return true;
+        }
+
+        // ignore this entry when no comment present
+        if (StringUtils.isNullOrEmpty(comment)) {
+            return false;
+        }
+
+        if (commentPattern != null) {
+            return commentPattern.matcher(comment).find();
+        }
+
+        // the order of the words does not matter (AND logic)
+        final String lowerCaseComment = comment.toLowerCase();
+        for (String commentWord : commentWords) {
+            if (!lowerCaseComment.contains(commentWord)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the comment search string without leading and trailing whitespace. It's also used by the database
+     * filter queries, so they produce the same results.
+     *
+     * @param commentSubString the comment search string of the filter
+     * @return the trimmed search string
+     */
+    public static String trimCommentSubString(final String commentSubString) {
+        return commentSubString.trim();
+    }
+
+    /**
+     * Splits the trimmed comment search string into the lower case words for the substring mode. The words can be
+     * separated by any whitespace character.
+     *
+     * @param commentSubString the trimmed comment search string
+     * @return array of the lower case words
+     */
+    public static String[] splitCommentWords(final String commentSubString) {
+        return commentSubString.toLowerCase().split("\\s+");
+    }
+
+    private static long toEpochDay(final LocalDate date, final long defaultValue) {
+        return date == null ? defaultValue : date.toEpochDay();
+    }
+}
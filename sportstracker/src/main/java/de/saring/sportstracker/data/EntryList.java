@@ -1,26 +1,34 @@
 package de.saring.sportstracker.data;
 
-import java.time.LocalDate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
 import java.util.regex.PatternSyntaxException;
 
-import de.saring.util.StringUtils;
 import de.saring.util.data.IdDateObjectList;
 
 /**
  * This list extends IdDateObjectList and contains unique instances of Entry subclasses. It provides common
- * filtering for entries of all types.
+ * filtering for entries of all types.<br/>
+ * The comment search in substring mode uses an inverted index of the entry comments, see {@link CommentIndex}.
+ * The index will be created on the first search after the list content has been replaced and will be updated
+ * incrementally on all following modifications. So the comment of an entry must not be modified while it is stored
+ * in the list, the modified entry needs to be stored by using set() afterwards.
  *
  * @param <T> the object type to store in this list, must be a subclass of Entry
  * @author Stefan Saring
  */
 public class EntryList<T extends Entry> extends IdDateObjectList<T> {
 
+    private final CommentIndex commentIndex = new CommentIndex();
+
+    /** Flag whether the comment index has been created and is valid for the current list content. */
+    private boolean commentIndexValid = false;
+
     /**
-     * This method searches through the whole entry list and returns an list of all notes which are fulfilling
-     * all the specified filter criteria. The comment filter is optional. The filtering by a comment substring
-     * is only case sensitive in regular expression mode.<br/>
+     * This method searches through the whole entry list and returns an list of all entries which are fulfilling
+     * all the specified filter criteria (see {@link EntryFilterMatcher}). The comment filter is optional. The filtering
+     * by a comment substring is only case sensitive in regular expression mode.<br/>
      * The filter will be ignored when it is for another entry type than the entries stored in this list.
      *
      * @param filter the entry filter criteria
@@ -40,71 +48,104 @@ public class EntryList<T extends Entry> extends IdDateObjectList<T> {
             return this;
         }
 
+        final EntryFilterMatcher matcher = filter.compile();
+        final BitSet commentMatches = getPositionsForComment(matcher);
         final EntryList<T> foundEntries = new EntryList<>();
-        stream().filter(note -> filterEntry(note, filter))
-                .forEach(foundEntries::set);
+
+        if (commentMatches == null) {
+            foundEntries.clearAndAddAll(stream()
+                    .filter(matcher::matches)
+                    .toList());
+        } else {
+            // check only the entries containing all the comment words
+            foundEntries.clearAndAddAll(commentMatches.stream()
+                    .mapToObj(this::getAt)
+                    .filter(matcher::matches)
+                    .toList());
+        }
         return foundEntries;
     }
 
     /**
-     * Checks whether the specified entry matches the comment of the filter. It filters the entry date
-     * and the entry comment (if present).
+     * Returns the positions of all entries in this list which are containing all the comment words of the
+     * specified matcher (in substring mode) by using the comment index.
      *
-     * @param entry entry to check
-     * @param filter entry filter
-     * @return true if the filter matches
+     * @param matcher the compiled filter criteria
+     * @return the list positions of the matching entries or null when there are no comment criteria for the index
      */
-    protected boolean filterEntry(T entry, EntryFilter filter) {
-
-        // make sure that the entry is in the specified time period
-        LocalDate entryDate = entry.getDateTime().toLocalDate();
-        if (filter.getDateStart().isAfter(entryDate) || filter.getDateEnd().isBefore(entryDate)) {
-            return false;
+    protected BitSet getPositionsForComment(final EntryFilterMatcher matcher) {
+        final String[] commentWords = matcher.getCommentWords();
+        if (commentWords == null || !ensureCommentIndex()) {
+            return null;
         }
 
-        // do we need to search in comments ?
-        if (!StringUtils.isNullOrEmpty(filter.getCommentSubString())) {
-            if (!filterEntryByComment(entry, filter)) {
-                return false;
+        final Set<Long> entryIds = commentIndex.findEntryIds(commentWords);
+        final BitSet positions = new BitSet(size());
+        entryIds.forEach(entryId -> positions.set(indexOf(getByID(entryId))));
+        return positions;
+    }
+
+    @Override
+    protected void onEntryAdded(final int index, final T entry) {
+        super.onEntryAdded(index, entry);
+        if (commentIndexValid) {
+            if (entry.getId() == null) {
+                commentIndexValid = false;
+            } else {
+                commentIndex.add(entry.getId(), entry.getComment());
             }
         }
-
-        // all filter criteria are fulfilled
-        return true;
     }
 
-    private boolean filterEntryByComment(Entry entry, EntryFilter filter) {
+    @Override
+    protected void onEntryReplaced(final int index, final T oldEntry, final T newEntry) {
+        super.onEntryReplaced(index, oldEntry, newEntry);
+        if (commentIndexValid) {
+            commentIndex.remove(oldEntry.getId());
+            commentIndex.add(newEntry.getId(), newEntry.getComment());
+        }
+    }
 
-        // ignore this entry when no comment present
-        if (StringUtils.isNullOrEmpty(entry.getComment())) {
-            return false;
+    @Override
+    protected void onEntryRemoved(final int index, final T entry) {
+        super.onEntryRemoved(index, entry);
+        if (commentIndexValid) {
+            commentIndex.remove(entry.getId());
         }
+    }
 
-        String strCommentSubString = filter.getCommentSubString().trim();
+    @Override
+    protected void onEntriesRemoved(final int[] indexes, final List<? extends T> entries) {
+        super.onEntriesRemoved(indexes, entries);
+        if (commentIndexValid) {
+            entries.forEach(entry -> commentIndex.remove(entry.getId()));
+        }
+    }
 
-        if (!filter.isRegularExpressionMode()) {
-            // normal searching for substring (is not case sensitive !)
-            strCommentSubString = strCommentSubString.toLowerCase();
-            String strEntryComment = entry.getComment().toLowerCase();
+    @Override
+    protected void onEntriesReset() {
+        super.onEntriesReset();
+        commentIndexValid = false;
+    }
 
-            // normal search can contain multiple words separated by any whitespace character
-            // => each of these words needs to be contained in the entry comment, the order does not matter (AND logic)
-            String[] filterWords = strCommentSubString.split("\\s+");
-            for (var filterWord : filterWords) {
-                if (!strEntryComment.contains(filterWord)) {
+    /**
+     * Creates the comment index for the complete list content, when it is not valid. This is only possible when
+     * all entries have an ID.
+     *
+     * @return true when the comment index is valid
+     */
+    private boolean ensureCommentIndex() {
+        if (!commentIndexValid) {
+            commentIndex.clear();
+            for (T entry : this) {
+                if (entry.getId() == null) {
+                    commentIndex.clear();
                     return false;
                 }
+                commentIndex.add(entry.getId(), entry.getComment());
             }
+            commentIndexValid = true;
         }
-        else {
-            // regular expression searching for substring (is case sensitive !)
-            Pattern ptnCommentSubString = Pattern.compile(strCommentSubString);
-            Matcher matcher = ptnCommentSubString.matcher(entry.getComment());
-            if (!matcher.find()) {
-                return false;
-            }
-        }
-
         return true;
     }
 }
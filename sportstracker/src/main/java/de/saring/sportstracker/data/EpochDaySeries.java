@@ -0,0 +1,147 @@
+package de.saring.sportstracker.data;
+
+import java.util.Arrays;
+
+/**
+ * Daily values in a continuous range of epoch days, stored in arrays indexed by the day. It contains one or more
+ * channels of daily values and of derived values, which are calculated from the daily values in ascending order
+ * of the days (e.g. cumulative sums or moving averages).<br/>
+ * The range starts at the first and ends at the last day with added values, it grows when values are added outside.
+ * When daily values are modified, the derived values get invalid from the modified day on. They will be
+ * recalculated by the subclass on the next query (see {@link #ensureDerivedValues()}), starting at the first
+ * invalid day.
+ *
+ * @author Stefan Saring
+ */
+abstract class EpochDaySeries {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Epoch day of the first day in the arrays. */
+    private long firstDay;
+
+    /** Number of days in the arrays (0 when no values have been added yet). */
+    private int length;
+
+    /** Daily values for each channel. */
+    private final double[][] daily;
+
+    /** Derived values for each channel (valid before index invalidFrom). */
+    private final double[][] derived;
+
+    /** Index of the first day with invalid derived values (equals length when all are valid). */
+    private int invalidFrom;
+
+    /**
+     * Standard c'tor.
+     *
+     * @param dailyChannels number of channels of the daily values
+     * @param derivedChannels number of channels of the derived values
+     */
+    EpochDaySeries(final int dailyChannels, final int derivedChannels) {
+        daily = new double[dailyChannels][0];
+        derived = new double[derivedChannels][0];
+    }
+
+    /**
+     * Adds the value to the daily value of the specified channel and day.
+     *
+     * @param epochDay the epoch day
+     * @param channel the channel of the daily value
+     * @param value the value to add (negative for removal)
+     */
+    final void addDailyValue(final long epochDay, final int channel, final double value) {
+        final int index = ensureDay(epochDay);
+        daily[channel][index] += value;
+        invalidFrom = Math.min(invalidFrom, index);
+    }
+
+    final boolean isEmpty() {
+        return length == 0;
+    }
+
+    final long getFirstDay() {
+        return firstDay;
+    }
+
+    final long getLastDay() {
+        return firstDay + length - 1;
+    }
+
+    /**
+     * Returns the derived value of the specified channel and day, the day must be inside the range.
+     *
+     * @param channel the channel of the derived value
+     * @param epochDay the epoch day
+     * @return the derived value
+     */
+    final double getDerivedValue(final int channel, final long epochDay) {
+        ensureDerivedValues();
+        return derived[channel][(int) (epochDay - firstDay)];
+    }
+
+    /**
+     * Recalculates the derived values, starting at the first invalid day.
+     */
+    final void ensureDerivedValues() {
+        if (invalidFrom < length) {
+            recalculate(daily, derived, invalidFrom, length);
+            invalidFrom = length;
+        }
+    }
+
+    /**
+     * Calculates the derived values of the days in the specified index range. The derived values before the start
+     * index are valid.
+     *
+     * @param daily the daily values for each channel
+     * @param derived the derived values for each channel
+     * @param fromIndex the index of the first day to calculate
+     * @param toIndex the index after the last day to calculate
+     */
+    protected abstract void recalculate(double[][] daily, double[][] derived, int fromIndex, int toIndex);
+
+    /**
+     * Makes sure that the arrays contain the specified day, they will be extended when needed.
+     *
+     * @return the array index of the day
+     */
+    private int ensureDay(final long epochDay) {
+        if (length == 0) {
+            firstDay = epochDay;
+            length = 1;
+            resize(INITIAL_CAPACITY, 0);
+            invalidFrom = 0;
+        } else if (epochDay < firstDay) {
+            // prepend the missing days, all derived values are invalid
+            final int shift = (int) (firstDay - epochDay);
+            resize(Math.max(length + shift, daily[0].length), shift);
+            firstDay = epochDay;
+            length += shift;
+            invalidFrom = 0;
+        } else if (epochDay >= firstDay + length) {
+            // append the missing days (empty), their derived values are invalid
+            final int newLength = (int) (epochDay - firstDay + 1);
+            if (newLength > daily[0].length) {
+                resize(Math.max(newLength, daily[0].length * 2), 0);
+            }
+            invalidFrom = Math.min(invalidFrom, length);
+            length = newLength;
+        }
+        return (int) (epochDay - firstDay);
+    }
+
+    /**
+     * Resizes the arrays to the specified capacity and moves the existing days by the specified shift.
+     */
+    private void resize(final int capacity, final int shift) {
+        for (int channel = 0; channel < daily.length; channel++) {
+            final double[] newDaily = new double[capacity];
+            System.arraycopy(daily[channel], 0, newDaily, shift, Math.min(length, daily[channel].length));
+            daily[channel] = newDaily;
+        }
+        for (int channel = 0; channel < derived.length; channel++) {
+            derived[channel] = Arrays.copyOf(derived[channel], capacity);
+        }
+    }
+}
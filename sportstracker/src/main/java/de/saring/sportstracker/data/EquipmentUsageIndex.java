@@ -0,0 +1,206 @@
+package de.saring.sportstracker.data;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of the equipment usage in all exercises, keyed by the sport type ID and the equipment ID (the equipment IDs
+ * are unique inside a sport type only). For each equipment the usages (day, distance and duration of the exercises)
+ * are stored in arrays sorted by the epoch day, together with the cumulative distances. So the total usage and the
+ * distance since any date (e.g. the shoe mileage since the last service) can be queried without processing the
+ * exercises.<br/>
+ * The index is updated incrementally when exercises are added or removed, the cumulative distances get invalid from
+ * the modified position on (see {@link SortedSeries}). It only depends on the IDs, so modifications of the sport
+ * types or equipment (e.g. renaming) don't need any update. The added usage of each exercise is stored by a
+ * {@link ContributionTracker} for the removal.
+ *
+ * @author Stefan Saring
+ */
+public final class EquipmentUsageIndex {
+
+    /** Map of the usage series for each equipment ID, grouped by the sport type ID. */
+    private final Map<Long, Map<Long, UsageSeries>> sportTypeSeries = new HashMap<>();
+
+    private final ContributionTracker<Exercise, Contribution> contributions =
+            new ContributionTracker<>(Contribution::of);
+
+    /**
+     * Adds the usage of the specified exercise, it will be ignored when the exercise has no equipment.
+     *
+     * @param exercise the exercise to add
+     */
+    public void add(final Exercise exercise) {
+        if (exercise.getSportTypeId() == null || exercise.getEquipmentId() == null) {
+            return;
+        }
+
+        final Contribution contribution = contributions.add(exercise);
+        sportTypeSeries.computeIfAbsent(contribution.sportTypeId(), id -> new HashMap<>())
+                .computeIfAbsent(contribution.equipmentId(), id -> new UsageSeries())
+                .addUsage(contribution.epochDay(), contribution.distance(), contribution.duration());
+    }
+
+    /**
+     * Removes the usage of the specified exercise.
+     *
+     * @param exercise the exercise to remove
+     */
+    public void remove(final Exercise exercise) {
+        final Contribution contribution = contributions.remove(exercise);
+        if (contribution == null) {
+            return;
+        }
+
+        final Map<Long, UsageSeries> equipmentSeries = sportTypeSeries.get(contribution.sportTypeId());
+        final UsageSeries series = equipmentSeries.get(contribution.equipmentId());
+        series.removeUsage(contribution.epochDay(), contribution.distance(), contribution.duration());
+        if (series.size() == 0) {
+            equipmentSeries.remove(contribution.equipmentId());
+        }
+    }
+
+    /**
+     * Removes all exercises from the index.
+     */
+    public void clear() {
+        sportTypeSeries.clear();
+        contributions.clear();
+    }
+
+    /**
+     * Returns the number of exercises using the specified equipment.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param equipmentId ID of the equipment
+     * @return the exercise count
+     */
+    public int getUsageCount(final long sportTypeId, final long equipmentId) {
+        final UsageSeries series = getSeries(sportTypeId, equipmentId);
+        return series == null ? 0 : series.size();
+    }
+
+    /**
+     * Returns the total distance of all exercises using the specified equipment.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param equipmentId ID of the equipment
+     * @return the distance in kilometers
+     */
+    public double getDistance(final long sportTypeId, final long equipmentId) {
+        final UsageSeries series = getSeries(sportTypeId, equipmentId);
+        return series == null ? 0 : series.getDistanceFrom(0);
+    }
+
+    /**
+     * Returns the total distance of all exercises using the specified equipment at or after the specified date.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param equipmentId ID of the equipment
+     * @param dateSince the first date to be included
+     * @return the distance in kilometers
+     */
+    public double getDistanceSince(final long sportTypeId, final long equipmentId, final LocalDate dateSince) {
+        final UsageSeries series = getSeries(sportTypeId, equipmentId);
+        return series == null ? 0 : series.getDistanceFrom(series.lowerBound(dateSince.toEpochDay()));
+    }
+
+    /**
+     * Returns the total duration of all exercises using the specified equipment.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param equipmentId ID of the equipment
+     * @return the duration in seconds
+     */
+    public long getDuration(final long sportTypeId, final long equipmentId) {
+        final UsageSeries series = getSeries(sportTypeId, equipmentId);
+        return series == null ? 0 : series.totalDuration;
+    }
+
+    /**
+     * Returns the date of the first exercise using the specified equipment.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param equipmentId ID of the equipment
+     * @return the date of first usage or null when the equipment has not been used
+     */
+    public LocalDate getFirstUsage(final long sportTypeId, final long equipmentId) {
+        final UsageSeries series = getSeries(sportTypeId, equipmentId);
+        return series == null ? null : LocalDate.ofEpochDay(series.getKey(0));
+    }
+
+    /**
+     * Returns the date of the last exercise using the specified equipment.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param equipmentId ID of the equipment
+     * @return the date of last usage or null when the equipment has not been used
+     */
+    public LocalDate getLastUsage(final long sportTypeId, final long equipmentId) {
+        final UsageSeries series = getSeries(sportTypeId, equipmentId);
+        return series == null ? null : LocalDate.ofEpochDay(series.getKey(series.size() - 1));
+    }
+
+    private UsageSeries getSeries(final long sportTypeId, final long equipmentId) {
+        final Map<Long, UsageSeries> equipmentSeries = sportTypeSeries.get(sportTypeId);
+        return equipmentSeries == null ? null : equipmentSeries.get(equipmentId);
+    }
+
+    /**
+     * The usage of a single exercise, it's stored for the removal.
+     */
+    private record Contribution(long sportTypeId, long equipmentId, long epochDay, double distance, int duration) {
+
+        static Contribution of(final Exercise exercise) {
+            return new Contribution(exercise.getSportTypeId(), exercise.getEquipmentId(), exercise.getEpochDay(),
+                    exercise.getDistance(), exercise.getDuration());
+        }
+    }
+
+    /**
+     * The usages (distance and duration) of one equipment, sorted by the epoch day, and the cumulative distances.
+     */
+    private static final class UsageSeries extends SortedSeries {
+
+        private static final int DISTANCE = 0;
+
+        private long totalDuration;
+
+        UsageSeries() {
+            super(2, 1);
+        }
+
+        void addUsage(final long epochDay, final double distance, final int duration) {
+            insert(epochDay, distance, duration);
+            totalDuration += duration;
+        }
+
+        void removeUsage(final long epochDay, final double distance, final int duration) {
+            remove(epochDay, distance, duration);
+            totalDuration -= duration;
+        }
+
+        /**
+         * Returns the distance sum of the usages starting at the specified position.
+         */
+        double getDistanceFrom(final int position) {
+            if (position >= size()) {
+                return 0;
+            }
+            return getDerivedValue(DISTANCE, size() - 1)
+                    - (position == 0 ? 0 : getDerivedValue(DISTANCE, position - 1));
+        }
+
+        @Override
+        protected void recalculate(final double[][] values, final double[][] cumulative, final int fromIndex,
+                                   final int toIndex) {
+            final double[] distances = values[DISTANCE];
+            final double[] cumulativeDistances = cumulative[DISTANCE];
+            double sum = fromIndex == 0 ? 0 : cumulativeDistances[fromIndex - 1];
+            for (int i = fromIndex; i < toIndex; i++) {
+                sum += distances[i];
+                cumulativeDistances[i] = sum;
+            }
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package de.saring.sportstracker.data;
 
 /**
- * This class contains all information of a single exercise (or workout).
+ * This class contains all information of a single exercise (or workout).<br/>
+ * The sport type, sport subtype and equipment are referenced by their IDs. When the exercise is stored in an
+ * {@link ExerciseList} with a sport type list, the referenced objects will be resolved by their IDs from this
+ * sport type list (the registry). They are cached until the version of the sport type list changes, so edited
+ * sport types are used by all exercises without updating each of them. Without sport type list (or when the sport
+ * type list doesn't contain the sport type ID) the objects will be returned as they have been set.<br/>
+ * The resolved objects are published together as one immutable instance, so readers in other threads never see
+ * a partially resolved state.
  *
  * @author Stefan Saring
  * @version 1.0
@@ -9,15 +16,30 @@ package de.saring.sportstracker.data;
 public final class Exercise extends Entry implements Cloneable {
 
     /**
-     * The related SportType object.
+     * The related SportType object as it has been set.
      */
     private SportType sportType;
 
     /**
-     * The related SportSubType object.
+     * The related SportSubType object as it has been set.
      */
     private SportSubType sportSubType;
 
+    /** IDs of the related SportType, SportSubType and Equipment objects. */
+    private Long sportTypeId;
+    private Long sportSubTypeId;
+    private Long equipmentId;
+
+    /**
+     * The sport type list used for resolving the referenced objects by their IDs (optional).
+     */
+    private SportTypeList sportTypeList;
+
+    /**
+     * The referenced objects resolved from the sport type list (null when they need to be resolved again).
+     */
+    private volatile ResolvedReferences resolvedReferences;
+
     /**
      * Duration of exercise in seconds.
      */
@@ -64,7 +86,7 @@ public final class Exercise extends Entry implements Cloneable {
     private String hrmFile;
 
     /**
-     * The equipment used in this exercise (optional).
+     * The equipment used in this exercise as it has been set (optional).
      */
     private Equipment equipment;
 
@@ -115,19 +137,31 @@ public final class Exercise extends Entry implements Cloneable {
     }
 
     public SportType getSportType() {
-        return sportType;
+        return resolveSportTypeReferences().sportType();
     }
 
     public void setSportType(SportType sportType) {
         this.sportType = sportType;
+        this.sportTypeId = sportType == null ? null : sportType.getId();
+        this.resolvedReferences = null;
+    }
+
+    public Long getSportTypeId() {
+        return sportTypeId;
     }
 
     public SportSubType getSportSubType() {
-        return sportSubType;
+        return resolveSportTypeReferences().sportSubType();
     }
 
     public void setSportSubType(SportSubType sportSubType) {
         this.sportSubType = sportSubType;
+        this.sportSubTypeId = sportSubType == null ? null : sportSubType.getId();
+        this.resolvedReferences = null;
+    }
+
+    public Long getSportSubTypeId() {
+        return sportSubTypeId;
     }
 
     public int getDuration() {
@@ -203,11 +237,68 @@ public final class Exercise extends Entry implements Cloneable {
     }
 
     public Equipment getEquipment() {
-        return equipment;
+        return resolveSportTypeReferences().equipment();
     }
 
     public void setEquipment(Equipment equipment) {
         this.equipment = equipment;
+        this.equipmentId = equipment == null ? null : equipment.getId();
+        this.resolvedReferences = null;
+    }
+
+    public Long getEquipmentId() {
+        return equipmentId;
+    }
+
+    /**
+     * Sets the sport type list for resolving the sport type, subtype and equipment by their IDs.
+     *
+     * @param sportTypeList the sport type list (can be null)
+     */
+    void setSportTypeList(final SportTypeList sportTypeList) {
+        this.sportTypeList = sportTypeList;
+    }
+
+    /**
+     * Returns the referenced sport type, subtype and equipment. They are resolved by their IDs from the sport type
+     * list, when it has been changed since the last resolving. The current objects are kept when they are not in
+     * the sport type list. The result is published by a single volatile write, concurrent resolving in multiple
+     * threads leads to equal results.
+     *
+     * @return the resolved references
+     */
+    private ResolvedReferences resolveSportTypeReferences() {
+        final ResolvedReferences current = resolvedReferences;
+        final SportTypeList registry = sportTypeList;
+        if (current != null && current.sportTypeList() == registry
+                && (registry == null || current.sportTypeListVersion() == registry.getVersion())) {
+            return current;
+        }
+
+        SportType resolvedSportType = current == null ? sportType : current.sportType();
+        SportSubType resolvedSubType = current == null ? sportSubType : current.sportSubType();
+        Equipment resolvedEquipment = current == null ? equipment : current.equipment();
+        final long version = registry == null ? -1 : registry.getVersion();
+
+        final SportType registeredSportType = registry == null || sportTypeId == null ?
+                null : registry.getByID(sportTypeId);
+        if (registeredSportType != null) {
+            resolvedSportType = registeredSportType;
+
+            if (sportSubTypeId != null) {
+                final SportSubType registeredSubType = registeredSportType.getSportSubTypeList().getByID(sportSubTypeId);
+                resolvedSubType = registeredSubType == null ? resolvedSubType : registeredSubType;
+            }
+            if (equipmentId != null) {
+                final Equipment registeredEquipment = registeredSportType.getEquipmentList().getByID(equipmentId);
+                resolvedEquipment = registeredEquipment == null ? resolvedEquipment : registeredEquipment;
+            }
+        }
+
+        final ResolvedReferences resolved = new ResolvedReferences(registry, version, resolvedSportType,
+                resolvedSubType, resolvedEquipment);
+        resolvedReferences = resolved;
+        return resolved;
     }
 
     /**
@@ -243,8 +334,8 @@ public final class Exercise extends Entry implements Cloneable {
         sBuilder.append(this.getClass().getName()).append(":\n");
         sBuilder.append(" [id=").append(this.getId()).append("\n");
         sBuilder.append("  date=").append(this.getDateTime()).append("\n");
-        sBuilder.append("  sportType=").append(this.sportType).append("\n");
-        sBuilder.append("  sportSubType=").append(this.sportSubType).append("\n");
+        sBuilder.append("  sportType=").append(this.getSportType()).append("\n");
+        sBuilder.append("  sportSubType=").append(this.getSportSubType()).append("\n");
         sBuilder.append("  duration=").append(this.duration).append("\n");
         sBuilder.append("  intensity=").append(this.intensity).append("\n");
         sBuilder.append("  distance=").append(this.distance).append("\n");
@@ -254,8 +345,15 @@ public final class Exercise extends Entry implements Cloneable {
         sBuilder.append("  descent=").append(this.descent).append("\n");
         sBuilder.append("  calories=").append(this.calories).append("\n");
         sBuilder.append("  hrmFile=").append(this.hrmFile).append("\n");
-        sBuilder.append("  equipment=").append(this.equipment).append("\n");
+        sBuilder.append("  equipment=").append(this.getEquipment()).append("\n");
         sBuilder.append("  comment=").append(this.getComment()).append("]\n");
         return sBuilder.toString();
     }
+
+    /**
+     * Immutable combination of the referenced objects resolved from a specific version of the sport type list.
+     */
+    private record ResolvedReferences(SportTypeList sportTypeList, long sportTypeListVersion, SportType sportType,
+                                      SportSubType sportSubType, Equipment equipment) {
+    }
 }
@@ -0,0 +1,113 @@
+package de.saring.sportstracker.data;
+
+/**
+ * This class contains the summed up values of multiple exercises, e.g. of all exercises in a time range. The
+ * optional exercise values (ascent, descent and calories) are summed up only for the exercises containing them.
+ *
+ * @author Stefan Saring
+ */
+public final class ExerciseAggregate {
+
+    private int count;
+    private double distance;
+    private long duration;
+    private long ascent;
+    private long descent;
+    private long calories;
+
+    /**
+     * Adds the values of the specified exercise to this aggregate.
+     *
+     * @param exercise the exercise to add
+     */
+    public void add(final Exercise exercise) {
+        count++;
+        distance += exercise.getDistance();
+        duration += exercise.getDuration();
+        ascent += exercise.getAscent() == null ? 0 : exercise.getAscent();
+        descent += exercise.getDescent() == null ? 0 : exercise.getDescent();
+        calories += exercise.getCalories() == null ? 0 : exercise.getCalories();
+    }
+
+    /**
+     * Adds all the values of the specified aggregate to this aggregate.
+     *
+     * @param other the aggregate to add
+     */
+    public void add(final ExerciseAggregate other) {
+        count += other.count;
+        distance += other.distance;
+        duration += other.duration;
+        ascent += other.ascent;
+        descent += other.descent;
+        calories += other.calories;
+    }
+
+    /**
+     * Subtracts all the values of the specified aggregate from this aggregate.
+     *
+     * @param other the aggregate to subtract
+     */
+    public void subtract(final ExerciseAggregate other) {
+        count -= other.count;
+        distance -= other.distance;
+        duration -= other.duration;
+        ascent -= other.ascent;
+        descent -= other.descent;
+        calories -= other.calories;
+    }
+
+    /**
+     * Returns the number of the aggregated exercises.
+     *
+     * @return exercise count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the distance sum in kilometers.
+     *
+     * @return distance sum
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns the duration sum in seconds.
+     *
+     * @return duration sum
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the ascent sum in meters.
+     *
+     * @return ascent sum
+     */
+    public long getAscent() {
+        return ascent;
+    }
+
+    /**
+     * Returns the descent sum in meters.
+     *
+     * @return descent sum
+     */
+    public long getDescent() {
+        return descent;
+    }
+
+    /**
+     * Returns the calorie consumption sum in kCal.
+     *
+     * @return calorie sum
+     */
+    public long getCalories() {
+        return calories;
+    }
+}
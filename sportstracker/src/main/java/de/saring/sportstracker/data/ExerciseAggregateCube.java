@@ -0,0 +1,304 @@
+package de.saring.sportstracker.data;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Aggregate cube of the exercise values (see {@link ExerciseAggregate}). It contains the aggregated values of all
+ * exercises for each day, month and year, separately for all exercises, for each sport type, for each sport subtype
+ * and for each equipment (or no equipment) of a sport type.<br/>
+ * So the aggregate of a time range can be queried by summing up the year, month and day cells covering the range,
+ * e.g. one cell for a month or 7 cells for a week, independent of the number of exercises. The cube is updated
+ * incrementally when exercises are added or removed. The added values of each exercise are stored by a
+ * {@link ContributionTracker} for the removal.
+ *
+ * @author Stefan Saring
+ */
+public final class ExerciseAggregateCube {
+
+    /** Map of the cells for each aggregation key. */
+    private final Map<Key, Cells> cellsByKey = new HashMap<>();
+
+    private final ContributionTracker<Exercise, Contribution> contributions =
+            new ContributionTracker<>(Contribution::of);
+
+    /**
+     * Adds the values of the specified exercise to the cube.
+     *
+     * @param exercise the exercise to add
+     */
+    public void add(final Exercise exercise) {
+        final Contribution contribution = contributions.add(exercise);
+        final LocalDate date = LocalDate.ofEpochDay(contribution.epochDay());
+        for (Key key : contribution.keys()) {
+            cellsByKey.computeIfAbsent(key, k -> new Cells()).add(date, contribution.values());
+        }
+    }
+
+    /**
+     * Removes the values of the specified exercise from the cube.
+     *
+     * @param exercise the exercise to remove
+     */
+    public void remove(final Exercise exercise) {
+        final Contribution contribution = contributions.remove(exercise);
+        if (contribution == null) {
+            return;
+        }
+
+        final LocalDate date = LocalDate.ofEpochDay(contribution.epochDay());
+        for (Key key : contribution.keys()) {
+            final Cells cells = cellsByKey.get(key);
+            cells.subtract(date, contribution.values());
+            if (cells.isEmpty()) {
+                cellsByKey.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all exercises from the cube.
+     */
+    public void clear() {
+        cellsByKey.clear();
+        contributions.clear();
+    }
+
+    /**
+     * Returns the aggregated values of all exercises in the specified date range.
+     *
+     * @param dateStart start date of the range (inclusive)
+     * @param dateEnd end date of the range (inclusive)
+     * @return the aggregate (a new instance)
+     */
+    public ExerciseAggregate getTotal(final LocalDate dateStart, final LocalDate dateEnd) {
+        return getAggregate(new Key(Dimension.ALL, null, null), dateStart, dateEnd);
+    }
+
+    /**
+     * Returns the aggregated values of all exercises of the specified sport type in the specified date range.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param dateStart start date of the range (inclusive)
+     * @param dateEnd end date of the range (inclusive)
+     * @return the aggregate (a new instance)
+     */
+    public ExerciseAggregate getForSportType(final long sportTypeId, final LocalDate dateStart,
+                                             final LocalDate dateEnd) {
+        return getAggregate(new Key(Dimension.SPORT_TYPE, sportTypeId, null), dateStart, dateEnd);
+    }
+
+    /**
+     * Returns the aggregated values of all exercises of the specified sport type and subtype in the specified date
+     * range.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param sportSubTypeId ID of the sport subtype
+     * @param dateStart start date of the range (inclusive)
+     * @param dateEnd end date of the range (inclusive)
+     * @return the aggregate (a new instance)
+     */
+    public ExerciseAggregate getForSportSubType(final long sportTypeId, final long sportSubTypeId,
+                                                final LocalDate dateStart, final LocalDate dateEnd) {
+        return getAggregate(new Key(Dimension.SPORT_SUBTYPE, sportTypeId, sportSubTypeId), dateStart, dateEnd);
+    }
+
+    /**
+     * Returns the aggregated values of all exercises of the specified sport type and equipment in the specified
+     * date range.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param equipmentId ID of the equipment or null for the exercises without equipment
+     * @param dateStart start date of the range (inclusive)
+     * @param dateEnd end date of the range (inclusive)
+     * @return the aggregate (a new instance)
+     */
+    public ExerciseAggregate getForEquipment(final long sportTypeId, final Long equipmentId,
+                                             final LocalDate dateStart, final LocalDate dateEnd) {
+        return getAggregate(new Key(Dimension.EQUIPMENT, sportTypeId, equipmentId), dateStart, dateEnd);
+    }
+
+    /**
+     * Returns the first year which contains exercises.
+     *
+     * @return the year or null when the cube is empty
+     */
+    public Integer getFirstYear() {
+        final Cells cells = cellsByKey.get(new Key(Dimension.ALL, null, null));
+        return cells == null ? null : Collections.min(cells.years.keySet());
+    }
+
+    /**
+     * Returns the last year which contains exercises.
+     *
+     * @return the year or null when the cube is empty
+     */
+    public Integer getLastYear() {
+        final Cells cells = cellsByKey.get(new Key(Dimension.ALL, null, null));
+        return cells == null ? null : Collections.max(cells.years.keySet());
+    }
+
+    /**
+     * Sums up the cells of the specified key for the date range. Complete years and months inside the range are
+     * taken from the year and month cells, only the remaining days from the day cells.
+     */
+    private ExerciseAggregate getAggregate(final Key key, final LocalDate dateStart, final LocalDate dateEnd) {
+        if (dateStart.isAfter(dateEnd)) {
+            throw new IllegalArgumentException("Start date is after end date!");
+        }
+
+        final ExerciseAggregate aggregate = new ExerciseAggregate();
+        final Cells cells = cellsByKey.get(key);
+        if (cells == null) {
+            return aggregate;
+        }
+
+        final LocalDate dateAfterEnd = dateEnd.plusDays(1);
+        LocalDate date = dateStart;
+        while (date.isBefore(dateAfterEnd)) {
+            final LocalDate nextYear = date.plusYears(1);
+            final LocalDate nextMonth = date.plusMonths(1);
+
+            if (date.getDayOfYear() == 1 && !nextYear.isAfter(dateAfterEnd)) {
+                cells.addYearTo(aggregate, date);
+                date = nextYear;
+            } else if (date.getDayOfMonth() == 1 && !nextMonth.isAfter(dateAfterEnd)) {
+                cells.addMonthTo(aggregate, date);
+                date = nextMonth;
+            } else {
+                cells.addDayTo(aggregate, date);
+                date = date.plusDays(1);
+            }
+        }
+        return aggregate;
+    }
+
+    /**
+     * The aggregation dimensions.
+     */
+    private enum Dimension {
+        ALL, SPORT_TYPE, SPORT_SUBTYPE, EQUIPMENT
+    }
+
+    /**
+     * Key of the aggregated cells: the dimension, the sport type ID (not for dimension ALL) and the sport subtype
+     * or equipment ID (for dimension EQUIPMENT it's null for the exercises without equipment).
+     */
+    private static final class Key {
+
+        private final Dimension dimension;
+        private final Long sportTypeId;
+        private final Long attributeId;
+
+        Key(final Dimension dimension, final Long sportTypeId, final Long attributeId) {
+            this.dimension = dimension;
+            this.sportTypeId = sportTypeId;
+            this.attributeId = attributeId;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return dimension == other.dimension
+                    && Objects.equals(sportTypeId, other.sportTypeId)
+                    && Objects.equals(attributeId, other.attributeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dimension, sportTypeId, attributeId);
+        }
+    }
+
+    /**
+     * The values of a single exercise added to the cube, they are stored for the removal.
+     */
+    private record Contribution(long epochDay, List<Key> keys, ExerciseAggregate values) {
+
+        static Contribution of(final Exercise exercise) {
+            final ExerciseAggregate values = new ExerciseAggregate();
+            values.add(exercise);
+
+            final List<Key> keys = new ArrayList<>(4);
+            keys.add(new Key(Dimension.ALL, null, null));
+            final Long sportTypeId = exercise.getSportTypeId();
+            if (sportTypeId != null) {
+                keys.add(new Key(Dimension.SPORT_TYPE, sportTypeId, null));
+                keys.add(new Key(Dimension.EQUIPMENT, sportTypeId, exercise.getEquipmentId()));
+                if (exercise.getSportSubTypeId() != null) {
+                    keys.add(new Key(Dimension.SPORT_SUBTYPE, sportTypeId, exercise.getSportSubTypeId()));
+                }
+            }
+            return new Contribution(exercise.getEpochDay(), keys, values);
+        }
+    }
+
+    /**
+     * The aggregated cells of one key for all days, months and years.
+     */
+    private static final class Cells {
+
+        private final Map<Long, ExerciseAggregate> days = new HashMap<>();
+        private final Map<Integer, ExerciseAggregate> months = new HashMap<>();
+        private final Map<Integer, ExerciseAggregate> years = new HashMap<>();
+
+        void add(final LocalDate date, final ExerciseAggregate values) {
+            days.computeIfAbsent(date.toEpochDay(), d -> new ExerciseAggregate()).add(values);
+            months.computeIfAbsent(getMonthIndex(date), m -> new ExerciseAggregate()).add(values);
+            years.computeIfAbsent(date.getYear(), y -> new ExerciseAggregate()).add(values);
+        }
+
+        void subtract(final LocalDate date, final ExerciseAggregate values) {
+            subtract(days, date.toEpochDay(), values);
+            subtract(months, getMonthIndex(date), values);
+            subtract(years, date.getYear(), values);
+        }
+
+        boolean isEmpty() {
+            return years.isEmpty();
+        }
+
+        void addDayTo(final ExerciseAggregate aggregate, final LocalDate date) {
+            addIfPresent(aggregate, days.get(date.toEpochDay()));
+        }
+
+        void addMonthTo(final ExerciseAggregate aggregate, final LocalDate date) {
+            addIfPresent(aggregate, months.get(getMonthIndex(date)));
+        }
+
+        void addYearTo(final ExerciseAggregate aggregate, final LocalDate date) {
+            addIfPresent(aggregate, years.get(date.getYear()));
+        }
+
+        private static <K> void subtract(final Map<K, ExerciseAggregate> cells, final K cellKey,
+                                         final ExerciseAggregate values) {
+            final ExerciseAggregate cell = cells.get(cellKey);
+            cell.subtract(values);
+            // remove empty cells, so no rounding errors of the subtracted distances can remain
+            if (cell.getCount() == 0) {
+                cells.remove(cellKey);
+            }
+        }
+
+        private static void addIfPresent(final ExerciseAggregate aggregate, final ExerciseAggregate cell) {
+            if (cell != null) {
+                aggregate.add(cell);
+            }
+        }
+
+        private static int getMonthIndex(final LocalDate date) {
+            return date.getYear() * 12 + date.getMonthValue() - 1;
+        }
+    }
+}
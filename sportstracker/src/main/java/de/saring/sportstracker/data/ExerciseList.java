@@ -1,84 +1,436 @@
 package de.saring.sportstracker.data;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.PatternSyntaxException;
 
+import de.saring.sportstracker.data.Exercise.IntensityType;
+
 /**
  * This class contains a list of all exercises of the user and provides access
- * methods to them.
+ * methods to them.<br/>
+ * For fast filtering it maintains bitmap indexes of the rows for each sport type, sport subtype, equipment and
+ * intensity. The indexes will be created on the first filter query after the list content has been replaced, they
+ * will be updated incrementally on all following modifications. Each exercise gets a row number in ascending list
+ * order, so the rows of the following exercises don't need to be moved on removal. The row of a removed exercise
+ * stays unused (tombstone), the rows are compacted by rebuilding the indexes when there are more unused rows than
+ * exercises. So the sport type, subtype, equipment and intensity of an exercise must not be modified while it is
+ * stored in the list (the referenced objects can be replaced in the sport type list, the IDs are the same).<br/>
+ * The aggregate cube (see {@link ExerciseAggregateCube}), the cumulative sums (see {@link ExercisePrefixSums}), the
+ * training load (see {@link ExerciseTrainingLoad}) and the equipment usage (see {@link EquipmentUsageIndex}) of all
+ * exercises are also maintained incrementally after they have been created.
  *
  * @author Stefan Saring
  * @version 1.0
  */
 public final class ExerciseList extends EntryList<Exercise> {
 
+    /** Minimum number of unused rows before the bitmap indexes will be compacted. */
+    private static final int MIN_ROWS_FOR_COMPACTION = 1024;
+
+    /** Flag whether the bitmap indexes have been created and are valid for the current list content. */
+    private boolean attributeIndexesValid = false;
+
+    /** Rows of the exercises for each sport type ID. */
+    private final Map<Long, BitSet> sportTypeIndex = new HashMap<>();
+
+    /** Rows of the exercises for each sport subtype ID. */
+    private final Map<Long, BitSet> sportSubTypeIndex = new HashMap<>();
+
+    /** Rows of the exercises for each equipment ID. */
+    private final Map<Long, BitSet> equipmentIndex = new HashMap<>();
+
+    /** Rows of the exercises for each intensity. */
+    private final Map<IntensityType, BitSet> intensityIndex = new EnumMap<>(IntensityType.class);
+
+    /** Rows of the exercises for each list position (ascending, contains size() valid entries). */
+    private int[] positionRows = new int[0];
+
+    /** Number of used rows, including the unused rows of the removed exercises. */
+    private int rowCount;
+
+    /** The sport type list used by all exercises for resolving their sport types (optional). */
+    private SportTypeList sportTypeList;
+
+    /** Aggregate cube of all exercises, it's created on first usage (null before). */
+    private ExerciseAggregateCube aggregateCube;
+
+    /** Cumulative sums of all exercises, they are created on first usage (null before). */
+    private ExercisePrefixSums prefixSums;
+
+    /** Training load of all exercises, it's created on first usage (null before). */
+    private ExerciseTrainingLoad trainingLoad;
+
+    /** Equipment usage index of all exercises, it's created on first usage (null before). */
+    private EquipmentUsageIndex equipmentUsageIndex;
+
+    /**
+     * Returns the list of all exercises which are fulfilling all the specified filter criteria. The sport type,
+     * subtype, equipment and intensity criteria are evaluated by intersecting the bitmap indexes and the result of
+     * the comment index, the date criteria by the date index. Only the remaining candidates are checked by the
+     * {@link EntryFilterMatcher} (e.g. for the comment criteria in regular expression mode).<br/>
+     * The filter will be ignored when it is for another entry type than exercises.
+     *
+     * @param filter the entry filter criteria
+     * @return List of Exercise objects which are valid for the specified filters
+     * @throws PatternSyntaxException thrown on parsing problems of the regular expression for comment searching
+     */
+    @Override
+    public EntryList<Exercise> getEntriesForFilter(final EntryFilter filter) throws PatternSyntaxException {
+
+        if (size() == 0 || filter.getEntryType() != EntryFilter.EntryType.EXERCISE) {
+            return this;
+        }
+
+        final EntryFilterMatcher matcher = filter.compile();
+        final BitSet candidates = intersect(getPositionsForAttributes(filter), getPositionsForComment(matcher));
+        final List<Exercise> foundExercises = new ArrayList<>();
+
+        if (candidates != null && filter.getDateStart() == null && filter.getDateEnd() == null) {
+            candidates.stream().forEach(position -> addIfMatching(position, matcher, foundExercises));
+        } else {
+            final LocalDate dateStart = filter.getDateStart();
+            final LocalDate dateEnd = filter.getDateEnd();
+            final long epochDayStart = dateStart == null ? Long.MIN_VALUE : dateStart.toEpochDay();
+            final long epochDayEnd = dateEnd == null ? Long.MAX_VALUE : dateEnd.toEpochDay();
+            for (int position : getIndexesInDateRange(epochDayStart, epochDayEnd)) {
+                if (candidates == null || candidates.get(position)) {
+                    addIfMatching(position, matcher, foundExercises);
+                }
+            }
+        }
+
+        final EntryList<Exercise> foundEntries = new EntryList<>();
+        foundEntries.clearAndAddAll(foundExercises);
+        return foundEntries;
+    }
+
     /**
-     * This method updates the sport type, the subtype and the equipment objects
-     * for all exercises. This is necessary when the sport type objects have
-     * been edited, e.g. the name of a sport type has changed. The new sport
-     * type will be a new object and the exercise object which uses it needs to
-     * get the reference to this new object (references the old object before).
+     * Sets the sport type list which is used by all exercises of this list for resolving their sport type, subtype
+     * and equipment by the IDs (see {@link Exercise}). This is necessary when the sport type objects have been
+     * edited, e.g. the name of a sport type has changed. The new sport type will be a new object and the exercises
+     * need to reference to this new object (references the old object before).<br/>
+     * When the sport type list is already used by this list, then the exercises will only resolve their references
+     * again on next access, e.g. when the subtypes or equipment of a contained sport type have been replaced. So the
+     * exercises don't need to be processed.
      *
      * @param sportTypeList the sport type list to be used for update
      */
     public void updateSportTypes(SportTypeList sportTypeList) {
+        if (this.sportTypeList == sportTypeList) {
+            sportTypeList.notifyModified();
+        } else {
+            this.sportTypeList = sportTypeList;
+            this.forEach(exercise -> exercise.setSportTypeList(sportTypeList));
+        }
+    }
 
-        // process all exercises
-        this.forEach(exercise -> {
+    /**
+     * Returns the aggregate cube of all exercises in this list, e.g. for fast calculation of the value sums in
+     * time ranges. The cube will be created on the first call, afterwards it is updated incrementally on all list
+     * modifications. So the returned cube must not be modified by the caller.
+     *
+     * @return the aggregate cube
+     */
+    public ExerciseAggregateCube getAggregateCube() {
+        if (aggregateCube == null) {
+            aggregateCube = new ExerciseAggregateCube();
+            this.forEach(aggregateCube::add);
+        }
+        return aggregateCube;
+    }
 
-            // get and store the new SportType object with the same ID
-            SportType newSportType = sportTypeList.getByID(exercise.getSportType().getId());
-            exercise.setSportType(newSportType);
+    /**
+     * Returns the cumulative sums of the values of all exercises in this list, e.g. for fast calculation of the
+     * totals in any date range. They will be created on the first call, afterwards they are updated incrementally
+     * on all list modifications. So the returned sums must not be modified by the caller.
+     *
+     * @return the cumulative sums
+     */
+    public ExercisePrefixSums getPrefixSums() {
+        if (prefixSums == null) {
+            prefixSums = new ExercisePrefixSums();
+            this.forEach(prefixSums::add);
+        }
+        return prefixSums;
+    }
 
-            // get and store the new SportSubType object with the same ID
-            SportSubType newSportSubType = newSportType.getSportSubTypeList().getByID(exercise.getSportSubType().getId());
-            exercise.setSportSubType(newSportSubType);
+    /**
+     * Returns the training load of all exercises in this list (acute and chronic load and form for each day). It
+     * will be created on the first call, afterwards it is updated incrementally on all list modifications. So the
+     * returned training load must not be modified by the caller.
+     *
+     * @return the training load
+     */
+    public ExerciseTrainingLoad getTrainingLoad() {
+        if (trainingLoad == null) {
+            trainingLoad = new ExerciseTrainingLoad();
+            this.forEach(trainingLoad::add);
+        }
+        return trainingLoad;
+    }
 
-            // get and store the new Equipment object with the same ID (is optional)
-            if (exercise.getEquipment() != null) {
-                Equipment newEquipment = newSportType.getEquipmentList().getByID(exercise.getEquipment().getId());
-                exercise.setEquipment(newEquipment);
+    /**
+     * Returns the equipment usage index of all exercises in this list, e.g. for fast calculation of the equipment
+     * usage statistics. It will be created on the first call, afterwards it is updated incrementally on all list
+     * modifications. So the returned index must not be modified by the caller.
+     *
+     * @return the equipment usage index
+     */
+    public EquipmentUsageIndex getEquipmentUsageIndex() {
+        if (equipmentUsageIndex == null) {
+            equipmentUsageIndex = new EquipmentUsageIndex();
+            this.forEach(equipmentUsageIndex::add);
+        }
+        return equipmentUsageIndex;
+    }
+
+    @Override
+    protected void onEntryAdded(final int index, final Exercise entry) {
+        super.onEntryAdded(index, entry);
+        entry.setSportTypeList(sportTypeList);
+        if (attributeIndexesValid) {
+            if (positionRows.length <= index) {
+                positionRows = Arrays.copyOf(positionRows, Math.max(index + 1, positionRows.length * 3 / 2));
             }
-        });
+            positionRows[index] = rowCount++;
+            addToAttributeIndexes(positionRows[index], entry);
+        }
+        if (aggregateCube != null) {
+            aggregateCube.add(entry);
+        }
+        if (prefixSums != null) {
+            prefixSums.add(entry);
+        }
+        if (trainingLoad != null) {
+            trainingLoad.add(entry);
+        }
+        if (equipmentUsageIndex != null) {
+            equipmentUsageIndex.add(entry);
+        }
+    }
+
+    @Override
+    protected void onEntryReplaced(final int index, final Exercise oldEntry, final Exercise newEntry) {
+        super.onEntryReplaced(index, oldEntry, newEntry);
+        newEntry.setSportTypeList(sportTypeList);
+        if (attributeIndexesValid) {
+            // the old entry might be the same but modified instance => clear the row in all indexes
+            clearRow(positionRows[index]);
+            addToAttributeIndexes(positionRows[index], newEntry);
+        }
+        if (aggregateCube != null) {
+            aggregateCube.remove(oldEntry);
+            aggregateCube.add(newEntry);
+        }
+        if (prefixSums != null) {
+            prefixSums.remove(oldEntry);
+            prefixSums.add(newEntry);
+        }
+        if (trainingLoad != null) {
+            trainingLoad.remove(oldEntry);
+            trainingLoad.add(newEntry);
+        }
+        if (equipmentUsageIndex != null) {
+            equipmentUsageIndex.remove(oldEntry);
+            equipmentUsageIndex.add(newEntry);
+        }
+    }
+
+    @Override
+    protected void onEntryRemoved(final int index, final Exercise entry) {
+        super.onEntryRemoved(index, entry);
+        if (attributeIndexesValid) {
+            // the row stays unused, only the following positions are moved
+            clearRow(positionRows[index]);
+            System.arraycopy(positionRows, index + 1, positionRows, index, size() - index);
+            compactAttributeIndexesIfSparse();
+        }
+        removeFromAggregates(entry);
+    }
+
+    @Override
+    protected void onEntriesRemoved(final int[] indexes, final List<? extends Exercise> entries) {
+        super.onEntriesRemoved(indexes, entries);
+        if (attributeIndexesValid) {
+            int removedCount = 0;
+            for (int position = 0; position < size() + indexes.length; position++) {
+                if (removedCount < indexes.length && indexes[removedCount] == position) {
+                    clearRow(positionRows[position]);
+                    removedCount++;
+                } else {
+                    positionRows[position - removedCount] = positionRows[position];
+                }
+            }
+            compactAttributeIndexesIfSparse();
+        }
+        entries.forEach(this::removeFromAggregates);
+    }
+
+    @Override
+    protected void onEntriesReset() {
+        super.onEntriesReset();
+        attributeIndexesValid = false;
+        aggregateCube = null;
+        prefixSums = null;
+        trainingLoad = null;
+        equipmentUsageIndex = null;
+        this.forEach(exercise -> exercise.setSportTypeList(sportTypeList));
+    }
+
+    private void removeFromAggregates(final Exercise exercise) {
+        if (aggregateCube != null) {
+            aggregateCube.remove(exercise);
+        }
+        if (prefixSums != null) {
+            prefixSums.remove(exercise);
+        }
+        if (trainingLoad != null) {
+            trainingLoad.remove(exercise);
+        }
+        if (equipmentUsageIndex != null) {
+            equipmentUsageIndex.remove(exercise);
+        }
     }
 
     /**
-     * This method checks whether the specified exercise entry matches the specified entry filter criteria.
-     * It extends the default filter (date time and comment) by sport type, subtype, intensity and equipment criteria.
+     * Returns the intersection of the bitmap indexes for all the sport type, subtype, equipment and intensity
+     * criteria of the specified filter.
      *
-     * @param exercise the exercise to check
-     * @param filter the entry filter criterias
-     * @return true if the exercise matches the filter criteria
-     * @throws PatternSyntaxException thrown on parsing problems of the regular expression for comment searching
+     * @param filter the entry filter criteria
+     * @return the list positions of the matching exercises or null when the filter contains none of these criteria
      */
-    @Override
-    protected boolean filterEntry(Exercise exercise, EntryFilter filter) {
+    private BitSet getPositionsForAttributes(final EntryFilter filter) {
+        ensureAttributeIndexes();
+
+        BitSet rows = null;
+        if (filter.getSportType() != null) {
+            rows = intersectWithIndex(rows, sportTypeIndex.get(filter.getSportType().getId()));
+        }
+        if (filter.getSportSubType() != null) {
+            rows = intersectWithIndex(rows, sportSubTypeIndex.get(filter.getSportSubType().getId()));
+        }
+        if (filter.getEquipment() != null) {
+            rows = intersectWithIndex(rows, equipmentIndex.get(filter.getEquipment().getId()));
+        }
+        if (filter.getIntensity() != null) {
+            rows = intersectWithIndex(rows, intensityIndex.get(filter.getIntensity()));
+        }
+        return rows == null ? null : rowsToPositions(rows);
+    }
+
+    /**
+     * Converts the specified rows to the list positions. The rows are ascending in list order, so the position of
+     * a row can be found by binary search (the rows are the positions when there are no unused rows).
+     */
+    private BitSet rowsToPositions(final BitSet rows) {
+        if (rowCount == size()) {
+            return rows;
+        }
+
+        final BitSet positions = new BitSet(size());
+        rows.stream().forEach(row -> positions.set(Arrays.binarySearch(positionRows, 0, size(), row)));
+        return positions;
+    }
 
-        // entry datetime and comment are filtered by the base class
-        if (!super.filterEntry(exercise, filter)) {
-            return false;
+    /**
+     * Intersects the specified positions with the positions of an index entry (a missing index entry means that
+     * no exercise matches).
+     */
+    private BitSet intersectWithIndex(final BitSet positions, final BitSet indexPositions) {
+        if (indexPositions == null) {
+            return new BitSet();
         }
+        return positions == null ? (BitSet) indexPositions.clone() : intersect(positions, indexPositions);
+    }
 
-        // if a sport type filter is specified => make sure that exercise has the same sport type
-        if (filter.getSportType() != null && !filter.getSportType().equals(exercise.getSportType())) {
-            return false;
+    /**
+     * Intersects the specified positions, null means that there are no criteria for them.
+     */
+    private static BitSet intersect(final BitSet positions1, final BitSet positions2) {
+        if (positions1 == null) {
+            return positions2;
         }
+        if (positions2 != null) {
+            positions1.and(positions2);
+        }
+        return positions1;
+    }
 
-        // if a sport subtype filter is specified => make sure that exercise has the same sport subtype
-        if (filter.getSportSubType() != null && !filter.getSportSubType().equals(exercise.getSportSubType())) {
-            return false;
+    private void addIfMatching(final int position, final EntryFilterMatcher matcher,
+                               final List<Exercise> foundExercises) {
+        final Exercise exercise = getAt(position);
+        if (matcher.matches(exercise)) {
+            foundExercises.add(exercise);
         }
+    }
 
-        // if an intensity is specified => make sure that exercise has the same intensity
-        if (filter.getIntensity() != null && filter.getIntensity() != exercise.getIntensity()) {
-            return false;
+    private void ensureAttributeIndexes() {
+        if (!attributeIndexesValid) {
+            rebuildAttributeIndexes();
         }
+    }
 
-        // if an equipment filter is specified => make sure that exercise has the same equipment (is optional)
-        if (filter.getEquipment() != null && !filter.getEquipment().equals(exercise.getEquipment())) {
-            return false;
+    /**
+     * Creates the bitmap indexes for the complete list content, the rows are the list positions afterwards.
+     */
+    private void rebuildAttributeIndexes() {
+        sportTypeIndex.clear();
+        sportSubTypeIndex.clear();
+        equipmentIndex.clear();
+        intensityIndex.clear();
+
+        positionRows = new int[size()];
+        for (int i = 0; i < size(); i++) {
+            positionRows[i] = i;
+            addToAttributeIndexes(i, getAt(i));
         }
+        rowCount = size();
+        attributeIndexesValid = true;
+    }
+
+    /**
+     * Rebuilds the bitmap indexes when there are more unused rows (of removed exercises) than exercises.
+     */
+    private void compactAttributeIndexesIfSparse() {
+        if (rowCount - size() > Math.max(size(), MIN_ROWS_FOR_COMPACTION)) {
+            rebuildAttributeIndexes();
+        }
+    }
+
+    private void addToAttributeIndexes(final int row, final Exercise exercise) {
+        if (exercise.getSportTypeId() != null) {
+            setRow(sportTypeIndex, exercise.getSportTypeId(), row);
+        }
+        if (exercise.getSportSubTypeId() != null) {
+            setRow(sportSubTypeIndex, exercise.getSportSubTypeId(), row);
+        }
+        if (exercise.getEquipmentId() != null) {
+            setRow(equipmentIndex, exercise.getEquipmentId(), row);
+        }
+        if (exercise.getIntensity() != null) {
+            setRow(intensityIndex, exercise.getIntensity(), row);
+        }
+    }
+
+    private void clearRow(final int row) {
+        clearRow(sportTypeIndex, row);
+        clearRow(sportSubTypeIndex, row);
+        clearRow(equipmentIndex, row);
+        clearRow(intensityIndex, row);
+    }
+
+    private static <K> void setRow(final Map<K, BitSet> index, final K key, final int row) {
+        index.computeIfAbsent(key, k -> new BitSet()).set(row);
+    }
 
-        // all filter criteria are fulfilled
-        return true;
+    private static void clearRow(final Map<?, BitSet> index, final int row) {
+        index.values().forEach(rows -> rows.clear(row));
     }
 }
@@ -0,0 +1,184 @@
+package de.saring.sportstracker.data;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cumulative sums (prefix sums) of the exercise values, indexed by the epoch day. They are maintained for all
+ * exercises and separately for each sport type. So the total of a value in any date range needs only two array reads
+ * (cumulative sum at the end day minus the one before the start day).<br/>
+ * When exercises are added or removed, only the daily values will be updated and the cumulative sums get invalid
+ * from the modified day on (see {@link EpochDaySeries}). The added values of each exercise are stored by a
+ * {@link ContributionTracker} for the removal.
+ *
+ * @author Stefan Saring
+ */
+public final class ExercisePrefixSums {
+
+    /**
+     * The exercise values (metrics) with cumulative sums.
+     */
+    public enum Metric {
+        /** Distance in kilometers. */
+        DISTANCE,
+        /** Duration in seconds. */
+        DURATION,
+        /** Ascent in meters. */
+        ASCENT,
+        /** Calorie consumption in kCal. */
+        CALORIES,
+        /** Number of exercises. */
+        COUNT
+    }
+
+    /** The cumulative sums of all exercises. */
+    private final DaySeries totalSeries = new DaySeries();
+
+    /** The cumulative sums of the exercises for each sport type ID. */
+    private final Map<Long, DaySeries> sportTypeSeries = new HashMap<>();
+
+    private final ContributionTracker<Exercise, Contribution> contributions =
+            new ContributionTracker<>(Contribution::of);
+
+    /**
+     * Adds the values of the specified exercise.
+     *
+     * @param exercise the exercise to add
+     */
+    public void add(final Exercise exercise) {
+        final Contribution contribution = contributions.add(exercise);
+        totalSeries.add(contribution.epochDay(), contribution.values(), 1);
+        if (contribution.sportTypeId() != null) {
+            sportTypeSeries.computeIfAbsent(contribution.sportTypeId(), id -> new DaySeries())
+                    .add(contribution.epochDay(), contribution.values(), 1);
+        }
+    }
+
+    /**
+     * Removes the values of the specified exercise.
+     *
+     * @param exercise the exercise to remove
+     */
+    public void remove(final Exercise exercise) {
+        final Contribution contribution = contributions.remove(exercise);
+        if (contribution == null) {
+            return;
+        }
+
+        totalSeries.add(contribution.epochDay(), contribution.values(), -1);
+        if (contribution.sportTypeId() != null) {
+            sportTypeSeries.get(contribution.sportTypeId()).add(contribution.epochDay(), contribution.values(), -1);
+        }
+    }
+
+    /**
+     * Returns the total of the specified value of all exercises in the date range.
+     *
+     * @param metric the exercise value
+     * @param dateStart start date of the range (inclusive)
+     * @param dateEnd end date of the range (inclusive)
+     * @return the total value
+     */
+    public double getTotal(final Metric metric, final LocalDate dateStart, final LocalDate dateEnd) {
+        return getTotal(metric, dateStart.toEpochDay(), dateEnd.toEpochDay());
+    }
+
+    /**
+     * Returns the total of the specified value of all exercises in the epoch day range.
+     *
+     * @param metric the exercise value
+     * @param epochDayStart start epoch day of the range (inclusive)
+     * @param epochDayEnd end epoch day of the range (inclusive)
+     * @return the total value
+     */
+    public double getTotal(final Metric metric, final long epochDayStart, final long epochDayEnd) {
+        checkRange(epochDayStart, epochDayEnd);
+        return totalSeries.getTotal(metric.ordinal(), epochDayStart, epochDayEnd);
+    }
+
+    /**
+     * Returns the total of the specified value of all exercises of the sport type in the epoch day range.
+     *
+     * @param sportTypeId ID of the sport type
+     * @param metric the exercise value
+     * @param epochDayStart start epoch day of the range (inclusive)
+     * @param epochDayEnd end epoch day of the range (inclusive)
+     * @return the total value
+     */
+    public double getTotalForSportType(final long sportTypeId, final Metric metric, final long epochDayStart,
+                                       final long epochDayEnd) {
+        checkRange(epochDayStart, epochDayEnd);
+        final DaySeries series = sportTypeSeries.get(sportTypeId);
+        return series == null ? 0 : series.getTotal(metric.ordinal(), epochDayStart, epochDayEnd);
+    }
+
+    private static void checkRange(final long epochDayStart, final long epochDayEnd) {
+        if (epochDayStart > epochDayEnd) {
+            throw new IllegalArgumentException("Start date is after end date!");
+        }
+    }
+
+    /**
+     * The values of a single exercise, they are stored for the removal.
+     */
+    private record Contribution(long epochDay, Long sportTypeId, double[] values) {
+
+        static Contribution of(final Exercise exercise) {
+            final double[] values = new double[Metric.values().length];
+            values[Metric.DISTANCE.ordinal()] = exercise.getDistance();
+            values[Metric.DURATION.ordinal()] = exercise.getDuration();
+            values[Metric.ASCENT.ordinal()] = exercise.getAscent() == null ? 0 : exercise.getAscent();
+            values[Metric.CALORIES.ordinal()] = exercise.getCalories() == null ? 0 : exercise.getCalories();
+            values[Metric.COUNT.ordinal()] = 1;
+            return new Contribution(exercise.getEpochDay(), exercise.getSportTypeId(), values);
+        }
+    }
+
+    /**
+     * The daily values of all metrics and their cumulative sums.
+     */
+    private static final class DaySeries extends EpochDaySeries {
+
+        private static final int METRIC_COUNT = Metric.values().length;
+
+        DaySeries() {
+            super(METRIC_COUNT, METRIC_COUNT);
+        }
+
+        void add(final long epochDay, final double[] values, final int sign) {
+            for (int metric = 0; metric < METRIC_COUNT; metric++) {
+                addDailyValue(epochDay, metric, sign * values[metric]);
+            }
+        }
+
+        double getTotal(final int metric, final long epochDayStart, final long epochDayEnd) {
+            if (isEmpty()) {
+                return 0;
+            }
+
+            final long dayStart = Math.max(epochDayStart, getFirstDay());
+            final long dayEnd = Math.min(epochDayEnd, getLastDay());
+            if (dayStart > dayEnd) {
+                return 0;
+            }
+
+            return getDerivedValue(metric, dayEnd)
+                    - (dayStart == getFirstDay() ? 0 : getDerivedValue(metric, dayStart - 1));
+        }
+
+        @Override
+        protected void recalculate(final double[][] daily, final double[][] cumulative, final int fromIndex,
+                                   final int toIndex) {
+            for (int metric = 0; metric < METRIC_COUNT; metric++) {
+                final double[] days = daily[metric];
+                final double[] sums = cumulative[metric];
+                double sum = fromIndex == 0 ? 0 : sums[fromIndex - 1];
+                for (int i = fromIndex; i < toIndex; i++) {
+                    sum += days[i];
+                    sums[i] = sum;
+                }
+            }
+        }
+    }
+}
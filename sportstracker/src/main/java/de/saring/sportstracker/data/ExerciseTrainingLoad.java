@@ -0,0 +1,173 @@
+package de.saring.sportstracker.data;
+
+import java.time.LocalDate;
+
+import de.saring.sportstracker.data.Exercise.IntensityType;
+
+/**
+ * Daily training load of all exercises and its exponentially weighted averages: the acute load (fatigue, time
+ * constant of 7 days), the chronic load (fitness, time constant of 42 days) and the form (training stress balance,
+ * chronic minus acute load).<br/>
+ * The load of an exercise is its duration in minutes multiplied by an intensity factor (1 for minimum up to 5 for
+ * maximum intensity, see {@link #getLoad(Exercise)}). When the exercise contains an average heartrate, the factor
+ * is scaled by the ratio of the average heartrate to the reference heartrate of 140 bpm.<br/>
+ * The daily loads and averages are stored in arrays indexed by the epoch day. When exercises are added or removed,
+ * only the daily load is updated and the averages get invalid from the modified day on (see
+ * {@link EpochDaySeries}). The added load of each exercise is stored by a {@link ContributionTracker} for the
+ * removal.
+ *
+ * @author Stefan Saring
+ */
+public final class ExerciseTrainingLoad {
+
+    /** Time constant of the acute load in days. */
+    public static final int ACUTE_TIME_CONSTANT = 7;
+
+    /** Time constant of the chronic load in days. */
+    public static final int CHRONIC_TIME_CONSTANT = 42;
+
+    /** Reference heartrate for scaling the intensity factor in beats per minute. */
+    private static final double REFERENCE_HEART_RATE = 140d;
+
+    private static final double ACUTE_DECAY = Math.exp(-1d / ACUTE_TIME_CONSTANT);
+    private static final double CHRONIC_DECAY = Math.exp(-1d / CHRONIC_TIME_CONSTANT);
+    private static final int ACUTE = 0;
+    private static final int CHRONIC = 1;
+
+    private final ContributionTracker<Exercise, Contribution> contributions =
+            new ContributionTracker<>(Contribution::of);
+
+    private final LoadSeries loadSeries = new LoadSeries();
+
+    /**
+     * Returns the training load of the specified exercise.
+     *
+     * @param exercise the exercise
+     * @return the training load
+     */
+    public static double getLoad(final Exercise exercise) {
+        double factor = getIntensityFactor(exercise.getIntensity());
+        if (exercise.getAvgHeartRate() != null && exercise.getAvgHeartRate() > 0) {
+            factor *= exercise.getAvgHeartRate() / REFERENCE_HEART_RATE;
+        }
+        return exercise.getDuration() / 60d * factor;
+    }
+
+    /**
+     * Adds the load of the specified exercise.
+     *
+     * @param exercise the exercise to add
+     */
+    public void add(final Exercise exercise) {
+        final Contribution contribution = contributions.add(exercise);
+        loadSeries.addDailyValue(contribution.epochDay(), 0, contribution.load());
+    }
+
+    /**
+     * Removes the load of the specified exercise.
+     *
+     * @param exercise the exercise to remove
+     */
+    public void remove(final Exercise exercise) {
+        final Contribution contribution = contributions.remove(exercise);
+        if (contribution != null) {
+            loadSeries.addDailyValue(contribution.epochDay(), 0, -contribution.load());
+        }
+    }
+
+    /**
+     * Returns the acute load (fatigue) at the specified date.
+     *
+     * @param date the date
+     * @return the acute load
+     */
+    public double getAcuteLoad(final LocalDate date) {
+        return getAverage(ACUTE, ACUTE_DECAY, date.toEpochDay());
+    }
+
+    /**
+     * Returns the chronic load (fitness) at the specified date.
+     *
+     * @param date the date
+     * @return the chronic load
+     */
+    public double getChronicLoad(final LocalDate date) {
+        return getAverage(CHRONIC, CHRONIC_DECAY, date.toEpochDay());
+    }
+
+    /**
+     * Returns the form (training stress balance) at the specified date, it's the chronic load minus the acute
+     * load. Positive values mean that the athlete is rested, negative values mean fatigue.
+     *
+     * @param date the date
+     * @return the form
+     */
+    public double getForm(final LocalDate date) {
+        return getChronicLoad(date) - getAcuteLoad(date);
+    }
+
+    private static double getIntensityFactor(final IntensityType intensity) {
+        if (intensity == null) {
+            return 3d;
+        }
+        return switch (intensity) {
+            case MINIMUM -> 1d;
+            case LOW -> 2d;
+            case NORMAL -> 3d;
+            case HIGH, INTERVALS -> 4d;
+            case MAXIMUM -> 5d;
+        };
+    }
+
+    /**
+     * Returns the average at the specified epoch day. Before the first day it's zero, after the last day the
+     * average of the last day decays without further load.
+     */
+    private double getAverage(final int channel, final double decay, final long epochDay) {
+        if (loadSeries.isEmpty() || epochDay < loadSeries.getFirstDay()) {
+            return 0;
+        }
+
+        final long lastDay = loadSeries.getLastDay();
+        if (epochDay > lastDay) {
+            return loadSeries.getDerivedValue(channel, lastDay) * Math.pow(decay, epochDay - lastDay);
+        }
+        return loadSeries.getDerivedValue(channel, epochDay);
+    }
+
+    /**
+     * The load of a single exercise, it's stored for the removal.
+     */
+    private record Contribution(long epochDay, double load) {
+
+        static Contribution of(final Exercise exercise) {
+            return new Contribution(exercise.getEpochDay(), getLoad(exercise));
+        }
+    }
+
+    /**
+     * The daily loads of all exercises with the acute and chronic loads at each day.
+     */
+    private static final class LoadSeries extends EpochDaySeries {
+
+        LoadSeries() {
+            super(1, 2);
+        }
+
+        @Override
+        protected void recalculate(final double[][] daily, final double[][] averages, final int fromIndex,
+                                   final int toIndex) {
+            final double[] dailyLoad = daily[0];
+            final double[] acuteLoad = averages[ACUTE];
+            final double[] chronicLoad = averages[CHRONIC];
+            double acute = fromIndex == 0 ? 0 : acuteLoad[fromIndex - 1];
+            double chronic = fromIndex == 0 ? 0 : chronicLoad[fromIndex - 1];
+            for (int i = fromIndex; i < toIndex; i++) {
+                acute = acute * ACUTE_DECAY + dailyLoad[i] * (1 - ACUTE_DECAY);
+                chronic = chronic * CHRONIC_DECAY + dailyLoad[i] * (1 - CHRONIC_DECAY);
+                acuteLoad[i] = acute;
+                chronicLoad[i] = chronic;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package de.saring.sportstracker.data;
+
+/**
+ * The types of the periods for grouping the exercises by date, e.g. in the pivot table of the exercise list or in
+ * the aggregation queries of the database.
+ *
+ * @author Stefan Saring
+ */
+public enum PeriodType {
+    WEEK, MONTH, YEAR
+}
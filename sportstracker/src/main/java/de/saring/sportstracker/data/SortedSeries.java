@@ -0,0 +1,169 @@
+package de.saring.sportstracker.data;
+
+import java.util.Arrays;
+
+/**
+ * Series of values sorted by a long key (e.g. the epoch day or epoch second), stored in arrays. Each element
+ * contains one or more value channels. The subclass can provide derived values, which are calculated from the
+ * values in ascending order of the keys (e.g. cumulative sums or a trend).<br/>
+ * When elements are inserted or removed, the derived values get invalid from the modified position on. They will be
+ * recalculated by the subclass on the next query (see {@link #ensureDerivedValues()}), starting at the first invalid
+ * position.
+ *
+ * @author Stefan Saring
+ */
+abstract class SortedSeries {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The keys of all elements, sorted ascending. */
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    /** The values of all elements for each channel. */
+    private final double[][] values;
+
+    /** Derived values of all elements for each channel (valid before index invalidFrom). */
+    private final double[][] derived;
+
+    /** Index of the first element with invalid derived values (equals size when all are valid). */
+    private int invalidFrom;
+
+    private int size;
+
+    /**
+     * Standard c'tor.
+     *
+     * @param valueChannels number of channels of the element values
+     * @param derivedChannels number of channels of the derived values
+     */
+    SortedSeries(final int valueChannels, final int derivedChannels) {
+        values = new double[valueChannels][INITIAL_CAPACITY];
+        derived = new double[derivedChannels][INITIAL_CAPACITY];
+    }
+
+    /**
+     * Inserts an element after all elements with the same key, so elements in ascending key order are appended.
+     *
+     * @param key the key of the element
+     * @param elementValues the values of the element for each channel
+     */
+    final void insert(final long key, final double... elementValues) {
+        if (size == keys.length) {
+            resize(size * 2);
+        }
+
+        final int position = lowerBound(key + 1);
+        final int moveCount = size - position;
+        System.arraycopy(keys, position, keys, position + 1, moveCount);
+        keys[position] = key;
+        for (int channel = 0; channel < values.length; channel++) {
+            System.arraycopy(values[channel], position, values[channel], position + 1, moveCount);
+            values[channel][position] = elementValues[channel];
+        }
+        size++;
+        invalidFrom = Math.min(invalidFrom, position);
+    }
+
+    /**
+     * Removes an element with the specified key and values. Elements with the same key and values are
+     * interchangeable, any of them will be removed. The element must be contained.
+     *
+     * @param key the key of the element
+     * @param elementValues the values of the element for each channel
+     */
+    final void remove(final long key, final double... elementValues) {
+        int position = lowerBound(key);
+        while (!hasValues(position, elementValues)) {
+            position++;
+        }
+
+        final int moveCount = size - position - 1;
+        System.arraycopy(keys, position + 1, keys, position, moveCount);
+        for (double[] channelValues : values) {
+            System.arraycopy(channelValues, position + 1, channelValues, position, moveCount);
+        }
+        size--;
+        invalidFrom = Math.min(invalidFrom, position);
+    }
+
+    final int size() {
+        return size;
+    }
+
+    final long getKey(final int position) {
+        return keys[position];
+    }
+
+    /**
+     * Returns the derived value of the specified channel and position.
+     *
+     * @param channel the channel of the derived value
+     * @param position the position of the element
+     * @return the derived value
+     */
+    final double getDerivedValue(final int channel, final int position) {
+        ensureDerivedValues();
+        return derived[channel][position];
+    }
+
+    /**
+     * Returns the position of the first element with a key greater or equal to the specified key (binary search),
+     * it's the size when there is no such element.
+     *
+     * @param key the key to search for
+     * @return the position
+     */
+    final int lowerBound(final long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (keys[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Recalculates the derived values, starting at the first invalid position.
+     */
+    final void ensureDerivedValues() {
+        if (invalidFrom < size) {
+            recalculate(values, derived, invalidFrom, size);
+        }
+        invalidFrom = size;
+    }
+
+    /**
+     * Calculates the derived values of the elements in the specified position range. The derived values before the
+     * start position are valid.
+     *
+     * @param values the element values for each channel
+     * @param derived the derived values for each channel
+     * @param fromIndex the position of the first element to calculate
+     * @param toIndex the position after the last element to calculate
+     */
+    protected abstract void recalculate(double[][] values, double[][] derived, int fromIndex, int toIndex);
+
+    private boolean hasValues(final int position, final double[] elementValues) {
+        for (int channel = 0; channel < values.length; channel++) {
+            if (values[channel][position] != elementValues[channel]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void resize(final int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        for (int channel = 0; channel < values.length; channel++) {
+            values[channel] = Arrays.copyOf(values[channel], capacity);
+        }
+        for (int channel = 0; channel < derived.length; channel++) {
+            derived[channel] = Arrays.copyOf(derived[channel], capacity);
+        }
+    }
+}
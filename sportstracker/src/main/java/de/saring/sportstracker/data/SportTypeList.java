@@ -4,11 +4,55 @@ import de.saring.util.data.IdObjectList;
 
 /**
  * This class contains the list of all sport types (e.g. cycling, running) of
- * the user and provides access methods to them. It doesn't contain any special
- * functionality yet, but maybe in the future.
+ * the user and provides access methods to them.<br/>
+ * It's also the registry for resolving the sport types, subtypes and equipment
+ * referenced by the exercises. The version of the list will be increased on
+ * each modification, so the exercises can detect when they need to resolve
+ * their references again.
  *
  * @author Stefan Saring
  * @version 1.0
  */
 public final class SportTypeList extends IdObjectList<SportType> {
+
+    /** Version of the list content, will be increased on each modification. */
+    private long version = 0;
+
+    /**
+     * Returns the version of the list content.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Increases the version of the list content. Needs to be called when the
+     * contained sport types have been modified directly (e.g. their subtypes or
+     * equipment), the modifications of this list itself are detected automatically.
+     */
+    public void notifyModified() {
+        version++;
+    }
+
+    @Override
+    protected void onEntryAdded(final int index, final SportType entry) {
+        version++;
+    }
+
+    @Override
+    protected void onEntryReplaced(final int index, final SportType oldEntry, final SportType newEntry) {
+        version++;
+    }
+
+    @Override
+    protected void onEntryRemoved(final int index, final SportType entry) {
+        version++;
+    }
+
+    @Override
+    protected void onEntriesReset() {
+        version++;
+    }
 }
@@ -1,11 +1,71 @@
 package de.saring.sportstracker.data;
 
+import java.util.List;
+
 /**
  * This class contains the list of all body weight entries of the the user and
- * provides access methods to them. It doesn't contain any special functionality
- * yet, but maybe in the future.
+ * provides access methods to them.<br/>
+ * The weight series (see {@link WeightSeries}) of all weights is maintained
+ * incrementally after it has been created.
  *
  * @author Stefan Saring
  */
 public final class WeightList extends EntryList<Weight> {
+
+    /** Series of all weight values, it's created on first usage (null before). */
+    private WeightSeries weightSeries;
+
+    /**
+     * Returns the series of all weight values in this list, e.g. for fast calculation of the average weights
+     * and the weight trend in time ranges. The series will be created on the first call, afterwards it is updated
+     * incrementally on all list modifications. So the returned series must not be modified by the caller.
+     *
+     * @return the weight series
+     */
+    public WeightSeries getWeightSeries() {
+        if (weightSeries == null) {
+            weightSeries = new WeightSeries();
+            this.forEach(weightSeries::add);
+        }
+        return weightSeries;
+    }
+
+    @Override
+    protected void onEntryAdded(final int index, final Weight entry) {
+        super.onEntryAdded(index, entry);
+        if (weightSeries != null) {
+            weightSeries.add(entry);
+        }
+    }
+
+    @Override
+    protected void onEntryReplaced(final int index, final Weight oldEntry, final Weight newEntry) {
+        super.onEntryReplaced(index, oldEntry, newEntry);
+        if (weightSeries != null) {
+            weightSeries.remove(oldEntry);
+            weightSeries.add(newEntry);
+        }
+    }
+
+    @Override
+    protected void onEntryRemoved(final int index, final Weight entry) {
+        super.onEntryRemoved(index, entry);
+        if (weightSeries != null) {
+            weightSeries.remove(entry);
+        }
+    }
+
+    @Override
+    protected void onEntriesRemoved(final int[] indexes, final List<? extends Weight> entries) {
+        super.onEntriesRemoved(indexes, entries);
+        if (weightSeries != null) {
+            entries.forEach(weightSeries::remove);
+        }
+    }
+
+    @Override
+    protected void onEntriesReset() {
+        super.onEntriesReset();
+        weightSeries = null;
+    }
 }
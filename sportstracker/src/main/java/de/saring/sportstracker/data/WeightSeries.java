@@ -0,0 +1,155 @@
+package de.saring.sportstracker.data;
+
+import java.time.LocalDate;
+
+/**
+ * Series of all body weight values, sorted by the epoch second of their date and time. Besides the weight values it
+ * contains the cumulative sums (prefix sums) and the exponentially smoothed trend of the weights. So the count and
+ * average weight of any date range (e.g. of the time steps of the overview diagram) can be queried by two binary
+ * searches and one subtraction, without processing the weight entries.<br/>
+ * The trend is the exponential moving average of the weight values with a smoothing factor of 0.1 (each new value
+ * contributes 10% to the trend), it reduces the daily fluctuations of the body weight.<br/>
+ * When weights are added or removed, the sums and the trend get invalid from the modified position on (see
+ * {@link SortedSeries}). The added value of each weight is stored by a {@link ContributionTracker} for the removal.
+ *
+ * @author Stefan Saring
+ */
+public final class WeightSeries {
+
+    /** Smoothing factor of the weight trend. */
+    public static final double TREND_SMOOTHING_FACTOR = 0.1d;
+
+    private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+    private static final int CUMULATIVE = 0;
+    private static final int TREND = 1;
+
+    private final ContributionTracker<Weight, Contribution> contributions =
+            new ContributionTracker<>(Contribution::of);
+
+    /** The weight values sorted by their epoch second, with the cumulative sums and the trend. */
+    private final SortedSeries series = new SortedSeries(1, 2) {
+
+        @Override
+        protected void recalculate(final double[][] values, final double[][] derived, final int fromIndex,
+                                   final int toIndex) {
+            // the trend starts with the first weight value
+            final double[] weights = values[0];
+            final double[] cumulativeValues = derived[CUMULATIVE];
+            final double[] trendValues = derived[TREND];
+            double sum = fromIndex == 0 ? 0 : cumulativeValues[fromIndex - 1];
+            double trend = fromIndex == 0 ? weights[0] : trendValues[fromIndex - 1];
+            for (int i = fromIndex; i < toIndex; i++) {
+                sum += weights[i];
+                trend += TREND_SMOOTHING_FACTOR * (weights[i] - trend);
+                cumulativeValues[i] = sum;
+                trendValues[i] = trend;
+            }
+        }
+    };
+
+    /**
+     * Adds the value of the specified weight.
+     *
+     * @param weight the weight to add
+     */
+    public void add(final Weight weight) {
+        final Contribution contribution = contributions.add(weight);
+        series.insert(contribution.epochSecond(), contribution.value());
+    }
+
+    /**
+     * Removes the value of the specified weight.
+     *
+     * @param weight the weight to remove
+     */
+    public void remove(final Weight weight) {
+        final Contribution contribution = contributions.remove(weight);
+        if (contribution != null) {
+            series.remove(contribution.epochSecond(), contribution.value());
+        }
+    }
+
+    /**
+     * Returns the number of weight values in the specified date range.
+     *
+     * @param dateStart start date of the range (inclusive)
+     * @param dateEnd end date of the range (inclusive)
+     * @return the number of weight values
+     */
+    public int getCount(final LocalDate dateStart, final LocalDate dateEnd) {
+        return getPositionAfter(dateEnd) - getPositionAt(dateStart);
+    }
+
+    /**
+     * Returns the average of the weight values in the specified date range.
+     *
+     * @param dateStart start date of the range (inclusive)
+     * @param dateEnd end date of the range (inclusive)
+     * @return the average weight in kilograms or 0 when there are no values in the range
+     */
+    public double getAverage(final LocalDate dateStart, final LocalDate dateEnd) {
+        final int positionStart = getPositionAt(dateStart);
+        final int positionEnd = getPositionAfter(dateEnd);
+        if (positionStart >= positionEnd) {
+            return 0;
+        }
+
+        final double sum = series.getDerivedValue(CUMULATIVE, positionEnd - 1)
+                - (positionStart == 0 ? 0 : series.getDerivedValue(CUMULATIVE, positionStart - 1));
+        return sum / (positionEnd - positionStart);
+    }
+
+    /**
+     * Returns the moving average of the weight values in the specified number of days ending at the specified date.
+     *
+     * @param date the last day of the moving average
+     * @param days the number of days of the moving average (at least 1)
+     * @return the moving average weight in kilograms or 0 when there are no values in the days
+     */
+    public double getMovingAverage(final LocalDate date, final int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("The number of days must be at least 1!");
+        }
+        return getAverage(date.minusDays(days - 1), date);
+    }
+
+    /**
+     * Returns the weight trend at the end of the specified date, it's the exponentially smoothed trend of all
+     * weight values until this date.
+     *
+     * @param date the date
+     * @return the weight trend in kilograms or 0 when there are no weight values until this date
+     */
+    public double getTrend(final LocalDate date) {
+        final int positionEnd = getPositionAfter(date);
+        if (positionEnd == 0) {
+            return 0;
+        }
+
+        return series.getDerivedValue(TREND, positionEnd - 1);
+    }
+
+    /**
+     * Returns the position of the first value at or after the start of the specified date.
+     */
+    private int getPositionAt(final LocalDate date) {
+        return series.lowerBound(date.toEpochDay() * SECONDS_PER_DAY);
+    }
+
+    /**
+     * Returns the position of the first value after the end of the specified date.
+     */
+    private int getPositionAfter(final LocalDate date) {
+        return series.lowerBound((date.toEpochDay() + 1) * SECONDS_PER_DAY);
+    }
+
+    /**
+     * The value of a single weight, it's stored for the removal.
+     */
+    private record Contribution(long epochSecond, double value) {
+
+        static Contribution of(final Weight weight) {
+            return new Contribution(weight.getEpochSecond(), weight.getValue());
+        }
+    }
+}
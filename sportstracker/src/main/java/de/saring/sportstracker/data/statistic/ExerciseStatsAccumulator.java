@@ -0,0 +1,208 @@
+package de.saring.sportstracker.data.statistic;
+
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+
+import de.saring.sportstracker.data.Exercise;
+
+/**
+ * Accumulator for the statistic values of exercises. It collects the count, total, minimum, maximum and average of
+ * all exercise metrics in one single pass. The optional metrics (ascent, descent, heartrate and calories) are only
+ * collected for the exercises which contain them. For the distance, duration, average speed and average heartrate
+ * the value distribution is also collected in a {@link QuantileSketch}, so their median and percentiles can be
+ * estimated with bounded memory.<br/>
+ * Accumulators of different parts of the exercises can be combined, so the statistic of large exercise lists can be
+ * calculated by a parallel stream via {@link #collector()}. An accumulator is not thread safe, each thread uses its
+ * own instance.
+ *
+ * @author Stefan Saring
+ */
+public final class ExerciseStatsAccumulator implements Consumer<Exercise> {
+
+    private final DoubleSummaryStatistics distance = new DoubleSummaryStatistics();
+    private final DoubleSummaryStatistics avgSpeed = new DoubleSummaryStatistics();
+    private final IntSummaryStatistics duration = new IntSummaryStatistics();
+    private final IntSummaryStatistics ascent = new IntSummaryStatistics();
+    private final IntSummaryStatistics descent = new IntSummaryStatistics();
+    private final IntSummaryStatistics avgHeartRate = new IntSummaryStatistics();
+    private final IntSummaryStatistics calories = new IntSummaryStatistics();
+
+    private final QuantileSketch distanceSketch = new QuantileSketch();
+    private final QuantileSketch durationSketch = new QuantileSketch();
+    private final QuantileSketch avgSpeedSketch = new QuantileSketch();
+    private final QuantileSketch avgHeartRateSketch = new QuantileSketch();
+
+    /**
+     * Adds the values of the specified exercise to this accumulator.
+     *
+     * @param exercise the exercise to add
+     */
+    @Override
+    public void accept(final Exercise exercise) {
+        distance.accept(exercise.getDistance());
+        avgSpeed.accept(exercise.getAvgSpeed());
+        duration.accept(exercise.getDuration());
+        acceptOptional(ascent, exercise.getAscent());
+        acceptOptional(descent, exercise.getDescent());
+        acceptOptional(avgHeartRate, exercise.getAvgHeartRate());
+        acceptOptional(calories, exercise.getCalories());
+
+        distanceSketch.add(exercise.getDistance());
+        durationSketch.add(exercise.getDuration());
+        avgSpeedSketch.add(exercise.getAvgSpeed());
+        if (exercise.getAvgHeartRate() != null) {
+            avgHeartRateSketch.add(exercise.getAvgHeartRate());
+        }
+    }
+
+    /**
+     * Adds all the values collected by the other accumulator to this accumulator.
+     *
+     * @param other the accumulator to combine with (will not be modified)
+     * @return this accumulator
+     */
+    public ExerciseStatsAccumulator combine(final ExerciseStatsAccumulator other) {
+        distance.combine(other.distance);
+        avgSpeed.combine(other.avgSpeed);
+        duration.combine(other.duration);
+        ascent.combine(other.ascent);
+        descent.combine(other.descent);
+        avgHeartRate.combine(other.avgHeartRate);
+        calories.combine(other.calories);
+
+        distanceSketch.merge(other.distanceSketch);
+        durationSketch.merge(other.durationSketch);
+        avgSpeedSketch.merge(other.avgSpeedSketch);
+        avgHeartRateSketch.merge(other.avgHeartRateSketch);
+        return this;
+    }
+
+    /**
+     * Returns the number of all accumulated exercises.
+     *
+     * @return the exercise count
+     */
+    public int getCount() {
+        return (int) duration.getCount();
+    }
+
+    /**
+     * Returns the statistic of the distances in kilometers.
+     *
+     * @return the distance statistic
+     */
+    public DoubleSummaryStatistics getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns the statistic of the average speeds in kilometers/hour.
+     *
+     * @return the average speed statistic
+     */
+    public DoubleSummaryStatistics getAvgSpeed() {
+        return avgSpeed;
+    }
+
+    /**
+     * Returns the statistic of the durations in seconds.
+     *
+     * @return the duration statistic
+     */
+    public IntSummaryStatistics getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the statistic of the ascents in meters (only for exercises containing an ascent).
+     *
+     * @return the ascent statistic
+     */
+    public IntSummaryStatistics getAscent() {
+        return ascent;
+    }
+
+    /**
+     * Returns the statistic of the descents in meters (only for exercises containing a descent).
+     *
+     * @return the descent statistic
+     */
+    public IntSummaryStatistics getDescent() {
+        return descent;
+    }
+
+    /**
+     * Returns the statistic of the average heartrates in beats per minute (only for exercises containing an
+     * average heartrate).
+     *
+     * @return the average heartrate statistic
+     */
+    public IntSummaryStatistics getAvgHeartRate() {
+        return avgHeartRate;
+    }
+
+    /**
+     * Returns the statistic of the calorie consumptions in kCal (only for exercises containing the calories).
+     *
+     * @return the calorie statistic
+     */
+    public IntSummaryStatistics getCalories() {
+        return calories;
+    }
+
+    /**
+     * Returns the distribution sketch of the distances in kilometers.
+     *
+     * @return the distance sketch
+     */
+    public QuantileSketch getDistanceSketch() {
+        return distanceSketch;
+    }
+
+    /**
+     * Returns the distribution sketch of the durations in seconds.
+     *
+     * @return the duration sketch
+     */
+    public QuantileSketch getDurationSketch() {
+        return durationSketch;
+    }
+
+    /**
+     * Returns the distribution sketch of the average speeds in kilometers/hour.
+     *
+     * @return the average speed sketch
+     */
+    public QuantileSketch getAvgSpeedSketch() {
+        return avgSpeedSketch;
+    }
+
+    /**
+     * Returns the distribution sketch of the average heartrates in beats per minute (only for exercises containing
+     * an average heartrate).
+     *
+     * @return the average heartrate sketch
+     */
+    public QuantileSketch getAvgHeartRateSketch() {
+        return avgHeartRateSketch;
+    }
+
+    /**
+     * Returns a collector which accumulates the exercises of a (parallel) stream.
+     *
+     * @return the collector
+     */
+    public static Collector<Exercise, ?, ExerciseStatsAccumulator> collector() {
+        return Collector.of(ExerciseStatsAccumulator::new, ExerciseStatsAccumulator::accept,
+                ExerciseStatsAccumulator::combine, Collector.Characteristics.UNORDERED,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    private static void acceptOptional(final IntSummaryStatistics statistics, final Integer value) {
+        if (value != null) {
+            statistics.accept(value);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package de.saring.sportstracker.data.statistic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Streaming quantile sketch for estimating quantiles (e.g. median or percentiles) of a huge number of values with
+ * bounded memory, without storing and sorting all the values. It's a simplified KLL sketch (Karnin, Lang, Liberty):
+ * the values are stored in a hierarchy of compactors with the same capacity k. When a compactor is full, it will be
+ * sorted and every second value (random offset) is moved to the next level with the double weight, the others are
+ * discarded. Sketches can be merged (e.g. for parallel reductions) by merging the compactors of each level.<br/>
+ * Error bounds:
+ * <ul>
+ * <li>The sketch is exact as long as no compaction happened, i.e. for less than k values.</li>
+ * <li>Otherwise the rank of a returned quantile has an error of zero on average, its standard deviation is about
+ * 1.5 / k of the value count. So for the default capacity of 512 the rank error is about 0.3%, it's below 1% with
+ * very high probability (independent of the value count).</li>
+ * <li>The minimum and maximum values and the value count are always exact.</li>
+ * </ul>
+ * The memory usage is O(k * log(n / k)) values. For the quantile queries the retained values are sorted with their
+ * cumulative weights once, they are reused until the next modification. The random offsets are created by a
+ * generator with a fixed seed, so the results for the same sequence of values are reproducible. A sketch is not
+ * thread safe.
+ *
+ * @author Stefan Saring
+ */
+public final class QuantileSketch {
+
+    /** Default capacity of each compactor. */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static final long RANDOM_SEED = 4711L;
+
+    private final int capacity;
+    private final Random random = new Random(RANDOM_SEED);
+
+    /** The compactors of all levels, the values of level h have the weight 2^h. */
+    private final List<double[]> levels = new ArrayList<>();
+
+    /** The number of values in the compactors of each level. */
+    private final List<Integer> levelSizes = new ArrayList<>();
+
+    /** The retained values of all levels sorted ascending, null when not created yet or invalid. */
+    private double[] sortedValues;
+
+    /** The cumulative weights of the sorted values. */
+    private long[] cumulativeWeights;
+
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * Creates a sketch with the default compactor capacity.
+     */
+    public QuantileSketch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a sketch with the specified compactor capacity, a higher capacity reduces the error and increases
+     * the memory usage.
+     *
+     * @param capacity the capacity of each compactor (at least 2)
+     */
+    public QuantileSketch(final int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("The capacity must be at least 2!");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds the specified value to the sketch. NaN values will be ignored.
+     *
+     * @param value the value to add
+     */
+    public void add(final double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+
+        sortedValues = null;
+        count++;
+        min = count == 1 ? value : Math.min(min, value);
+        max = count == 1 ? value : Math.max(max, value);
+
+        addToLevel(0, value);
+        compactIfFull(0);
+    }
+
+    /**
+     * Merges all the values of the other sketch into this sketch.
+     *
+     * @param other the sketch to merge (will not be modified)
+     * @return this sketch
+     */
+    public QuantileSketch merge(final QuantileSketch other) {
+        if (other.count == 0) {
+            return this;
+        }
+
+        sortedValues = null;
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+
+        for (int level = 0; level < other.levels.size(); level++) {
+            final double[] otherValues = other.levels.get(level);
+            for (int i = 0; i < other.levelSizes.get(level); i++) {
+                addToLevel(level, otherValues[i]);
+            }
+        }
+        for (int level = 0; level < levels.size(); level++) {
+            compactIfFull(level);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of all added values.
+     *
+     * @return value count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the estimated quantile of all added values, see the class comment for the error bounds. The quantile
+     * is the smallest value for which the specified fraction of all values is less or equal (no interpolation).
+     *
+     * @param fraction the fraction of the quantile (0.0 is the minimum, 0.5 the median, 1.0 the maximum)
+     * @return the quantile value or NaN when no values have been added
+     */
+    public double getQuantile(final double fraction) {
+        if (fraction < 0d || fraction > 1d) {
+            throw new IllegalArgumentException("The fraction must be in range 0.0 to 1.0!");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction == 0d) {
+            return min;
+        }
+        if (fraction == 1d) {
+            return max;
+        }
+
+        // binary search of the first value where the cumulative weight reaches the rank of the quantile
+        ensureSortedValues();
+        final double rank = fraction * count;
+        int low = 0;
+        int high = cumulativeWeights.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] < rank) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < sortedValues.length ? sortedValues[low] : max;
+    }
+
+    /**
+     * Returns the estimated median of all added values.
+     *
+     * @return the median or NaN when no values have been added
+     */
+    public double getMedian() {
+        return getQuantile(0.5d);
+    }
+
+    /**
+     * Creates the sorted values of all levels with their cumulative weights when they are not valid. The levels
+     * are sorted separately (the values of a level have the same weight) and merged level by level.
+     */
+    private void ensureSortedValues() {
+        if (sortedValues != null) {
+            return;
+        }
+
+        double[] values = new double[0];
+        long[] weights = new long[0];
+        for (int level = 0; level < levels.size(); level++) {
+            final double[] levelValues = Arrays.copyOf(levels.get(level), levelSizes.get(level));
+            Arrays.sort(levelValues);
+
+            final double[] mergedValues = new double[values.length + levelValues.length];
+            final long[] mergedWeights = new long[mergedValues.length];
+            int index = 0;
+            int levelIndex = 0;
+            for (int mergedIndex = 0; mergedIndex < mergedValues.length; mergedIndex++) {
+                if (levelIndex == levelValues.length
+                        || (index < values.length && values[index] <= levelValues[levelIndex])) {
+                    mergedValues[mergedIndex] = values[index];
+                    mergedWeights[mergedIndex] = weights[index++];
+                } else {
+                    mergedValues[mergedIndex] = levelValues[levelIndex++];
+                    mergedWeights[mergedIndex] = 1L << level;
+                }
+            }
+            values = mergedValues;
+            weights = mergedWeights;
+        }
+
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        sortedValues = values;
+        cumulativeWeights = weights;
+    }
+
+    private void addToLevel(final int level, final double value) {
+        while (levels.size() <= level) {
+            levels.add(new double[capacity]);
+            levelSizes.add(0);
+        }
+
+        int size = levelSizes.get(level);
+        double[] values = levels.get(level);
+        if (size == values.length) {
+            // can happen while merging, the level will be compacted afterwards
+            values = Arrays.copyOf(values, values.length * 2);
+            levels.set(level, values);
+        }
+        values[size] = value;
+        levelSizes.set(level, size + 1);
+    }
+
+    /**
+     * Compacts the specified level when it is full: every second value of the sorted compactor will be moved to
+     * the next level, the others are discarded. For an odd number of values the largest one stays in the level,
+     * so the total weight of all values is always the value count.
+     */
+    private void compactIfFull(final int level) {
+        final int size = levelSizes.get(level);
+        if (size < capacity) {
+            return;
+        }
+
+        final double[] values = levels.get(level);
+        Arrays.sort(values, 0, size);
+
+        final int compactedSize = size - size % 2;
+        final int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = offset; i < compactedSize; i += 2) {
+            addToLevel(level + 1, values[i]);
+        }
+
+        if (size % 2 == 1) {
+            values[0] = values[size - 1];
+        }
+        levelSizes.set(level, size % 2);
+
+        compactIfFull(level + 1);
+    }
+}
@@ -1,5 +1,9 @@
 package de.saring.sportstracker.data.statistic;
 
+import java.util.DoubleSummaryStatistics;
+import java.util.IntSummaryStatistics;
+import java.util.stream.Stream;
+
 import de.saring.sportstracker.data.Exercise;
 import de.saring.util.data.IdObjectList;
 
@@ -11,6 +15,11 @@ import de.saring.util.data.IdObjectList;
  */
 public class StatisticCalculator {
 
+    /**
+     * Minimum number of exercises for calculating the statistic in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
     /**
      * Number of exercises in this statistic.
      */
@@ -146,167 +155,174 @@ public class StatisticCalculator {
      */
     private int maxCalories = 0;
 
+    /**
+     * 10th percentile of the distance of the exercises in kilometers (estimated).
+     */
+    private float p10Distance = 0;
+
+    /**
+     * Median distance of the exercises in kilometers (estimated).
+     */
+    private float medianDistance = 0;
+
+    /**
+     * 90th percentile of the distance of the exercises in kilometers (estimated).
+     */
+    private float p90Distance = 0;
+
+    /**
+     * 10th percentile of the average speed of the exercises in kilometers/hour (estimated).
+     */
+    private float p10AvgSpeed = 0;
+
+    /**
+     * Median average speed of the exercises in kilometers/hour (estimated).
+     */
+    private float medianAvgSpeed = 0;
+
+    /**
+     * 90th percentile of the average speed of the exercises in kilometers/hour (estimated).
+     */
+    private float p90AvgSpeed = 0;
+
+    /**
+     * 10th percentile of the duration of the exercises in seconds (estimated).
+     */
+    private int p10Duration = 0;
+
+    /**
+     * Median duration of the exercises in seconds (estimated).
+     */
+    private int medianDuration = 0;
+
+    /**
+     * 90th percentile of the duration of the exercises in seconds (estimated).
+     */
+    private int p90Duration = 0;
+
+    /**
+     * 10th percentile of the average heartrate of the exercises in beats per minute (estimated).
+     */
+    private int p10AvgHeartRate = 0;
+
+    /**
+     * Median average heartrate of the exercises in beats per minute (estimated).
+     */
+    private int medianAvgHeartRate = 0;
+
+    /**
+     * 90th percentile of the average heartrate of the exercises in beats per minute (estimated).
+     */
+    private int p90AvgHeartRate = 0;
+
 
     /**
      * Creates a new StatisticCalculator instance. The statistic will be
      * calculated immediately for the specified exercises. The results can be
-     * retrieved from the class properties.
+     * retrieved from the class properties.<br/>
+     * All values are collected in one single pass, large exercise lists are
+     * processed in parallel.
      *
      * @param exercises list of Exercise objects for statistic calculation
      */
     public StatisticCalculator(IdObjectList<Exercise> exercises) {
+        this(accumulate(exercises));
+    }
+
+    /**
+     * Creates a new StatisticCalculator instance for the exercise values
+     * collected by the specified accumulator.
+     *
+     * @param accumulator accumulator containing the collected exercise values
+     */
+    public StatisticCalculator(ExerciseStatsAccumulator accumulator) {
 
-        exerciseCount = exercises.size();
+        exerciseCount = accumulator.getCount();
         if (exerciseCount == 0) {
             return;
         }
 
-        // compute distance statistics
-        totalDistance = exercises.stream()
-                .mapToDouble(it -> it.getDistance())
-                .sum();
-
-        minDistance = (float) exercises.stream()
-                .mapToDouble(it -> it.getDistance())
-                .min()
-                .orElse(0);
-
-        maxDistance = (float) exercises.stream()
-                .mapToDouble(it -> it.getDistance())
-                .max()
-                .orElse(0);
-
-        avgDistance = (float) exercises.stream()
-                .mapToDouble(it -> it.getDistance())
-                .average()
-                .orElse(0);
-
-        // compute AVG speed statistics
-        minAvgSpeed = (float) exercises.stream()
-                .mapToDouble(it -> it.getAvgSpeed())
-                .min()
-                .orElse(0);
-
-        maxAvgSpeed = (float) exercises.stream()
-                .mapToDouble(it -> it.getAvgSpeed())
-                .max()
-                .orElse(0);
-
-        avgSpeed = (float) exercises.stream()
-                .mapToDouble(it -> it.getAvgSpeed())
-                .average()
-                .orElse(0);
-
-        // compute duration statistics
-        totalDuration = exercises.stream()
-                .mapToInt(it -> it.getDuration())
-                .sum();
-
-        minDuration = exercises.stream()
-                .mapToInt(it -> it.getDuration())
-                .min()
-                .orElse(0);
-
-        maxDuration = exercises.stream()
-                .mapToInt(it -> it.getDuration())
-                .max()
-                .orElse(0);
-
-        avgDuration = (int) exercises.stream()
-                .mapToInt(it -> it.getDuration())
-                .average()
-                .orElse(0);
-
-        // compute ascent statistics (optional values)
-        totalAscent = exercises.stream()
-                .filter(it -> it.getAscent() != null)
-                .mapToInt(it -> it.getAscent())
-                .sum();
-
-        minAscent = exercises.stream()
-                .filter(it -> it.getAscent() != null)
-                .mapToInt(it -> it.getAscent())
-                .min()
-                .orElse(0);
-
-        maxAscent = exercises.stream()
-                .filter(it -> it.getAscent() != null)
-                .mapToInt(it -> it.getAscent())
-                .max()
-                .orElse(0);
-
-        avgAscent = (int) exercises.stream()
-                .filter(it -> it.getAscent() != null)
-                .mapToInt(it -> it.getAscent())
-                .average()
-                .orElse(0);
-
-        // compute descent statistics (optional values)
-        totalDescent = exercises.stream()
-                .filter(it -> it.getDescent() != null)
-                .mapToInt(it -> it.getDescent())
-                .sum();
-
-        minDescent = exercises.stream()
-                .filter(it -> it.getDescent() != null)
-                .mapToInt(it -> it.getDescent())
-                .min()
-                .orElse(0);
-
-        maxDescent = exercises.stream()
-                .filter(it -> it.getDescent() != null)
-                .mapToInt(it -> it.getDescent())
-                .max()
-                .orElse(0);
-
-        avgDescent = (int) exercises.stream()
-                .filter(it -> it.getDescent() != null)
-                .mapToInt(it -> it.getDescent())
-                .average()
-                .orElse(0);
-
-        // compute AVG heartrate statistics (optional values)
-        minAvgHeartRate = exercises.stream()
-                .filter(it -> it.getAvgHeartRate() != null)
-                .mapToInt(it -> it.getAvgHeartRate())
-                .min()
-                .orElse(0);
-
-        maxAvgHeartRate = exercises.stream()
-                .filter(it -> it.getAvgHeartRate() != null)
-                .mapToInt(it -> it.getAvgHeartRate())
-                .max()
-                .orElse(0);
-
-        avgHeartRate = (int) exercises.stream()
-                .filter(it -> it.getAvgHeartRate() != null)
-                .mapToInt(it -> it.getAvgHeartRate())
-                .average()
-                .orElse(0);
-
-        // compute calories statistics (optional values)
-        totalCalories = exercises.stream()
-                .filter(it -> it.getCalories() != null)
-                .mapToInt(it -> it.getCalories())
-                .sum();
-
-        minCalories = exercises.stream()
-                .filter(it -> it.getCalories() != null)
-                .mapToInt(it -> it.getCalories())
-                .min()
-                .orElse(0);
-
-        maxCalories = exercises.stream()
-                .filter(it -> it.getCalories() != null)
-                .mapToInt(it -> it.getCalories())
-                .max()
-                .orElse(0);
-
-        avgCalories = (int) exercises.stream()
-                .filter(it -> it.getCalories() != null)
-                .mapToInt(it -> it.getCalories())
-                .average()
-                .orElse(0);
+        // distance statistics
+        final DoubleSummaryStatistics distance = accumulator.getDistance();
+        totalDistance = distance.getSum();
+        minDistance = (float) distance.getMin();
+        maxDistance = (float) distance.getMax();
+        avgDistance = (float) distance.getAverage();
+        final QuantileSketch distanceSketch = accumulator.getDistanceSketch();
+        p10Distance = (float) distanceSketch.getQuantile(0.1d);
+        medianDistance = (float) distanceSketch.getMedian();
+        p90Distance = (float) distanceSketch.getQuantile(0.9d);
+
+        // AVG speed statistics
+        final DoubleSummaryStatistics speed = accumulator.getAvgSpeed();
+        minAvgSpeed = (float) speed.getMin();
+        maxAvgSpeed = (float) speed.getMax();
+        avgSpeed = (float) speed.getAverage();
+        final QuantileSketch speedSketch = accumulator.getAvgSpeedSketch();
+        p10AvgSpeed = (float) speedSketch.getQuantile(0.1d);
+        medianAvgSpeed = (float) speedSketch.getMedian();
+        p90AvgSpeed = (float) speedSketch.getQuantile(0.9d);
+
+        // duration statistics
+        final IntSummaryStatistics duration = accumulator.getDuration();
+        totalDuration = (int) duration.getSum();
+        minDuration = duration.getMin();
+        maxDuration = duration.getMax();
+        avgDuration = (int) duration.getAverage();
+        final QuantileSketch durationSketch = accumulator.getDurationSketch();
+        p10Duration = (int) durationSketch.getQuantile(0.1d);
+        medianDuration = (int) durationSketch.getMedian();
+        p90Duration = (int) durationSketch.getQuantile(0.9d);
+
+        // ascent statistics (optional values)
+        final IntSummaryStatistics ascent = accumulator.getAscent();
+        totalAscent = (int) ascent.getSum();
+        minAscent = getMinOrZero(ascent);
+        maxAscent = getMaxOrZero(ascent);
+        avgAscent = (int) ascent.getAverage();
+
+        // descent statistics (optional values)
+        final IntSummaryStatistics descent = accumulator.getDescent();
+        totalDescent = (int) descent.getSum();
+        minDescent = getMinOrZero(descent);
+        maxDescent = getMaxOrZero(descent);
+        avgDescent = (int) descent.getAverage();
+
+        // AVG heartrate statistics (optional values)
+        final IntSummaryStatistics heartRate = accumulator.getAvgHeartRate();
+        minAvgHeartRate = getMinOrZero(heartRate);
+        maxAvgHeartRate = getMaxOrZero(heartRate);
+        avgHeartRate = (int) heartRate.getAverage();
+        final QuantileSketch heartRateSketch = accumulator.getAvgHeartRateSketch();
+        if (heartRateSketch.getCount() > 0) {
+            p10AvgHeartRate = (int) heartRateSketch.getQuantile(0.1d);
+            medianAvgHeartRate = (int) heartRateSketch.getMedian();
+            p90AvgHeartRate = (int) heartRateSketch.getQuantile(0.9d);
+        }
+
+        // calories statistics (optional values)
+        final IntSummaryStatistics calories = accumulator.getCalories();
+        totalCalories = (int) calories.getSum();
+        minCalories = getMinOrZero(calories);
+        maxCalories = getMaxOrZero(calories);
+        avgCalories = (int) calories.getAverage();
+    }
+
+    /**
+     * Collects the values of all specified exercises, a parallel stream is used for large lists.
+     */
+    private static ExerciseStatsAccumulator accumulate(IdObjectList<Exercise> exercises) {
+        final Stream<Exercise> sExercises = exercises.size() >= PARALLEL_THRESHOLD ?
+                exercises.stream().parallel() : exercises.stream();
+        return sExercises.collect(ExerciseStatsAccumulator.collector());
+    }
+
+    private static int getMinOrZero(IntSummaryStatistics statistics) {
+        return statistics.getCount() == 0 ? 0 : statistics.getMin();
+    }
+
+    private static int getMaxOrZero(IntSummaryStatistics statistics) {
+        return statistics.getCount() == 0 ? 0 : statistics.getMax();
     }
 
     public int getAvgAscent() {
@@ -416,4 +432,52 @@ public class StatisticCalculator {
     public int getTotalDuration() {
         return totalDuration;
     }
-}
\ No newline at end of file
+
+    public float getP10Distance() {
+        return p10Distance;
+    }
+
+    public float getMedianDistance() {
+        return medianDistance;
+    }
+
+    public float getP90Distance() {
+        return p90Distance;
+    }
+
+    public float getP10AvgSpeed() {
+        return p10AvgSpeed;
+    }
+
+    public float getMedianAvgSpeed() {
+        return medianAvgSpeed;
+    }
+
+    public float getP90AvgSpeed() {
+        return p90AvgSpeed;
+    }
+
+    public int getP10Duration() {
+        return p10Duration;
+    }
+
+    public int getMedianDuration() {
+        return medianDuration;
+    }
+
+    public int getP90Duration() {
+        return p90Duration;
+    }
+
+    public int getP10AvgHeartRate() {
+        return p10AvgHeartRate;
+    }
+
+    public int getMedianAvgHeartRate() {
+        return medianAvgHeartRate;
+    }
+
+    public int getP90AvgHeartRate() {
+        return p90AvgHeartRate;
+    }
+}
@@ -103,6 +103,11 @@ public interface STController extends EntryViewEventHandler {
      */
     void onEquipmentUsage(ActionEvent event);
 
+    /**
+     * Event handler for action "Personal Records".
+     */
+    void onPersonalRecords(ActionEvent event);
+
     /**
      * Event handler for action "Project Website".
      */
@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.LongStream;
 
 import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.storage.db.AbstractRepository;
@@ -369,9 +370,7 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
             if (result.isPresent() && result.get() == ButtonType.OK) {
                 // finally remove the entries
                 try {
-                    for (long id : selectedEntryIDs) {
-                        repository.delete(id);
-                    }
+                    repository.deleteAll(LongStream.of(selectedEntryIDs).boxed().toList());
                     document.updateApplicationData(null);
                 } catch (STException e) {
                     LOGGER.log(Level.SEVERE, "Failed to delete the selected entries!", e);
@@ -479,6 +478,15 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
         dialogProvider.prEquipmentUsageDialogController.get().show(context.getPrimaryStage());
     }
 
+    @Override
+    public void onPersonalRecords(final ActionEvent event) {
+        if (!checkForExistingExercises()) {
+            return;
+        }
+
+        dialogProvider.prPersonalRecordsDialogController.get().show(context.getPrimaryStage());
+    }
+
     @Override
     public void onWebsite(final ActionEvent event) {
         context.getHostServices().showDocument(URL_PROJECT_WEBSITE);
@@ -715,7 +723,7 @@ public class STControllerImpl implements STController, EntryViewEventHandler {
      * object in the current view, if specified.
      */
     private void registerListenerForDataChanges() {
-        document.registerChangeListener(changedObject -> {
+        document.registerChangeListener((changedObject, changes) -> {
             updateView();
             if (changedObject != null) {
                 currentViewController.selectEntry(changedObject);
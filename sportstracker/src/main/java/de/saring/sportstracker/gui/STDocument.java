@@ -5,6 +5,7 @@ import java.util.List;
 import de.saring.sportstracker.core.ApplicationDataChangeListener;
 import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.core.STOptions;
+import de.saring.sportstracker.data.DocumentSnapshot;
 import de.saring.sportstracker.data.EntryList;
 import de.saring.sportstracker.data.Exercise;
 import de.saring.sportstracker.data.EntryFilter;
@@ -108,6 +109,22 @@ public interface STDocument {
      */
     EntryList<Weight> getFilterableWeightList();
 
+    /**
+     * Returns the version of the application data. It will be increased whenever the application data has been
+     * read, imported or updated, so it can be used for detecting outdated data derived from it.
+     *
+     * @return the monotonically increasing data version
+     */
+    long getDataVersion();
+
+    /**
+     * Returns the immutable snapshot of the current application data. A new snapshot will be published after each
+     * data change, so it can be used by background tasks for reading consistent data without locking.
+     *
+     * @return the current application data snapshot
+     */
+    DocumentSnapshot getSnapshot();
+
     /**
      * This method reads all application data (notes, weights, exercises, sport types) from the database storage.
      *
@@ -135,9 +152,11 @@ public interface STDocument {
     boolean importApplicationDataFromXml() throws STException;
 
     /**
-     * Reloads all application data (notes, weights, exercises, sport types) from the storage. Needs to be called
-     * whenever some application data has been modified by one of the storage repositories.
-     * After reload all registered {@link ApplicationDataChangeListener} will be notified.
+     * Updates the application data (notes, weights, exercises, sport types) after modifications by the storage
+     * repositories. Needs to be called whenever some application data has been modified by one of the repositories.
+     * The entity changes reported by the repositories will be applied to the entry lists directly. All data will be
+     * reloaded from the storage as a fallback, e.g. when sport types were modified.
+     * After update all registered {@link ApplicationDataChangeListener} will be notified.
      *
      * @param changedObject the added / changed object (or null when removed or all objects changed)
      * @throws STException thrown on read problems
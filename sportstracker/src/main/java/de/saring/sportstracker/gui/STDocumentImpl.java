@@ -10,6 +10,7 @@ import java.util.logging.Logger;
 import java.util.stream.LongStream;
 
 import de.saring.sportstracker.core.ApplicationDataChangeListener;
+import de.saring.sportstracker.core.EntityChange;
 import de.saring.sportstracker.storage.db.DbStorage;
 import de.saring.sportstracker.storage.xml.XMLStorage;
 import jakarta.inject.Inject;
@@ -18,6 +19,8 @@ import jakarta.inject.Singleton;
 import de.saring.sportstracker.core.STException;
 import de.saring.sportstracker.core.STExceptionID;
 import de.saring.sportstracker.core.STOptions;
+import de.saring.sportstracker.data.DocumentSnapshot;
+import de.saring.sportstracker.data.Entry;
 import de.saring.sportstracker.data.EntryFilter;
 import de.saring.sportstracker.data.EntryList;
 import de.saring.sportstracker.data.Exercise;
@@ -78,6 +81,11 @@ public class STDocumentImpl implements STDocument {
      */
     private List<ApplicationDataChangeListener> changeListeners = new ArrayList<>();
 
+    /**
+     * List of the entity changes done by the storage repositories which were not applied to the application data yet.
+     */
+    private final List<EntityChange> pendingChanges = new ArrayList<>();
+
     /**
      * The directory where the application data of the user is stored.
      */
@@ -100,6 +108,29 @@ public class STDocumentImpl implements STDocument {
      */
     private EntryFilter currentFilter;
 
+    /**
+     * Version of the application data, will be increased on each read, import or update.
+     */
+    private long dataVersion;
+
+    /**
+     * Immutable snapshot of the current application data, a new one will be published after each data change.
+     */
+    private volatile DocumentSnapshot snapshot;
+
+    /**
+     * Caches of the filtered entry lists, they are valid for the filter and the data version used for creation.
+     */
+    private final FilterResultCache<Exercise> filteredExercisesCache = new FilterResultCache<>();
+    private final FilterResultCache<Note> filteredNotesCache = new FilterResultCache<>();
+    private final FilterResultCache<Weight> filteredWeightsCache = new FilterResultCache<>();
+
+    /**
+     * Number of filtered entry list requests which were answered by the cache / needed filtering.
+     */
+    private long filterCacheHits;
+    private long filterCacheMisses;
+
     /**
      * Standard c'tor.
      *
@@ -118,11 +149,16 @@ public class STDocumentImpl implements STDocument {
         exerciseList = new ExerciseList();
         noteList = new NoteList();
         weightList = new WeightList();
+        exerciseList.updateSportTypes(sportTypeList);
+        snapshot = createSnapshot();
         dirtyData = false;
 
         // create default filter for current month, but it is disabled
         filterEnabled = false;
         currentFilter = EntryFilter.createDefaultExerciseFilter();
+
+        // collect all entity changes, they will be applied on next application data update
+        dbStorage.registerChangeListener(pendingChanges::add);
     }
 
     @Override
@@ -168,6 +204,7 @@ public class STDocumentImpl implements STDocument {
     @Override
     public void setFilterEnabled(boolean filterEnabled) {
         this.filterEnabled = filterEnabled;
+        invalidateFilterCaches();
     }
 
     @Override
@@ -178,6 +215,7 @@ public class STDocumentImpl implements STDocument {
     @Override
     public void setCurrentFilter(EntryFilter currentFilter) {
         this.currentFilter = currentFilter;
+        invalidateFilterCaches();
     }
 
     @Override
@@ -248,7 +286,7 @@ public class STDocumentImpl implements STDocument {
 
         if ((filterEnabled) && (currentFilter != null)) {
             // use current filter to get list
-            return exerciseList.getEntriesForFilter(currentFilter);
+            return getFilteredEntries(exerciseList, filteredExercisesCache);
         } else {
             // no filter: return list of all exercises
             return exerciseList;
@@ -260,7 +298,7 @@ public class STDocumentImpl implements STDocument {
 
         if ((filterEnabled) && (currentFilter != null)) {
             // use current filter to get list
-            return noteList.getEntriesForFilter(currentFilter);
+            return getFilteredEntries(noteList, filteredNotesCache);
         } else {
             // no filter: return list of all notes
             return noteList;
@@ -272,13 +310,85 @@ public class STDocumentImpl implements STDocument {
 
         if ((filterEnabled) && (currentFilter != null)) {
             // use current filter to get list
-            return weightList.getEntriesForFilter(currentFilter);
+            return getFilteredEntries(weightList, filteredWeightsCache);
         } else {
             // no filter: return list of all weights
             return weightList;
         }
     }
 
+    @Override
+    public long getDataVersion() {
+        return dataVersion;
+    }
+
+    @Override
+    public DocumentSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the number of filtered entry list requests which were answered by the cache.
+     *
+     * @return number of cache hits
+     */
+    public long getFilterCacheHits() {
+        return filterCacheHits;
+    }
+
+    /**
+     * Returns the number of filtered entry list requests which needed a filtering of the entries.
+     *
+     * @return number of cache misses
+     */
+    public long getFilterCacheMisses() {
+        return filterCacheMisses;
+    }
+
+    /**
+     * Returns the entries of the specified list for the current filter. The result of the last filtering will be
+     * reused when the filter criteria and the application data have not been changed in the meantime.
+     *
+     * @param entryList the list to filter
+     * @param cache the cache for the filtered entries of this list
+     * @return the filtered entry list
+     */
+    private <T extends Entry> EntryList<T> getFilteredEntries(
+            final EntryList<T> entryList, final FilterResultCache<T> cache) {
+
+        if (cache.isValidFor(currentFilter, dataVersion)) {
+            filterCacheHits++;
+            return cache.entries;
+        }
+
+        filterCacheMisses++;
+        final EntryList<T> filteredEntries = entryList.getEntriesForFilter(currentFilter);
+        // store a copy of the filter, the current filter could be modified afterwards
+        cache.store(currentFilter.clone(), dataVersion, filteredEntries);
+        return filteredEntries;
+    }
+
+    private void invalidateFilterCaches() {
+        filteredExercisesCache.clear();
+        filteredNotesCache.clear();
+        filteredWeightsCache.clear();
+    }
+
+    /**
+     * Increases the data version after the application data has been modified, all cached data is outdated then.
+     * Finally the snapshot of the new application data will be published.
+     */
+    private void increaseDataVersion() {
+        dataVersion++;
+        invalidateFilterCaches();
+        snapshot = createSnapshot();
+    }
+
+    private DocumentSnapshot createSnapshot() {
+        return new DocumentSnapshot(dataVersion, sportTypeList.snapshot(), exerciseList.snapshot(),
+                noteList.snapshot(), weightList.snapshot());
+    }
+
     @Override
     public void readApplicationData() throws STException {
         LOGGER.info("Reading application data");
@@ -287,6 +397,8 @@ public class STDocumentImpl implements STDocument {
         exerciseList = new ExerciseList();
         noteList = new NoteList();
         weightList = new WeightList();
+        exerciseList.updateSportTypes(sportTypeList);
+        pendingChanges.clear();
 
         var msStart = System.currentTimeMillis();
         dbStorage.openDatabase(dataDirectory + "/" + FILENAME_ST_DATABASE);
@@ -295,6 +407,7 @@ public class STDocumentImpl implements STDocument {
 
         // read application data from SQLite database
         readListsFromStorage();
+        increaseDataVersion();
         var msDataRead = System.currentTimeMillis();
         LOGGER.info("Loaded all data in " + (msDataRead - msOpened) + " msec");
         dirtyData = false;
@@ -340,12 +453,13 @@ public class STDocumentImpl implements STDocument {
             var importedNotes = xmlStorage.readNoteList(dataDirectory + "/" + FILENAME_NOTE_LIST);
             var importedWeights = xmlStorage.readWeightList(dataDirectory + "/" + FILENAME_WEIGHT_LIST);
 
-            // import data to database and persist
+            // import data to database, it's committed by the importer in a single transaction
             dbStorage.importExistingApplicationData(
                     importedSportTypes, importedExercises, importedNotes, importedWeights);
-            dbStorage.commitChanges();
 
             readListsFromStorage();
+            pendingChanges.clear();
+            increaseDataVersion();
             dirtyData = false;
             return true;
         } catch (STException e) {
@@ -364,10 +478,86 @@ public class STDocumentImpl implements STDocument {
     public void updateApplicationData(IdObject changedObject) throws STException {
         LOGGER.info("Updating application data");
         dirtyData = true;
-        readListsFromStorage();
+
+        final List<EntityChange> changes = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+
+        // apply the entity changes to the lists when possible, otherwise reload all data as fallback
+        final boolean changesApplicable = !changes.isEmpty() && changes.stream().allMatch(this::isApplicable);
+        if (changesApplicable) {
+            applyChanges(changes);
+        } else {
+            LOGGER.info("Reloading all application data");
+            readListsFromStorage();
+        }
+        increaseDataVersion();
 
         // notify all listeners of application data changes
-        changeListeners.forEach(listener -> listener.applicationDataChanged(changedObject));
+        final List<EntityChange> appliedChanges = changesApplicable ? List.copyOf(changes) : null;
+        changeListeners.forEach(listener -> listener.applicationDataChanged(changedObject, appliedChanges));
+    }
+
+    /**
+     * Checks whether the specified entity change can be applied to the entry lists directly. Changes of the sport
+     * types can't be applied, they can affect many exercises (e.g. deleted subtypes or equipment).
+     *
+     * @param change the entity change
+     * @return true when the change can be applied
+     */
+    private boolean isApplicable(final EntityChange change) {
+        final Class<?> entityClass = change.getEntityClass();
+        final boolean isEntry = entityClass == Exercise.class || entityClass == Note.class
+                || entityClass == Weight.class;
+        return isEntry && (change.getType() == EntityChange.Type.DELETED || change.getEntity() != null);
+    }
+
+    /**
+     * Applies the specified entity changes to the entry lists in their order. Consecutive deletions of the same entry
+     * type (e.g. when deleting multiple selected entries) are applied by a single bulk removal.
+     *
+     * @param changes the applicable entity changes
+     */
+    private void applyChanges(final List<EntityChange> changes) {
+        int index = 0;
+        while (index < changes.size()) {
+            final EntityChange change = changes.get(index);
+            if (change.getType() == EntityChange.Type.DELETED) {
+                final List<Long> deletedIds = new ArrayList<>();
+                while (index < changes.size() && isDeletionOf(changes.get(index), change.getEntityClass())) {
+                    deletedIds.add(changes.get(index).getEntityId());
+                    index++;
+                }
+                getEntryList(change.getEntityClass()).removeAllByID(deletedIds);
+            } else {
+                applyChange(change);
+                index++;
+            }
+        }
+    }
+
+    private static boolean isDeletionOf(final EntityChange change, final Class<?> entityClass) {
+        return change.getType() == EntityChange.Type.DELETED && change.getEntityClass() == entityClass;
+    }
+
+    private EntryList<?> getEntryList(final Class<?> entityClass) {
+        if (entityClass == Exercise.class) {
+            return exerciseList;
+        } else if (entityClass == Note.class) {
+            return noteList;
+        } else {
+            return weightList;
+        }
+    }
+
+    private void applyChange(final EntityChange change) {
+        final Class<?> entityClass = change.getEntityClass();
+        if (entityClass == Exercise.class) {
+            exerciseList.set(Exercise.class.cast(change.getEntity()));
+        } else if (entityClass == Note.class) {
+            noteList.set(Note.class.cast(change.getEntity()));
+        } else {
+            weightList.set(Weight.class.cast(change.getEntity()));
+        }
     }
 
     @Override
@@ -397,4 +587,32 @@ public class STDocumentImpl implements STDocument {
 
         return speedModes.size() == 1 ? speedModes.get(0) : getOptions().getPreferredSpeedMode();
     }
+
+    /**
+     * Cache for the filtered entries of one entry list. It contains the result of the last filtering and the filter
+     * criteria and data version used for it.
+     *
+     * @param <T> the entry type
+     */
+    private static final class FilterResultCache<T extends Entry> {
+
+        private EntryFilter filter;
+        private long dataVersion;
+        private EntryList<T> entries;
+
+        boolean isValidFor(final EntryFilter filter, final long dataVersion) {
+            return entries != null && this.dataVersion == dataVersion && this.filter.equals(filter);
+        }
+
+        void store(final EntryFilter filter, final long dataVersion, final EntryList<T> entries) {
+            this.filter = filter;
+            this.dataVersion = dataVersion;
+            this.entries = entries;
+        }
+
+        void clear() {
+            filter = null;
+            entries = null;
+        }
+    }
 }
@@ -42,6 +42,9 @@ public class DialogProvider {
     /** Provider for the EquipmentUsageDialogController */
     public Provider<EquipmentUsageDialogController> prEquipmentUsageDialogController;
 
+    /** Provider for the PersonalRecordsDialogController */
+    public Provider<PersonalRecordsDialogController> prPersonalRecordsDialogController;
+
     /** Provider for the PreferencesDialogController */
     public Provider<PreferencesDialogController> prPreferencesDialogController;
     
@@ -63,6 +66,7 @@ public class DialogProvider {
      * @param prStatisticDialogController provider for the StatisticDialogController
      * @param prOverviewDialogController provider for the OverviewDialogController
      * @param prEquipmentUsageDialogController provider for the EquipmentUsageDialogController
+     * @param prPersonalRecordsDialogController provider for the PersonalRecordsDialogController
      * @param prPreferencesDialogController provider for the PreferencesDialogController
      * @param prFilterDialogController provider for the FilterDialogController
      * @param prAboutDialogController provider for the AboutDialogController
@@ -77,6 +81,7 @@ public class DialogProvider {
                           Provider<StatisticDialogController> prStatisticDialogController,
                           Provider<OverviewDialogController> prOverviewDialogController,
                           Provider<EquipmentUsageDialogController> prEquipmentUsageDialogController,
+                          Provider<PersonalRecordsDialogController> prPersonalRecordsDialogController,
                           Provider<PreferencesDialogController> prPreferencesDialogController,
                           Provider<FilterDialogController> prFilterDialogController,
                           Provider<AboutDialogController> prAboutDialogController) {
@@ -89,6 +94,7 @@ public class DialogProvider {
         this.prStatisticDialogController = prStatisticDialogController;
         this.prOverviewDialogController = prOverviewDialogController;
         this.prEquipmentUsageDialogController = prEquipmentUsageDialogController;
+        this.prPersonalRecordsDialogController = prPersonalRecordsDialogController;
         this.prPreferencesDialogController = prPreferencesDialogController;
         this.prFilterDialogController = prFilterDialogController;
         this.prAboutDialogController = prAboutDialogController;
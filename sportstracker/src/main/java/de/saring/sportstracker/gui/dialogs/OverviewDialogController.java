@@ -8,6 +8,7 @@ import java.time.temporal.WeekFields;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Predicate;
 
 import jakarta.inject.Inject;
 
@@ -34,12 +35,14 @@ import org.jfree.data.xy.XYDataset;
 
 import de.saring.sportstracker.core.STOptions;
 import de.saring.sportstracker.data.EntryFilter;
-import de.saring.sportstracker.data.EntryList;
 import de.saring.sportstracker.data.Equipment;
 import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseAggregate;
+import de.saring.sportstracker.data.ExerciseAggregateCube;
+import de.saring.sportstracker.data.ExerciseTrainingLoad;
 import de.saring.sportstracker.data.SportSubType;
 import de.saring.sportstracker.data.SportType;
-import de.saring.sportstracker.data.Weight;
+import de.saring.sportstracker.data.WeightSeries;
 import de.saring.sportstracker.gui.STContext;
 import de.saring.sportstracker.gui.STDocument;
 import de.saring.util.AppResources;
@@ -198,6 +201,8 @@ public class OverviewDialogController extends AbstractDialogController {
             setupEquipmentDiagram(dataset, lGraphColors);
         } else if (vType == ValueType.WEIGHT) {
             setupWeightDiagram(dataset, lGraphColors);
+        } else if (vType == ValueType.TRAINING_LOAD) {
+            setupTrainingLoadDiagram(dataset, lGraphColors);
         } else {
             setupExerciseDiagram(dataset, lGraphColors);
         }
@@ -346,9 +351,11 @@ public class OverviewDialogController extends AbstractDialogController {
     private void updateOptionControls() {
         final ValueType selectedValueType = cbDisplay.getValue();
 
-        // the sport type mode selection must not be visible for the ValueType SPORTSUBTYPE, EQUIPMENT and WEIGHT
+        // the sport type mode selection must not be visible for the ValueType SPORTSUBTYPE, EQUIPMENT, WEIGHT
+        // and TRAINING_LOAD
         final boolean sportTypeModeVisible = selectedValueType != ValueType.SPORTSUBTYPE
-                && selectedValueType != ValueType.EQUIPMENT && selectedValueType != ValueType.WEIGHT;
+                && selectedValueType != ValueType.EQUIPMENT && selectedValueType != ValueType.WEIGHT
+                && selectedValueType != ValueType.TRAINING_LOAD;
 
         // the sport type list selection must only be visible for the ValueType SPORTSUBTYPE and EQUIPMENT
         final boolean sportTypeListVisible = selectedValueType == ValueType.SPORTSUBTYPE
@@ -428,30 +435,29 @@ public class OverviewDialogController extends AbstractDialogController {
             // create the EntryFilter for the time range of the current time step
             EntryFilter filter = createExerciseFilterForTimeStep(timeType, year, timeStep);
             filter.setSportType(sportType);
-            mergeExerciseFilterIfEnabled(filter);
 
-            // get exercises for defined filter
+            // get the value sums of the exercises for defined filter
             // (add value 0 and skip to next time step when no exercises found)
-            EntryList<Exercise> lExercises = document.getExerciseList().getEntriesForFilter(filter);
-            if (lExercises.size() == 0) {
+            ExerciseAggregate aggregate;
+            if (isExerciseFilterEnabled()) {
+                aggregate = searchExerciseAggregate(filter, exercise -> true);
+            } else if (sportType == null) {
+                aggregate = getAggregateCube().getTotal(filter.getDateStart(), filter.getDateEnd());
+            } else {
+                aggregate = getAggregateCube().getForSportType(
+                        sportType.getId(), filter.getDateStart(), filter.getDateEnd());
+            }
+
+            if (aggregate.getCount() == 0) {
                 dataset.add(timePeriod, 0, seriesName);
                 continue;
             }
 
-            // create sums of all exercises
-            double sumDistance = 0d;
-            double sumDuration = 0d;
-            double sumAscent = 0d;
-            double sumDescent = 0d;
-            double sumCalories = 0d;
-
-            for (Exercise tempExercise : lExercises) {
-                sumDistance += tempExercise.getDistance();
-                sumDuration += tempExercise.getDuration();
-                sumAscent += tempExercise.getAscent() == null ? 0 : tempExercise.getAscent();
-                sumDescent += tempExercise.getDescent() == null ? 0: tempExercise.getDescent();
-                sumCalories += tempExercise.getCalories() == null ? 0 : tempExercise.getCalories();
-            }
+            double sumDistance = aggregate.getDistance();
+            double sumDuration = aggregate.getDuration();
+            double sumAscent = aggregate.getAscent();
+            double sumDescent = aggregate.getDescent();
+            double sumCalories = aggregate.getCalories();
 
             // set value of time step depending on value type
             // (convert to english unit mode when enabled)
@@ -491,7 +497,7 @@ public class OverviewDialogController extends AbstractDialogController {
 
                 case EXERCISES:
                     // set number of exercises
-                    dataset.add(timePeriod, lExercises.size(), seriesName);
+                    dataset.add(timePeriod, aggregate.getCount(), seriesName);
                     break;
 
                 case AVG_SPEED:
@@ -569,19 +575,17 @@ public class OverviewDialogController extends AbstractDialogController {
             EntryFilter filter = createExerciseFilterForTimeStep(timeType, year, timeStep);
             filter.setSportType(sportType);
             filter.setSportSubType(sportSubType);
-            mergeExerciseFilterIfEnabled(filter);
-
-            // get exercises for defined filter
-            EntryList<Exercise> lExercises = document.getExerciseList().getEntriesForFilter(filter);
 
-            // create distance sum of all found exercises
-            double sumDistance = 0d;
-            for (Exercise tempExercise : lExercises) {
+            // create distance sum of all exercises for defined filter
+            double sumDistance;
+            if (isExerciseFilterEnabled()) {
                 // sum only exercises with same sport subtype (otherwise conflicts with the merged filter set in the
                 // view)
-                if (sportSubType.equals(tempExercise.getSportSubType())) {
-                    sumDistance += tempExercise.getDistance();
-                }
+                sumDistance = searchExerciseAggregate(filter,
+                        exercise -> sportSubType.equals(exercise.getSportSubType())).getDistance();
+            } else {
+                sumDistance = getAggregateCube().getForSportSubType(sportType.getId(), sportSubType.getId(),
+                        filter.getDateStart(), filter.getDateEnd()).getDistance();
             }
 
             // convert to english unit mode when enabled
@@ -646,19 +650,17 @@ public class OverviewDialogController extends AbstractDialogController {
             EntryFilter filter = createExerciseFilterForTimeStep(timeType, year, timeStep);
             filter.setSportType(sportType);
             filter.setEquipment(equipment);
-            mergeExerciseFilterIfEnabled(filter);
-
-            // get exercises for defined filter
-            EntryList<Exercise> lExercises = document.getExerciseList().getEntriesForFilter(filter);
 
-            // create distance sum of all found exercises
-            double sumDistance = 0d;
-            for (Exercise tempExercise : lExercises) {
+            // create distance sum of all exercises for defined filter
+            double sumDistance;
+            if (isExerciseFilterEnabled()) {
                 // when displaying series for no equipment assigned then skip exercises with assigned equipment
-                if (equipment == null && tempExercise.getEquipment() != null) {
-                    continue;
-                }
-                sumDistance += tempExercise.getDistance();
+                sumDistance = searchExerciseAggregate(filter,
+                        exercise -> equipment != null || exercise.getEquipment() == null).getDistance();
+            } else {
+                sumDistance = getAggregateCube().getForEquipment(sportType.getId(),
+                        equipment == null ? null : equipment.getId(),
+                        filter.getDateStart(), filter.getDateEnd()).getDistance();
             }
 
             // convert to english unit mode when enabled
@@ -685,12 +687,15 @@ public class OverviewDialogController extends AbstractDialogController {
 
         addWeightTimeSeries(dataset, timeType, year);
         graphColors.add(new java.awt.Color(0xff0000));
+        graphColors.add(new java.awt.Color(0x0000ff));
     }
 
     /**
-     * This method creates a TimeSeries graph which contains all Weight entries
-     * for the current selected time range and adds them to the passed
-     * TimeTableXYDataset.
+     * This method creates the TimeSeries graphs of the average weight and of the weight trend
+     * for the current selected time range and adds them to the passed TimeTableXYDataset.
+     * The values are taken from the weight series of the weight list, so the weight entries
+     * don't need to be processed for each time step. The weight trend is the value at the
+     * end of each time step.
      *
      * @param dataset the timetable dataset
      * @param timeType time range for calculated values
@@ -699,6 +704,9 @@ public class OverviewDialogController extends AbstractDialogController {
     private void addWeightTimeSeries(TimeTableXYDataset dataset, TimeRangeType timeType, int year) {
 
         String seriesName = context.getResources().getString("st.dlg.overview.display.weight.text");
+        String trendSeriesName = context.getResources().getString("st.dlg.overview.weight_trend.text");
+        WeightSeries weightSeries = document.getWeightList().getWeightSeries();
+        LocalDate today = LocalDate.now();
 
         // process value calculation for each step of time range
         int timeStepCount = getTimeStepCount(timeType, year);
@@ -712,10 +720,8 @@ public class OverviewDialogController extends AbstractDialogController {
             EntryFilter filter = createExerciseFilterForTimeStep(timeType, year, timeStep);
 
             // get average weight for the time range of this step
-            double avgWeight = getAverageWeightInTimeRange(filter);
-            if (document.getOptions().getUnitSystem() != UnitSystem.METRIC) {
-                avgWeight = ConvertUtils.convertKilogram2Lbs(avgWeight);
-            }
+            double avgWeight = convertWeightToUnitSystem(
+                    weightSeries.getAverage(filter.getDateStart(), filter.getDateEnd()));
 
             // add computed value to time series (if the weight value is available)
             if (avgWeight > 0) {
@@ -726,7 +732,66 @@ public class OverviewDialogController extends AbstractDialogController {
             else if (timeStep == 0 || timeStep == timeStepCount - 1) {
                 dataset.add(timePeriod, null, seriesName, true);
             }
+
+            // add the weight trend at the end of the time step (not for time steps in the future)
+            if (!filter.getDateStart().isAfter(today)) {
+                LocalDate trendDate = filter.getDateEnd().isAfter(today) ? today : filter.getDateEnd();
+                double trendWeight = convertWeightToUnitSystem(weightSeries.getTrend(trendDate));
+                if (trendWeight > 0) {
+                    dataset.add(timePeriod, trendWeight, trendSeriesName, true);
+                }
+            }
+        }
+    }
+
+    private double convertWeightToUnitSystem(double weight) {
+        return document.getOptions().getUnitSystem() != UnitSystem.METRIC ?
+                ConvertUtils.convertKilogram2Lbs(weight) : weight;
+    }
+
+    /**
+     * Sets up the diagram for the training load of all exercises: the acute load, the chronic load and the form.
+     * The view filter is not used here, the training load always depends on the complete exercise history.
+     *
+     * @param dataset the XY dataset to be filled
+     * @param graphColors list of graph colors, can be filled with preferred colors
+     */
+    private void setupTrainingLoadDiagram(TimeTableXYDataset dataset, java.util.List<java.awt.Color> graphColors) {
+
+        // get time range to display
+        TimeRangeType timeType = cbTimeRange.getValue();
+        int year = spYear.getValue();
+
+        ExerciseTrainingLoad trainingLoad = document.getExerciseList().getTrainingLoad();
+        String acuteSeriesName = context.getResources().getString("st.dlg.overview.training_load.acute.text");
+        String chronicSeriesName = context.getResources().getString("st.dlg.overview.training_load.chronic.text");
+        String formSeriesName = context.getResources().getString("st.dlg.overview.training_load.form.text");
+        LocalDate today = LocalDate.now();
+
+        // process value calculation for each step of time range, the values are taken at the last day of the
+        // time step (or today for the current time step)
+        int timeStepCount = getTimeStepCount(timeType, year);
+        for (int timeStep = 0; timeStep < timeStepCount; timeStep++) {
+
+            RegularTimePeriod timePeriod = createTimePeriodForTimeStep(timeType, year, timeStep);
+            EntryFilter filter = createExerciseFilterForTimeStep(timeType, year, timeStep);
+
+            if (!filter.getDateStart().isAfter(today)) {
+                LocalDate date = filter.getDateEnd().isAfter(today) ? today : filter.getDateEnd();
+                dataset.add(timePeriod, trainingLoad.getAcuteLoad(date), acuteSeriesName, true);
+                dataset.add(timePeriod, trainingLoad.getChronicLoad(date), chronicSeriesName, true);
+                dataset.add(timePeriod, trainingLoad.getForm(date), formSeriesName, true);
+            }
+            // for time steps in the future add at least the last dataset item to make sure the full time range
+            // is shown
+            else if (timeStep == timeStepCount - 1) {
+                dataset.add(timePeriod, null, acuteSeriesName, true);
+            }
         }
+
+        graphColors.add(new java.awt.Color(0xff0000));
+        graphColors.add(new java.awt.Color(0x0000ff));
+        graphColors.add(new java.awt.Color(0x3acc2e));
     }
 
     /**
@@ -876,6 +941,32 @@ public class OverviewDialogController extends AbstractDialogController {
                 && document.getCurrentFilter().getEntryType() == EntryFilter.EntryType.EXERCISE;
     }
 
+    private ExerciseAggregateCube getAggregateCube() {
+        return document.getExerciseList().getAggregateCube();
+    }
+
+    /**
+     * Searches all exercises for the specified filter for time series creation merged with the
+     * exercise filter in the SportsTracker view and returns the sums of their values. This is
+     * only needed when the view filter is enabled, otherwise the sums can be taken from the
+     * aggregate cube of the exercise list.
+     *
+     * @param filter the filter used for time series creation (will be merged)
+     * @param exerciseCondition additional condition for the exercises to be summed up
+     * @return the value sums of the found exercises
+     */
+    private ExerciseAggregate searchExerciseAggregate(EntryFilter filter, Predicate<Exercise> exerciseCondition) {
+        mergeExerciseFilterIfEnabled(filter);
+
+        ExerciseAggregate aggregate = new ExerciseAggregate();
+        for (Exercise exercise : document.getExerciseList().getEntriesForFilter(filter)) {
+            if (exerciseCondition.test(exercise)) {
+                aggregate.add(exercise);
+            }
+        }
+        return aggregate;
+    }
+
     /**
      * Merges the specified filter for time series creation with the existing filter
      * in the SportsTracker view (if it is enabled).
@@ -934,28 +1025,6 @@ public class OverviewDialogController extends AbstractDialogController {
         }
     }
 
-    /**
-     * Returns the average weight value for all Weight entries in the time range
-     * of the specified EntryFilter.
-     *
-     * @param filter the EntryFilter with the time range to be used
-     * @return the average weight value or 0 when no Weight entries found
-     */
-    private double getAverageWeightInTimeRange(EntryFilter filter) {
-        java.util.List<Weight> weightsInTimeRange = document.getWeightList().getEntriesInDateRange(
-                filter.getDateStart(), filter.getDateEnd());
-
-        if (weightsInTimeRange.isEmpty()) {
-            return 0;
-        }
-
-        double weightSum = 0;
-        for (Weight weight : weightsInTimeRange) {
-            weightSum += weight.getValue();
-        }
-        return weightSum / (double) weightsInTimeRange.size();
-    }
-
     /**
      * This is the list of possible time ranges displayed in diagram.
      * This enum also provides the localized displayed enum names.
@@ -998,7 +1067,8 @@ public class OverviewDialogController extends AbstractDialogController {
         AVG_SPEED("st.dlg.overview.display.avg_speed.text"), //
         SPORTSUBTYPE("st.dlg.overview.display.sportsubtype_distance.text"), //
         EQUIPMENT("st.dlg.overview.display.equipment_distance.text"), //
-        WEIGHT("st.dlg.overview.display.weight.text");
+        WEIGHT("st.dlg.overview.display.weight.text"), //
+        TRAINING_LOAD("st.dlg.overview.display.training_load.text");
 
         private static AppResources appResources;
 
@@ -1038,6 +1108,7 @@ public class OverviewDialogController extends AbstractDialogController {
                 case EQUIPMENT -> appResources.getString("st.dlg.overview.value_type.equipment_distance",
                             formatUtils.getDistanceUnitName());
                 case WEIGHT -> appResources.getString("st.dlg.overview.value_type.weight", formatUtils.getWeightUnitName());
+                case TRAINING_LOAD -> appResources.getString("st.dlg.overview.value_type.training_load");
                 default -> throw new IllegalArgumentException("Invalid value type!");
             };
         }
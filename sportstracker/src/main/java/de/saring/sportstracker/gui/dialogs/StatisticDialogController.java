@@ -2,10 +2,19 @@ package de.saring.sportstracker.gui.dialogs;
 
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
-
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import de.saring.sportstracker.data.DocumentSnapshot;
 import de.saring.sportstracker.data.EntryFilter;
-import de.saring.sportstracker.data.EntryList;
+import de.saring.sportstracker.data.EntryFilterMatcher;
+import de.saring.sportstracker.data.statistic.ExerciseStatsAccumulator;
 import de.saring.util.unitcalc.SpeedMode;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
@@ -14,6 +23,8 @@ import javafx.scene.control.ButtonBar;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.DialogPane;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
 import javafx.stage.Window;
 
 import jakarta.inject.Inject;
@@ -26,12 +37,17 @@ import de.saring.sportstracker.gui.STDocument;
 import de.saring.util.StringUtils;
 
 /**
- * Controller (MVC) class of the Statistic dialog.
+ * Controller (MVC) class of the Statistic dialog.<br/>
+ * The statistic is calculated in a background task on the current document snapshot, so the UI is not blocked for
+ * large exercise lists. The task reports its progress and the partial results, it will be cancelled when the filter
+ * is changed, the calculation is restarted or the dialog is closed.
  *
  * @author Stefan Saring
  */
 public class StatisticDialogController extends AbstractDialogController {
 
+    private static final Logger LOGGER = Logger.getLogger(StatisticDialogController.class.getName());
+
     private final STDocument document;
     private Provider<FilterDialogController> prFilterDialogController;
     private Provider<StatisticResultDialogController> prStatisticResultDialogController;
@@ -48,10 +64,19 @@ public class StatisticDialogController extends AbstractDialogController {
     private Label laEquipmentValue;
     @FXML
     private Label laCommentValue;
+    @FXML
+    private HBox hBoxCalculation;
+    @FXML
+    private ProgressBar pbCalculation;
+    @FXML
+    private Label laCalculationStatus;
 
     /** The entry filter used for statistic calculation. */
     private EntryFilter statisticFilter;
 
+    /** The currently running statistic calculation task (null when there is none). */
+    private StatisticTask statisticTask;
+
 
     /**
      * Standard c'tor for dependency injection.
@@ -87,12 +112,19 @@ public class StatisticDialogController extends AbstractDialogController {
 
         showInfoDialog("/fxml/dialogs/StatisticDialog.fxml", parent,
                 context.getResources().getString("st.dlg.statistic.title"));
+
+        // the dialog has been closed, the results of a running calculation are not needed anymore
+        cancelStatisticTask();
     }
 
     @Override
     protected void setupDialogControls() {
         // the controls are read only, so binding and view model is not needed here
         displayFilterValues();
+
+        // the calculation status is only visible while a calculation is running
+        hBoxCalculation.managedProperty().bind(hBoxCalculation.visibleProperty());
+        hBoxCalculation.setVisible(false);
     }
 
     @Override
@@ -165,48 +197,160 @@ public class StatisticDialogController extends AbstractDialogController {
         controller.show(context.getPrimaryStage(), statisticFilter, false);
 
         controller.getSelectedFilter().ifPresent(selectedFilter -> {
+            // the result of a running calculation is not valid anymore
+            cancelStatisticTask();
             statisticFilter = selectedFilter;
             displayFilterValues();
         });
     }
 
     /**
-     * Action for calculation of the statistic and displaying the result.
+     * Action for calculation of the statistic and displaying the result. The calculation is started in a
+     * background task, a previously started calculation will be cancelled.
      */
     private void onCalculate(final ActionEvent event) {
+        cancelStatisticTask();
+
+        statisticTask = new StatisticTask(document.getSnapshot(), statisticFilter);
+        pbCalculation.progressProperty().bind(statisticTask.progressProperty());
+        laCalculationStatus.setText(context.getResources().getString("st.dlg.statistic.calculating.text"));
+        hBoxCalculation.setVisible(true);
+
+        // display the partial results of large calculations while the task is running
+        final StatisticTask task = statisticTask;
+        task.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue != null && task.isRunning()) {
+                displayPartialResult(newValue);
+            }
+        });
+
+        final Thread thread = new Thread(statisticTask);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Cancels the currently running statistic calculation task, if there is one.
+     */
+    private void cancelStatisticTask() {
+        if (statisticTask != null) {
+            statisticTask.cancel();
+            statisticTask = null;
+        }
+        if (hBoxCalculation != null) {
+            pbCalculation.progressProperty().unbind();
+            hBoxCalculation.setVisible(false);
+        }
+    }
 
-        // search for exercises with the selected filter criteria
-        final EntryList<Exercise> lFoundExercises =
-                document.getExerciseList().getEntriesForFilter(statisticFilter);
+    private void displayPartialResult(final StatisticCalculator partialResult) {
+        laCalculationStatus.setText(context.getResources().getString("st.dlg.statistic.partial_result.text",
+                partialResult.getExerciseCount(),
+                context.getFormatUtils().distanceToString(partialResult.getTotalDistance(), 1)));
+    }
+
+    /**
+     * Displays the calculated statistic in the result dialog. The speed mode is the speed mode of the sport type
+     * of all calculated exercises or the preferred speed mode, when there are multiple sport types.
+     */
+    private void displayResult(final StatisticCalculator statistic, final SpeedMode exercisesSpeedMode) {
+        hBoxCalculation.setVisible(false);
 
         // make sure that at least one exercise was found
-        if (lFoundExercises.size() == 0) {
+        if (statistic == null) {
             context.showMessageDialog(getWindow(laTimespanValue), Alert.AlertType.INFORMATION,
                     "common.info", "st.dlg.statistic.info.no_exercises_found");
             return;
         }
 
-        // calculate statistic
-        final StatisticCalculator statistic = new StatisticCalculator(lFoundExercises);
-        SpeedMode speedMode = getSpeedModeForCalculatedExercises(lFoundExercises);
-
-
-        // finally display results in dialog
+        final SpeedMode speedMode = exercisesSpeedMode != null ? exercisesSpeedMode :
+                document.getOptions().getPreferredSpeedMode();
         prStatisticResultDialogController.get().show(getWindow(laTimespanValue), statistic, speedMode);
     }
 
     /**
-     * Returns the speed mode to be used for displaying the results of the calculated exercises.
-     *
-     * @param exercises exercises for calculation
-     * @return speed mode for results
+     * This class calculates the statistic for the exercises of a document snapshot inside a background task
+     * without blocking the UI thread. The exercises are processed in chunks, after each chunk the progress is
+     * updated and the cancellation is checked. For large exercise lists the partial results will be published
+     * as task value after each chunk. The final value is null when no exercises were found.
      */
-    private SpeedMode getSpeedModeForCalculatedExercises(EntryList<Exercise> exercises) {
+    private class StatisticTask extends Task<StatisticCalculator> {
+
+        /** Number of exercises processed between the progress updates and cancellation checks. */
+        private static final int CHUNK_SIZE = 10_000;
+
+        private final DocumentSnapshot snapshot;
+        private final EntryFilterMatcher matcher;
+
+        /** Speed mode of the sport type of all found exercises, null for multiple sport types. */
+        private SpeedMode exercisesSpeedMode;
+
+        /**
+         * Standard c'tor.
+         *
+         * @param snapshot the document snapshot containing the exercises
+         * @param filter the filter for the exercises to calculate
+         */
+        StatisticTask(final DocumentSnapshot snapshot, final EntryFilter filter) {
+            this.snapshot = snapshot;
+            this.matcher = filter.compile();
+        }
+
+        @Override
+        protected StatisticCalculator call() throws Exception {
+            final List<Exercise> exercises = snapshot.getExercises();
+            final int exerciseCount = exercises.size();
+            final ExerciseStatsAccumulator accumulator = new ExerciseStatsAccumulator();
+            final Set<Long> sportTypeIds = new HashSet<>();
+
+            int processedCount = 0;
+            for (Exercise exercise : exercises) {
+                if (matcher.matches(exercise)) {
+                    accumulator.accept(exercise);
+                    sportTypeIds.add(exercise.getSportTypeId());
+                }
+
+                if (++processedCount % CHUNK_SIZE == 0) {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    updateProgress(processedCount, exerciseCount);
+                    if (accumulator.getCount() > 0) {
+                        updateValue(new StatisticCalculator(accumulator));
+                    }
+                }
+            }
+
+            updateProgress(exerciseCount, exerciseCount);
+            exercisesSpeedMode = getSpeedModeOfSportTypes(sportTypeIds);
+            return accumulator.getCount() == 0 ? null : new StatisticCalculator(accumulator);
+        }
+
+        @Override
+        protected void succeeded() {
+            super.succeeded();
+            if (statisticTask == this) {
+                statisticTask = null;
+                pbCalculation.progressProperty().unbind();
+                displayResult(getValue(), exercisesSpeedMode);
+            }
+        }
+
+        @Override
+        protected void failed() {
+            super.failed();
+            LOGGER.log(Level.SEVERE, "Failed to calculate the statistic!", getException());
+            if (statisticTask == this) {
+                cancelStatisticTask();
+            }
+        }
 
-        long[] exerciseIds = new long[exercises.size()];
-        for (int i = 0; i < exerciseIds.length; i++) {
-            exerciseIds[i] = exercises.getAt(i).getId();
+        private SpeedMode getSpeedModeOfSportTypes(final Set<Long> sportTypeIds) {
+            final Set<SpeedMode> usedSpeedModes = sportTypeIds.stream()
+                    .map(snapshot::getSportType)
+                    .map(sportType -> sportType == null ? null : sportType.getSpeedMode())
+                    .collect(Collectors.toSet());
+            return usedSpeedModes.size() == 1 ? usedSpeedModes.iterator().next() : null;
         }
-        return document.getSpeedModeForExercises(exerciseIds);
     }
 }
@@ -76,6 +76,15 @@ public class StatisticResultDialogController extends AbstractDialogController {
     @FXML
     private Label laMaxEnergyValue;
 
+    @FXML
+    private Label laPercentilesDistanceValue;
+    @FXML
+    private Label laPercentilesAvgSpeedValue;
+    @FXML
+    private Label laPercentilesDurationValue;
+    @FXML
+    private Label laPercentilesAvgHeartrateValue;
+
     private StatisticCalculator statisticResult;
     private SpeedMode speedMode;
 
@@ -156,5 +165,27 @@ public class StatisticResultDialogController extends AbstractDialogController {
                 formatUtils.heartRateToString(statisticResult.getMaxAvgHeartRate()) : empty);
         laMaxEnergyValue.setText(statisticResult.getMaxCalories() > 0 ?
                 formatUtils.caloriesToString(statisticResult.getMaxCalories()) : empty);
+
+        // display the estimated percentiles (10th percentile / median / 90th percentile)
+        laPercentilesDistanceValue.setText(formatPercentiles(
+                formatUtils.distanceToString(statisticResult.getP10Distance(), 2),
+                formatUtils.distanceToString(statisticResult.getMedianDistance(), 2),
+                formatUtils.distanceToString(statisticResult.getP90Distance(), 2)));
+        laPercentilesAvgSpeedValue.setText(formatPercentiles(
+                formatUtils.speedToString(statisticResult.getP10AvgSpeed(), 2, speedMode),
+                formatUtils.speedToString(statisticResult.getMedianAvgSpeed(), 2, speedMode),
+                formatUtils.speedToString(statisticResult.getP90AvgSpeed(), 2, speedMode)));
+        laPercentilesDurationValue.setText(formatPercentiles(
+                TimeUtils.seconds2TimeString(statisticResult.getP10Duration()),
+                TimeUtils.seconds2TimeString(statisticResult.getMedianDuration()),
+                TimeUtils.seconds2TimeString(statisticResult.getP90Duration())) + " (hh:mm:ss)");
+        laPercentilesAvgHeartrateValue.setText(statisticResult.getMedianAvgHeartRate() > 0 ? formatPercentiles(
+                formatUtils.heartRateToString(statisticResult.getP10AvgHeartRate()),
+                formatUtils.heartRateToString(statisticResult.getMedianAvgHeartRate()),
+                formatUtils.heartRateToString(statisticResult.getP90AvgHeartRate())) : empty);
+    }
+
+    private static String formatPercentiles(final String p10, final String median, final String p90) {
+        return p10 + " / " + median + " / " + p90;
     }
 }
@@ -4,7 +4,11 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
+import de.saring.sportstracker.data.EntryList;
 import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.ExerciseList;
+import de.saring.sportstracker.data.ExercisePrefixSums;
+import de.saring.sportstracker.data.ExercisePrefixSums.Metric;
 import de.saring.sportstracker.data.Note;
 import de.saring.sportstracker.data.Weight;
 import de.saring.sportstracker.gui.STContext;
@@ -69,19 +73,27 @@ public class CalendarDataProviderImpl implements CalendarDataProvider {
     public List<String> getSummaryForDateRange(final LocalDate dateStart, final LocalDate dateEnd) {
         final List<String> summaryLines = new ArrayList<>();
 
-        // calculate summary distance and duration for all exercises in range
-        final List<Exercise> exersisesInRange = document.getFilterableExerciseList().getEntriesInDateRange( //
-                dateStart, dateEnd);
-
-        if (exersisesInRange.size() > 0) {
-            float summaryDistance = 0;
-            int summaryDuration = 0;
-
-            for (Exercise exercise : exersisesInRange) {
+        final EntryList<Exercise> exercises = document.getFilterableExerciseList();
+        int exerciseCount = 0;
+        double summaryDistance = 0;
+        int summaryDuration = 0;
+
+        if (exercises instanceof ExerciseList exerciseList) {
+            // the list is not filtered => get the totals of all exercises in range from the cumulative sums
+            final ExercisePrefixSums prefixSums = exerciseList.getPrefixSums();
+            exerciseCount = (int) prefixSums.getTotal(Metric.COUNT, dateStart, dateEnd);
+            summaryDistance = prefixSums.getTotal(Metric.DISTANCE, dateStart, dateEnd);
+            summaryDuration = (int) prefixSums.getTotal(Metric.DURATION, dateStart, dateEnd);
+        } else {
+            // calculate summary distance and duration for all filtered exercises in range
+            for (Exercise exercise : exercises.getEntriesInDateRange(dateStart, dateEnd)) {
+                exerciseCount++;
                 summaryDistance += exercise.getDistance();
                 summaryDuration += exercise.getDuration();
             }
+        }
 
+        if (exerciseCount > 0) {
             // add formatted distance and duration strings
             final FormatUtils formatUtils = context.getFormatUtils();
             summaryLines.add(formatUtils.distanceToString(summaryDistance, 2));
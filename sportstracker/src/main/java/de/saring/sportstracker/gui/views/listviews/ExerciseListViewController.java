@@ -1,16 +1,28 @@
 package de.saring.sportstracker.gui.views.listviews;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.WeekFields;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
 import de.saring.sportstracker.core.STOptions;
+import de.saring.sportstracker.data.EntryFilter;
 import de.saring.sportstracker.data.Exercise;
 import de.saring.sportstracker.data.Exercise.IntensityType;
+import de.saring.sportstracker.data.ExerciseAggregateCube;
+import de.saring.sportstracker.data.PeriodType;
 import de.saring.sportstracker.data.SportSubType;
 import de.saring.sportstracker.data.SportType;
+import de.saring.sportstracker.data.statistic.ExercisePivotCalculator;
+import de.saring.sportstracker.data.statistic.ExercisePivotCalculator.GroupType;
+import de.saring.sportstracker.data.statistic.PivotRow;
 import de.saring.sportstracker.gui.STContext;
 import de.saring.sportstracker.gui.STDocument;
 import de.saring.sportstracker.gui.views.ViewPrinter;
@@ -23,16 +35,26 @@ import de.saring.util.unitcalc.SpeedMode;
 import de.saring.util.unitcalc.TimeUtils;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.fxml.FXML;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeTableColumn;
+import javafx.scene.control.TreeTableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.util.Callback;
+import javafx.util.StringConverter;
 
 /**
  * Controller class of the Exercise List View, which displays all the user exercises
- * (or a filtered list) in a table view.
+ * (or a filtered list) in a table view.<br/>
+ * In the pivot mode ("group by period") the exercises are displayed grouped by weeks, months
+ * or years and inside them by sport type, subtype or equipment. The values are taken from the
+ * aggregate cube of the exercise list, the group rows of a period are only calculated when the
+ * period gets expanded. The pivot mode only uses the date range of the current filter.
  *
  * @author Stefan Saring
  */
@@ -69,6 +91,42 @@ public class ExerciseListViewController extends AbstractListViewController<Exerc
     @FXML
     private TableColumn<Exercise, Object> tcComment;
 
+    @FXML
+    private CheckBox cbGroupByPeriod;
+    @FXML
+    private ChoiceBox<PeriodType> cbPivotPeriod;
+    @FXML
+    private ChoiceBox<GroupType> cbPivotGroup;
+    @FXML
+    private TreeTableView<PivotRow> ttvPivot;
+
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotName;
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotCount;
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotDuration;
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotDistance;
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotAvgDuration;
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotAvgDistance;
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotAvgSpeed;
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotAscent;
+    @FXML
+    private TreeTableColumn<PivotRow, String> ttcPivotEnergy;
+
+    /** Start dates of all periods expanded in the pivot table, they stay expanded on view updates. */
+    private final Set<LocalDate> expandedPeriods = new HashSet<>();
+
+    /** Aggregate cube of the filtered exercises for the pivot table, it's valid for the filter and data version. */
+    private ExerciseAggregateCube filteredAggregateCube;
+    private EntryFilter filteredAggregateCubeFilter;
+    private long filteredAggregateCubeDataVersion;
+
     /**
      * Standard c'tor for dependency injection.
      *
@@ -96,9 +154,19 @@ public class ExerciseListViewController extends AbstractListViewController<Exerc
         return getSelectedEntryIDs();
     }
 
+    @Override
+    public void updateView() {
+        if (cbGroupByPeriod.isSelected()) {
+            updatePivotTable();
+        } else {
+            super.updateView();
+        }
+    }
+
     @Override
     public void selectEntry(final IdObject entry) {
-        if (entry != null && entry instanceof Exercise exercise) {
+        // single exercises can't be selected in the pivot mode
+        if (entry != null && entry instanceof Exercise exercise && !cbGroupByPeriod.isSelected()) {
             selectAndScrollToEntry(exercise);
         }
     }
@@ -113,6 +181,12 @@ public class ExerciseListViewController extends AbstractListViewController<Exerc
         return tvExercises;
     }
 
+    @Override
+    protected void setupView() {
+        super.setupView();
+        setupPivotTable();
+    }
+
     @Override
     protected void setupTableColumns() {
 
@@ -196,6 +270,213 @@ public class ExerciseListViewController extends AbstractListViewController<Exerc
         }
     }
 
+    private void setupPivotTable() {
+
+        // only one of the exercise table and the pivot table is displayed
+        tvExercises.visibleProperty().bind(cbGroupByPeriod.selectedProperty().not());
+        tvExercises.managedProperty().bind(tvExercises.visibleProperty());
+        ttvPivot.visibleProperty().bind(cbGroupByPeriod.selectedProperty());
+        ttvPivot.managedProperty().bind(ttvPivot.visibleProperty());
+        cbPivotPeriod.disableProperty().bind(cbGroupByPeriod.selectedProperty().not());
+        cbPivotGroup.disableProperty().bind(cbGroupByPeriod.selectedProperty().not());
+
+        cbPivotPeriod.getItems().addAll(PeriodType.values());
+        cbPivotPeriod.getSelectionModel().select(PeriodType.MONTH);
+        cbPivotPeriod.setConverter(new StringConverter<>() {
+
+            @Override
+            public String toString(final PeriodType periodType) {
+                return switch (periodType) {
+                    case WEEK -> getContext().getResources().getString("st.exerciselistview.pivot.period_type.week");
+                    case MONTH -> getContext().getResources().getString("st.exerciselistview.pivot.period_type.month");
+                    case YEAR -> getContext().getResources().getString("st.exerciselistview.pivot.period_type.year");
+                };
+            }
+
+            @Override
+            public PeriodType fromString(final String string) {
+                return null;
+            }
+        });
+
+        cbPivotGroup.getItems().addAll(GroupType.values());
+        cbPivotGroup.getSelectionModel().select(GroupType.SPORT_TYPE);
+        cbPivotGroup.setConverter(new StringConverter<>() {
+
+            @Override
+            public String toString(final GroupType groupType) {
+                return switch (groupType) {
+                    case SPORT_TYPE -> getContext().getResources().getString(
+                            "st.exerciselistview.pivot.group_type.sport_type");
+                    case SPORT_SUBTYPE -> getContext().getResources().getString(
+                            "st.exerciselistview.pivot.group_type.sport_subtype");
+                    case EQUIPMENT -> getContext().getResources().getString(
+                            "st.exerciselistview.pivot.group_type.equipment");
+                };
+            }
+
+            @Override
+            public GroupType fromString(final String string) {
+                return null;
+            }
+        });
+
+        // setup factories for providing the formatted cell values
+        ttcPivotName.setCellValueFactory(cellData -> new SimpleObjectProperty<>(
+                getPivotRowName(cellData.getValue().getValue())));
+        setupPivotColumn(ttcPivotCount, row -> String.valueOf(row.getAggregate().getCount()));
+        setupPivotColumn(ttcPivotDuration, row ->
+                TimeUtils.seconds2TimeString((int) row.getAggregate().getDuration()));
+        setupPivotColumn(ttcPivotDistance, row ->
+                getContext().getFormatUtils().distanceToString(row.getAggregate().getDistance(), 3));
+        setupPivotColumn(ttcPivotAvgDuration, row -> TimeUtils.seconds2TimeString((int) row.getAvgDuration()));
+        setupPivotColumn(ttcPivotAvgDistance, row ->
+                getContext().getFormatUtils().distanceToString(row.getAvgDistance(), 3));
+        setupPivotColumn(ttcPivotAvgSpeed, row -> getContext().getFormatUtils().speedToString(
+                row.getAvgSpeed(), 2, row.getSportType() == null ?
+                        getDocument().getOptions().getPreferredSpeedMode() : row.getSportType().getSpeedMode()));
+        setupPivotColumn(ttcPivotAscent, row ->
+                getContext().getFormatUtils().heightToString((int) row.getAggregate().getAscent()));
+        setupPivotColumn(ttcPivotEnergy, row ->
+                getContext().getFormatUtils().caloriesToString((int) row.getAggregate().getCalories()));
+
+        // switch between the exercise and the pivot table, the selected exercises get lost in the pivot mode
+        cbGroupByPeriod.selectedProperty().addListener((observable, oldValue, newValue) -> {
+            tvExercises.getSelectionModel().clearSelection();
+            updateView();
+            getEventHandler().updateActionsAndStatusBar();
+        });
+        cbPivotPeriod.valueProperty().addListener((observable, oldValue, newValue) -> {
+            expandedPeriods.clear();
+            updateView();
+        });
+        cbPivotGroup.valueProperty().addListener((observable, oldValue, newValue) -> updateView());
+    }
+
+    private void setupPivotColumn(final TreeTableColumn<PivotRow, String> column,
+                                  final Function<PivotRow, String> formatter) {
+        column.setCellValueFactory(cellData -> new SimpleObjectProperty<>(
+                formatter.apply(cellData.getValue().getValue())));
+    }
+
+    /**
+     * Updates the pivot table with the rows of all periods containing exercises. The periods
+     * expanded before will be expanded again, so only their group rows need to be calculated.
+     * When the filter is enabled, only the filtered exercises in the date range of the filter are
+     * included. They are taken from the aggregate cube of all exercises when possible, otherwise
+     * from a cube of the filtered exercises.
+     */
+    private void updatePivotTable() {
+        final EntryFilter exerciseFilter = getDocument().isFilterEnabled()
+                && getDocument().getCurrentFilter().getEntryType() == EntryFilter.EntryType.EXERCISE ?
+                getDocument().getCurrentFilter() : null;
+        final boolean cubeFilter = exerciseFilter == null
+                || ExercisePivotCalculator.INSTANCE.isCubeFilter(exerciseFilter, cbPivotGroup.getValue());
+        final ExerciseAggregateCube aggregateCube = cubeFilter ?
+                getDocument().getExerciseList().getAggregateCube() : getFilteredAggregateCube(exerciseFilter);
+        // the rows of the cube of the filtered exercises don't need to be filtered again
+        final EntryFilter rowFilter = cubeFilter ? exerciseFilter : null;
+        final TreeItem<PivotRow> rootItem = new TreeItem<>();
+
+        // use the date range of the filter or of all the years containing exercises
+        LocalDate dateStart = null;
+        LocalDate dateEnd = null;
+        if (getDocument().isFilterEnabled()) {
+            final EntryFilter filter = getDocument().getCurrentFilter();
+            dateStart = filter.getDateStart();
+            dateEnd = filter.getDateEnd();
+        } else if (aggregateCube.getFirstYear() != null) {
+            dateStart = LocalDate.of(aggregateCube.getFirstYear(), 1, 1);
+            dateEnd = LocalDate.of(aggregateCube.getLastYear(), 12, 31);
+        }
+
+        if (dateStart != null && !dateStart.isAfter(dateEnd)) {
+            ExercisePivotCalculator.INSTANCE.calculatePeriodRows(aggregateCube, cbPivotPeriod.getValue(),
+                    getDocument().getOptions().isWeekStartSunday(), dateStart, dateEnd, rowFilter).forEach(
+                    periodRow -> rootItem.getChildren().add(
+                            createPeriodTreeItem(aggregateCube, rowFilter, periodRow)));
+        }
+        ttvPivot.setRoot(rootItem);
+    }
+
+    /**
+     * Returns the aggregate cube of the filtered exercises for the specified filter. It will only be
+     * created again when the filter or the data has been changed since the last call.
+     */
+    private ExerciseAggregateCube getFilteredAggregateCube(final EntryFilter filter) {
+        final long dataVersion = getDocument().getDataVersion();
+        if (filteredAggregateCube == null || filteredAggregateCubeDataVersion != dataVersion
+                || !filteredAggregateCubeFilter.equals(filter)) {
+            filteredAggregateCube = ExercisePivotCalculator.INSTANCE.createAggregateCube(
+                    getDocument().getFilterableExerciseList());
+            filteredAggregateCubeFilter = filter.clone();
+            filteredAggregateCubeDataVersion = dataVersion;
+        }
+        return filteredAggregateCube;
+    }
+
+    /**
+     * Creates the tree item for the specified period row, the group rows will be calculated and
+     * added as children when the item gets expanded for the first time.
+     */
+    private TreeItem<PivotRow> createPeriodTreeItem(final ExerciseAggregateCube aggregateCube,
+                                                    final EntryFilter rowFilter, final PivotRow periodRow) {
+        final TreeItem<PivotRow> periodItem = new TreeItem<>(periodRow) {
+
+            @Override
+            public boolean isLeaf() {
+                // the periods always contain group rows, but they are not created before expanding
+                return false;
+            }
+        };
+
+        periodItem.expandedProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue) {
+                expandedPeriods.add(periodRow.getDateStart());
+                if (periodItem.getChildren().isEmpty()) {
+                    ExercisePivotCalculator.INSTANCE.calculateGroupRows(aggregateCube, periodRow,
+                            cbPivotGroup.getValue(), getDocument().getSportTypeList(), rowFilter).forEach(groupRow ->
+                            periodItem.getChildren().add(new TreeItem<>(groupRow)));
+                }
+            } else {
+                expandedPeriods.remove(periodRow.getDateStart());
+            }
+        });
+        periodItem.setExpanded(expandedPeriods.contains(periodRow.getDateStart()));
+        return periodItem;
+    }
+
+    private String getPivotRowName(final PivotRow row) {
+        if (row == null) {
+            return null;
+        }
+
+        if (row.getSportType() == null) {
+            // period row
+            final LocalDate date = row.getDateStart();
+            return switch (cbPivotPeriod.getValue()) {
+                case WEEK -> {
+                    final WeekFields weekFields = getDocument().getOptions().isWeekStartSunday() ?
+                            WeekFields.SUNDAY_START : WeekFields.ISO;
+                    yield getContext().getResources().getString("st.exerciselistview.pivot.week.text",
+                            date.get(weekFields.weekOfWeekBasedYear()), date.get(weekFields.weekBasedYear()));
+                }
+                case MONTH -> date.format(DateTimeFormatter.ofPattern("MMMM yyyy"));
+                case YEAR -> String.valueOf(date.getYear());
+            };
+        }
+
+        final String sportTypeName = row.getSportType().getName();
+        if (row.getSportSubType() != null) {
+            return sportTypeName + " - " + row.getSportSubType().getName();
+        }
+        if (cbPivotGroup.getValue() == GroupType.EQUIPMENT) {
+            return sportTypeName + " - " + (row.getEquipment() != null ? row.getEquipment().getName() :
+                    getContext().getResources().getString("st.exerciselistview.pivot.equipment.not_specified"));
+        }
+        return sportTypeName;
+    }
+
     /**
      * TableColumn cell factory implementation for displaying the exercise intensity name as localized text inside
      * table cells.
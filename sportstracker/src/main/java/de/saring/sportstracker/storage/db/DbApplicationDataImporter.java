@@ -18,33 +18,67 @@ import de.saring.util.gui.javafx.ColorUtils;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Logger;
 
 /**
  * Importer for the SportsTracker application data to the SQLite application database. It's used for data migration
- * from the previous XML files to the new SQLite database storage.
+ * from the previous XML files to the new SQLite database storage.<br/>
+ * The import is a batched pipeline: there's one reused statement per table, the rows are inserted by JDBC batches of
+ * a configurable size and all data is imported and committed in a single transaction. The generated primary keys of
+ * the sport subtypes and equipments are collected after each batch. During the import the SQLite synchronous and
+ * journal mode are relaxed (the database is new, so the data can't be lost on crashes), the previous modes are
+ * restored afterwards.
  *
  * @author Stefan Saring
  */
 public class DbApplicationDataImporter {
 
+    /** Default number of rows inserted by one JDBC batch. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final Logger LOGGER = Logger.getLogger(DbApplicationDataImporter.class.getName());
+
     private static final DateTimeFormatter SQLITE_DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     private final Connection connection;
+    private final int batchSize;
 
     private HashMap <String, Long> sportSubTypePrimaryKeyMap;
     private HashMap <String, Long> equipmentPrimaryKeyMap;
 
+    private ProgressListener progressListener;
+    private int importedCount;
+    private int totalCount;
+
     /**
-     * C'tor for dependency injection
+     * C'tor for dependency injection, the default batch size will be used.
      *
      * @param connection JDBC database connection
      */
     public DbApplicationDataImporter(final Connection connection) {
+        this(connection, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * C'tor for dependency injection.
+     *
+     * @param connection JDBC database connection
+     * @param batchSize number of rows inserted by one JDBC batch
+     */
+    public DbApplicationDataImporter(final Connection connection, final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive!");
+        }
         this.connection = connection;
+        this.batchSize = batchSize;
     }
 
     /**
@@ -62,178 +96,312 @@ public class DbApplicationDataImporter {
             ExerciseList exercises,
             NoteList notes,
             WeightList weights) throws STException {
+        importApplicationData(sportTypes, exercises, notes, weights, null);
+    }
+
+    /**
+     * Imports the specified application data to the SQLite database storage and commits it in a single transaction.
+     * The database needs to be created (incl. schema) before and has to contain no application data yet. On errors
+     * the transaction will be rolled back.
+     *
+     * @param sportTypes list of sport types to be imported
+     * @param exercises list of exercises to be imported
+     * @param notes list of notes to be imported
+     * @param weights weights of exercises to be imported
+     * @param progressListener listener which will be notified after each executed batch (optional)
+     * @throws STException on import errors
+     */
+    public void importApplicationData(
+            SportTypeList sportTypes,
+            ExerciseList exercises,
+            NoteList notes,
+            WeightList weights,
+            ProgressListener progressListener) throws STException {
 
         sportSubTypePrimaryKeyMap = new HashMap<>();
         equipmentPrimaryKeyMap = new HashMap<>();
+        this.progressListener = progressListener;
+        importedCount = 0;
+        totalCount = sportTypes.size() + exercises.size() + notes.size() + weights.size();
+        for (SportType sportType : sportTypes) {
+            totalCount += sportType.getSportSubTypeList().size() + sportType.getEquipmentList().size();
+        }
 
         try {
-            exportSportTypes(sportTypes);
-            exportExercises(exercises);
-            exportNotes(notes);
-            exportWeights(weights);
+            final String previousSynchronous = queryPragma("synchronous");
+            final String previousJournalMode = queryPragma("journal_mode");
+            setSQLiteModes("OFF", "MEMORY");
+
+            try {
+                final List<String> indexDefinitions = dropIndexes();
+                exportSportTypes(sportTypes);
+                exportExercises(exercises);
+                exportNotes(notes);
+                exportWeights(weights);
+                createIndexes(indexDefinitions);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                setSQLiteModes(previousSynchronous, previousJournalMode);
+            }
         } catch (SQLException e) {
             throw new STException(STExceptionID.DBSTORAGE_IMPORT_APPLICATION_DATA, "Failed to import application data to SQLite database!", e);
         }
+        LOGGER.info("Imported " + importedCount + " rows to the SQLite database");
     }
 
     private void exportSportTypes(SportTypeList sportTypes) throws SQLException {
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO SPORT_TYPE (ID, NAME, RECORD_DISTANCE, SPEED_MODE, COLOR, ICON, FIT_ID) VALUES (?, ?, ?, ?, ?, ?, ?)");
-
-        for (SportType sportType : sportTypes) {
-            statement.clearParameters();
-
-            statement.setLong(1, sportType.getId());
-            statement.setString(2, sportType.getName());
-            statement.setInt(3, sportType.isRecordDistance() ? 1 : 0);
-            statement.setString(4, String.valueOf(sportType.getSpeedMode()));
-            statement.setString(5, sportType.getColor() == null ? null : ColorUtils.toRGBCode(sportType.getColor()));
-            if (!StringUtils.isNullOrEmpty(sportType.getIcon())) {
-                statement.setString(6, sportType.getIcon());
+        try (PreparedStatement statement = connection.prepareStatement( //
+                "INSERT INTO SPORT_TYPE (ID, NAME, RECORD_DISTANCE, SPEED_MODE, COLOR, ICON, FIT_ID) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+
+            final BatchExecutor batchExecutor = new BatchExecutor(statement);
+            for (SportType sportType : sportTypes) {
+                statement.setLong(1, sportType.getId());
+                statement.setString(2, sportType.getName());
+                statement.setInt(3, sportType.isRecordDistance() ? 1 : 0);
+                statement.setString(4, String.valueOf(sportType.getSpeedMode()));
+                statement.setString(5, sportType.getColor() == null ? null : ColorUtils.toRGBCode(sportType.getColor()));
+                setStringOrNull(statement, 6, sportType.getIcon());
+                setIntegerOrNull(statement, 7, sportType.getFitId());
+                batchExecutor.addBatch();
             }
-            if (sportType.getFitId() != null) {
-                statement.setInt(7, sportType.getFitId());
-            }
-            statement.executeUpdate();
-
-            exportSportSubTypes(sportType);
-            exportEquipments(sportType);
+            batchExecutor.executeBatch();
         }
-    }
-
-    private void exportSportSubTypes(SportType sportType) throws SQLException {
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO SPORT_SUBTYPE (SPORT_TYPE_ID, NAME, FIT_ID) VALUES (?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS);
-
-        for (SportSubType sportSubType : sportType.getSportSubTypeList()) {
-            statement.clearParameters();
+        // the sport subtypes and equipments reference the sport types, so they need to be inserted afterwards
+        exportSportSubTypes(sportTypes);
+        exportEquipments(sportTypes);
+    }
 
-            statement.setLong(1, sportType.getId());
-            statement.setString(2, sportSubType.getName());
-            if (sportSubType.getFitId() != null) {
-                statement.setInt(3, sportSubType.getFitId());
+    private void exportSportSubTypes(SportTypeList sportTypes) throws SQLException {
+
+        try (PreparedStatement statement = connection.prepareStatement( //
+                "INSERT INTO SPORT_SUBTYPE (SPORT_TYPE_ID, NAME, FIT_ID) VALUES (?, ?, ?)")) {
+
+            final List<String> batchIdentifiers = new ArrayList<>();
+            final BatchExecutor batchExecutor = new BatchExecutor(statement, () -> {
+                storeGeneratedPrimaryKeys("SPORT_SUBTYPE", batchIdentifiers, sportSubTypePrimaryKeyMap);
+                batchIdentifiers.clear();
+            });
+
+            for (SportType sportType : sportTypes) {
+                for (SportSubType sportSubType : sportType.getSportSubTypeList()) {
+                    statement.setLong(1, sportType.getId());
+                    statement.setString(2, sportSubType.getName());
+                    setIntegerOrNull(statement, 3, sportSubType.getFitId());
+                    batchIdentifiers.add(getSportTypeRelatedIdentifier(sportSubType, sportType));
+                    batchExecutor.addBatch();
+                }
             }
-            statement.executeUpdate();
-
-            var primaryKey = getGeneratedPrimaryKey(statement);
-            storeSportSubTypePrimaryKey(sportSubType, sportType, primaryKey);
+            batchExecutor.executeBatch();
         }
     }
 
-    private void exportEquipments(SportType sportType) throws SQLException {
-
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO EQUIPMENT (SPORT_TYPE_ID, NAME, NOT_IN_USE) VALUES (?, ?, ?)");
-
-        for (Equipment equipment : sportType.getEquipmentList()) {
-            statement.clearParameters();
-
-            statement.setLong(1, sportType.getId());
-            statement.setString(2, equipment.getName());
-            statement.setInt(3, equipment.isNotInUse() ? 1 : 0);
-            statement.executeUpdate();
-
-            var primaryKey = getGeneratedPrimaryKey(statement);
-            storeEquipmentPrimaryKey(equipment, sportType, primaryKey);
+    private void exportEquipments(SportTypeList sportTypes) throws SQLException {
+
+        try (PreparedStatement statement = connection.prepareStatement( //
+                "INSERT INTO EQUIPMENT (SPORT_TYPE_ID, NAME, NOT_IN_USE) VALUES (?, ?, ?)")) {
+
+            final List<String> batchIdentifiers = new ArrayList<>();
+            final BatchExecutor batchExecutor = new BatchExecutor(statement, () -> {
+                storeGeneratedPrimaryKeys("EQUIPMENT", batchIdentifiers, equipmentPrimaryKeyMap);
+                batchIdentifiers.clear();
+            });
+
+            for (SportType sportType : sportTypes) {
+                for (Equipment equipment : sportType.getEquipmentList()) {
+                    statement.setLong(1, sportType.getId());
+                    statement.setString(2, equipment.getName());
+                    statement.setInt(3, equipment.isNotInUse() ? 1 : 0);
+                    batchIdentifiers.add(getSportTypeRelatedIdentifier(equipment, sportType));
+                    batchExecutor.addBatch();
+                }
+            }
+            batchExecutor.executeBatch();
         }
     }
 
     private void exportExercises(ExerciseList exercises) throws SQLException {
 
-        final PreparedStatement statement = connection.prepareStatement("""
+        try (PreparedStatement statement = connection.prepareStatement("""
                 INSERT INTO EXERCISE (ID, DATE_TIME, SPORT_TYPE_ID, SPORT_SUBTYPE_ID, INTENSITY, DURATION, DISTANCE, 
-                AVG_SPEED, AVG_HEARTRATE, ASCENT, DESCENT, CALORIES, HRM_FILE, EQUIPMENT_ID, COMMENT) 
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""");
-
-        for (Exercise exercise : exercises) {
-            statement.clearParameters();
-
-            statement.setLong(1, exercise.getId());
-            statement.setString(2, exercise.getDateTime().format(SQLITE_DATETIME_FORMATTER));
-            statement.setLong(3, exercise.getSportType().getId());
-            statement.setLong(4, getPrimaryKeyForSportType(exercise.getSportSubType(), exercise.getSportType()));
-            statement.setString(5, String.valueOf(exercise.getIntensity()));
-            statement.setInt(6, exercise.getDuration());
-            statement.setDouble(7, exercise.getDistance());
-            statement.setDouble(8, exercise.getAvgSpeed());
-            if (exercise.getAvgHeartRate() != null) {
-                statement.setInt(9, exercise.getAvgHeartRate());
-            }
-            if (exercise.getAscent() != null) {
-                statement.setInt(10, exercise.getAscent());
-            }
-            if (exercise.getDescent() != null) {
-                statement.setInt(11, exercise.getDescent());
-            }
-            if (exercise.getCalories() != null) {
-                statement.setInt(12, exercise.getCalories());
-            }
-            if (!StringUtils.isNullOrEmpty(exercise.getHrmFile())) {
-                statement.setString(13, exercise.getHrmFile());
-            }
-            if (exercise.getEquipment() != null) {
-                statement.setLong(14, getPrimaryKeyForEquipment(exercise.getEquipment(), exercise.getSportType()));
-            }
-            if (!StringUtils.isNullOrEmpty(exercise.getComment())) {
-                statement.setString(15, exercise.getComment());
+                AVG_SPEED, AVG_HEARTRATE, ASCENT, DESCENT, CALORIES, HRM_FILE, EQUIPMENT_ID, COMMENT, DATE_TIME_EPOCH) 
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""")) {
+
+            final BatchExecutor batchExecutor = new BatchExecutor(statement);
+            for (Exercise exercise : exercises) {
+                statement.setLong(1, exercise.getId());
+                statement.setString(2, exercise.getDateTime().format(SQLITE_DATETIME_FORMATTER));
+                statement.setLong(3, exercise.getSportType().getId());
+                statement.setLong(4, getPrimaryKeyForSportType(exercise.getSportSubType(), exercise.getSportType()));
+                statement.setString(5, String.valueOf(exercise.getIntensity()));
+                statement.setInt(6, exercise.getDuration());
+                statement.setDouble(7, exercise.getDistance());
+                statement.setDouble(8, exercise.getAvgSpeed());
+                setIntegerOrNull(statement, 9, exercise.getAvgHeartRate());
+                setIntegerOrNull(statement, 10, exercise.getAscent());
+                setIntegerOrNull(statement, 11, exercise.getDescent());
+                setIntegerOrNull(statement, 12, exercise.getCalories());
+                setStringOrNull(statement, 13, exercise.getHrmFile());
+                if (exercise.getEquipment() != null) {
+                    statement.setLong(14, getPrimaryKeyForEquipment(exercise.getEquipment(), exercise.getSportType()));
+                } else {
+                    statement.setNull(14, Types.INTEGER);
+                }
+                setStringOrNull(statement, 15, exercise.getComment());
+                statement.setLong(16, RepositoryUtil.dateTimeToEpoch(exercise.getDateTime()));
+                batchExecutor.addBatch();
             }
-            statement.executeUpdate();
+            batchExecutor.executeBatch();
         }
     }
 
     private void exportNotes(NoteList notes) throws SQLException {
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO NOTE (ID, DATE_TIME, COMMENT) VALUES (?, ?, ?)");
+        try (PreparedStatement statement = connection.prepareStatement( //
+                "INSERT INTO NOTE (ID, DATE_TIME, COMMENT, DATE_TIME_EPOCH) VALUES (?, ?, ?, ?)")) {
 
-        for (Note note : notes) {
-            statement.clearParameters();
-
-            statement.setLong(1, note.getId());
-            statement.setString(2, note.getDateTime().format(SQLITE_DATETIME_FORMATTER));
-            statement.setString(3, note.getComment());
-            statement.executeUpdate();
+            final BatchExecutor batchExecutor = new BatchExecutor(statement);
+            for (Note note : notes) {
+                statement.setLong(1, note.getId());
+                statement.setString(2, note.getDateTime().format(SQLITE_DATETIME_FORMATTER));
+                statement.setString(3, note.getComment());
+                statement.setLong(4, RepositoryUtil.dateTimeToEpoch(note.getDateTime()));
+                batchExecutor.addBatch();
+            }
+            batchExecutor.executeBatch();
         }
     }
 
     private void exportWeights(WeightList weights) throws SQLException {
 
-        final PreparedStatement statement = connection.prepareStatement( //
-                "INSERT INTO WEIGHT (ID, DATE_TIME, VALUE, COMMENT) VALUES (?, ?, ?, ?)");
+        try (PreparedStatement statement = connection.prepareStatement( //
+                "INSERT INTO WEIGHT (ID, DATE_TIME, VALUE, COMMENT, DATE_TIME_EPOCH) VALUES (?, ?, ?, ?, ?)")) {
+
+            final BatchExecutor batchExecutor = new BatchExecutor(statement);
+            for (Weight weight : weights) {
+                statement.setLong(1, weight.getId());
+                statement.setString(2, weight.getDateTime().format(SQLITE_DATETIME_FORMATTER));
+                statement.setDouble(3, weight.getValue());
+                setStringOrNull(statement, 4, weight.getComment());
+                statement.setLong(5, RepositoryUtil.dateTimeToEpoch(weight.getDateTime()));
+                batchExecutor.addBatch();
+            }
+            batchExecutor.executeBatch();
+        }
+    }
 
-        for (Weight weight : weights) {
-            statement.clearParameters();
+    private static void setIntegerOrNull(PreparedStatement statement, int index, Integer value) throws SQLException {
+        if (value != null) {
+            statement.setInt(index, value);
+        } else {
+            statement.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private static void setStringOrNull(PreparedStatement statement, int index, String value) throws SQLException {
+        if (!StringUtils.isNullOrEmpty(value)) {
+            statement.setString(index, value);
+        } else {
+            statement.setNull(index, Types.VARCHAR);
+        }
+    }
 
-            statement.setLong(1, weight.getId());
-            statement.setString(2, weight.getDateTime().format(SQLITE_DATETIME_FORMATTER));
-            statement.setDouble(3, weight.getValue());
-            if (!StringUtils.isNullOrEmpty(weight.getComment())) {
-                statement.setString(4, weight.getComment());
+    private String queryPragma(String name) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            var resultSet = statement.executeQuery("PRAGMA " + name);
+            if (resultSet.next()) {
+                return resultSet.getString(1);
+            } else {
+                throw new SQLException("Value of PRAGMA " + name + " was not returned!");
             }
-            statement.executeUpdate();
         }
     }
 
-    private long getGeneratedPrimaryKey(Statement statement) throws SQLException {
-        var resultSet = statement.getGeneratedKeys();
-        if (resultSet.next()) {
-            return resultSet.getLong(1);
-        } else {
-            throw new SQLException("Generated primary key was not returned!");
+    /**
+     * Drops all secondary indexes of the schema, creating them after the bulk import is much faster than updating
+     * them for each inserted row.
+     *
+     * @return the SQL definitions of the dropped indexes
+     */
+    private List<String> dropIndexes() throws SQLException {
+        final List<String> indexNames = new ArrayList<>();
+        final List<String> indexDefinitions = new ArrayList<>();
+
+        // indexes without SQL definition are the implicit ones (e.g. for UNIQUE constraints)
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT NAME, SQL FROM sqlite_master WHERE TYPE = 'index' AND SQL IS NOT NULL")) {
+            while (rs.next()) {
+                indexNames.add(rs.getString("NAME"));
+                indexDefinitions.add(rs.getString("SQL"));
+            }
         }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String indexName : indexNames) {
+                statement.executeUpdate("DROP INDEX " + indexName);
+            }
+        }
+        return indexDefinitions;
     }
 
-    private void storeSportSubTypePrimaryKey(SportSubType sportSubType, SportType sportType, long primaryKey) {
-        var identifier = getSportTypeRelatedIdentifier(sportSubType, sportType);
-        sportSubTypePrimaryKeyMap.put(identifier, primaryKey);
+    /**
+     * Creates the specified indexes and updates the statistics of the query planner for the imported data.
+     *
+     * @param indexDefinitions the SQL definitions of the indexes
+     */
+    private void createIndexes(List<String> indexDefinitions) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String indexDefinition : indexDefinitions) {
+                statement.executeUpdate(indexDefinition);
+            }
+            statement.executeUpdate("ANALYZE");
+        }
     }
 
-    private void storeEquipmentPrimaryKey(Equipment equipment, SportType sportType, long primaryKey) {
-        var identifier = getSportTypeRelatedIdentifier(equipment, sportType);
-        equipmentPrimaryKeyMap.put(identifier, primaryKey);
+    /**
+     * Sets the SQLite synchronous and journal mode. These modes can't be changed inside a transaction, so the
+     * connection is switched to AutoCommit mode temporarily (there are no pending changes in the new database).
+     */
+    private void setSQLiteModes(String synchronous, String journalMode) throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA synchronous = " + synchronous);
+            statement.execute("PRAGMA journal_mode = " + journalMode);
+        } finally {
+            connection.setAutoCommit(false);
+        }
+    }
+
+    /**
+     * Reads the primary keys generated by the last executed batch and stores them for the specified identifiers.
+     * The tables use AUTOINCREMENT and the import is the only writer, so the keys of the batch are the highest keys
+     * in the table in insertion order.
+     *
+     * @param tableName name of the table
+     * @param batchIdentifiers identifiers of all inserted rows of the batch in insertion order
+     * @param primaryKeyMap map for storing the primary key for each identifier
+     */
+    private void storeGeneratedPrimaryKeys(String tableName, List<String> batchIdentifiers,
+                                           HashMap<String, Long> primaryKeyMap) throws SQLException {
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT ID FROM " + tableName + " ORDER BY ID DESC LIMIT ?")) {
+            statement.setInt(1, batchIdentifiers.size());
+            var resultSet = statement.executeQuery();
+
+            // the keys are returned in descending order
+            for (int i = batchIdentifiers.size() - 1; i >= 0; i--) {
+                if (!resultSet.next()) {
+                    throw new SQLException("Generated primary keys were not returned!");
+                }
+                primaryKeyMap.put(batchIdentifiers.get(i), resultSet.getLong(1));
+            }
+        }
     }
 
     private String getSportTypeRelatedIdentifier(IdObject idObject, SportType sportType) {
@@ -257,4 +425,79 @@ public class DbApplicationDataImporter {
         }
         return primaryKey;
     }
+
+    /**
+     * Listener interface for the import progress.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * Is called after each executed batch.
+         *
+         * @param importedCount number of rows imported so far
+         * @param totalCount number of all rows to import
+         */
+        void onProgress(int importedCount, int totalCount);
+    }
+
+    /**
+     * Callback for processing the results of an executed batch.
+     */
+    @FunctionalInterface
+    private interface BatchCallback {
+
+        void batchExecuted() throws SQLException;
+    }
+
+    /**
+     * Collects the rows of a prepared statement in batches and executes each batch when the batch size has been
+     * reached. After each executed batch the callback and the progress listener are notified.
+     */
+    private class BatchExecutor {
+
+        private final PreparedStatement statement;
+        private final BatchCallback callback;
+        private int pendingCount;
+
+        BatchExecutor(PreparedStatement statement) {
+            this(statement, null);
+        }
+
+        BatchExecutor(PreparedStatement statement, BatchCallback callback) {
+            this.statement = statement;
+            this.callback = callback;
+        }
+
+        /**
+         * Adds the current parameters of the statement to the batch, the batch will be executed when full.
+         */
+        void addBatch() throws SQLException {
+            statement.addBatch();
+            statement.clearParameters();
+            if (++pendingCount >= batchSize) {
+                executeBatch();
+            }
+        }
+
+        /**
+         * Executes the pending rows of the batch, if there are any.
+         */
+        void executeBatch() throws SQLException {
+            if (pendingCount == 0) {
+                return;
+            }
+
+            statement.executeBatch();
+            if (callback != null) {
+                callback.batchExecuted();
+            }
+
+            importedCount += pendingCount;
+            pendingCount = 0;
+            if (progressListener != null) {
+                progressListener.onProgress(importedCount, totalCount);
+            }
+        }
+    }
 }
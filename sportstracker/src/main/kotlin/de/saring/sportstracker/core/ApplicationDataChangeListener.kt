@@ -11,9 +11,11 @@ interface ApplicationDataChangeListener {
 
     /**
      * This method will be called anytime when some application data (Exercises, Notes, etc) was modified. The passed
-     * changedObject is the added or updated IdObject.
+     * changedObject is the added or updated IdObject. The passed changes are the entity changes which were applied
+     * to the application data, so listeners can update their own data incrementally.
      *
      * @param changedObject the added / changed object (or null when object was removed or all objects were changed)
+     * @param changes list of all applied entity changes (or null when all the application data has been reloaded)
      */
-    fun applicationDataChanged(changedObject: IdObject?)
+    fun applicationDataChanged(changedObject: IdObject?, changes: List<EntityChange>?)
 }
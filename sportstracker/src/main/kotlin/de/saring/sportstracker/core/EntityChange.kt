@@ -0,0 +1,28 @@
+package de.saring.sportstracker.core
+
+import de.saring.util.data.IdObject
+
+/**
+ * Description of a single change of a persisted entity (e.g. an Exercise), done by one of the storage repositories.
+ *
+ * @property type the type of the change
+ * @property entityClass the class of the changed entity
+ * @property entityId the ID of the changed entity
+ * @property entity the created or updated entity (null when the entity was deleted)
+ *
+ * @author Stefan Saring
+ */
+data class EntityChange(
+    val type: Type,
+    val entityClass: Class<out IdObject>,
+    val entityId: Long,
+    val entity: IdObject?
+) {
+
+    /**
+     * Enumeration of all possible change types.
+     */
+    enum class Type {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,16 @@
+package de.saring.sportstracker.core
+
+/**
+ * Listener interface for observing the changes of single persisted entities.
+ *
+ * @author Stefan Saring
+ */
+fun interface EntityChangeListener {
+
+    /**
+     * This method will be called after a persisted entity has been created, updated or deleted successfully.
+     *
+     * @param change the description of the change
+     */
+    fun entityChanged(change: EntityChange)
+}
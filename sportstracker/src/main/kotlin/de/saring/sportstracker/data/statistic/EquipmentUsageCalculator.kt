@@ -1,9 +1,8 @@
 package de.saring.sportstracker.data.statistic
 
 import de.saring.sportstracker.data.Equipment
-import de.saring.sportstracker.data.ExerciseList
+import de.saring.sportstracker.data.EquipmentUsageIndex
 import de.saring.sportstracker.data.SportType
-import de.saring.sportstracker.data.SportTypeList
 import java.time.LocalDate
 
 /**
@@ -14,47 +13,35 @@ import java.time.LocalDate
 object EquipmentUsageCalculator {
 
     /**
-     * Calculates the usage of equipment in all exercises. The usage will be calculated for all equipments defined
-     * in the passed sport types, also when it has not been used.
+     * Calculates the usage of equipment from the specified usage index, which is maintained incrementally by the
+     * exercise list. The usage will be calculated for all equipments defined in the passed sport types, also when
+     * it has not been used. The exercises don't need to be processed, so the calculation is independent of the
+     * exercise count.
      *
-     * @param exerciseList list of all Exercises
-     * @param sportTypeList list of all SportTypes
+     * The usage index is not part of the document snapshots, so the passed sport types must be taken from the same
+     * document state (e.g. both from the live document on the FX thread).
+     *
+     * @param usageIndex the equipment usage index of all exercises
+     * @param sportTypes all SportTypes
+     * @param dateSince the first date for the distance since calculation (e.g. the last service), null for none
      * @return map of equipment usages, grouped by sport types
      */
-    fun calculateEquipmentUsage(exerciseList: ExerciseList, sportTypeList: SportTypeList): EquipmentUsages {
-
-        val equipmentUsages = createInitialEquipmentUsages(sportTypeList)
-
-        exerciseList.forEach { exercise ->
-            exercise.equipment?.let { equipment ->
-
-                val eqUsagesInSportType = equipmentUsages.sportTypeMap[exercise.sportType]
-                        ?: error("Not found for SportType with ID ${exercise.sportType.id}!")
-                val equipmentUsage: EquipmentUsage = eqUsagesInSportType.equipmentMap[equipment]
-                        ?: error("Not found for Equipment with ID ${equipment.id}!")
-
-                equipmentUsage.distance += exercise.distance
-                equipmentUsage.duration += exercise.duration
-
-                val exerciseDate = exercise.dateTime.toLocalDate()
-                if (equipmentUsage.firstUsage == null || exerciseDate.isBefore(equipmentUsage.firstUsage)) {
-                    equipmentUsage.firstUsage = exerciseDate
-                }
-                if (equipmentUsage.lastUsage == null || exerciseDate.isAfter(equipmentUsage.lastUsage)) {
-                    equipmentUsage.lastUsage = exerciseDate
-                }
-            }
-        }
-
-        return equipmentUsages
-    }
-
-    private fun createInitialEquipmentUsages(sportTypes: SportTypeList): EquipmentUsages {
-        return EquipmentUsages(sportTypes.map { sportType ->
-            sportType to EquipmentUsagesInSportType(sportType.equipmentList.map { equipment ->
-                equipment to EquipmentUsage(equipment)
-            }.toMap())
-        }.toMap())
+    fun calculateEquipmentUsage(
+            usageIndex: EquipmentUsageIndex,
+            sportTypes: Iterable<SportType>,
+            dateSince: LocalDate? = null): EquipmentUsages {
+        return EquipmentUsages(sportTypes.associateWith { sportType ->
+            val sportTypeId = sportType.id ?: error("SportType without ID!")
+            EquipmentUsagesInSportType(sportType.equipmentList.associateWith { equipment ->
+                val equipmentId = equipment.id ?: error("Equipment without ID!")
+                EquipmentUsage(equipment,
+                        usageIndex.getDistance(sportTypeId, equipmentId),
+                        usageIndex.getDuration(sportTypeId, equipmentId),
+                        usageIndex.getFirstUsage(sportTypeId, equipmentId),
+                        usageIndex.getLastUsage(sportTypeId, equipmentId),
+                        dateSince?.let { usageIndex.getDistanceSince(sportTypeId, equipmentId, it) })
+            })
+        })
     }
 }
 
@@ -80,10 +67,12 @@ class EquipmentUsagesInSportType(val equipmentMap: Map<Equipment, EquipmentUsage
  * @property duration total usage duration in seconds
  * @property firstUsage first usage date of the equipment (null when unused)
  * @property lastUsage last usage date of the equipment (null when unused)
+ * @property distanceSince usage distance in kilometers since the selected date (null when no date is selected)
  */
 class EquipmentUsage(
         val equipment: Equipment,
         var distance: Double = 0.0,
         var duration: Long = 0,
         var firstUsage: LocalDate? = null,
-        var lastUsage: LocalDate? = null)
+        var lastUsage: LocalDate? = null,
+        var distanceSince: Double? = null)
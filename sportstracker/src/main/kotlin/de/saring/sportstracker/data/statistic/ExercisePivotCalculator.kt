@@ -0,0 +1,251 @@
+package de.saring.sportstracker.data.statistic
+
+import de.saring.sportstracker.data.EntryFilter
+import de.saring.sportstracker.data.Equipment
+import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.ExerciseAggregate
+import de.saring.sportstracker.data.ExerciseAggregateCube
+import de.saring.sportstracker.data.PeriodType
+import de.saring.sportstracker.data.SportSubType
+import de.saring.sportstracker.data.SportType
+import de.saring.util.StringUtils
+import java.time.DayOfWeek
+import java.time.LocalDate
+import java.time.temporal.TemporalAdjusters
+
+/**
+ * Calculator for the pivot table of the exercises, which groups the exercises by periods (weeks, months or years)
+ * and inside the periods by sport type, sport subtype or equipment. All values are taken from the aggregate cube of
+ * the exercise list, so the exercises don't need to be grouped on each calculation. The rows of the periods and the
+ * group rows of a single period are calculated separately, so the group rows only need to be calculated for the
+ * periods expanded by the user.
+ *
+ * When the exercise filter only contains criteria which are keys of the aggregate cube (sport type and its subtype or
+ * equipment), the filtered rows are also taken from the cube of all exercises. Otherwise the rows need to be
+ * calculated from a cube of the filtered exercises (see [isCubeFilter]).
+ *
+ * @author Stefan Saring
+ */
+object ExercisePivotCalculator {
+
+    /**
+     * Calculates the rows for all periods in the specified date range which contain exercises, the latest period
+     * comes first. The first and last period are limited to the date range.
+     *
+     * @param aggregateCube the aggregate cube of all exercises
+     * @param periodType type of the periods
+     * @param weekStartSunday flag whether the weeks start on Sunday (otherwise on Monday)
+     * @param dateStart start date of the range (inclusive)
+     * @param dateEnd end date of the range (inclusive)
+     * @param filter the exercise filter for the rows (see [isCubeFilter]), null when all exercises are included
+     * @return list of the period rows (without group values)
+     */
+    fun calculatePeriodRows(
+            aggregateCube: ExerciseAggregateCube,
+            periodType: PeriodType,
+            weekStartSunday: Boolean,
+            dateStart: LocalDate,
+            dateEnd: LocalDate,
+            filter: EntryFilter? = null): List<PivotRow> {
+
+        require(!dateStart.isAfter(dateEnd)) { "Start date is after end date!" }
+        require(filter == null || isCubeFilter(filter, GroupType.SPORT_TYPE)) { "Filter is not supported by cube!" }
+        val filterSportTypeId = filter?.sportType?.id
+
+        val rows = mutableListOf<PivotRow>()
+        var periodStart = getPeriodStart(periodType, weekStartSunday, dateEnd)
+        while (!getPeriodEnd(periodType, periodStart).isBefore(dateStart)) {
+            val rowStart = maxOf(periodStart, dateStart)
+            val rowEnd = minOf(getPeriodEnd(periodType, periodStart), dateEnd)
+            val aggregate = if (filterSportTypeId == null) aggregateCube.getTotal(rowStart, rowEnd)
+                    else getForSportType(aggregateCube, filterSportTypeId, filter, rowStart, rowEnd)
+            if (aggregate.count > 0) {
+                rows.add(PivotRow(rowStart, rowEnd, aggregate))
+            }
+            periodStart = getPreviousPeriodStart(periodType, periodStart)
+        }
+        return rows
+    }
+
+    /**
+     * Calculates the group rows inside the specified period row. Only the groups containing exercises are returned,
+     * they are ordered like the passed sport types and their subtypes or equipment. For the group type EQUIPMENT
+     * the exercises without equipment of each sport type are returned as a separate row (without equipment).
+     *
+     * @param aggregateCube the aggregate cube of all exercises
+     * @param periodRow the period row
+     * @param groupType type of the groups
+     * @param sportTypes all SportTypes
+     * @param filter the exercise filter for the rows (see [isCubeFilter]), null when all exercises are included
+     * @return list of the group rows
+     */
+    fun calculateGroupRows(
+            aggregateCube: ExerciseAggregateCube,
+            periodRow: PivotRow,
+            groupType: GroupType,
+            sportTypes: Iterable<SportType>,
+            filter: EntryFilter? = null): List<PivotRow> {
+
+        require(filter == null || isCubeFilter(filter, groupType)) { "Filter is not supported by cube!" }
+        val dateStart = periodRow.dateStart
+        val dateEnd = periodRow.dateEnd
+        val filterSportTypeId = filter?.sportType?.id
+        val filterSportSubTypeId = filter?.sportSubType?.id
+        val filterEquipmentId = filter?.equipment?.id
+
+        return sportTypes.filter { filterSportTypeId == null || it.id == filterSportTypeId }.flatMap { sportType ->
+            val sportTypeId = sportType.id ?: error("SportType without ID!")
+
+            when (groupType) {
+                GroupType.SPORT_TYPE -> listOf(PivotRow(dateStart, dateEnd,
+                        getForSportType(aggregateCube, sportTypeId, filter, dateStart, dateEnd), sportType))
+
+                GroupType.SPORT_SUBTYPE -> sportType.sportSubTypeList.filter {
+                    filterSportSubTypeId == null || it.id == filterSportSubTypeId
+                }.map { sportSubType ->
+                    val sportSubTypeId = sportSubType.id ?: error("SportSubType without ID!")
+                    PivotRow(dateStart, dateEnd,
+                            aggregateCube.getForSportSubType(sportTypeId, sportSubTypeId, dateStart, dateEnd),
+                            sportType, sportSubType = sportSubType)
+                }
+
+                GroupType.EQUIPMENT -> (sportType.equipmentList.toList() + listOf(null)).filter {
+                    filterEquipmentId == null || it?.id == filterEquipmentId
+                }.map { equipment ->
+                    PivotRow(dateStart, dateEnd,
+                            aggregateCube.getForEquipment(sportTypeId, equipment?.id, dateStart, dateEnd),
+                            sportType, equipment = equipment)
+                }
+            }
+        }.filter { it.aggregate.count > 0 }
+    }
+
+    /**
+     * Checks whether the rows for the exercises matching the specified filter can be calculated from the aggregate
+     * cube of all exercises. The cube is keyed by the sport type, sport subtype and equipment, so this is possible
+     * when the filter (besides the date range) contains no criteria or a sport type, optionally with a subtype or an
+     * equipment. The subtype and equipment criteria can't be combined with each other and not with groups of the
+     * other type, the cube contains no keys for them.
+     *
+     * @param filter the exercise filter
+     * @param groupType type of the groups inside the periods
+     * @return true when the rows can be calculated from the cube of all exercises
+     */
+    fun isCubeFilter(filter: EntryFilter, groupType: GroupType): Boolean {
+        if (filter.intensity != null || !StringUtils.isNullOrEmpty(filter.commentSubString)) {
+            return false
+        }
+
+        return when {
+            filter.sportType == null -> filter.sportSubType == null && filter.equipment == null
+            filter.sportSubType != null -> filter.equipment == null && groupType != GroupType.EQUIPMENT
+            filter.equipment != null -> groupType != GroupType.SPORT_SUBTYPE
+            else -> true
+        }
+    }
+
+    /**
+     * Creates an aggregate cube for the specified exercises. It's needed for the pivot table of filtered exercises
+     * when the filter criteria are not keys of the cube of all exercises (see [isCubeFilter]).
+     *
+     * @param exercises the exercises to aggregate
+     * @return the created aggregate cube
+     */
+    fun createAggregateCube(exercises: Iterable<Exercise>): ExerciseAggregateCube {
+        val aggregateCube = ExerciseAggregateCube()
+        exercises.forEach { aggregateCube.add(it) }
+        return aggregateCube
+    }
+
+    /**
+     * Returns the first day of the period containing the specified date.
+     *
+     * @param periodType type of the period
+     * @param weekStartSunday flag whether the weeks start on Sunday (otherwise on Monday)
+     * @param date the date
+     * @return the first day of the period
+     */
+    fun getPeriodStart(periodType: PeriodType, weekStartSunday: Boolean, date: LocalDate): LocalDate =
+            when (periodType) {
+                PeriodType.WEEK -> date.with(TemporalAdjusters.previousOrSame(
+                        if (weekStartSunday) DayOfWeek.SUNDAY else DayOfWeek.MONDAY))
+                PeriodType.MONTH -> date.withDayOfMonth(1)
+                PeriodType.YEAR -> date.withDayOfYear(1)
+            }
+
+    /**
+     * Returns the aggregate of the specified sport type, limited to the subtype or equipment of the filter.
+     */
+    private fun getForSportType(
+            aggregateCube: ExerciseAggregateCube,
+            sportTypeId: Long,
+            filter: EntryFilter?,
+            dateStart: LocalDate,
+            dateEnd: LocalDate): ExerciseAggregate {
+
+        val sportSubTypeId = filter?.sportSubType?.id
+        val equipmentId = filter?.equipment?.id
+        return when {
+            sportSubTypeId != null -> aggregateCube.getForSportSubType(sportTypeId, sportSubTypeId, dateStart, dateEnd)
+            equipmentId != null -> aggregateCube.getForEquipment(sportTypeId, equipmentId, dateStart, dateEnd)
+            else -> aggregateCube.getForSportType(sportTypeId, dateStart, dateEnd)
+        }
+    }
+
+    private fun getPeriodEnd(periodType: PeriodType, periodStart: LocalDate): LocalDate =
+            when (periodType) {
+                PeriodType.WEEK -> periodStart.plusWeeks(1)
+                PeriodType.MONTH -> periodStart.plusMonths(1)
+                PeriodType.YEAR -> periodStart.plusYears(1)
+            }.minusDays(1)
+
+    private fun getPreviousPeriodStart(periodType: PeriodType, periodStart: LocalDate): LocalDate =
+            when (periodType) {
+                PeriodType.WEEK -> periodStart.minusWeeks(1)
+                PeriodType.MONTH -> periodStart.minusMonths(1)
+                PeriodType.YEAR -> periodStart.minusYears(1)
+            }
+
+    /**
+     * The types of the groups inside the periods.
+     */
+    enum class GroupType { SPORT_TYPE, SPORT_SUBTYPE, EQUIPMENT }
+}
+
+/**
+ * Row of the exercise pivot table, it contains the aggregated values of the exercises of a period or of a group
+ * inside a period. The group attributes (sport type, sport subtype and equipment) are null for period rows.
+ *
+ * @property dateStart first day of the period (can be later than the period start for the first period)
+ * @property dateEnd last day of the period (can be earlier than the period end for the last period)
+ * @property aggregate the aggregated exercise values
+ * @property sportType the sport type of the group or null
+ * @property sportSubType the sport subtype of the group or null
+ * @property equipment the equipment of the group or null
+ */
+class PivotRow(
+        val dateStart: LocalDate,
+        val dateEnd: LocalDate,
+        val aggregate: ExerciseAggregate,
+        val sportType: SportType? = null,
+        val sportSubType: SportSubType? = null,
+        val equipment: Equipment? = null) {
+
+    /**
+     * Returns the average distance of the exercises in kilometers.
+     */
+    val avgDistance: Double
+        get() = aggregate.distance / aggregate.count
+
+    /**
+     * Returns the average duration of the exercises in seconds.
+     */
+    val avgDuration: Long
+        get() = aggregate.duration / aggregate.count
+
+    /**
+     * Returns the average speed of all exercises (total distance divided by total duration) in km/h.
+     */
+    val avgSpeed: Double
+        get() = if (aggregate.duration == 0L) 0.0 else aggregate.distance / (aggregate.duration / 3600.0)
+}
@@ -0,0 +1,201 @@
+package de.saring.sportstracker.data.statistic
+
+import de.saring.exerciseviewer.data.EVExercise
+import de.saring.sportstracker.data.Exercise
+
+/**
+ * Calculator for the personal records (best efforts) of the exercises, based on the recorded samples of the
+ * attached exercise files. The records of a single exercise file are calculated by sliding window passes (two
+ * pointers) over the timestamp, distance and altitude columns of the samples, so each pass is O(n) for n samples.
+ * The personal records of all exercises are the best records of the exercise files, grouped by the sport type IDs.
+ * Only the IDs of the exercises are used, so the calculation can be executed in a background thread without
+ * resolving the referenced sport types.
+ *
+ * @author Stefan Saring
+ */
+object ExerciseRecordsCalculator {
+
+    /** Time window for the maximum ascent in milliseconds (1 hour). */
+    const val ASCENT_WINDOW_MILLIS = 60 * 60 * 1000L
+
+    /**
+     * Calculates the records of the specified parsed exercise file. Samples without timestamp are ignored, the
+     * distance records need samples with distance, the ascent record needs samples with altitude.
+     *
+     * @param evExercise the parsed exercise file
+     * @return the records of the exercise file
+     */
+    fun calculateFileRecords(evExercise: EVExercise): ExerciseFileRecords {
+        val distanceSamples = evExercise.sampleList.filter { it.timestamp != null && it.distance != null }
+        val distanceTimestamps = LongArray(distanceSamples.size) { distanceSamples[it].timestamp!! }
+        val distances = DoubleArray(distanceSamples.size) { distanceSamples[it].distance!!.toDouble() }
+
+        val altitudeSamples = evExercise.sampleList.filter { it.timestamp != null && it.altitude != null }
+        val altitudeTimestamps = LongArray(altitudeSamples.size) { altitudeSamples[it].timestamp!! }
+        val altitudes = IntArray(altitudeSamples.size) { altitudeSamples[it].altitude!!.toInt() }
+
+        return ExerciseFileRecords(
+                distance = distances.maxOrNull(),
+                bestTimes = RecordDistance.values()
+                        .associateWith { calculateBestTime(distanceTimestamps, distances, it.meters) }
+                        .filterValues { it != null }
+                        .mapValues { it.value!! },
+                maxAscentInHour = calculateMaxAscent(altitudeTimestamps, altitudes, ASCENT_WINDOW_MILLIS))
+    }
+
+    /**
+     * Calculates the shortest time for covering the specified distance (without interpolation between the samples).
+     * The two pointers are moved forward only, so the calculation is O(n).
+     *
+     * @param timestamps timestamps of the samples in milliseconds (ascending)
+     * @param distances distances of the samples in meters (ascending, decreasing values are treated as constant)
+     * @param distance the distance to cover in meters
+     * @return the best time in milliseconds or null when the distance has not been covered
+     */
+    fun calculateBestTime(timestamps: LongArray, distances: DoubleArray, distance: Double): Long? {
+        val monotonicDistances = DoubleArray(distances.size)
+        distances.forEachIndexed { index, value ->
+            monotonicDistances[index] = if (index == 0) value else maxOf(value, monotonicDistances[index - 1])
+        }
+
+        var bestTime: Long? = null
+        var start = 0
+        for (end in monotonicDistances.indices) {
+            // move the start as far as the window still covers the distance
+            while (start < end && monotonicDistances[end] - monotonicDistances[start + 1] >= distance) {
+                start++
+            }
+            if (monotonicDistances[end] - monotonicDistances[start] >= distance) {
+                val time = timestamps[end] - timestamps[start]
+                if (bestTime == null || time < bestTime) {
+                    bestTime = time
+                }
+            }
+        }
+        return bestTime
+    }
+
+    /**
+     * Calculates the maximum ascent (sum of all altitude increases) inside any time window of the specified length.
+     * The ascent of a window is the difference of the cumulative ascents, the two pointers are moved forward only,
+     * so the calculation is O(n).
+     *
+     * @param timestamps timestamps of the samples in milliseconds (ascending)
+     * @param altitudes altitudes of the samples in meters
+     * @param windowMillis length of the time window in milliseconds
+     * @return the maximum ascent in meters or null when there are no altitude samples
+     */
+    fun calculateMaxAscent(timestamps: LongArray, altitudes: IntArray, windowMillis: Long): Int? {
+        if (altitudes.isEmpty()) {
+            return null
+        }
+
+        val cumulativeAscents = IntArray(altitudes.size)
+        for (index in 1 until altitudes.size) {
+            cumulativeAscents[index] = cumulativeAscents[index - 1] +
+                    maxOf(0, altitudes[index] - altitudes[index - 1])
+        }
+
+        var maxAscent = 0
+        var start = 0
+        for (end in altitudes.indices) {
+            while (timestamps[end] - timestamps[start] > windowMillis) {
+                start++
+            }
+            maxAscent = maxOf(maxAscent, cumulativeAscents[end] - cumulativeAscents[start])
+        }
+        return maxAscent
+    }
+
+    /**
+     * Calculates the personal records of all exercises with records of their exercise files, grouped by the sport
+     * type IDs. Exercises without sport type or without records are ignored. If multiple exercises have the same
+     * record value, the first one is used.
+     *
+     * @param exercises all exercises
+     * @param fileRecords function returning the records of the exercise file of an exercise (or null)
+     * @return map of the personal records for each sport type ID containing records
+     */
+    fun calculatePersonalRecords(
+            exercises: Iterable<Exercise>,
+            fileRecords: (Exercise) -> ExerciseFileRecords?): Map<Long, PersonalRecords> {
+
+        val recordsMap = mutableMapOf<Long, PersonalRecords>()
+        for (exercise in exercises) {
+            val records = fileRecords(exercise) ?: continue
+            val sportTypeId = exercise.sportTypeId ?: continue
+            val personalRecords = recordsMap.getOrPut(sportTypeId) { PersonalRecords(sportTypeId) }
+
+            records.distance?.let {
+                if (personalRecords.longestDistance == null || it > personalRecords.longestDistance!!.value) {
+                    personalRecords.longestDistance = PersonalRecord(exercise, it)
+                }
+            }
+            records.bestTimes.forEach { (recordDistance, time) ->
+                val bestTime = personalRecords.bestTimes[recordDistance]
+                if (bestTime == null || time < bestTime.value) {
+                    personalRecords.bestTimes[recordDistance] = PersonalRecord(exercise, time)
+                }
+            }
+            records.maxAscentInHour?.let {
+                if (personalRecords.maxAscentInHour == null || it > personalRecords.maxAscentInHour!!.value) {
+                    personalRecords.maxAscentInHour = PersonalRecord(exercise, it)
+                }
+            }
+        }
+        return recordsMap
+    }
+}
+
+/**
+ * The distances of the best time records.
+ *
+ * @property meters the distance in meters
+ */
+enum class RecordDistance(val meters: Double) {
+    KM_1(1000.0),
+    KM_5(5000.0),
+    KM_10(10000.0),
+    HALF_MARATHON(21097.5),
+    MARATHON(42195.0)
+}
+
+/**
+ * The records of a single exercise file.
+ *
+ * @property distance the total distance in meters (null when no distance has been recorded)
+ * @property bestTimes map of the best times in milliseconds for all covered record distances
+ * @property maxAscentInHour the maximum ascent in meters in one hour (null when no altitude has been recorded)
+ */
+data class ExerciseFileRecords(
+        val distance: Double?,
+        val bestTimes: Map<RecordDistance, Long>,
+        val maxAscentInHour: Int?) {
+
+    companion object {
+        /** Records for exercise files without any recorded values (e.g. when the file can't be parsed). */
+        val EMPTY = ExerciseFileRecords(null, emptyMap(), null)
+    }
+}
+
+/**
+ * A personal record value and the exercise where it has been achieved.
+ *
+ * @property exercise the exercise of the record
+ * @property value the record value
+ */
+class PersonalRecord<T : Comparable<T>>(val exercise: Exercise, val value: T)
+
+/**
+ * The personal records of all exercises of one sport type.
+ *
+ * @property sportTypeId the ID of the sport type
+ * @property bestTimes map of the best times in milliseconds for all achieved record distances
+ * @property longestDistance the longest distance in meters
+ * @property maxAscentInHour the maximum ascent in meters in one hour
+ */
+class PersonalRecords(
+        val sportTypeId: Long,
+        val bestTimes: MutableMap<RecordDistance, PersonalRecord<Long>> = sortedMapOf(),
+        var longestDistance: PersonalRecord<Double>? = null,
+        var maxAscentInHour: PersonalRecord<Int>? = null)
@@ -0,0 +1,87 @@
+package de.saring.sportstracker.data.statistic
+
+import de.saring.sportstracker.data.ExercisePrefixSums
+import de.saring.sportstracker.data.ExercisePrefixSums.Metric
+import java.time.LocalDate
+
+/**
+ * Calculator for the year over year comparison of exercise values. For each year it creates the cumulative curve of
+ * an exercise value, e.g. the total distance from January 1st until each day of the year. The curves of multiple
+ * years can be compared directly, they are based on the cumulative sums of the exercises (no exercise processing).
+ *
+ * @author Stefan Saring
+ */
+object YearOverYearCalculator {
+
+    /**
+     * Calculates the cumulative curves of the specified exercise value for all years in the range.
+     *
+     * @param prefixSums the cumulative sums of the exercises
+     * @param metric the exercise value
+     * @param sportTypeId ID of the sport type or null for the exercises of all sport types
+     * @param yearFrom first year of the comparison
+     * @param yearTo last year of the comparison
+     * @return list of the cumulative curves, one for each year
+     */
+    fun calculateComparison(
+            prefixSums: ExercisePrefixSums,
+            metric: Metric,
+            sportTypeId: Long?,
+            yearFrom: Int,
+            yearTo: Int): List<CumulativeYearCurve> {
+
+        require(yearFrom <= yearTo) { "The first year is after the last year!" }
+        return (yearFrom..yearTo).map { calculateCumulativeCurve(prefixSums, metric, sportTypeId, it) }
+    }
+
+    /**
+     * Calculates the cumulative curve of the specified exercise value in one year.
+     *
+     * @param prefixSums the cumulative sums of the exercises
+     * @param metric the exercise value
+     * @param sportTypeId ID of the sport type or null for the exercises of all sport types
+     * @param year the year
+     * @return the cumulative curve
+     */
+    fun calculateCumulativeCurve(
+            prefixSums: ExercisePrefixSums,
+            metric: Metric,
+            sportTypeId: Long?,
+            year: Int): CumulativeYearCurve {
+
+        val firstEpochDay = LocalDate.of(year, 1, 1).toEpochDay()
+        val values = DoubleArray(LocalDate.of(year, 1, 1).lengthOfYear()) { dayIndex ->
+            val epochDay = firstEpochDay + dayIndex
+            if (sportTypeId == null) {
+                prefixSums.getTotal(metric, firstEpochDay, epochDay)
+            } else {
+                prefixSums.getTotalForSportType(sportTypeId, metric, firstEpochDay, epochDay)
+            }
+        }
+        return CumulativeYearCurve(year, values)
+    }
+}
+
+/**
+ * Cumulative curve of an exercise value in one year.
+ *
+ * @property year the year
+ * @property values the cumulative values from January 1st until each day of the year (index 0 is January 1st)
+ */
+class CumulativeYearCurve(val year: Int, val values: DoubleArray) {
+
+    /**
+     * Returns the cumulative value from January 1st until the specified day of the year.
+     *
+     * @param dayOfYear the day of the year (1 - 365 or 366)
+     * @return the cumulative value
+     */
+    fun getValueUntil(dayOfYear: Int): Double = values[dayOfYear - 1]
+
+    /**
+     * Returns the total value of the complete year.
+     *
+     * @return the total value
+     */
+    fun getTotal(): Double = values.last()
+}
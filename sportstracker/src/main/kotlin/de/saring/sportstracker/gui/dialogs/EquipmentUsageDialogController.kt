@@ -7,6 +7,7 @@ import de.saring.sportstracker.data.statistic.EquipmentUsages
 import de.saring.sportstracker.gui.STContext
 import de.saring.sportstracker.gui.STDocument
 import de.saring.util.gui.javafx.FormattedNumberCellFactory
+import de.saring.util.gui.javafx.FxWorkarounds
 import de.saring.util.gui.javafx.LocalDateCellFactory
 import de.saring.util.gui.javafx.NameableStringConverter
 import de.saring.util.unitcalc.TimeUtils
@@ -14,6 +15,7 @@ import javafx.beans.property.SimpleObjectProperty
 import javafx.event.ActionEvent
 import javafx.fxml.FXML
 import javafx.scene.control.ChoiceBox
+import javafx.scene.control.DatePicker
 import javafx.scene.control.TableColumn
 import javafx.scene.control.TableRow
 import javafx.scene.control.TableView
@@ -40,6 +42,9 @@ class EquipmentUsageDialogController(
     @FXML
     private lateinit var cbSportType: ChoiceBox<SportType>
 
+    @FXML
+    private lateinit var dpDistanceSince: DatePicker
+
     @FXML
     private lateinit var tvEquipmentUsages: TableView<EquipmentUsage>
 
@@ -53,6 +58,8 @@ class EquipmentUsageDialogController(
     private lateinit var tcFirstUsage: TableColumn<EquipmentUsage, LocalDateTime>
     @FXML
     private lateinit var tcLastUsage: TableColumn<EquipmentUsage, LocalDateTime>
+    @FXML
+    private lateinit var tcDistanceSince: TableColumn<EquipmentUsage, Number>
 
     private lateinit var equipmentUsages: EquipmentUsages
 
@@ -67,23 +74,43 @@ class EquipmentUsageDialogController(
     }
 
     override fun setupDialogControls() {
-        this.equipmentUsages = EquipmentUsageCalculator.calculateEquipmentUsage(
-                document.exerciseList, document.sportTypeList)
+        calculateEquipmentUsages()
 
         setupSportTypeSelection()
+        setupDistanceSinceSelection()
         setupEquipmentUsagesTable()
     }
 
+    /**
+     * Calculates the equipment usages for the selected distance since date. The usages are taken from the
+     * maintained usage index together with the sport types of the document (both on the FX thread), so the
+     * exercises don't need to be processed.
+     */
+    private fun calculateEquipmentUsages() {
+        this.equipmentUsages = EquipmentUsageCalculator.calculateEquipmentUsage(
+                document.exerciseList.equipmentUsageIndex, document.sportTypeList, dpDistanceSince.value)
+    }
+
     private fun setupSportTypeSelection() {
         // add all sport types for selection
         cbSportType.converter = NameableStringConverter()
-        document.sportTypeList.forEach { cbSportType.items.add(it) }
+        cbSportType.items.addAll(equipmentUsages.sportTypeMap.keys)
 
         // update the usages table when sport type selection changes
         cbSportType.addEventHandler(ActionEvent.ACTION) { updateUsageTable() }
         cbSportType.selectionModel.select(0)
     }
 
+    private fun setupDistanceSinceSelection() {
+        FxWorkarounds.fixDatePickerTextEntry(dpDistanceSince)
+
+        // recalculate the usages when the date has been changed, it's a query of the usage index only
+        dpDistanceSince.valueProperty().addListener { _ ->
+            calculateEquipmentUsages()
+            updateUsageTable()
+        }
+    }
+
     private fun setupEquipmentUsagesTable() {
         // setup custom factories for getting the cell values
         tcName.cellValueFactory = Callback { SimpleObjectProperty(it.value.equipment.getName()) }
@@ -92,11 +119,15 @@ class EquipmentUsageDialogController(
         // convert LocalDate to LocalDateTime objects, so the  LocalDateCellFactory can be reused
         tcFirstUsage.cellValueFactory = Callback { SimpleObjectProperty(getDateTimeForDate(it.value.firstUsage)) }
         tcLastUsage.cellValueFactory = Callback { SimpleObjectProperty(getDateTimeForDate(it.value.lastUsage)) }
+        tcDistanceSince.cellValueFactory = PropertyValueFactory("distanceSince")
 
         // setup custom factories for displaying the cell values
         tcDistance.cellFactory = FormattedNumberCellFactory {
             context.formatUtils.distanceToString(it.toDouble(), 1)
         }
+        tcDistanceSince.cellFactory = FormattedNumberCellFactory {
+            context.formatUtils.distanceToString(it.toDouble(), 1)
+        }
         tcDuration.cellFactory = FormattedNumberCellFactory {
             TimeUtils.seconds2TimeString(it.toInt())
         }
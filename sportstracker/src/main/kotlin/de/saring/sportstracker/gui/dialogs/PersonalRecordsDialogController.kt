@@ -0,0 +1,215 @@
+package de.saring.sportstracker.gui.dialogs
+
+import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.SportType
+import de.saring.sportstracker.data.statistic.ExerciseRecordsCalculator
+import de.saring.sportstracker.data.statistic.PersonalRecords
+import de.saring.sportstracker.data.statistic.RecordDistance
+import de.saring.sportstracker.gui.STContext
+import de.saring.sportstracker.gui.STDocument
+import de.saring.sportstracker.storage.db.ExerciseRecordsCache
+import de.saring.sportstracker.storage.db.ExerciseRecordsLoader
+import de.saring.util.gui.javafx.LocalDateCellFactory
+import de.saring.util.gui.javafx.NameableStringConverter
+import de.saring.util.unitcalc.TimeUtils
+import javafx.beans.property.SimpleObjectProperty
+import javafx.concurrent.Task
+import javafx.event.ActionEvent
+import javafx.fxml.FXML
+import javafx.scene.control.Alert
+import javafx.scene.control.ChoiceBox
+import javafx.scene.control.Label
+import javafx.scene.control.ProgressBar
+import javafx.scene.control.TableColumn
+import javafx.scene.control.TableView
+import javafx.scene.layout.HBox
+import javafx.stage.Window
+import javafx.util.Callback
+import java.io.File
+import java.time.LocalDateTime
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * Controller (MVC) class of the Personal Records dialog (statistics) of the SportsTracker application.
+ *
+ * The records are calculated from the exercise files of all exercises in a background task, so the dialog opens
+ * immediately. The records of the exercise files are cached persistently (see [ExerciseRecordsCache]), only new
+ * or changed exercise files need to be parsed. The task groups the records by the sport type IDs only, the sport
+ * types are looked up in the sport type list on the JavaFX application thread.
+ *
+ * @constructor constructor for dependency injection
+ * @param context the SportsTracker UI context
+ * @property document the SportsTracker document / model
+ *
+ * @author Stefan Saring
+ */
+class PersonalRecordsDialogController(
+        context: STContext,
+        private val document: STDocument) : AbstractDialogController(context) {
+
+    @FXML
+    private lateinit var cbSportType: ChoiceBox<SportType>
+
+    @FXML
+    private lateinit var hBoxLoading: HBox
+    @FXML
+    private lateinit var pbLoading: ProgressBar
+    @FXML
+    private lateinit var laLoadingStatus: Label
+
+    @FXML
+    private lateinit var tvRecords: TableView<RecordRow>
+
+    @FXML
+    private lateinit var tcRecord: TableColumn<RecordRow, String>
+    @FXML
+    private lateinit var tcValue: TableColumn<RecordRow, String>
+    @FXML
+    private lateinit var tcDate: TableColumn<RecordRow, LocalDateTime>
+
+    private var personalRecords: Map<Long, PersonalRecords> = emptyMap()
+
+    private var loadTask: LoadRecordsTask? = null
+
+    /**
+     * Displays the Personal Records dialog. A running records calculation will be cancelled when the dialog has
+     * been closed.
+     *
+     * @param parent parent window of the dialog
+     */
+    fun show(parent: Window) {
+        try {
+            showInfoDialog("/fxml/dialogs/PersonalRecordsDialog.fxml", parent,
+                    context.resources.getString("st.dlg.personal_records.title"))
+        } finally {
+            loadTask?.cancel()
+        }
+    }
+
+    override fun setupDialogControls() {
+        tcRecord.cellValueFactory = Callback { SimpleObjectProperty(it.value.name) }
+        tcValue.cellValueFactory = Callback { SimpleObjectProperty(it.value.value) }
+        tcDate.cellValueFactory = Callback { SimpleObjectProperty(it.value.exercise.dateTime) }
+        tcDate.cellFactory = LocalDateCellFactory<RecordRow>()
+
+        cbSportType.converter = NameableStringConverter()
+        cbSportType.addEventHandler(ActionEvent.ACTION) { updateRecordsTable() }
+
+        startLoadTask()
+    }
+
+    private fun startLoadTask() {
+        val task = LoadRecordsTask(document.snapshot.exercises,
+                document.dataDirectory + File.separator + RECORDS_CACHE_FILENAME)
+        loadTask = task
+
+        pbLoading.progressProperty().bind(task.progressProperty())
+        laLoadingStatus.textProperty().bind(task.messageProperty())
+        hBoxLoading.isVisible = true
+
+        task.setOnSucceeded {
+            hBoxLoading.isVisible = false
+            displayRecords(task.value)
+        }
+        task.setOnFailed {
+            hBoxLoading.isVisible = false
+            LOGGER.log(Level.SEVERE, "Failed to calculate the personal records!", task.exception)
+            context.showMessageDialog(getWindow(tvRecords), Alert.AlertType.ERROR,
+                    "common.error", "st.dlg.personal_records.error.calculation")
+        }
+
+        val thread = Thread(task)
+        thread.isDaemon = true
+        thread.start()
+    }
+
+    private fun displayRecords(records: Map<Long, PersonalRecords>) {
+        personalRecords = records
+
+        // add the sport types with records in the order of the sport type list
+        cbSportType.items.setAll(document.sportTypeList.filter { records.containsKey(it.id) })
+        if (cbSportType.items.isNotEmpty()) {
+            cbSportType.selectionModel.select(0)
+        }
+    }
+
+    /**
+     * Updates the records table for the selected sport type.
+     */
+    private fun updateRecordsTable() {
+        val records = cbSportType.value?.let { personalRecords[it.id] }
+        if (records == null) {
+            tvRecords.items.clear()
+            return
+        }
+
+        val rows = mutableListOf<RecordRow>()
+        records.bestTimes.forEach { (recordDistance, record) ->
+            rows.add(RecordRow(getRecordDistanceName(recordDistance),
+                    TimeUtils.seconds2TimeString((record.value / 1000).toInt()), record.exercise))
+        }
+        records.longestDistance?.let {
+            rows.add(RecordRow(context.resources.getString("st.dlg.personal_records.longest_distance.text"),
+                    context.formatUtils.distanceToString(it.value / 1000.0, 2), it.exercise))
+        }
+        records.maxAscentInHour?.let {
+            rows.add(RecordRow(context.resources.getString("st.dlg.personal_records.max_ascent_hour.text"),
+                    context.formatUtils.heightToString(it.value), it.exercise))
+        }
+        tvRecords.items.setAll(rows)
+    }
+
+    private fun getRecordDistanceName(recordDistance: RecordDistance): String =
+            context.resources.getString("st.dlg.personal_records.best_time.${recordDistance.name.lowercase()}.text")
+
+    /**
+     * A row of the records table.
+     *
+     * @property name the name of the record
+     * @property value the formatted record value
+     * @property exercise the exercise where the record has been achieved
+     */
+    private class RecordRow(val name: String, val value: String, val exercise: Exercise)
+
+    /**
+     * This task loads the records of the exercise files via the records cache and calculates the personal records
+     * of the exercises in a background thread. The progress is updated after each parsed exercise file.
+     *
+     * @property exercises the exercises of a document snapshot
+     * @property cacheFilename the filename of the records cache database
+     */
+    private inner class LoadRecordsTask(
+            private val exercises: List<Exercise>,
+            private val cacheFilename: String) : Task<Map<Long, PersonalRecords>>() {
+
+        override fun call(): Map<Long, PersonalRecords> {
+            updateMessage(context.resources.getString("st.dlg.personal_records.loading.text"))
+
+            val cache = ExerciseRecordsCache()
+            cache.open(cacheFilename)
+            try {
+                val fileRecords = ExerciseRecordsLoader(cache).loadRecords(exercises,
+                        { parsedCount, totalCount ->
+                            updateProgress(parsedCount.toLong(), totalCount.toLong())
+                            updateMessage(context.resources.getString("st.dlg.personal_records.parsing.text",
+                                    parsedCount, totalCount))
+                        },
+                        { isCancelled })
+
+                return ExerciseRecordsCalculator.calculatePersonalRecords(exercises) { exercise ->
+                    exercise.hrmFile?.let { fileRecords[it.trim()] }
+                }
+            } finally {
+                cache.close()
+            }
+        }
+    }
+
+    companion object {
+        private val LOGGER = Logger.getLogger(PersonalRecordsDialogController::class.java.name)
+
+        /** Filename of the records cache database in the data directory. */
+        const val RECORDS_CACHE_FILENAME = "records-cache.db"
+    }
+}
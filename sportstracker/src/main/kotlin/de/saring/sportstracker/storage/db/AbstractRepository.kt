@@ -1,15 +1,26 @@
 package de.saring.sportstracker.storage.db
 
+import de.saring.sportstracker.core.EntityChange
+import de.saring.sportstracker.core.EntityChangeListener
 import de.saring.sportstracker.core.STException
 import de.saring.sportstracker.core.STExceptionID
 import de.saring.util.data.IdObject
 import java.sql.Connection
+import java.sql.PreparedStatement
 import java.sql.ResultSet
 import java.sql.SQLException
+import java.sql.Statement
+import java.time.LocalDateTime
+import java.util.logging.Level
 import java.util.logging.Logger
 
 /**
- * Abstract base class for all IdObject based entity repositories.
+ * Abstract base class for all IdObject based entity repositories. All successful create, update and delete operations
+ * will be reported to the registered change listener.
+ *
+ * The prepared statements of the static SQL commands are cached for the database connection of the repository and
+ * reused on each execution. The bulk operations (createAll, updateAll and deleteAll) are executed by JDBC batches or
+ * by chunks of IDs in "IN (...)" conditions.
  *
  * @property connection database connection
  *
@@ -19,6 +30,12 @@ abstract class AbstractRepository<T : IdObject>(
     protected val connection: Connection
 ) {
 
+    /** Listener which will be notified on all entity changes (optional). */
+    var changeListener: EntityChangeListener? = null
+
+    /** Cache of the prepared statements for this connection, the key is the SQL command. */
+    private val statementCache = HashMap<String, PreparedStatement>()
+
     @Throws(STException::class)
     open fun readAll(): List<T> {
         logger.info("Reading all $entityName entries")
@@ -42,9 +59,9 @@ abstract class AbstractRepository<T : IdObject>(
         logger.info("Reading $entityName with ID '$entryId'")
 
         try {
-            connection.prepareStatement("SELECT * FROM $tableName WHERE ID = ?").use { statement ->
-                statement.setLong(1, entryId)
-                val rs: ResultSet = statement.executeQuery()
+            val statement = prepareCachedStatement("SELECT * FROM $tableName WHERE ID = ?")
+            statement.setLong(1, entryId)
+            statement.executeQuery().use { rs ->
                 rs.next()
                 return readFromResultSet(rs)
             }
@@ -53,53 +70,309 @@ abstract class AbstractRepository<T : IdObject>(
         }
     }
 
+    /**
+     * Reads all entries with a date time in the specified range by an indexed range scan of the DATE_TIME_EPOCH
+     * column, ordered by date time. This can only be used for the tables of the date based entries.
+     *
+     * @param from start of the date time range (inclusive)
+     * @param to end of the date time range (exclusive)
+     * @param mapper creates the entry of the current result set row
+     * @return the entries in the range
+     */
+    @Throws(STException::class)
+    protected fun readInDateTimeRange(from: LocalDateTime, to: LocalDateTime, mapper: (ResultSet) -> T): List<T> {
+        logger.info("Reading $entityName entries from $from to $to")
+        val entries = mutableListOf<T>()
+
+        try {
+            val statement = prepareCachedStatement("SELECT * FROM $tableName " +
+                    "WHERE DATE_TIME_EPOCH >= ? AND DATE_TIME_EPOCH < ? ORDER BY DATE_TIME_EPOCH")
+            statement.setLong(1, RepositoryUtil.dateTimeToEpoch(from))
+            statement.setLong(2, RepositoryUtil.dateTimeToEpoch(to))
+            statement.executeQuery().use { rs ->
+                while (rs.next()) {
+                    entries.add(mapper(rs))
+                }
+            }
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_READ_ALL,
+                "Failed to read $entityName entries from $from to $to!", e)
+        }
+        return entries
+    }
+
     @Throws(STException::class)
     fun create(entry: T): T {
         logger.info("Creating new $entityName")
 
         try {
-            return executeCreate(entry)
+            val createdEntry = executeCreate(entry)
+            notifyChange(EntityChange.Type.CREATED, createdEntry.id!!, createdEntry)
+            return createdEntry
         } catch (e: SQLException) {
             throw STException(STExceptionID.DBSTORAGE_CREATE_ENTRY, "Failed to create new $entityName!", e)
         }
     }
 
+    /**
+     * Creates all specified new entries by JDBC batches.
+     *
+     * @param entries the entries to create (without IDs)
+     * @return the created entries with the generated IDs, in the same order
+     */
+    @Throws(STException::class)
+    fun createAll(entries: List<T>): List<T> {
+        logger.info("Creating ${entries.size} new $entityName entries")
+
+        try {
+            val createdEntries = executeCreateAll(entries)
+            createdEntries.forEach { notifyChange(EntityChange.Type.CREATED, it.id!!, it) }
+            return createdEntries
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_CREATE_ENTRY, "Failed to create new $entityName entries!", e)
+        }
+    }
+
     @Throws(STException::class)
     fun update(entry: T) {
         logger.info("Updating $entityName with ID '${entry.id}'")
 
         try {
             executeUpdate(entry)
+            notifyChange(EntityChange.Type.UPDATED, entry.id!!, entry)
         } catch (e: SQLException) {
             throw STException(STExceptionID.DBSTORAGE_UPDATE_ENTRY, "Failed to update $entityName with ID '${entry.id}'!", e)
         }
     }
 
+    /**
+     * Updates all specified existing entries by JDBC batches.
+     *
+     * @param entries the entries to update
+     */
+    @Throws(STException::class)
+    fun updateAll(entries: List<T>) {
+        logger.info("Updating ${entries.size} $entityName entries")
+
+        try {
+            executeUpdateAll(entries)
+            entries.forEach { notifyChange(EntityChange.Type.UPDATED, it.id!!, it) }
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_UPDATE_ENTRY, "Failed to update $entityName entries!", e)
+        }
+    }
+
     @Throws(STException::class)
     fun delete(entryId: Long) {
         logger.info("Deleting $entityName with ID '$entryId'")
 
         try {
             executeDelete(entryId)
+            notifyChange(EntityChange.Type.DELETED, entryId, null)
         } catch (e: SQLException) {
             throw STException(STExceptionID.DBSTORAGE_DELETE_ENTRY, "Failed to delete $entityName with ID '$entryId'!", e)
         }
     }
 
+    /**
+     * Deletes all entries with the specified IDs by chunks of IDs.
+     *
+     * @param entryIds the IDs of the entries to delete
+     */
+    @Throws(STException::class)
+    fun deleteAll(entryIds: Collection<Long>) {
+        logger.info("Deleting ${entryIds.size} $entityName entries")
+
+        try {
+            executeDeleteAll(entryIds)
+            entryIds.forEach { notifyChange(EntityChange.Type.DELETED, it, null) }
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_DELETE_ENTRY, "Failed to delete $entityName entries!", e)
+        }
+    }
+
+    /**
+     * Closes all cached prepared statements, needs to be called before closing the connection.
+     */
+    fun closeStatements() {
+        statementCache.values.forEach { statement ->
+            try {
+                statement.close()
+            } catch (e: SQLException) {
+                logger.log(Level.WARNING, "Failed to close prepared statement!", e)
+            }
+        }
+        statementCache.clear()
+    }
+
     protected abstract val entityName: String
+    protected abstract val entityClass: Class<T>
     protected abstract val tableName: String
 
     protected abstract val logger: Logger
 
+    /** SQL command for inserting a new entry, the ID will be generated. */
+    protected abstract val insertSql: String
+
+    /** SQL command for updating an existing entry. */
+    protected abstract val updateSql: String
+
     protected abstract fun readFromResultSet(rs: ResultSet): T
 
-    protected abstract fun executeCreate(entry: T): T
-    protected abstract fun executeUpdate(entry: T)
+    /**
+     * Sets the parameters of the insert statement (see [insertSql]) for the specified entry.
+     */
+    protected abstract fun setInsertParameters(statement: PreparedStatement, entry: T)
+
+    /**
+     * Sets the parameters of the update statement (see [updateSql]) for the specified entry.
+     */
+    protected abstract fun setUpdateParameters(statement: PreparedStatement, entry: T)
+
+    /**
+     * Returns the created entity for the specified inserted entry and the generated ID. The entity is built from
+     * the inserted entry, it doesn't need to be read from the database again.
+     */
+    protected abstract fun createdEntry(entry: T, entryId: Long): T
+
+    protected open fun executeCreate(entry: T): T {
+        val statement = prepareCachedStatement(insertSql, true)
+        setInsertParameters(statement, entry)
+        statement.executeUpdate()
+        return createdEntry(entry, getGeneratedKey(statement))
+    }
+
+    protected open fun executeCreateAll(entries: List<T>): List<T> {
+        val statement = prepareCachedStatement(insertSql)
+        val createdEntries = ArrayList<T>(entries.size)
+
+        for (chunk in entries.chunked(BATCH_SIZE)) {
+            chunk.forEach { entry ->
+                setInsertParameters(statement, entry)
+                statement.addBatch()
+            }
+            statement.executeBatch()
+
+            val entryIds = readGeneratedKeysOfBatch(chunk.size)
+            chunk.forEachIndexed { index, entry -> createdEntries.add(createdEntry(entry, entryIds[index])) }
+        }
+        return createdEntries
+    }
+
+    protected open fun executeUpdate(entry: T) {
+        val statement = prepareCachedStatement(updateSql)
+        setUpdateParameters(statement, entry)
+        statement.executeUpdate()
+    }
+
+    protected open fun executeUpdateAll(entries: List<T>) {
+        val statement = prepareCachedStatement(updateSql)
+
+        for (chunk in entries.chunked(BATCH_SIZE)) {
+            chunk.forEach { entry ->
+                setUpdateParameters(statement, entry)
+                statement.addBatch()
+            }
+            statement.executeBatch()
+        }
+    }
 
     protected open fun executeDelete(entryId: Long) {
-        connection.prepareStatement("DELETE FROM $tableName WHERE ID = ?").use { statement ->
-            statement.setLong(1, entryId)
-            statement.executeUpdate()
+        val statement = prepareCachedStatement("DELETE FROM $tableName WHERE ID = ?")
+        statement.setLong(1, entryId)
+        statement.executeUpdate()
+    }
+
+    protected open fun executeDeleteAll(entryIds: Collection<Long>) {
+        executeForIdChunks("DELETE FROM $tableName WHERE ID IN", entryIds)
+    }
+
+    /**
+     * Executes the specified SQL command for all passed IDs in chunks. The SQL command must end with an "IN"
+     * condition, the list of ID parameters of each chunk will be appended.
+     *
+     * @param sqlPrefix the SQL command without the list of ID parameters
+     * @param ids the IDs to be passed as parameters
+     */
+    protected fun executeForIdChunks(sqlPrefix: String, ids: Collection<Long>) {
+        for (chunk in ids.chunked(ID_CHUNK_SIZE)) {
+            val sql = "$sqlPrefix (${chunk.joinToString(", ") { "?" }})"
+
+            // only the statement for full chunks is cached, the last chunk has a variable size
+            if (chunk.size == ID_CHUNK_SIZE) {
+                setIdParametersAndExecute(prepareCachedStatement(sql), chunk)
+            } else {
+                connection.prepareStatement(sql).use { statement -> setIdParametersAndExecute(statement, chunk) }
+            }
+        }
+    }
+
+    /**
+     * Returns the cached prepared statement for the specified SQL command, it will be prepared on first usage.
+     * The returned statement must not be closed by the caller.
+     *
+     * @param sql the SQL command
+     * @param returnGeneratedKeys flag whether the statement needs to return the generated keys
+     * @return the prepared statement
+     */
+    protected fun prepareCachedStatement(sql: String, returnGeneratedKeys: Boolean = false): PreparedStatement {
+        return statementCache.getOrPut(if (returnGeneratedKeys) "$sql;KEYS" else sql) {
+            if (returnGeneratedKeys) {
+                connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+            } else {
+                connection.prepareStatement(sql)
+            }
+        }
+    }
+
+    protected fun getGeneratedKey(statement: Statement): Long {
+        statement.generatedKeys.use { rs ->
+            if (rs.next()) {
+                return rs.getLong(1)
+            } else {
+                throw SQLException("Generated primary key was not returned!")
+            }
+        }
+    }
+
+    /**
+     * Returns the generated IDs of the rows inserted by the last executed batch in insertion order. SQLite returns
+     * only the last generated key for batches, but the repository connection is the only writer and the new IDs
+     * are always greater than all existing IDs, so the batch rows are the ones with the highest IDs.
+     *
+     * @param batchSize the number of inserted rows
+     * @return the IDs of the inserted rows
+     */
+    private fun readGeneratedKeysOfBatch(batchSize: Int): LongArray {
+        val statement = prepareCachedStatement("SELECT ID FROM $tableName ORDER BY ID DESC LIMIT ?")
+        statement.setInt(1, batchSize)
+        val entryIds = LongArray(batchSize)
+
+        statement.executeQuery().use { rs ->
+            for (index in batchSize - 1 downTo 0) {
+                if (!rs.next()) {
+                    throw SQLException("Generated primary keys were not returned!")
+                }
+                entryIds[index] = rs.getLong(1)
+            }
         }
+        return entryIds
+    }
+
+    private fun setIdParametersAndExecute(statement: PreparedStatement, ids: List<Long>) {
+        ids.forEachIndexed { index, id -> statement.setLong(index + 1, id) }
+        statement.executeUpdate()
+    }
+
+    private fun notifyChange(type: EntityChange.Type, entryId: Long, entry: T?) {
+        changeListener?.entityChanged(EntityChange(type, entityClass, entryId, entry))
+    }
+
+    companion object {
+        /** Number of rows executed by one JDBC batch in the bulk operations. */
+        const val BATCH_SIZE = 500
+
+        /** Number of IDs in each "IN (...)" condition of the bulk operations (SQLite allows max. 999 parameters). */
+        const val ID_CHUNK_SIZE = 500
     }
-}
\ No newline at end of file
+}
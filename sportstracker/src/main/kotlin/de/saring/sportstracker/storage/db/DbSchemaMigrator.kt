@@ -0,0 +1,92 @@
+package de.saring.sportstracker.storage.db
+
+import de.saring.sportstracker.core.STException
+import de.saring.sportstracker.core.STExceptionID
+import java.sql.Connection
+import java.util.logging.Logger
+
+/**
+ * Migrates the schema of existing databases in place to the latest schema version. Each migration is a SQL script
+ * in the resource directory [MIGRATIONS_DIRECTORY], the filename starts with the target schema version, e.g.
+ * "V2__add_indexes.sql". The migrations are executed in the order of their versions, each migration and the update
+ * of the schema version in table META is executed and committed in its own transaction.
+ *
+ * @property connection database connection (AutoCommit must be disabled)
+ *
+ * @author Stefan Saring
+ */
+class DbSchemaMigrator(
+    private val connection: Connection
+) {
+
+    /**
+     * Executes all migrations with a version greater than the specified schema version. A failed migration will
+     * be rolled back, the database remains in the schema version of the previous migration then.
+     *
+     * @param schemaVersion the current schema version of the database
+     * @return the schema version of the database after the migration
+     */
+    @Throws(STException::class)
+    fun migrate(schemaVersion: Int): Int {
+        var currentVersion = schemaVersion
+
+        MIGRATIONS.filter { it.version > schemaVersion }.forEach { migration ->
+            LOGGER.info("Migrating database schema from version $currentVersion to ${migration.version}")
+            executeMigration(migration)
+            currentVersion = migration.version
+        }
+        return currentVersion
+    }
+
+    private fun executeMigration(migration: Migration) {
+        try {
+            val sqlText = DbSchemaMigrator::class.java.getResource("$MIGRATIONS_DIRECTORY/${migration.filename}")!!
+                .readText()
+
+            connection.createStatement().use { statement ->
+                statement.executeUpdate(sqlText)
+            }
+            connection.prepareStatement(
+                "UPDATE META SET SCHEMA_VERSION = ?, UPDATE_DATE_TIME = datetime('now','localtime')"
+            ).use { statement ->
+                statement.setInt(1, migration.version)
+                statement.executeUpdate()
+            }
+            connection.commit()
+        } catch (e: Exception) {
+            connection.rollback()
+            throw STException(STExceptionID.DBSTORAGE_MIGRATE_SCHEMA,
+                "Failed to migrate database schema to version ${migration.version}!", e)
+        }
+    }
+
+    /**
+     * A single schema migration.
+     *
+     * @property filename the filename of the SQL script in the migrations directory
+     */
+    private class Migration(val filename: String) {
+
+        /** The target schema version of this migration, parsed from the filename. */
+        val version: Int = filename.substringAfter("V").substringBefore("__").toInt()
+    }
+
+    companion object {
+        private val LOGGER = Logger.getLogger(DbSchemaMigrator::class.java.name)
+
+        private const val MIGRATIONS_DIRECTORY = "/sql/migrations"
+
+        /**
+         * The SQL scripts of all migrations, new ones must be appended. Resource directories can't be listed
+         * reliably inside of JAR files, so the scripts need to be registered here.
+         */
+        private val MIGRATIONS = listOf(
+            Migration("V2__add_indexes.sql"),
+            Migration("V3__add_epoch_date_time.sql"),
+            Migration("V4__drop_date_time_indexes.sql")
+        ).sortedBy { it.version }
+
+        /** The latest schema version, reached after executing all migrations. */
+        val LATEST_SCHEMA_VERSION = MIGRATIONS.last().version
+    }
+}
@@ -1,5 +1,6 @@
 package de.saring.sportstracker.storage.db
 
+import de.saring.sportstracker.core.EntityChangeListener
 import de.saring.sportstracker.core.STException
 import de.saring.sportstracker.core.STExceptionID
 import de.saring.sportstracker.data.ExerciseList
@@ -14,7 +15,8 @@ import java.util.logging.Logger
 
 /**
  * Class for reading / storing of the application data from / to a SQLite database. It manages the database connection
- * and provides repository instances for the specific entities.
+ * and provides repository instances for the specific entities. The entity changes of all repositories will be reported
+ * to the registered change listeners.
  *
  * @author Stefan Saring
  */
@@ -25,8 +27,12 @@ class DbStorage {
     lateinit var exerciseRepository: ExerciseRepository private set
     lateinit var sportTypeRepository: SportTypeRepository private set
 
+    private var repositories: List<AbstractRepository<*>> = emptyList()
+
     private lateinit var connection: Connection
 
+    private val changeListeners = mutableListOf<EntityChangeListener>()
+
     @Throws(STException::class)
     fun openDatabase(dbFilename: String) {
 
@@ -42,22 +48,44 @@ class DbStorage {
             throw STException(STExceptionID.DBSTORAGE_OPEN_DATABASE, "Failed to open SQLite database '$jdbcUrl'!", e)
         }
 
-        // create database schema if new database or validate schema version for an existing database
-        if (isNewDatabase()) {
+        // create database schema if new database or validate schema version for an existing database,
+        // the schema will be migrated to the latest version afterwards
+        val schemaVersion = if (isNewDatabase()) {
             createSchema()
+            BASE_SCHEMA_VERSION
         } else {
             validateSchemaVersion()
         }
+        DbSchemaMigrator(connection).migrate(schemaVersion)
 
         noteRepository = NoteRepository(connection)
         weightRepository = WeightRepository(connection)
         exerciseRepository = ExerciseRepository(connection)
         sportTypeRepository = SportTypeRepository(connection)
+
+        val repositoryChangeListener = EntityChangeListener { change ->
+            changeListeners.forEach { it.entityChanged(change) }
+        }
+        repositories = listOf(noteRepository, weightRepository, exerciseRepository, sportTypeRepository)
+        repositories.forEach { it.changeListener = repositoryChangeListener }
+    }
+
+    /**
+     * Registers the specified listener for notification on all entity changes done by the repositories.
+     *
+     * @param listener the listener to register
+     */
+    fun registerChangeListener(listener: EntityChangeListener) {
+        changeListeners.add(listener)
     }
 
     fun closeDatabase() {
         LOGGER.info("Closing database")
 
+        // the cached prepared statements of the repositories must be closed before the connection
+        repositories.forEach { it.closeStatements() }
+        repositories = emptyList()
+
         // connection might be null on application exit when opening the database has failed
         connection?.let {
             try {
@@ -105,7 +133,13 @@ class DbStorage {
         }
     }
 
-    private fun validateSchemaVersion() {
+    /**
+     * Validates the schema version of the existing database, older versions will be migrated afterwards.
+     * Databases of newer application versions can't be used.
+     *
+     * @return the schema version of the database
+     */
+    private fun validateSchemaVersion(): Int {
         LOGGER.info("Validating existing database schema")
 
         try {
@@ -113,26 +147,40 @@ class DbStorage {
                 val rs = statement.executeQuery()
                 rs.next()
                 val schemaVersion = rs.getInt("SCHEMA_VERSION")
-                if (schemaVersion != SCHEMA_VERSION) {
+                if (schemaVersion < BASE_SCHEMA_VERSION || schemaVersion > DbSchemaMigrator.LATEST_SCHEMA_VERSION) {
                     throw STException(
                         STExceptionID.DBSTORAGE_INVALID_SCHEMA,
-                        "DB schema version is invalid! Expected version $SCHEMA_VERSION, found version $schemaVersion."
+                        "DB schema version is invalid! Expected version $BASE_SCHEMA_VERSION to " +
+                                "${DbSchemaMigrator.LATEST_SCHEMA_VERSION}, found version $schemaVersion."
                     )
                 }
+                return schemaVersion
             }
         } catch (e: SQLException) {
             throw STException(STExceptionID.DBSTORAGE_INVALID_SCHEMA, "Failed to read DB schema version!", e)
         }
     }
 
+    /**
+     * Imports the specified application data to the new and empty database. All data will be imported by JDBC batches
+     * and committed in a single transaction.
+     *
+     * @param sportTypes list of sport types to be imported
+     * @param exercises list of exercises to be imported
+     * @param notes list of notes to be imported
+     * @param weights weights of exercises to be imported
+     * @param progressListener listener for the import progress (optional)
+     */
+    @JvmOverloads
     @Throws(STException::class)
     fun importExistingApplicationData(sportTypes: SportTypeList,
                                       exercises: ExerciseList,
                                       notes: NoteList,
-                                      weights: WeightList) {
+                                      weights: WeightList,
+                                      progressListener: DbApplicationDataImporter.ProgressListener? = null) {
         LOGGER.info("Importing existing application data to database")
         var dbImporter = DbApplicationDataImporter(connection)
-        dbImporter.importApplicationData(sportTypes, exercises, notes, weights)
+        dbImporter.importApplicationData(sportTypes, exercises, notes, weights, progressListener)
     }
 
     companion object {
@@ -142,6 +190,7 @@ class DbStorage {
         private val LOGGER = Logger.getLogger(NoteRepository::class.java.name)
 
         private const val SCHEMA_FILE = "/sql/st-schema.sql";
-        private const val SCHEMA_VERSION = 1
+        /** Schema version of the schema file, newer versions are created by the migrations. */
+        private const val BASE_SCHEMA_VERSION = 1
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package de.saring.sportstracker.storage.db
+
+import de.saring.sportstracker.data.EntryFilter
+import de.saring.sportstracker.data.EntryFilterMatcher
+import de.saring.sportstracker.data.PeriodType
+import de.saring.util.StringUtils
+import org.sqlite.Function
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.time.LocalDate
+import java.util.regex.Pattern
+
+/**
+ * Query builder for the exercise criteria of an [EntryFilter], it creates the parameterized SQL conditions for the
+ * EXERCISE table. The query results are the same as of the in-memory filtering by the EntryFilterMatcher:
+ *
+ * - the date range is checked by the (indexed) DATE_TIME_EPOCH column, both dates are inclusive
+ * - sport type, subtype, intensity and equipment are checked by their IDs / names
+ * - the comment search string is trimmed and split into words by the same functions as in EntryFilterMatcher
+ * - each comment word in substring mode needs to be contained in the comment (not case sensitive), words with
+ *   ASCII characters only are checked by LIKE, all other words by the REGEXP function
+ * - the comment pattern in regular expression mode is checked by the REGEXP function (see [registerFunctions])
+ *
+ * The queries are only provided as repository API (ExerciseRepository.findByFilter() and aggregateByFilter()), the
+ * views and statistics of the application still filter the in-memory exercises of the document.
+ *
+ * @param filter the entry filter, the entry type must be EXERCISE
+ *
+ * @author Stefan Saring
+ */
+class ExerciseFilterQuery(filter: EntryFilter) {
+
+    private val conditions = mutableListOf<String>()
+    private val parameters = mutableListOf<Any>()
+
+    init {
+        require(filter.entryType == EntryFilter.EntryType.EXERCISE) { "The filter entry type must be EXERCISE!" }
+
+        filter.dateStart?.let { addCondition("DATE_TIME_EPOCH >= ?", dateToEpoch(it)) }
+        filter.dateEnd?.let { addCondition("DATE_TIME_EPOCH < ?", dateToEpoch(it.plusDays(1))) }
+        filter.sportType?.let { addCondition("SPORT_TYPE_ID = ?", it.id!!) }
+        filter.sportSubType?.let { addCondition("SPORT_SUBTYPE_ID = ?", it.id!!) }
+        filter.intensity?.let { addCondition("INTENSITY = ?", it.name) }
+        filter.equipment?.let { addCondition("EQUIPMENT_ID = ?", it.id!!) }
+
+        if (!StringUtils.isNullOrEmpty(filter.commentSubString)) {
+            addCommentConditions(EntryFilterMatcher.trimCommentSubString(filter.commentSubString),
+                    filter.isRegularExpressionMode)
+        }
+    }
+
+    /**
+     * The WHERE clause for all filter criteria, it's an empty string when there are no criteria.
+     */
+    val whereClause: String
+        get() = if (conditions.isEmpty()) "" else " WHERE " + conditions.joinToString(" AND ")
+
+    /**
+     * Sets the values of all parameters of the WHERE clause in the specified statement.
+     *
+     * @param statement the prepared statement containing the WHERE clause
+     * @param firstIndex index of the first parameter of the WHERE clause in the statement
+     */
+    fun setParameters(statement: PreparedStatement, firstIndex: Int = 1) {
+        parameters.forEachIndexed { index, parameter -> statement.setObject(firstIndex + index, parameter) }
+    }
+
+    private fun addCondition(condition: String, parameter: Any?) {
+        conditions.add(condition)
+        parameter?.let { parameters.add(it) }
+    }
+
+    private fun addCommentConditions(commentSubString: String, regularExpressionMode: Boolean) {
+        // entries without comment never match the comment criteria
+        addCondition("COMMENT IS NOT NULL AND COMMENT <> ''", null)
+
+        if (regularExpressionMode) {
+            // check the pattern syntax before the query execution, same exception as for in-memory filtering
+            Pattern.compile(commentSubString)
+            addCondition("COMMENT REGEXP ?", commentSubString)
+        } else {
+            EntryFilterMatcher.splitCommentWords(commentSubString).forEach { word ->
+                if (word.all { it.code < 128 }) {
+                    addCondition("COMMENT LIKE ? ESCAPE '\\'", "%" + escapeLikePattern(word) + "%")
+                } else {
+                    // LIKE ignores the case of ASCII characters only
+                    addCondition("COMMENT REGEXP ?", "(?iu)" + Pattern.quote(word))
+                }
+            }
+        }
+    }
+
+    companion object {
+
+        /**
+         * Registers the SQL functions needed for the filter queries for the specified connection. SQLite provides
+         * the REGEXP operator, but no implementation of the function. It uses the Java regular expressions here.
+         *
+         * @param connection the database connection
+         */
+        fun registerFunctions(connection: Connection) {
+            Function.create(connection, "REGEXP", RegexpFunction())
+        }
+
+        /**
+         * Returns the SQL expression for the start date (format "yyyy-MM-dd") of the period containing an exercise.
+         *
+         * @param periodType type of the periods
+         * @param weekStartSunday flag whether the weeks start on Sunday (otherwise on Monday)
+         * @return the SQL expression
+         */
+        fun getPeriodStartExpression(periodType: PeriodType, weekStartSunday: Boolean): String =
+            when (periodType) {
+                // modifier 'weekday N' moves to the next day N (or stays on it), the week start is 6 days before
+                PeriodType.WEEK -> "date(DATE_TIME_EPOCH, 'unixepoch', 'weekday ${if (weekStartSunday) 6 else 0}', " +
+                        "'-6 days')"
+                PeriodType.MONTH -> "strftime('%Y-%m-01', DATE_TIME_EPOCH, 'unixepoch')"
+                PeriodType.YEAR -> "strftime('%Y-01-01', DATE_TIME_EPOCH, 'unixepoch')"
+            }
+
+        private fun dateToEpoch(date: LocalDate): Long = RepositoryUtil.dateTimeToEpoch(date.atStartOfDay())
+
+        private fun escapeLikePattern(value: String): String =
+            value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_")
+    }
+
+    /**
+     * Implementation of the SQL function REGEXP(pattern, text), used by the operator "text REGEXP pattern". It
+     * returns 1 when the pattern is found in the text. The compiled patterns are cached, a query uses the same
+     * patterns for all rows.
+     */
+    private class RegexpFunction : Function() {
+
+        private val patternCache = HashMap<String, Pattern>()
+
+        override fun xFunc() {
+            val regex = value_text(0)
+            val text = value_text(1)
+            if (regex == null || text == null) {
+                result()
+                return
+            }
+
+            if (patternCache.size >= MAX_CACHED_PATTERNS && !patternCache.containsKey(regex)) {
+                patternCache.clear()
+            }
+            val pattern = patternCache.getOrPut(regex) { Pattern.compile(regex) }
+            result(if (pattern.matcher(text).find()) 1 else 0)
+        }
+
+        companion object {
+            private const val MAX_CACHED_PATTERNS = 32
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package de.saring.sportstracker.storage.db
+
+import java.time.LocalDate
+
+/**
+ * The numeric exercise columns which can be aggregated by the database queries.
+ *
+ * @property columnName the name of the column in table EXERCISE
+ */
+enum class ExerciseAggregateColumn(val columnName: String) {
+    DISTANCE("DISTANCE"),
+    DURATION("DURATION"),
+    AVG_SPEED("AVG_SPEED"),
+    AVG_HEARTRATE("AVG_HEARTRATE"),
+    ASCENT("ASCENT"),
+    DESCENT("DESCENT"),
+    CALORIES("CALORIES")
+}
+
+/**
+ * The aggregated values of an exercise column for all exercises of a period. The exercises without a value
+ * (optional columns) are ignored for the value aggregates.
+ *
+ * @property periodStart first day of the period
+ * @property exerciseCount number of exercises in the period
+ * @property valueCount number of exercises with a value in the period
+ * @property sum sum of the values (null when there are no values)
+ * @property min minimum value (null when there are no values)
+ * @property max maximum value (null when there are no values)
+ * @property avg average value (null when there are no values)
+ */
+data class ExercisePeriodAggregate(
+    val periodStart: LocalDate,
+    val exerciseCount: Int,
+    val valueCount: Int,
+    val sum: Double?,
+    val min: Double?,
+    val max: Double?,
+    val avg: Double?
+)
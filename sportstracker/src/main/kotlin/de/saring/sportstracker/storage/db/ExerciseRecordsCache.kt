@@ -0,0 +1,184 @@
+package de.saring.sportstracker.storage.db
+
+import de.saring.sportstracker.core.STException
+import de.saring.sportstracker.core.STExceptionID
+import de.saring.sportstracker.data.statistic.ExerciseFileRecords
+import de.saring.sportstracker.data.statistic.RecordDistance
+import java.sql.Connection
+import java.sql.DriverManager
+import java.sql.PreparedStatement
+import java.sql.ResultSet
+import java.sql.SQLException
+import java.sql.Types
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * Persistent cache of the records of the exercise files (see [ExerciseFileRecords]), stored in a separate SQLite
+ * database. The records are keyed by the file path, the file size, the file modification time and the parser
+ * version, so only new or changed exercise files need to be parsed again.
+ *
+ * A separate database is used because the cache entries are committed immediately, independent of the pending
+ * (not yet saved) changes of the application data. The cache content can be deleted at any time.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseRecordsCache {
+
+    private lateinit var connection: Connection
+
+    /**
+     * Opens the cache database, it will be created if it doesn't exist yet.
+     *
+     * @param dbFilename filename of the cache database (or DbStorage.IN_MEMORY_FILENAME)
+     */
+    @Throws(STException::class)
+    fun open(dbFilename: String) {
+        val jdbcUrl = "jdbc:sqlite:$dbFilename"
+        LOGGER.info("Opening records cache database $jdbcUrl")
+
+        try {
+            connection = DriverManager.getConnection(jdbcUrl)
+            connection.autoCommit = false
+            connection.createStatement().use { statement ->
+                statement.executeUpdate(CREATE_TABLE_SQL)
+            }
+            connection.commit()
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_OPEN_DATABASE,
+                    "Failed to open records cache database '$jdbcUrl'!", e)
+        }
+    }
+
+    fun close() {
+        try {
+            connection.close()
+        } catch (e: Exception) {
+            LOGGER.log(Level.SEVERE, "Failed to close records cache database!", e)
+        }
+    }
+
+    /**
+     * Reads all cache entries with one query.
+     *
+     * @return map of all cache entries, the key is the file path
+     */
+    @Throws(STException::class)
+    fun readAll(): Map<String, CachedFileRecords> {
+        val entries = mutableMapOf<String, CachedFileRecords>()
+
+        try {
+            connection.prepareStatement("SELECT * FROM $TABLE_NAME").use { statement ->
+                val rs = statement.executeQuery()
+                while (rs.next()) {
+                    val entry = readFromResultSet(rs)
+                    entries[entry.filePath] = entry
+                }
+            }
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_READ_ALL, "Failed to read the records cache!", e)
+        }
+        return entries
+    }
+
+    /**
+     * Stores the specified cache entries in a single transaction, existing entries for the same file paths will
+     * be replaced.
+     *
+     * @param entries the cache entries to store
+     */
+    @Throws(STException::class)
+    fun storeAll(entries: Collection<CachedFileRecords>) {
+        if (entries.isEmpty()) {
+            return
+        }
+
+        val columns = listOf("FILE_PATH", "FILE_SIZE", "FILE_MODIFIED", "PARSER_VERSION", "DISTANCE") +
+                RecordDistance.values().map { getBestTimeColumn(it) } + "MAX_ASCENT_HOUR"
+        val sql = "INSERT OR REPLACE INTO $TABLE_NAME (${columns.joinToString()}) " +
+                "VALUES (${columns.joinToString { "?" }})"
+
+        try {
+            connection.prepareStatement(sql).use { statement ->
+                for (entry in entries) {
+                    var index = 1
+                    statement.setString(index++, entry.filePath)
+                    statement.setLong(index++, entry.fileSize)
+                    statement.setLong(index++, entry.fileModified)
+                    statement.setString(index++, entry.parserVersion)
+                    setNullableObject(statement, index++, entry.records.distance, Types.REAL)
+                    for (recordDistance in RecordDistance.values()) {
+                        setNullableObject(statement, index++, entry.records.bestTimes[recordDistance], Types.INTEGER)
+                    }
+                    setNullableObject(statement, index, entry.records.maxAscentInHour, Types.INTEGER)
+                    statement.addBatch()
+                }
+                statement.executeBatch()
+            }
+            connection.commit()
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_COMMIT_CHANGES, "Failed to store the records cache!", e)
+        }
+    }
+
+    private fun readFromResultSet(rs: ResultSet): CachedFileRecords {
+        val bestTimes = RecordDistance.values()
+                .associateWith { RepositoryUtil.getLongOrNull(rs, getBestTimeColumn(it)) }
+                .filterValues { it != null }
+                .mapValues { it.value!! }
+
+        return CachedFileRecords(
+                rs.getString("FILE_PATH"),
+                rs.getLong("FILE_SIZE"),
+                rs.getLong("FILE_MODIFIED"),
+                rs.getString("PARSER_VERSION"),
+                ExerciseFileRecords(
+                        RepositoryUtil.getDoubleOrNull(rs, "DISTANCE"),
+                        bestTimes,
+                        RepositoryUtil.getIntegerOrNull(rs, "MAX_ASCENT_HOUR")))
+    }
+
+    private fun setNullableObject(statement: PreparedStatement, index: Int, value: Any?, sqlType: Int) {
+        if (value == null) {
+            statement.setNull(index, sqlType)
+        } else {
+            statement.setObject(index, value)
+        }
+    }
+
+    companion object {
+        private val LOGGER = Logger.getLogger(ExerciseRecordsCache::class.java.name)
+
+        private const val TABLE_NAME = "EXERCISE_FILE_RECORDS"
+
+        private fun getBestTimeColumn(recordDistance: RecordDistance) = "BEST_TIME_${recordDistance.name}"
+
+        /** The table contains one column for the best time of each record distance in milliseconds. */
+        private val CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS $TABLE_NAME (
+                FILE_PATH TEXT PRIMARY KEY NOT NULL,
+                FILE_SIZE INTEGER NOT NULL,
+                FILE_MODIFIED INTEGER NOT NULL,
+                PARSER_VERSION TEXT NOT NULL,
+                DISTANCE REAL,
+                ${RecordDistance.values().joinToString("") { "${getBestTimeColumn(it)} INTEGER, " }}
+                MAX_ASCENT_HOUR INTEGER
+            )""".trimIndent()
+    }
+}
+
+/**
+ * Cache entry with the records of an exercise file and the attributes for detecting changes of the file.
+ *
+ * @property filePath the path of the exercise file
+ * @property fileSize the size of the exercise file in bytes
+ * @property fileModified the modification time of the exercise file in milliseconds since the epoch
+ * @property parserVersion the version of the parser and the records calculation
+ * @property records the records of the exercise file
+ */
+data class CachedFileRecords(
+        val filePath: String,
+        val fileSize: Long,
+        val fileModified: Long,
+        val parserVersion: String,
+        val records: ExerciseFileRecords)
@@ -0,0 +1,158 @@
+package de.saring.sportstracker.storage.db
+
+import de.saring.exerciseviewer.parser.ExerciseParser
+import de.saring.exerciseviewer.parser.ExerciseParserFactory
+import de.saring.sportstracker.core.STException
+import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.statistic.ExerciseFileRecords
+import de.saring.sportstracker.data.statistic.ExerciseRecordsCalculator
+import java.io.File
+import java.util.concurrent.ExecutorCompletionService
+import java.util.concurrent.Executors
+import java.util.logging.Level
+import java.util.logging.Logger
+
+/**
+ * Loader for the records of the exercise files attached to the exercises. The records are taken from the records
+ * cache when the exercise file has not been changed (same size, modification time and parser version). Only new or
+ * changed exercise files are parsed, this is done in a bounded pool of worker threads. The records of the parsed
+ * files are stored in the cache afterwards, also for files which can't be parsed (so they are not parsed again).
+ *
+ * The parsers are looked up in the calling thread only, the parser instances are shared by the worker threads (the
+ * parser implementations are stateless).
+ *
+ * @constructor creates the loader
+ * @param cache the opened records cache
+ * @param threadCount the maximum number of worker threads for parsing
+ * @param parserLookup function for getting the parser of an exercise file (throws an exception when not supported)
+ *
+ * @author Stefan Saring
+ */
+class ExerciseRecordsLoader(
+        private val cache: ExerciseRecordsCache,
+        private val threadCount: Int = DEFAULT_THREAD_COUNT,
+        private val parserLookup: (String) -> ExerciseParser = { ExerciseParserFactory.getParser(it) }) {
+
+    init {
+        require(threadCount > 0) { "The thread count must be positive!" }
+    }
+
+    /**
+     * Loads the records of the exercise files of all specified exercises. Exercises without exercise file or with
+     * a not existing or not supported exercise file are ignored.
+     *
+     * @param exercises the exercises
+     * @param progressListener listener which will be called after parsing each file with the number of parsed files
+     * and the number of files to parse (optional)
+     * @param isCancelled function which returns true when the loading has been cancelled, then the records of the
+     * files parsed so far will be stored in the cache and returned
+     * @return map of the records of all exercise files, the key is the file path
+     */
+    @Throws(STException::class)
+    fun loadRecords(
+            exercises: Iterable<Exercise>,
+            progressListener: ((Int, Int) -> Unit)? = null,
+            isCancelled: () -> Boolean = { false }): Map<String, ExerciseFileRecords> {
+
+        val cachedEntries = cache.readAll()
+        val recordsByPath = mutableMapOf<String, ExerciseFileRecords>()
+        val filesToParse = mutableMapOf<String, FileToParse>()
+
+        for (exercise in exercises) {
+            val filePath = exercise.hrmFile?.trim()
+            if (filePath.isNullOrEmpty() || recordsByPath.containsKey(filePath) || filesToParse.containsKey(filePath)) {
+                continue
+            }
+
+            val file = File(filePath)
+            if (!file.isFile) {
+                continue
+            }
+            val parser = try {
+                parserLookup(filePath)
+            } catch (e: Exception) {
+                continue
+            }
+
+            val cacheKey = CachedFileRecords(filePath, file.length(), file.lastModified(),
+                    "${parser.info.name}/$RECORDS_VERSION", ExerciseFileRecords.EMPTY)
+            val cachedEntry = cachedEntries[filePath]
+            if (cachedEntry != null && cachedEntry.copy(records = ExerciseFileRecords.EMPTY) == cacheKey) {
+                recordsByPath[filePath] = cachedEntry.records
+            } else {
+                filesToParse[filePath] = FileToParse(parser, cacheKey)
+            }
+        }
+
+        LOGGER.info("Records of ${recordsByPath.size} exercise files are cached, ${filesToParse.size} files " +
+                "need to be parsed")
+        val parsedEntries = parseFiles(filesToParse.values, progressListener, isCancelled)
+        cache.storeAll(parsedEntries)
+        parsedEntries.forEach { recordsByPath[it.filePath] = it.records }
+        return recordsByPath
+    }
+
+    /**
+     * Parses the specified files in the worker threads and calculates their records.
+     *
+     * @return the cache entries of all parsed files (can be less than the passed files when cancelled)
+     */
+    private fun parseFiles(
+            filesToParse: Collection<FileToParse>,
+            progressListener: ((Int, Int) -> Unit)?,
+            isCancelled: () -> Boolean): List<CachedFileRecords> {
+
+        if (filesToParse.isEmpty()) {
+            return emptyList()
+        }
+
+        val executor = Executors.newFixedThreadPool(minOf(threadCount, filesToParse.size))
+        try {
+            val completionService = ExecutorCompletionService<CachedFileRecords>(executor)
+            filesToParse.forEach { fileToParse ->
+                completionService.submit { fileToParse.cacheKey.copy(records = parseFile(fileToParse)) }
+            }
+
+            val parsedEntries = mutableListOf<CachedFileRecords>()
+            for (index in filesToParse.indices) {
+                if (isCancelled()) {
+                    LOGGER.info("Parsing of the exercise files has been cancelled")
+                    break
+                }
+                parsedEntries.add(completionService.take().get())
+                progressListener?.invoke(parsedEntries.size, filesToParse.size)
+            }
+            return parsedEntries
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private fun parseFile(fileToParse: FileToParse): ExerciseFileRecords {
+        val filePath = fileToParse.cacheKey.filePath
+        return try {
+            ExerciseRecordsCalculator.calculateFileRecords(fileToParse.parser.parseExercise(filePath))
+        } catch (e: Exception) {
+            LOGGER.log(Level.WARNING, "Failed to parse exercise file '$filePath' for the records!", e)
+            ExerciseFileRecords.EMPTY
+        }
+    }
+
+    /**
+     * An exercise file to parse with its parser and the key attributes of the cache entry.
+     */
+    private class FileToParse(val parser: ExerciseParser, val cacheKey: CachedFileRecords)
+
+    companion object {
+        private val LOGGER = Logger.getLogger(ExerciseRecordsLoader::class.java.name)
+
+        /**
+         * Version of the records calculation, it's part of the parser version in the cache. It needs to be
+         * increased when the calculation has been changed, so all cached records will be calculated again.
+         */
+        const val RECORDS_VERSION = 1
+
+        /** Default number of worker threads for parsing. */
+        val DEFAULT_THREAD_COUNT = minOf(4, Runtime.getRuntime().availableProcessors())
+    }
+}
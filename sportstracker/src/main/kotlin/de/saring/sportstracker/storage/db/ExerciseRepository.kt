@@ -2,20 +2,29 @@ package de.saring.sportstracker.storage.db
 
 import de.saring.sportstracker.core.STException
 import de.saring.sportstracker.core.STExceptionID
+import de.saring.sportstracker.data.EntryFilter
 import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.PeriodType
 import de.saring.sportstracker.data.SportType
+import de.saring.sportstracker.storage.db.RepositoryUtil.dateTimeToEpoch
+import de.saring.sportstracker.storage.db.RepositoryUtil.dateTimeToString
+import de.saring.sportstracker.storage.db.RepositoryUtil.getDateTime
+import de.saring.sportstracker.storage.db.RepositoryUtil.getDoubleOrNull
 import de.saring.sportstracker.storage.db.RepositoryUtil.getEquipmentById
 import de.saring.sportstracker.storage.db.RepositoryUtil.getIntegerOrNull
 import de.saring.sportstracker.storage.db.RepositoryUtil.getLongOrNull
 import de.saring.sportstracker.storage.db.RepositoryUtil.getSportSubTypeById
 import de.saring.sportstracker.storage.db.RepositoryUtil.getSportTypeById
-import de.saring.util.Date310Utils.dateToLocalDateTime
+import de.saring.sportstracker.storage.db.RepositoryUtil.storedDateTime
 import java.lang.UnsupportedOperationException
 import java.sql.Connection
+import java.sql.PreparedStatement
 import java.sql.ResultSet
 import java.sql.SQLException
-import java.sql.Statement
 import java.sql.Types
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.util.function.Consumer
 import java.util.logging.Logger
 
 /**
@@ -29,6 +38,10 @@ class ExerciseRepository(
     connection: Connection
 ) : AbstractRepository<Exercise>(connection) {
 
+    init {
+        ExerciseFilterQuery.registerFunctions(connection)
+    }
+
     @Throws(STException::class)
     fun readAll(sportTypes: List<SportType>): List<Exercise> {
         logger.info("Reading all Exercises")
@@ -38,36 +51,139 @@ class ExerciseRepository(
             connection.prepareStatement("SELECT * FROM EXERCISE").use { statement ->
                 val rs = statement.executeQuery()
                 while (rs.next()) {
-                    val exercise = readFromResultSet(rs)
+                    exercises.add(readFromResultSet(rs, sportTypes))
+                }
+            }
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_READ_ALL, "Failed to read all Exercises!", e)
+        }
+        return exercises
+    }
 
-                    val sportType = getSportTypeById(sportTypes, rs.getLong("SPORT_TYPE_ID"))
-                    exercise.sportType = sportType
-                    exercise.sportSubType = getSportSubTypeById(sportType, rs.getLong("SPORT_SUBTYPE_ID"))
+    /**
+     * Reads all exercises with a date time in the specified range, ordered by date time.
+     *
+     * @param from start of the date time range (inclusive)
+     * @param to end of the date time range (exclusive)
+     * @param sportTypes list of all sport types, needed for the sport type references of the exercises
+     * @return the exercises in the range
+     */
+    @Throws(STException::class)
+    fun readInDateRange(from: LocalDateTime, to: LocalDateTime, sportTypes: List<SportType>): List<Exercise> =
+        readInDateTimeRange(from, to) { readFromResultSet(it, sportTypes) }
 
-                    val equipmentID = getLongOrNull(rs, "EQUIPMENT_ID")
-                    exercise.equipment = if (equipmentID == null) null else getEquipmentById(sportType, equipmentID)
-                    exercises.add(exercise)
+    /**
+     * Reads all exercises matching the specified filter, ordered by date time. The filter criteria are checked by
+     * the database, the exercises are passed to the action one by one while reading them by a forward-only cursor,
+     * so they don't need to be collected for processing.
+     *
+     * @param filter the exercise filter
+     * @param sportTypes list of all sport types, needed for the sport type references of the exercises
+     * @param action the action to be executed for each matching exercise
+     * @throws java.util.regex.PatternSyntaxException thrown on parsing problems of the regular expression
+     */
+    @Throws(STException::class)
+    fun findByFilter(filter: EntryFilter, sportTypes: List<SportType>, action: Consumer<Exercise>) {
+        logger.info("Reading Exercises by filter")
+        val query = ExerciseFilterQuery(filter)
+
+        try {
+            connection.prepareStatement("SELECT * FROM EXERCISE${query.whereClause} ORDER BY DATE_TIME_EPOCH",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY
+            ).use { statement ->
+                query.setParameters(statement)
+                statement.fetchSize = FETCH_SIZE
+                statement.executeQuery().use { rs ->
+                    while (rs.next()) {
+                        action.accept(readFromResultSet(rs, sportTypes))
+                    }
                 }
             }
         } catch (e: SQLException) {
-            throw STException(STExceptionID.DBSTORAGE_READ_ALL, "Failed to read all Exercises!", e)
+            throw STException(STExceptionID.DBSTORAGE_READ_ALL, "Failed to read Exercises by filter!", e)
         }
+    }
+
+    /**
+     * Reads all exercises matching the specified filter, ordered by date time.
+     *
+     * @param filter the exercise filter
+     * @param sportTypes list of all sport types, needed for the sport type references of the exercises
+     * @return list of the matching exercises
+     * @throws java.util.regex.PatternSyntaxException thrown on parsing problems of the regular expression
+     */
+    @Throws(STException::class)
+    fun findByFilter(filter: EntryFilter, sportTypes: List<SportType>): List<Exercise> {
+        val exercises = ArrayList<Exercise>()
+        findByFilter(filter, sportTypes) { exercises.add(it) }
         return exercises
     }
 
+    /**
+     * Calculates the aggregates (SUM, MIN, MAX and AVG) of the specified column for the exercises matching the
+     * filter, grouped by periods. The calculation is done completely by the database, no exercises are read.
+     *
+     * @param filter the exercise filter
+     * @param column the column to aggregate
+     * @param periodType type of the periods
+     * @param weekStartSunday flag whether the weeks start on Sunday (otherwise on Monday)
+     * @return the aggregates of all periods containing exercises, ordered by the period start
+     * @throws java.util.regex.PatternSyntaxException thrown on parsing problems of the regular expression
+     */
+    @Throws(STException::class)
+    fun aggregateByFilter(
+        filter: EntryFilter,
+        column: ExerciseAggregateColumn,
+        periodType: PeriodType,
+        weekStartSunday: Boolean
+    ): List<ExercisePeriodAggregate> {
+        logger.info("Aggregating ${column.columnName} of Exercises by filter")
+        val query = ExerciseFilterQuery(filter)
+        val periodStart = ExerciseFilterQuery.getPeriodStartExpression(periodType, weekStartSunday)
+        val value = column.columnName
+        val aggregates = ArrayList<ExercisePeriodAggregate>()
+
+        try {
+            connection.prepareStatement("SELECT $periodStart AS PERIOD_START, COUNT(*) AS EXERCISE_COUNT, " +
+                    "COUNT($value) AS VALUE_COUNT, SUM($value) AS VALUE_SUM, MIN($value) AS VALUE_MIN, " +
+                    "MAX($value) AS VALUE_MAX, AVG($value) AS VALUE_AVG " +
+                    "FROM EXERCISE${query.whereClause} GROUP BY PERIOD_START ORDER BY PERIOD_START"
+            ).use { statement ->
+                query.setParameters(statement)
+                statement.executeQuery().use { rs ->
+                    while (rs.next()) {
+                        aggregates.add(ExercisePeriodAggregate(
+                            LocalDate.parse(rs.getString("PERIOD_START")),
+                            rs.getInt("EXERCISE_COUNT"),
+                            rs.getInt("VALUE_COUNT"),
+                            getDoubleOrNull(rs, "VALUE_SUM"),
+                            getDoubleOrNull(rs, "VALUE_MIN"),
+                            getDoubleOrNull(rs, "VALUE_MAX"),
+                            getDoubleOrNull(rs, "VALUE_AVG")))
+                    }
+                }
+            }
+        } catch (e: SQLException) {
+            throw STException(STExceptionID.DBSTORAGE_READ_ALL, "Failed to aggregate Exercises by filter!", e)
+        }
+        return aggregates
+    }
+
     override fun readAll(): List<Exercise> {
         throw UnsupportedOperationException("Use readAll(List<SportType>) for reading all Exercises!")
     }
 
     override val entityName = "Exercise"
 
+    override val entityClass = Exercise::class.java
+
     override val tableName = "EXERCISE"
 
     override val logger: Logger = Logger.getLogger(ExerciseRepository::class.java.name)
 
     override fun readFromResultSet(rs: ResultSet): Exercise {
         val exercise = Exercise(rs.getLong("ID"))
-        exercise.dateTime = dateToLocalDateTime(rs.getDate("DATE_TIME"))
+        exercise.dateTime = getDateTime(rs)
         exercise.intensity = Exercise.IntensityType.valueOf(rs.getString("INTENSITY"))
         exercise.duration = rs.getInt("DURATION")
         exercise.distance = rs.getDouble("DISTANCE")
@@ -81,58 +197,60 @@ class ExerciseRepository(
         return exercise
     }
 
-    override fun executeCreate(entry: Exercise): Exercise {
-        connection.prepareStatement("INSERT INTO EXERCISE " +
-                "(DATE_TIME, SPORT_TYPE_ID, SPORT_SUBTYPE_ID, INTENSITY, DURATION, DISTANCE, AVG_SPEED, " +
-                "AVG_HEARTRATE, ASCENT, DESCENT, CALORIES, HRM_FILE, EQUIPMENT_ID, COMMENT) VALUES " +
-                "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
-            Statement.RETURN_GENERATED_KEYS
-        ).use { statement ->
-            statement.setString(1, RepositoryUtil.dateTimeToString(entry.dateTime))
-            statement.setLong(2, entry.sportType.id!!)
-            statement.setLong(3, entry.sportSubType.id!!)
-            statement.setString(4, entry.intensity.name)
-            statement.setInt(5, entry.duration)
-            statement.setDouble(6, entry.distance)
-            statement.setDouble(7, entry.avgSpeed)
-            statement.setObject(8, entry.avgHeartRate, Types.INTEGER)
-            statement.setObject(9, entry.ascent, Types.INTEGER)
-            statement.setObject(10, entry.descent, Types.INTEGER)
-            statement.setObject(11, entry.calories, Types.INTEGER)
-            statement.setString(12, entry.hrmFile)
-            statement.setObject(13, entry.equipment?.id, Types.INTEGER);
-            statement.setString(14, entry.comment)
-            statement.executeUpdate()
-
-            val rs = statement.generatedKeys
-            rs.next()
-            val exerciseId = rs.getLong(1)
-            return readById(exerciseId)
-        }
+    private fun readFromResultSet(rs: ResultSet, sportTypes: List<SportType>): Exercise {
+        val exercise = readFromResultSet(rs)
+
+        val sportType = getSportTypeById(sportTypes, rs.getLong("SPORT_TYPE_ID"))
+        exercise.sportType = sportType
+        exercise.sportSubType = getSportSubTypeById(sportType, rs.getLong("SPORT_SUBTYPE_ID"))
+
+        val equipmentID = getLongOrNull(rs, "EQUIPMENT_ID")
+        exercise.equipment = if (equipmentID == null) null else getEquipmentById(sportType, equipmentID)
+        return exercise
     }
 
-    override fun executeUpdate(entry: Exercise) {
-        connection.prepareStatement("UPDATE EXERCISE SET " +
-                "DATE_TIME = ?, SPORT_TYPE_ID = ?, SPORT_SUBTYPE_ID = ?, INTENSITY = ?, DURATION = ?, " +
-                "DISTANCE = ?, AVG_SPEED = ?, AVG_HEARTRATE = ?, ASCENT = ?, DESCENT = ?, " +
-                "CALORIES = ?, HRM_FILE = ?, EQUIPMENT_ID = ?, COMMENT = ? WHERE ID = ?"
-        ).use { statement ->
-            statement.setString(1, RepositoryUtil.dateTimeToString(entry.dateTime))
-            statement.setLong(2, entry.sportType.id!!)
-            statement.setLong(3, entry.sportSubType.id!!)
-            statement.setString(4, entry.intensity.name)
-            statement.setInt(5, entry.duration)
-            statement.setDouble(6, entry.distance)
-            statement.setDouble(7, entry.avgSpeed)
-            statement.setObject(8, entry.avgHeartRate, Types.INTEGER)
-            statement.setObject(9, entry.ascent, Types.INTEGER)
-            statement.setObject(10, entry.descent, Types.INTEGER)
-            statement.setObject(11, entry.calories, Types.INTEGER)
-            statement.setString(12, entry.hrmFile)
-            statement.setObject(13, entry.equipment?.id, Types.INTEGER);
-            statement.setString(14, entry.comment)
-            statement.setLong(15, entry.id!!)
-            statement.executeUpdate()
-        }
+    override val insertSql = "INSERT INTO EXERCISE " +
+            "(DATE_TIME, SPORT_TYPE_ID, SPORT_SUBTYPE_ID, INTENSITY, DURATION, DISTANCE, AVG_SPEED, " +
+            "AVG_HEARTRATE, ASCENT, DESCENT, CALORIES, HRM_FILE, EQUIPMENT_ID, COMMENT, DATE_TIME_EPOCH) VALUES " +
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+
+    override val updateSql = "UPDATE EXERCISE SET " +
+            "DATE_TIME = ?, SPORT_TYPE_ID = ?, SPORT_SUBTYPE_ID = ?, INTENSITY = ?, DURATION = ?, " +
+            "DISTANCE = ?, AVG_SPEED = ?, AVG_HEARTRATE = ?, ASCENT = ?, DESCENT = ?, " +
+            "CALORIES = ?, HRM_FILE = ?, EQUIPMENT_ID = ?, COMMENT = ?, DATE_TIME_EPOCH = ? WHERE ID = ?"
+
+    override fun setInsertParameters(statement: PreparedStatement, entry: Exercise) {
+        statement.setString(1, dateTimeToString(entry.dateTime))
+        statement.setLong(2, entry.sportType.id!!)
+        statement.setLong(3, entry.sportSubType.id!!)
+        statement.setString(4, entry.intensity.name)
+        statement.setInt(5, entry.duration)
+        statement.setDouble(6, entry.distance)
+        statement.setDouble(7, entry.avgSpeed)
+        statement.setObject(8, entry.avgHeartRate, Types.INTEGER)
+        statement.setObject(9, entry.ascent, Types.INTEGER)
+        statement.setObject(10, entry.descent, Types.INTEGER)
+        statement.setObject(11, entry.calories, Types.INTEGER)
+        statement.setString(12, entry.hrmFile)
+        statement.setObject(13, entry.equipment?.id, Types.INTEGER)
+        statement.setString(14, entry.comment)
+        statement.setLong(15, dateTimeToEpoch(entry.dateTime))
+    }
+
+    override fun setUpdateParameters(statement: PreparedStatement, entry: Exercise) {
+        setInsertParameters(statement, entry)
+        statement.setLong(16, entry.id!!)
+    }
+
+    override fun createdEntry(entry: Exercise, entryId: Long): Exercise {
+        // the clone keeps the sport type references of the stored entry
+        val exercise = entry.clone(entryId)
+        exercise.dateTime = storedDateTime(entry.dateTime)
+        return exercise
+    }
+
+    companion object {
+        /** Number of rows fetched at once by the cursor of the filter query. */
+        private const val FETCH_SIZE = 500
     }
-}
\ No newline at end of file
+}
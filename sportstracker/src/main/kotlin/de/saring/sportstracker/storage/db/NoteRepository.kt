@@ -1,11 +1,15 @@
 package de.saring.sportstracker.storage.db
 
+import de.saring.sportstracker.core.STException
 import de.saring.sportstracker.data.Note
+import de.saring.sportstracker.storage.db.RepositoryUtil.dateTimeToEpoch
 import de.saring.sportstracker.storage.db.RepositoryUtil.dateTimeToString
-import de.saring.util.Date310Utils.dateToLocalDateTime
+import de.saring.sportstracker.storage.db.RepositoryUtil.getDateTime
+import de.saring.sportstracker.storage.db.RepositoryUtil.storedDateTime
 import java.sql.Connection
+import java.sql.PreparedStatement
 import java.sql.ResultSet
-import java.sql.Statement
+import java.time.LocalDateTime
 import java.util.logging.Logger
 
 /**
@@ -21,39 +25,48 @@ class NoteRepository(
 
     override val entityName = "Note"
 
+    override val entityClass = Note::class.java
+
     override val tableName = "NOTE"
 
     override val logger: Logger = Logger.getLogger(NoteRepository::class.java.name)
 
+    /**
+     * Reads all notes with a date time in the specified range, ordered by date time.
+     *
+     * @param from start of the date time range (inclusive)
+     * @param to end of the date time range (exclusive)
+     * @return the notes in the range
+     */
+    @Throws(STException::class)
+    fun readInDateRange(from: LocalDateTime, to: LocalDateTime): List<Note> =
+        readInDateTimeRange(from, to) { readFromResultSet(it) }
+
     override fun readFromResultSet(rs: ResultSet): Note {
         val note = Note(rs.getLong("ID"))
-        note.dateTime = dateToLocalDateTime(rs.getDate("DATE_TIME"))
+        note.dateTime = getDateTime(rs)
         note.comment = rs.getString("COMMENT")
         return note
     }
 
-    override fun executeCreate(entry: Note): Note {
-        connection.prepareStatement("INSERT INTO NOTE (DATE_TIME, COMMENT) VALUES (?, ?)",
-            Statement.RETURN_GENERATED_KEYS
-        ).use { statement ->
-            statement.setString(1, RepositoryUtil.dateTimeToString(entry.dateTime))
-            statement.setString(2, entry.comment)
-            statement.executeUpdate()
-
-            val rs = statement.generatedKeys
-            rs.next()
-            val noteId = rs.getLong(1)
-            return readById(noteId)
-        }
+    override val insertSql = "INSERT INTO NOTE (DATE_TIME, COMMENT, DATE_TIME_EPOCH) VALUES (?, ?, ?)"
+
+    override val updateSql = "UPDATE NOTE SET DATE_TIME = ?, COMMENT = ?, DATE_TIME_EPOCH = ? WHERE ID = ?"
+
+    override fun setInsertParameters(statement: PreparedStatement, entry: Note) {
+        statement.setString(1, dateTimeToString(entry.dateTime))
+        statement.setString(2, entry.comment)
+        statement.setLong(3, dateTimeToEpoch(entry.dateTime))
     }
 
-    override fun executeUpdate(entry: Note) {
-        connection.prepareStatement("UPDATE NOTE SET DATE_TIME = ?, COMMENT = ? WHERE ID = ?"
-        ).use { statement ->
-            statement.setString(1, dateTimeToString(entry.dateTime))
-            statement.setString(2, entry.comment)
-            statement.setLong(3, entry.id!!)
-            statement.executeUpdate()
-        }
+    override fun setUpdateParameters(statement: PreparedStatement, entry: Note) {
+        setInsertParameters(statement, entry)
+        statement.setLong(4, entry.id!!)
+    }
+
+    override fun createdEntry(entry: Note, entryId: Long): Note {
+        val note = entry.clone(entryId)
+        note.dateTime = storedDateTime(entry.dateTime)
+        return note
     }
-}
\ No newline at end of file
+}
@@ -3,9 +3,12 @@ package de.saring.sportstracker.storage.db
 import de.saring.sportstracker.data.Equipment
 import de.saring.sportstracker.data.SportSubType
 import de.saring.sportstracker.data.SportType
+import de.saring.util.Date310Utils.dateToLocalDateTime
 import java.sql.ResultSet
 import java.time.LocalDateTime
+import java.time.ZoneOffset
 import java.time.format.DateTimeFormatter
+import java.time.temporal.ChronoUnit
 
 /**
  * Utility methods for the database repository implementations.
@@ -28,6 +31,11 @@ object RepositoryUtil {
         return if (rs.wasNull()) null else value
     }
 
+    fun getDoubleOrNull(rs: ResultSet, columnName: String): Double? {
+        val value = rs.getDouble(columnName)
+        return if (rs.wasNull()) null else value
+    }
+
     fun getSportTypeById(sportTypes: List<SportType>, sportTypeId: Long): SportType {
         return sportTypes.first { sportTypeId == it.id }
     }
@@ -43,4 +51,36 @@ object RepositoryUtil {
     fun dateTimeToString(dateTime: LocalDateTime): String {
         return dateTime.format(SQLITE_DATE_TIME_FORMAT)
     }
+
+    /**
+     * Returns the specified local date time as seconds since 1970-01-01 00:00:00 for the DATE_TIME_EPOCH columns.
+     * The date time is not converted to another time zone, the same way as for the TEXT columns.
+     */
+    @JvmStatic
+    fun dateTimeToEpoch(dateTime: LocalDateTime): Long {
+        return dateTime.toEpochSecond(ZoneOffset.UTC)
+    }
+
+    /**
+     * Returns the local date time for the specified value of a DATE_TIME_EPOCH column.
+     */
+    fun epochToDateTime(epochSeconds: Long): LocalDateTime {
+        return LocalDateTime.ofEpochSecond(epochSeconds, 0, ZoneOffset.UTC)
+    }
+
+    /**
+     * Returns the date time of the current row of the result set. It's read from the DATE_TIME_EPOCH column, when
+     * it's null (e.g. the TEXT column DATE_TIME has an invalid format) the TEXT column will be parsed instead.
+     */
+    fun getDateTime(rs: ResultSet): LocalDateTime {
+        return getLongOrNull(rs, "DATE_TIME_EPOCH")?.let { epochToDateTime(it) }
+            ?: dateToLocalDateTime(rs.getTimestamp("DATE_TIME"))
+    }
+
+    /**
+     * Returns the specified date time in the precision stored in the database (seconds).
+     */
+    fun storedDateTime(dateTime: LocalDateTime): LocalDateTime {
+        return dateTime.truncatedTo(ChronoUnit.SECONDS)
+    }
 }
\ No newline at end of file
@@ -35,6 +35,8 @@ class SportTypeRepository(
 
     override val entityName = "SportType"
 
+    override val entityClass = SportType::class.java
+
     override val tableName = "SPORT_TYPE"
 
     override val logger: Logger = Logger.getLogger(SportTypeRepository::class.java.name)
@@ -84,27 +86,30 @@ class SportTypeRepository(
         }
     }
 
-    override fun executeCreate(entry: SportType): SportType {
-        var sportType: SportType
+    override val insertSql = "INSERT INTO SPORT_TYPE " +
+            "(NAME, RECORD_DISTANCE, SPEED_MODE, COLOR, ICON, FIT_ID) VALUES (?, ?, ?, ?, ?, ?)"
 
-        connection.prepareStatement(
-            "INSERT INTO SPORT_TYPE " +
-                    "(NAME, RECORD_DISTANCE, SPEED_MODE, COLOR, ICON, FIT_ID) VALUES (?, ?, ?, ?, ?, ?)",
-            Statement.RETURN_GENERATED_KEYS
-        ).use { statement ->
-            statement.setString(1, entry.getName())
-            statement.setBoolean(2, entry.isRecordDistance)
-            statement.setString(3, entry.speedMode.name)
-            statement.setString(4, if (entry.color == null) null else ColorUtils.toRGBCode(entry.color))
-            statement.setString(5, entry.icon)
-            statement.setObject(6, entry.fitId, Types.INTEGER);
-            statement.executeUpdate()
+    override val updateSql = "UPDATE SPORT_TYPE SET " +
+            "NAME = ?, RECORD_DISTANCE = ?, SPEED_MODE = ?, COLOR = ?, ICON = ?, FIT_ID = ? WHERE ID = ?"
 
-            val rs = statement.generatedKeys
-            rs.next()
-            val sportTypeId = rs.getLong(1)
-            sportType = readById(sportTypeId)
-        }
+    override fun setInsertParameters(statement: PreparedStatement, entry: SportType) {
+        statement.setString(1, entry.getName())
+        statement.setBoolean(2, entry.isRecordDistance)
+        statement.setString(3, entry.speedMode.name)
+        statement.setString(4, if (entry.color == null) null else ColorUtils.toRGBCode(entry.color))
+        statement.setString(5, entry.icon)
+        statement.setObject(6, entry.fitId, Types.INTEGER)
+    }
+
+    override fun setUpdateParameters(statement: PreparedStatement, entry: SportType) {
+        setInsertParameters(statement, entry)
+        statement.setLong(7, entry.id!!)
+    }
+
+    override fun createdEntry(entry: SportType, entryId: Long): SportType = readById(entryId)
+
+    override fun executeCreate(entry: SportType): SportType {
+        val sportType = super.executeCreate(entry)
 
         // persist also all new sport subtypes and equipments
         entry.sportSubTypeList.forEach { createSportSubType(it, sportType) }
@@ -113,23 +118,20 @@ class SportTypeRepository(
     }
 
     override fun executeUpdate(entry: SportType) {
-        connection.prepareStatement("UPDATE SPORT_TYPE SET " +
-                "NAME = ?, RECORD_DISTANCE = ?, SPEED_MODE = ?, COLOR = ?, ICON = ?, FIT_ID = ? WHERE ID = ?"
-            ).use { statement ->
-            statement.setString(1, entry.getName())
-            statement.setBoolean(2, entry.isRecordDistance)
-            statement.setString(3, entry.speedMode.name)
-            statement.setString(4, if (entry.color == null) null else ColorUtils.toRGBCode(entry.color))
-            statement.setString(5, entry.icon)
-            statement.setObject(6, entry.fitId, Types.INTEGER);
-            statement.setLong(7, entry.id!!);
-            statement.executeUpdate()
-        }
+        super.executeUpdate(entry)
 
         persistSportSubTypesOfExistingSportType(entry)
         persistEquipmentsOfExistingSportType(entry)
     }
 
+    // the bulk operations need to persist the related data of each sport type too, so they can't use batches
+
+    override fun executeCreateAll(entries: List<SportType>): List<SportType> = entries.map { executeCreate(it) }
+
+    override fun executeUpdateAll(entries: List<SportType>) = entries.forEach { executeUpdate(it) }
+
+    override fun executeDeleteAll(entryIds: Collection<Long>) = entryIds.forEach { executeDelete(it) }
+
     override fun executeDelete(entryId: Long) {
         // SportType might be used in some Exercises, these need to be deleted before (confirmed by the user)
         connection.prepareStatement("DELETE FROM EXERCISE WHERE SPORT_TYPE_ID = ?").use { statement ->
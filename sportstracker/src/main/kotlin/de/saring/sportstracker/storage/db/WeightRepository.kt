@@ -1,10 +1,15 @@
 package de.saring.sportstracker.storage.db
 
+import de.saring.sportstracker.core.STException
 import de.saring.sportstracker.data.Weight
-import de.saring.util.Date310Utils.dateToLocalDateTime
+import de.saring.sportstracker.storage.db.RepositoryUtil.dateTimeToEpoch
+import de.saring.sportstracker.storage.db.RepositoryUtil.dateTimeToString
+import de.saring.sportstracker.storage.db.RepositoryUtil.getDateTime
+import de.saring.sportstracker.storage.db.RepositoryUtil.storedDateTime
 import java.sql.Connection
+import java.sql.PreparedStatement
 import java.sql.ResultSet
-import java.sql.Statement
+import java.time.LocalDateTime
 import java.util.logging.Logger
 
 /**
@@ -20,42 +25,50 @@ class WeightRepository(
 
     override val entityName = "Weight"
 
+    override val entityClass = Weight::class.java
+
     override val tableName = "WEIGHT"
 
     override val logger: Logger = Logger.getLogger(WeightRepository::class.java.name)
 
+    /**
+     * Reads all weights with a date time in the specified range, ordered by date time.
+     *
+     * @param from start of the date time range (inclusive)
+     * @param to end of the date time range (exclusive)
+     * @return the weights in the range
+     */
+    @Throws(STException::class)
+    fun readInDateRange(from: LocalDateTime, to: LocalDateTime): List<Weight> =
+        readInDateTimeRange(from, to) { readFromResultSet(it) }
+
     override fun readFromResultSet(rs: ResultSet): Weight {
         val weight = Weight(rs.getLong("ID"))
-        weight.dateTime = dateToLocalDateTime(rs.getDate("DATE_TIME"))
+        weight.dateTime = getDateTime(rs)
         weight.value = rs.getDouble("VALUE")
         weight.comment = rs.getString("COMMENT")
         return weight
     }
 
-    override fun executeCreate(entry: Weight): Weight {
-        connection.prepareStatement("INSERT INTO WEIGHT (DATE_TIME, VALUE, COMMENT) VALUES (?, ?, ?)",
-            Statement.RETURN_GENERATED_KEYS
-        ).use { statement ->
-            statement.setString(1, RepositoryUtil.dateTimeToString(entry.dateTime))
-            statement.setDouble(2, entry.value)
-            statement.setString(3, entry.comment)
-            statement.executeUpdate()
-
-            val rs = statement.generatedKeys
-            rs.next()
-            val weightID = rs.getLong(1)
-            return readById(weightID)
-        }
+    override val insertSql = "INSERT INTO WEIGHT (DATE_TIME, VALUE, COMMENT, DATE_TIME_EPOCH) VALUES (?, ?, ?, ?)"
+
+    override val updateSql = "UPDATE WEIGHT SET DATE_TIME = ?, VALUE = ?, COMMENT = ?, DATE_TIME_EPOCH = ? WHERE ID = ?"
+
+    override fun setInsertParameters(statement: PreparedStatement, entry: Weight) {
+        statement.setString(1, dateTimeToString(entry.dateTime))
+        statement.setDouble(2, entry.value)
+        statement.setString(3, entry.comment)
+        statement.setLong(4, dateTimeToEpoch(entry.dateTime))
     }
 
-    override fun executeUpdate(entry: Weight) {
-        connection.prepareStatement("UPDATE WEIGHT SET DATE_TIME = ?, VALUE = ?, COMMENT = ? WHERE ID = ?"
-        ).use { statement ->
-            statement.setString(1, RepositoryUtil.dateTimeToString(entry.dateTime))
-            statement.setDouble(2, entry.value)
-            statement.setString(3, entry.comment)
-            statement.setLong(4, entry.id!!)
-            statement.executeUpdate()
-        }
+    override fun setUpdateParameters(statement: PreparedStatement, entry: Weight) {
+        setInsertParameters(statement, entry)
+        statement.setLong(5, entry.id!!)
+    }
+
+    override fun createdEntry(entry: Weight, entryId: Long): Weight {
+        val weight = entry.clone(entryId)
+        weight.dateTime = storedDateTime(entry.dateTime)
+        return weight
     }
-}
\ No newline at end of file
+}
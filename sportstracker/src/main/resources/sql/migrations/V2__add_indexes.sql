@@ -0,0 +1,11 @@
+-- Schema migration to version 2: adds the indexes for the date range and sport type based queries.
+
+CREATE INDEX IF NOT EXISTS IDX_EXERCISE_DATE_TIME ON EXERCISE (DATE_TIME);
+CREATE INDEX IF NOT EXISTS IDX_EXERCISE_SPORT_TYPE_ID ON EXERCISE (SPORT_TYPE_ID);
+CREATE INDEX IF NOT EXISTS IDX_EXERCISE_SPORT_SUBTYPE_ID ON EXERCISE (SPORT_SUBTYPE_ID);
+CREATE INDEX IF NOT EXISTS IDX_EXERCISE_EQUIPMENT_ID ON EXERCISE (EQUIPMENT_ID);
+CREATE INDEX IF NOT EXISTS IDX_NOTE_DATE_TIME ON NOTE (DATE_TIME);
+CREATE INDEX IF NOT EXISTS IDX_WEIGHT_DATE_TIME ON WEIGHT (DATE_TIME);
+
+-- update the statistics of the query planner for the new indexes
+ANALYZE;
@@ -0,0 +1,56 @@
+-- Schema migration to version 3: adds the date-time columns DATE_TIME_EPOCH to the exercise, note and weight tables.
+-- They contain the local date-time of the TEXT column DATE_TIME as seconds since 1970-01-01 00:00:00, so reading and
+-- date range queries don't need to parse strings. Both columns are written by the repositories and the importer of
+-- the application. The triggers are an integrity safeguard only, they keep the new columns in sync when the database
+-- is edited externally or manually with the DATE_TIME column only.
+
+ALTER TABLE EXERCISE ADD COLUMN DATE_TIME_EPOCH INTEGER;
+UPDATE EXERCISE SET DATE_TIME_EPOCH = CAST(strftime('%s', DATE_TIME) AS INTEGER);
+
+ALTER TABLE NOTE ADD COLUMN DATE_TIME_EPOCH INTEGER;
+UPDATE NOTE SET DATE_TIME_EPOCH = CAST(strftime('%s', DATE_TIME) AS INTEGER);
+
+ALTER TABLE WEIGHT ADD COLUMN DATE_TIME_EPOCH INTEGER;
+UPDATE WEIGHT SET DATE_TIME_EPOCH = CAST(strftime('%s', DATE_TIME) AS INTEGER);
+
+CREATE TRIGGER TRG_EXERCISE_DATE_TIME_EPOCH_INSERT AFTER INSERT ON EXERCISE
+WHEN NEW.DATE_TIME_EPOCH IS NOT CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER)
+BEGIN
+    UPDATE EXERCISE SET DATE_TIME_EPOCH = CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER) WHERE ID = NEW.ID;
+END;
+
+CREATE TRIGGER TRG_EXERCISE_DATE_TIME_EPOCH_UPDATE AFTER UPDATE OF DATE_TIME ON EXERCISE
+WHEN NEW.DATE_TIME_EPOCH IS NOT CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER)
+BEGIN
+    UPDATE EXERCISE SET DATE_TIME_EPOCH = CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER) WHERE ID = NEW.ID;
+END;
+
+CREATE TRIGGER TRG_NOTE_DATE_TIME_EPOCH_INSERT AFTER INSERT ON NOTE
+WHEN NEW.DATE_TIME_EPOCH IS NOT CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER)
+BEGIN
+    UPDATE NOTE SET DATE_TIME_EPOCH = CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER) WHERE ID = NEW.ID;
+END;
+
+CREATE TRIGGER TRG_NOTE_DATE_TIME_EPOCH_UPDATE AFTER UPDATE OF DATE_TIME ON NOTE
+WHEN NEW.DATE_TIME_EPOCH IS NOT CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER)
+BEGIN
+    UPDATE NOTE SET DATE_TIME_EPOCH = CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER) WHERE ID = NEW.ID;
+END;
+
+CREATE TRIGGER TRG_WEIGHT_DATE_TIME_EPOCH_INSERT AFTER INSERT ON WEIGHT
+WHEN NEW.DATE_TIME_EPOCH IS NOT CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER)
+BEGIN
+    UPDATE WEIGHT SET DATE_TIME_EPOCH = CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER) WHERE ID = NEW.ID;
+END;
+
+CREATE TRIGGER TRG_WEIGHT_DATE_TIME_EPOCH_UPDATE AFTER UPDATE OF DATE_TIME ON WEIGHT
+WHEN NEW.DATE_TIME_EPOCH IS NOT CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER)
+BEGIN
+    UPDATE WEIGHT SET DATE_TIME_EPOCH = CAST(strftime('%s', NEW.DATE_TIME) AS INTEGER) WHERE ID = NEW.ID;
+END;
+
+CREATE INDEX IDX_EXERCISE_DATE_TIME_EPOCH ON EXERCISE (DATE_TIME_EPOCH);
+CREATE INDEX IDX_NOTE_DATE_TIME_EPOCH ON NOTE (DATE_TIME_EPOCH);
+CREATE INDEX IDX_WEIGHT_DATE_TIME_EPOCH ON WEIGHT (DATE_TIME_EPOCH);
+
+ANALYZE;
@@ -0,0 +1,6 @@
+-- Schema migration to version 4: drops the indexes of the TEXT date-time columns added in version 2. The date range
+-- queries are using the indexed DATE_TIME_EPOCH columns of version 3, so they are not needed anymore.
+
+DROP INDEX IF EXISTS IDX_EXERCISE_DATE_TIME;
+DROP INDEX IF EXISTS IDX_NOTE_DATE_TIME;
+DROP INDEX IF EXISTS IDX_WEIGHT_DATE_TIME;
@@ -0,0 +1,164 @@
+package de.saring.sportstracker.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains all unit tests for the CommentIndex class.
+ *
+ * @author Stefan Saring
+ */
+public class CommentIndexTest {
+
+    private CommentIndex index;
+
+    /**
+     * Setup of test data.
+     */
+    @BeforeEach
+    public void setUp() {
+        index = new CommentIndex();
+        index.add(1, "Morning run in the park");
+        index.add(2, "Evening RUN with\tfriends");
+        index.add(3, "Bike tour to the lake, nice weather");
+        index.add(4, null);
+    }
+
+    /**
+     * Test of tokenize(): needs to return the distinct lower case words.
+     */
+    @Test
+    public void testTokenize() {
+        assertArrayEquals(new String[]{"foo", "bar,", "x"}, CommentIndex.tokenize("  Foo\tbar, \n foo X "));
+        assertEquals(0, CommentIndex.tokenize(null).length);
+        assertEquals(0, CommentIndex.tokenize("").length);
+    }
+
+    /**
+     * Test of findEntryIds(): complete words, prefixes and substrings of words need to be found.
+     */
+    @Test
+    public void testFindEntryIds() {
+        assertEquals(Set.of(1L, 2L), index.findEntryIds(new String[]{"run"}));
+        assertEquals(Set.of(1L, 2L), index.findEntryIds(new String[]{"ru"}));
+        assertEquals(Set.of(1L), index.findEntryIds(new String[]{"orn"}));
+        assertEquals(Set.of(3L), index.findEntryIds(new String[]{"ke,"}));
+        assertEquals(Set.of(1L, 3L), index.findEntryIds(new String[]{"the"}));
+        assertEquals(Set.of(), index.findEntryIds(new String[]{"swim"}));
+    }
+
+    /**
+     * Test of findEntryIds(): all words need to be contained (AND logic).
+     */
+    @Test
+    public void testFindEntryIdsMultipleWords() {
+        assertEquals(Set.of(1L), index.findEntryIds(new String[]{"park", "run"}));
+        assertEquals(Set.of(2L), index.findEntryIds(new String[]{"run", "friend"}));
+        assertEquals(Set.of(), index.findEntryIds(new String[]{"run", "lake"}));
+    }
+
+    /**
+     * Test of findEntryIds() for an empty index and for empty search words: nothing must be found.
+     */
+    @Test
+    public void testFindEntryIdsEmpty() {
+        assertEquals(Set.of(), new CommentIndex().findEntryIds(new String[]{"run"}));
+        assertEquals(Set.of(), index.findEntryIds(new String[0]));
+
+        index.clear();
+        assertEquals(Set.of(), index.findEntryIds(new String[]{"run"}));
+        assertEquals(Set.of(), index.findEntryIds(new String[]{"the"}));
+    }
+
+    /**
+     * Test of findEntryIds(): the first and last word of a comment and the first and last characters of the words
+     * need to be found.
+     */
+    @Test
+    public void testFindEntryIdsFirstAndLastWord() {
+        assertEquals(Set.of(1L), index.findEntryIds(new String[]{"morning"}));
+        assertEquals(Set.of(1L), index.findEntryIds(new String[]{"m"}));
+        assertEquals(Set.of(3L), index.findEntryIds(new String[]{"weather"}));
+        assertEquals(Set.of(2L), index.findEntryIds(new String[]{"s"}));
+    }
+
+    /**
+     * Test of the modification of a comment (removal of the old and adding of the new comment of the entry): the
+     * words of the old comment must not be found anymore, the words shared with other comments must still be found.
+     */
+    @Test
+    public void testModifiedComment() {
+        index.remove(1);
+        index.add(1, "Swimming in the lake");
+
+        assertEquals(Set.of(2L), index.findEntryIds(new String[]{"run"}));
+        assertEquals(Set.of(), index.findEntryIds(new String[]{"park"}));
+        assertEquals(Set.of(1L, 3L), index.findEntryIds(new String[]{"lake"}));
+        assertEquals(Set.of(1L), index.findEntryIds(new String[]{"swim"}));
+    }
+
+    /**
+     * Test of remove(): the removed comments must not be found anymore, the other ones must still be found.
+     */
+    @Test
+    public void testRemove() {
+        index.remove(2);
+        assertEquals(Set.of(1L), index.findEntryIds(new String[]{"run"}));
+        assertEquals(Set.of(), index.findEntryIds(new String[]{"friends"}));
+
+        index.remove(1);
+        index.remove(4);
+        index.remove(5);
+        assertEquals(Set.of(), index.findEntryIds(new String[]{"run"}));
+        assertEquals(Set.of(3L), index.findEntryIds(new String[]{"the"}));
+    }
+
+    /**
+     * Test of findEntryIds(): the results for many random comments and search words need to be the same as
+     * searching the comments by String.contains().
+     */
+    @Test
+    public void testFindEntryIdsCompareWithContains() {
+        final Random random = DataTestFixture.createRandom();
+        final Map<Long, String> comments = new HashMap<>();
+
+        index.clear();
+        for (long id = 1; id <= 1000; id++) {
+            final String comment = DataTestFixture.createRandomComment(random);
+            comments.put(id, comment);
+            index.add(id, comment);
+        }
+
+        // remove some comments for checking the incremental maintenance
+        for (long id = 1; id <= 1000; id += 7) {
+            comments.remove(id);
+            index.remove(id);
+        }
+
+        for (String[] searchWords : new String[][]{{"run"}, {"unn"}, {"ark", "ik"}, {"r", "i", "n"}, {"xyz"}}) {
+            final Set<Long> expectedIds = new HashSet<>();
+            comments.forEach((id, comment) -> {
+                boolean containsAll = true;
+                for (String searchWord : searchWords) {
+                    containsAll &= comment.toLowerCase().contains(searchWord);
+                }
+                if (containsAll) {
+                    expectedIds.add(id);
+                }
+            });
+
+            assertEquals(expectedIds, index.findEntryIds(searchWords));
+        }
+        assertTrue(index.findEntryIds(new String[]{"run"}).size() > 0);
+    }
+}
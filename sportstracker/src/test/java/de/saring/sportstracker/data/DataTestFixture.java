@@ -0,0 +1,130 @@
+package de.saring.sportstracker.data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test data for the unit tests of the incrementally maintained structures of the entries (e.g. the prefix sums,
+ * the aggregate cube or the weight series). The random test data is created with a fixed seed, so all tests are
+ * reproducible.
+ *
+ * @author Stefan Saring
+ */
+public final class DataTestFixture {
+
+    /** IDs of the sport types of the random exercises. */
+    public static final long[] SPORT_TYPE_IDS = {1L, 2L};
+
+    /** IDs of the sport subtypes of the random exercises. */
+    public static final long[] SPORT_SUBTYPE_IDS = {10L, 11L};
+
+    /** IDs of the equipment of the random exercises, null for the exercises without equipment. */
+    public static final Long[] EQUIPMENT_IDS = {null, 20L, 21L};
+
+    /** Words of the random comments. */
+    public static final String[] COMMENT_WORDS =
+            {"run", "Running", "bike", "tour", "lake", "Park", "swim", "hill", "rain", "wind"};
+
+    private static final long RANDOM_SEED = 4711L;
+
+    private DataTestFixture() {
+    }
+
+    /**
+     * Creates the random generator for the test data.
+     *
+     * @return the random generator with the fixed seed
+     */
+    public static Random createRandom() {
+        return new Random(RANDOM_SEED);
+    }
+
+    /**
+     * Creates an exercise with the specified sport type at noon of the specified date, all other values are empty.
+     *
+     * @param id ID of the exercise
+     * @param sportTypeId ID of the sport type
+     * @param date date of the exercise
+     * @return the created exercise
+     */
+    public static Exercise createExercise(final long id, final long sportTypeId, final LocalDate date) {
+        final Exercise exercise = new Exercise(id);
+        exercise.setSportType(new SportType(sportTypeId));
+        exercise.setDateTime(LocalDateTime.of(date, LocalTime.NOON));
+        return exercise;
+    }
+
+    /**
+     * Creates an exercise with random values at a random day in the specified range. The sport type, sport subtype
+     * and equipment are taken from the IDs above, the optional values are null randomly.
+     *
+     * @param random the random generator
+     * @param id ID of the exercise
+     * @param firstDay first day of the exercise date range
+     * @param dayCount number of days in the exercise date range
+     * @return the created exercise
+     */
+    public static Exercise createRandomExercise(final Random random, final long id, final LocalDate firstDay,
+                                                final int dayCount) {
+        final Exercise exercise = createExercise(id, SPORT_TYPE_IDS[random.nextInt(SPORT_TYPE_IDS.length)],
+                firstDay.plusDays(random.nextInt(dayCount)));
+        exercise.setSportSubType(new SportSubType(SPORT_SUBTYPE_IDS[random.nextInt(SPORT_SUBTYPE_IDS.length)]));
+        final Long equipmentId = EQUIPMENT_IDS[random.nextInt(EQUIPMENT_IDS.length)];
+        exercise.setEquipment(equipmentId == null ? null : new Equipment(equipmentId));
+
+        final Exercise.IntensityType[] intensities = Exercise.IntensityType.values();
+        exercise.setIntensity(intensities[random.nextInt(intensities.length)]);
+        exercise.setDistance(random.nextInt(10000) / 100d);
+        exercise.setDuration(random.nextInt(10000));
+        exercise.setAvgHeartRate(random.nextBoolean() ? 100 + random.nextInt(80) : null);
+        exercise.setAscent(random.nextBoolean() ? random.nextInt(1000) : null);
+        exercise.setDescent(random.nextBoolean() ? random.nextInt(1000) : null);
+        exercise.setCalories(random.nextBoolean() ? random.nextInt(2000) : null);
+        exercise.setComment(createRandomComment(random));
+        return exercise;
+    }
+
+    /**
+     * Creates a comment of up to 5 random words, separated by spaces or line breaks.
+     *
+     * @param random the random generator
+     * @return the created comment (can be empty)
+     */
+    public static String createRandomComment(final Random random) {
+        final StringBuilder sbComment = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            sbComment.append(COMMENT_WORDS[random.nextInt(COMMENT_WORDS.length)])
+                    .append(random.nextBoolean() ? " " : "\n");
+        }
+        return sbComment.toString();
+    }
+
+    /**
+     * Creates a weight with the specified value at noon of the specified date.
+     *
+     * @param id ID of the weight
+     * @param date date of the weight
+     * @param value the weight value
+     * @return the created weight
+     */
+    public static Weight createWeight(final long id, final LocalDate date, final double value) {
+        final Weight weight = new Weight(id);
+        weight.setDateTime(LocalDateTime.of(date, LocalTime.NOON));
+        weight.setValue(value);
+        return weight;
+    }
+
+    /**
+     * Removes a random entry from the specified list.
+     *
+     * @param random the random generator
+     * @param entries list of the entries
+     * @return the removed entry
+     */
+    public static <T> T removeRandomEntry(final Random random, final List<T> entries) {
+        return entries.remove(random.nextInt(entries.size()));
+    }
+}
@@ -3,8 +3,16 @@ package de.saring.sportstracker.data;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.regex.PatternSyntaxException;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * This class contains all unit tests for the EntryFilter class.
@@ -79,4 +87,90 @@ public class EntryFilterTest {
         assertNull(filter.getSportType());
         assertNull(filter.getSportSubType());
     }
+
+    /**
+     * Test of method compile(): the matcher must check all criteria and must not be affected by later
+     * modifications of the filter.
+     */
+    @Test
+    public void testCompile() {
+        SportType type1 = sportTypeList.getByID(1);
+
+        Exercise exercise = new Exercise(1L);
+        exercise.setDateTime(LocalDateTime.of(2020, 5, 31, 23, 30));
+        exercise.setSportType(type1);
+        exercise.setSportSubType(type1.getSportSubTypeList().getByID(12));
+        exercise.setIntensity(Exercise.IntensityType.NORMAL);
+        exercise.setComment("Evening Ride with Friends");
+
+        EntryFilter filter = EntryFilter.createDefaultExerciseFilter();
+        filter.setDateStart(LocalDate.of(2020, 5, 1));
+        filter.setDateEnd(LocalDate.of(2020, 5, 31));
+        filter.setSportType(type1);
+        filter.setCommentSubString(" friends  evening ");
+
+        EntryFilterMatcher matcher = filter.compile();
+        assertTrue(matcher.matches(exercise));
+
+        filter.setSportType(sportTypeList.getByID(2));
+        filter.setCommentSubString("not contained");
+        assertTrue(matcher.matches(exercise));
+        assertFalse(filter.compile().matches(exercise));
+
+        exercise.setComment("Evening Ride");
+        assertFalse(matcher.matches(exercise));
+
+        exercise.setComment("Evening Ride with Friends");
+        exercise.setDateTime(LocalDateTime.of(2020, 6, 1, 0, 0));
+        assertFalse(matcher.matches(exercise));
+    }
+
+    /**
+     * Test of method compile(): the exercise criteria must be ignored for notes, the comment must be searched in
+     * regular expression mode.
+     */
+    @Test
+    public void testCompileForNotesInRegularExpressionMode() {
+        Note note = new Note(1L);
+        note.setDateTime(LocalDateTime.of(2020, 5, 10, 12, 0));
+        note.setComment("Training plan for week 19");
+
+        EntryFilter filter = EntryFilter.createDefaultExerciseFilter();
+        filter.setEntryType(EntryFilter.EntryType.NOTE);
+        filter.setDateStart(LocalDate.of(2020, 5, 10));
+        filter.setDateEnd(LocalDate.of(2020, 5, 10));
+        filter.setSportType(sportTypeList.getByID(1));
+        filter.setRegularExpressionMode(true);
+
+        filter.setCommentSubString("week [0-9]+");
+        assertTrue(filter.compile().matches(note));
+
+        filter.setCommentSubString("Week [0-9]+");
+        assertFalse(filter.compile().matches(note));
+
+        filter.setCommentSubString("week [0-9");
+        assertThrows(PatternSyntaxException.class, filter::compile);
+    }
+
+    /**
+     * Tests the methods clone() and equals().
+     */
+    @Test
+    public void testCloneAndEquals() {
+        EntryFilter filter = EntryFilter.createDefaultExerciseFilter();
+        filter.setSportType(sportTypeList.getByID(1));
+        filter.setCommentSubString("foo");
+
+        EntryFilter clone = filter.clone();
+        assertEquals(filter, clone);
+        assertEquals(filter.hashCode(), clone.hashCode());
+
+        clone.setSportType(sportTypeList.getByID(2));
+        assertNotEquals(filter, clone);
+        assertEquals(1, filter.getSportType().getId());
+
+        clone.setSportType(sportTypeList.getByID(1));
+        clone.setRegularExpressionMode(true);
+        assertNotEquals(filter, clone);
+    }
 }
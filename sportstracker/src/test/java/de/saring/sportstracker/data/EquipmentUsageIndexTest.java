@@ -0,0 +1,166 @@
+package de.saring.sportstracker.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * This class contains all unit tests for the EquipmentUsageIndex class.
+ *
+ * @author Stefan Saring
+ */
+public class EquipmentUsageIndexTest {
+
+    private final EquipmentUsageIndex usageIndex = new EquipmentUsageIndex();
+
+    /**
+     * Test of the queries without usages: all values must be 0 or null.
+     */
+    @Test
+    public void testEmpty() {
+        usageIndex.add(createExercise(1L, 1L, null, LocalDate.of(2020, 1, 1), 10d, 3600));
+
+        assertEquals(0, usageIndex.getUsageCount(1L, 1L));
+        assertEquals(0d, usageIndex.getDistance(1L, 1L));
+        assertEquals(0d, usageIndex.getDistanceSince(1L, 1L, LocalDate.of(2000, 1, 1)));
+        assertEquals(0L, usageIndex.getDuration(1L, 1L));
+        assertNull(usageIndex.getFirstUsage(1L, 1L));
+        assertNull(usageIndex.getLastUsage(1L, 1L));
+    }
+
+    /**
+     * Test of the queries with a few exercises, the equipment IDs are only unique inside a sport type.
+     */
+    @Test
+    public void testUsage() {
+        Exercise exercise1 = createExercise(1L, 1L, 1L, LocalDate.of(2020, 5, 10), 10d, 3600);
+        Exercise exercise2 = createExercise(2L, 1L, 1L, LocalDate.of(2020, 3, 1), 20d, 1800);
+        Exercise exercise3 = createExercise(3L, 1L, 1L, LocalDate.of(2020, 7, 20), 5d, 900);
+        Exercise exercise4 = createExercise(4L, 2L, 1L, LocalDate.of(2020, 6, 1), 50d, 7200);
+        usageIndex.add(exercise1);
+        usageIndex.add(exercise2);
+        usageIndex.add(exercise3);
+        usageIndex.add(exercise4);
+
+        assertEquals(3, usageIndex.getUsageCount(1L, 1L));
+        assertEquals(35d, usageIndex.getDistance(1L, 1L), 0.0001d);
+        assertEquals(6300L, usageIndex.getDuration(1L, 1L));
+        assertEquals(LocalDate.of(2020, 3, 1), usageIndex.getFirstUsage(1L, 1L));
+        assertEquals(LocalDate.of(2020, 7, 20), usageIndex.getLastUsage(1L, 1L));
+        assertEquals(15d, usageIndex.getDistanceSince(1L, 1L, LocalDate.of(2020, 5, 10)), 0.0001d);
+        assertEquals(5d, usageIndex.getDistanceSince(1L, 1L, LocalDate.of(2020, 5, 11)), 0.0001d);
+        assertEquals(0d, usageIndex.getDistanceSince(1L, 1L, LocalDate.of(2020, 8, 1)));
+        assertEquals(50d, usageIndex.getDistance(2L, 1L), 0.0001d);
+
+        // the removal must work also when the exercise has been modified in the meantime
+        exercise2.setDistance(100d);
+        usageIndex.remove(exercise2);
+        assertEquals(2, usageIndex.getUsageCount(1L, 1L));
+        assertEquals(15d, usageIndex.getDistance(1L, 1L), 0.0001d);
+        assertEquals(LocalDate.of(2020, 5, 10), usageIndex.getFirstUsage(1L, 1L));
+
+        usageIndex.clear();
+        assertEquals(0, usageIndex.getUsageCount(2L, 1L));
+    }
+
+    /**
+     * Test with usages at a single day and at the first and last day of the usage range: the distance since
+     * these days must include all usages at this day.
+     */
+    @Test
+    public void testUsageFirstAndLastDay() {
+        final LocalDate firstDay = LocalDate.of(2020, 1, 1);
+        final LocalDate lastDay = LocalDate.of(2020, 12, 31);
+        usageIndex.add(createExercise(1L, 1L, 1L, lastDay, 4d, 600));
+        usageIndex.add(createExercise(2L, 1L, 1L, firstDay, 1d, 600));
+        usageIndex.add(createExercise(3L, 1L, 1L, lastDay, 8d, 600));
+        usageIndex.add(createExercise(4L, 1L, 1L, firstDay, 2d, 600));
+
+        assertEquals(LocalDate.of(2020, 1, 1), usageIndex.getFirstUsage(1L, 1L));
+        assertEquals(LocalDate.of(2020, 12, 31), usageIndex.getLastUsage(1L, 1L));
+        assertEquals(15d, usageIndex.getDistanceSince(1L, 1L, firstDay), 0.0001d);
+        assertEquals(12d, usageIndex.getDistanceSince(1L, 1L, firstDay.plusDays(1)), 0.0001d);
+        assertEquals(12d, usageIndex.getDistanceSince(1L, 1L, lastDay), 0.0001d);
+        assertEquals(0d, usageIndex.getDistanceSince(1L, 1L, lastDay.plusDays(1)));
+
+        // usages with the same day can be removed in any order
+        final Exercise exercise5 = createExercise(5L, 1L, 2L, lastDay, 3d, 60);
+        usageIndex.add(exercise5);
+        usageIndex.remove(exercise5);
+        assertEquals(0, usageIndex.getUsageCount(1L, 2L));
+        assertNull(usageIndex.getLastUsage(1L, 2L));
+    }
+
+    /**
+     * Test of remove(): the added usage must be removed, also when the equipment, sport type and date of the
+     * exercise have been modified after adding.
+     */
+    @Test
+    public void testRemoveModifiedExercise() {
+        final Exercise exercise1 = createExercise(1L, 1L, 1L, LocalDate.of(2020, 5, 10), 10d, 3600);
+        usageIndex.add(exercise1);
+        usageIndex.add(createExercise(2L, 1L, 1L, LocalDate.of(2020, 5, 10), 20d, 1800));
+
+        exercise1.setSportType(new SportType(2L));
+        exercise1.setEquipment(new Equipment(2L));
+        exercise1.setDateTime(exercise1.getDateTime().plusDays(10));
+        usageIndex.remove(exercise1);
+        usageIndex.remove(exercise1);
+
+        assertEquals(1, usageIndex.getUsageCount(1L, 1L));
+        assertEquals(20d, usageIndex.getDistance(1L, 1L), 0.0001d);
+        assertEquals(1800L, usageIndex.getDuration(1L, 1L));
+        assertEquals(0, usageIndex.getUsageCount(2L, 2L));
+    }
+
+    /**
+     * Test with many random exercises added in random date order and removed in between: the distance since
+     * random dates must be the same as the sums of the exercises.
+     */
+    @Test
+    public void testGetDistanceSinceCompareWithExerciseSums() {
+        final Random random = DataTestFixture.createRandom();
+        final LocalDate firstDay = LocalDate.of(2015, 1, 1);
+        final List<Exercise> exercises = new ArrayList<>();
+
+        for (long id = 1; id <= 3000; id++) {
+            final Exercise exercise = DataTestFixture.createRandomExercise(random, id, firstDay, 2000);
+            exercises.add(exercise);
+            usageIndex.add(exercise);
+
+            if (id % 500 == 0) {
+                for (int i = 0; i < 100; i++) {
+                    usageIndex.remove(DataTestFixture.removeRandomEntry(random, exercises));
+                }
+
+                for (int i = 0; i < 50; i++) {
+                    final long sportTypeId = DataTestFixture.SPORT_TYPE_IDS[random.nextInt(2)];
+                    final long equipmentId = DataTestFixture.EQUIPMENT_IDS[1 + random.nextInt(2)];
+                    final LocalDate dateSince = firstDay.plusDays(random.nextInt(2100) - 50);
+                    final double expected = exercises.stream()
+                            .filter(e -> e.getSportTypeId() == sportTypeId)
+                            .filter(e -> e.getEquipmentId() != null && e.getEquipmentId() == equipmentId)
+                            .filter(e -> !e.getDateTime().toLocalDate().isBefore(dateSince))
+                            .mapToDouble(Exercise::getDistance).sum();
+                    assertEquals(expected, usageIndex.getDistanceSince(sportTypeId, equipmentId, dateSince),
+                            0.001d);
+                }
+            }
+        }
+    }
+
+    private static Exercise createExercise(final long id, final long sportTypeId, final Long equipmentId,
+                                           final LocalDate date, final double distance, final int duration) {
+        final Exercise exercise = DataTestFixture.createExercise(id, sportTypeId, date);
+        exercise.setEquipment(equipmentId == null ? null : new Equipment(equipmentId));
+        exercise.setDistance(distance);
+        exercise.setDuration(duration);
+        return exercise;
+    }
+}
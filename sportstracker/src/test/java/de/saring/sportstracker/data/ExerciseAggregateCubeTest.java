@@ -0,0 +1,195 @@
+package de.saring.sportstracker.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class contains all unit tests for the ExerciseAggregateCube class.
+ *
+ * @author Stefan Saring
+ */
+public class ExerciseAggregateCubeTest {
+
+    private ExerciseAggregateCube cube;
+    private List<Exercise> exercises;
+
+    /**
+     * This method initializes the environment for testing: it creates many random exercises in 3 years (see
+     * {@link DataTestFixture#createRandomExercise}).
+     */
+    @BeforeEach
+    public void setUp() {
+        final Random random = DataTestFixture.createRandom();
+        final LocalDate firstDay = LocalDate.of(2019, 1, 1);
+
+        cube = new ExerciseAggregateCube();
+        exercises = new ArrayList<>();
+
+        for (long id = 1; id <= 2000; id++) {
+            final Exercise exercise = DataTestFixture.createRandomExercise(random, id, firstDay, 3 * 365);
+            exercises.add(exercise);
+            cube.add(exercise);
+        }
+    }
+
+    /**
+     * Test of the query methods for an empty cube: all aggregates must be empty.
+     */
+    @Test
+    public void testEmpty() {
+        cube.clear();
+        exercises.clear();
+        assertQueriesForRange(LocalDate.of(2019, 1, 1), LocalDate.of(2021, 12, 31));
+        assertEquals(0, new ExerciseAggregateCube().getTotal(LocalDate.of(2020, 1, 1),
+                LocalDate.of(2020, 1, 1)).getCount());
+    }
+
+    /**
+     * Test of the query methods for single days, including the first and last day of a month and year.
+     */
+    @Test
+    public void testQueriesForSingleDays() {
+        for (LocalDate date : new LocalDate[]{LocalDate.of(2019, 1, 1), LocalDate.of(2020, 2, 29),
+                LocalDate.of(2020, 3, 1), LocalDate.of(2020, 12, 31), LocalDate.of(2021, 12, 31)}) {
+            assertQueriesForRange(date, date);
+        }
+    }
+
+    /**
+     * Test of the query methods for ranges starting or ending at the first or last day of a month or year, so
+     * complete and partial month and year cells are combined.
+     */
+    @Test
+    public void testQueriesForFirstAndLastDayOfRanges() {
+        assertQueriesForRange(LocalDate.of(2019, 12, 31), LocalDate.of(2020, 12, 31));
+        assertQueriesForRange(LocalDate.of(2020, 1, 1), LocalDate.of(2021, 1, 1));
+        assertQueriesForRange(LocalDate.of(2020, 1, 31), LocalDate.of(2020, 3, 1));
+        assertQueriesForRange(LocalDate.of(2020, 2, 1), LocalDate.of(2020, 3, 31));
+        assertQueriesForRange(LocalDate.of(2018, 12, 1), LocalDate.of(2019, 1, 31));
+    }
+
+    /**
+     * Test of the query methods for weeks starting on Sunday, also when they span two months or two years.
+     */
+    @Test
+    public void testQueriesForWeeksStartingOnSunday() {
+        LocalDate weekStart = LocalDate.of(2019, 12, 29);
+        assertEquals(DayOfWeek.SUNDAY, weekStart.getDayOfWeek());
+        for (int i = 0; i < 60; i++) {
+            assertQueriesForRange(weekStart, weekStart.plusDays(6));
+            weekStart = weekStart.plusWeeks(1);
+        }
+    }
+
+    /**
+     * Test of all query methods: the aggregates for various time ranges (days, weeks, months, years and
+     * unaligned ranges) must be the same as the sums of the matching exercises.
+     */
+    @Test
+    public void testQueriesCompareWithExerciseSums() {
+        assertQueriesForRange(LocalDate.of(2019, 1, 1), LocalDate.of(2021, 12, 31));
+        assertQueriesForRange(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31));
+        assertQueriesForRange(LocalDate.of(2020, 2, 1), LocalDate.of(2020, 2, 29));
+        assertQueriesForRange(LocalDate.of(2020, 3, 2), LocalDate.of(2020, 3, 8));
+        assertQueriesForRange(LocalDate.of(2019, 11, 17), LocalDate.of(2021, 2, 3));
+        assertQueriesForRange(LocalDate.of(2021, 6, 6), LocalDate.of(2021, 6, 6));
+        assertQueriesForRange(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31));
+    }
+
+    /**
+     * Test of remove(): the removed exercises must not be included anymore, also when their date, sport type,
+     * sport subtype, equipment and values have been modified after adding.
+     */
+    @Test
+    public void testRemove() {
+        for (int i = 0; i < exercises.size(); i += 3) {
+            final Exercise exercise = exercises.get(i);
+            exercise.setDistance(exercise.getDistance() + 1000);
+            exercise.setDateTime(exercise.getDateTime().plusYears(1));
+            exercise.setSportType(new SportType(3L - exercise.getSportTypeId()));
+            exercise.setSportSubType(new SportSubType(10L));
+            exercise.setEquipment(null);
+            cube.remove(exercise);
+        }
+        for (int i = 0; i < exercises.size(); i += 3) {
+            exercises.set(i, null);
+        }
+        exercises.removeIf(exercise -> exercise == null);
+
+        assertQueriesForRange(LocalDate.of(2019, 1, 1), LocalDate.of(2021, 12, 31));
+        assertQueriesForRange(LocalDate.of(2019, 11, 17), LocalDate.of(2021, 2, 3));
+
+        exercises.forEach(cube::remove);
+        exercises.clear();
+        assertQueriesForRange(LocalDate.of(2019, 1, 1), LocalDate.of(2021, 12, 31));
+    }
+
+    /**
+     * Test of the query methods for an invalid time range.
+     */
+    @Test
+    public void testInvalidRange() {
+        assertThrows(IllegalArgumentException.class, () ->
+                cube.getTotal(LocalDate.of(2020, 1, 2), LocalDate.of(2020, 1, 1)));
+    }
+
+    /**
+     * Test of the first and last year: they must be null for an empty cube.
+     */
+    @Test
+    public void testFirstAndLastYear() {
+        assertEquals(2019, cube.getFirstYear());
+        assertEquals(2021, cube.getLastYear());
+
+        cube.clear();
+        assertNull(cube.getFirstYear());
+        assertNull(cube.getLastYear());
+    }
+
+    private void assertQueriesForRange(final LocalDate dateStart, final LocalDate dateEnd) {
+        final Predicate<Exercise> inRange = exercise -> !exercise.getDateTime().toLocalDate().isBefore(dateStart)
+                && !exercise.getDateTime().toLocalDate().isAfter(dateEnd);
+
+        assertAggregate(sum(inRange), cube.getTotal(dateStart, dateEnd));
+        for (long stId : DataTestFixture.SPORT_TYPE_IDS) {
+            final Predicate<Exercise> inSportType = inRange.and(exercise -> exercise.getSportTypeId() == stId);
+            assertAggregate(sum(inSportType), cube.getForSportType(stId, dateStart, dateEnd));
+
+            for (long sstId : DataTestFixture.SPORT_SUBTYPE_IDS) {
+                assertAggregate(sum(inSportType.and(exercise -> exercise.getSportSubTypeId() == sstId)),
+                        cube.getForSportSubType(stId, sstId, dateStart, dateEnd));
+            }
+            for (Long equipmentId : DataTestFixture.EQUIPMENT_IDS) {
+                assertAggregate(sum(inSportType.and(exercise -> equipmentId == null ?
+                                exercise.getEquipmentId() == null : equipmentId.equals(exercise.getEquipmentId()))),
+                        cube.getForEquipment(stId, equipmentId, dateStart, dateEnd));
+            }
+        }
+    }
+
+    private ExerciseAggregate sum(final Predicate<Exercise> condition) {
+        final ExerciseAggregate aggregate = new ExerciseAggregate();
+        exercises.stream().filter(condition).forEach(aggregate::add);
+        return aggregate;
+    }
+
+    private static void assertAggregate(final ExerciseAggregate expected, final ExerciseAggregate actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getDistance(), actual.getDistance(), 0.0001d);
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getAscent(), actual.getAscent());
+        assertEquals(expected.getDescent(), actual.getDescent());
+        assertEquals(expected.getCalories(), actual.getCalories());
+    }
+}
@@ -5,6 +5,8 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.PatternSyntaxException;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -118,13 +120,14 @@ public class ExerciseListTest {
         sportType2New.setName("SportType 2 - New");
         sportTypeList.set(sportType2New);
 
-        // the exercise will still have the old sport type
-        // => after UpdateSportTypes() it needs to reference to the new sport type
-        assertEquals("SportType 2", exercise3.getSportType().getName());
+        // the exercise list uses this sport type list already
+        // => the exercise references to the new sport type immediately, also after UpdateSportTypes()
+        assertEquals("SportType 2 - New", exercise3.getSportType().getName());
+        assertEquals("SportSubType 22 - New", exercise3.getSportSubType().getName());
         list.updateSportTypes(sportTypeList);
         assertEquals("SportType 2 - New", exercise3.getSportType().getName());
 
-        // clone, edit and store the Equipment 22 (the way the GUI editor works)
+        // clone, edit and store the Equipment 22 in the sport type directly
         Equipment equipment22Old = sportTypeList.getByID(2).getEquipmentList().getByID(22);
         assertEquals("Equipment 22", equipment22Old.getName());
         Equipment equipment22New = (Equipment) equipment22Old.clone();
@@ -551,4 +554,304 @@ public class ExerciseListTest {
         assertThrows(PatternSyntaxException.class, () ->
             list.getEntriesForFilter(filter));
     }
+
+    /**
+     * Test of getEntriesForFilter(): the attribute indexes must be up to date after adding, replacing and removing
+     * exercises.
+     */
+    @Test
+    public void testGetEntriesForFilterAfterModifications() {
+
+        EntryFilter filter = new EntryFilter();
+        filter.setDateStart(null);
+        filter.setDateEnd(null);
+        filter.setSportType(sportTypeList.getByID(1));
+        filter.setIntensity(Exercise.IntensityType.LOW);
+        assertEquals(1, list.getEntriesForFilter(filter).size());
+
+        // add a new exercise for this filter
+        Exercise exe4 = new Exercise(4L);
+        exe4.setSportType(sportTypeList.getByID(1));
+        exe4.setSportSubType(sportTypeList.getByID(1).getSportSubTypeList().getByID(11));
+        exe4.setDateTime(LocalDateTime.of(2003, 9, 10, 0, 0, 0));
+        exe4.setIntensity(Exercise.IntensityType.LOW);
+        list.set(exe4);
+
+        EntryList<Exercise> exeList = list.getEntriesForFilter(filter);
+        assertEquals(2, exeList.size());
+        assertEquals(1, exeList.getAt(0).getId());
+        assertEquals(4, exeList.getAt(1).getId());
+
+        // replace exercise 1 by a modified copy which does not match anymore
+        Exercise exe1Modified = list.getByID(1).clone(1L);
+        exe1Modified.setIntensity(Exercise.IntensityType.HIGH);
+        list.set(exe1Modified);
+
+        exeList = list.getEntriesForFilter(filter);
+        assertEquals(1, exeList.size());
+        assertEquals(4, exeList.getAt(0).getId());
+
+        // remove exercise 2 (all following positions are moved)
+        filter.setIntensity(null);
+        assertTrue(list.removeByID(2));
+
+        exeList = list.getEntriesForFilter(filter);
+        assertEquals(2, exeList.size());
+        assertEquals(1, exeList.getAt(0).getId());
+        assertEquals(4, exeList.getAt(1).getId());
+    }
+
+    /**
+     * Test of getEntriesForFilter(): the bitmap indexes must keep the unused rows of removed exercises, also for
+     * removals in bulk and until the indexes are compacted after many removals.
+     */
+    @Test
+    public void testGetEntriesForFilterAfterRemovals() {
+        for (long id = 10; id < 3010; id++) {
+            Exercise exercise = new Exercise(id);
+            exercise.setSportType(sportTypeList.getByID(1 + id % 2));
+            exercise.setDateTime(LocalDateTime.of(2004, 1, 1, 0, 0, 0));
+            exercise.setIntensity(id % 3 == 0 ? Exercise.IntensityType.LOW : Exercise.IntensityType.HIGH);
+            list.set(exercise);
+        }
+
+        EntryFilter filter = new EntryFilter();
+        filter.setDateStart(null);
+        filter.setDateEnd(null);
+        filter.setSportType(sportTypeList.getByID(1));
+        filter.setIntensity(Exercise.IntensityType.LOW);
+        assertEquals(501, list.getEntriesForFilter(filter).size());
+
+        // remove exercise 2 and the first 1000 of the new exercises one by one
+        assertTrue(list.removeByID(2));
+        for (long id = 10; id < 1010; id++) {
+            assertTrue(list.removeByID(id));
+        }
+        assertEquals(List.of(1L, 1014L, 1020L), list.getEntriesForFilter(filter).stream()
+                .limit(3).map(Exercise::getId).toList());
+        assertEquals(334, list.getEntriesForFilter(filter).size());
+
+        // remove the next 1500 exercises in bulk, the indexes get compacted
+        final List<Long> removedIds = new ArrayList<>();
+        for (long id = 1010; id < 2510; id++) {
+            removedIds.add(id);
+        }
+        assertEquals(1500, list.removeAllByID(removedIds));
+
+        final EntryList<Exercise> exeList = list.getEntriesForFilter(filter);
+        assertEquals(84, exeList.size());
+        assertEquals(1, exeList.getAt(0).getId());
+        assertEquals(2514, exeList.getAt(1).getId());
+        assertEquals(3006, exeList.getAt(83).getId());
+    }
+
+    /**
+     * Test of getEntriesForFilter(): no exercises must be found for an equipment which is not used.
+     */
+    @Test
+    public void testGetEntriesForFilterUnusedEquipment() {
+
+        EntryFilter filter = new EntryFilter();
+        filter.setDateStart(LocalDate.of(2003, 1, 1));
+        filter.setDateEnd(LocalDate.of(2003, 12, 31));
+        filter.setSportType(sportTypeList.getByID(2));
+        filter.setEquipment(sportTypeList.getByID(2).getEquipmentList().getByID(21));
+        assertEquals(0, list.getEntriesForFilter(filter).size());
+
+        filter.setEquipment(sportTypeList.getByID(2).getEquipmentList().getByID(22));
+        EntryList<Exercise> exeList = list.getEntriesForFilter(filter);
+        assertEquals(1, exeList.size());
+        assertEquals(3, exeList.getAt(0).getId());
+    }
+
+    /**
+     * Tests the resolving of the sport type, subtype and equipment by the sport type list: exercises added
+     * to the list need to use it, exercises not in a list or with unknown sport types keep their objects.
+     */
+    @Test
+    public void testSportTypeReferencesResolvedBySportTypeList() {
+        list.updateSportTypes(sportTypeList);
+
+        SportType sportType1 = sportTypeList.getByID(1);
+        SportType sportType1New = (SportType) sportType1.clone();
+        SportSubType sportSubType11New = sportType1New.getSportSubTypeList().getByID(11);
+
+        // exercise not in list: uses the objects which have been set
+        Exercise exercise4 = new Exercise(4L);
+        exercise4.setSportType(sportType1New);
+        exercise4.setSportSubType(sportSubType11New);
+        exercise4.setIntensity(Exercise.IntensityType.LOW);
+        assertSame(sportType1New, exercise4.getSportType());
+
+        // exercise added to list: uses the registered objects with the same IDs
+        list.set(exercise4);
+        assertSame(sportType1, exercise4.getSportType());
+        assertSame(sportType1.getSportSubTypeList().getByID(11), exercise4.getSportSubType());
+        assertEquals(11L, exercise4.getSportSubTypeId());
+
+        // sport type replaced in the registry: all exercises use the new one
+        sportTypeList.set(sportType1New);
+        assertSame(sportType1New, exercise4.getSportType());
+        assertSame(sportSubType11New, exercise4.getSportSubType());
+        assertSame(sportType1New, list.getByID(1).getSportType());
+
+        // unknown sport type: the object which has been set is kept
+        SportType sportType3 = new SportType(3L);
+        exercise4.setSportType(sportType3);
+        assertSame(sportType3, exercise4.getSportType());
+    }
+
+    /**
+     * Test of getAggregateCube(): the cube needs to be updated on all list modifications after its creation.
+     */
+    @Test
+    public void testGetAggregateCubeAfterModifications() {
+        list.getByID(1).setDistance(10);
+        list.getByID(2).setDistance(20);
+        list.getByID(3).setDistance(30);
+        final LocalDate dateStart = LocalDate.of(2003, 8, 1);
+        final LocalDate dateEnd = LocalDate.of(2003, 9, 30);
+
+        ExerciseAggregateCube cube = list.getAggregateCube();
+        assertEquals(3, cube.getTotal(dateStart, dateEnd).getCount());
+        assertEquals(30d, cube.getForSportType(1L, dateStart, dateEnd).getDistance(), 0.0001d);
+
+        // replace exercise 2 by a modified instance, add exercise 4 and remove exercise 1
+        Exercise exercise2 = list.getByID(2).clone(2L);
+        exercise2.setDistance(25);
+        list.set(exercise2);
+
+        Exercise exercise4 = new Exercise(4L);
+        exercise4.setSportType(sportTypeList.getByID(2));
+        exercise4.setSportSubType(sportTypeList.getByID(2).getSportSubTypeList().getByID(21));
+        exercise4.setDateTime(LocalDateTime.of(2003, 9, 10, 0, 0, 0));
+        exercise4.setDistance(40);
+        list.set(exercise4);
+        list.removeByID(1);
+
+        assertSame(cube, list.getAggregateCube());
+        assertEquals(3, cube.getTotal(dateStart, dateEnd).getCount());
+        assertEquals(95d, cube.getTotal(dateStart, dateEnd).getDistance(), 0.0001d);
+        assertEquals(25d, cube.getForSportType(1L, dateStart, dateEnd).getDistance(), 0.0001d);
+        assertEquals(40d, cube.getForEquipment(2L, null, dateStart, dateEnd).getDistance(), 0.0001d);
+        assertEquals(30d, cube.getForEquipment(2L, 22L, dateStart, dateEnd).getDistance(), 0.0001d);
+
+        // replacing the list content creates a new cube
+        list.clearAndAddAll(List.of(exercise4));
+        assertEquals(40d, list.getAggregateCube().getTotal(dateStart, dateEnd).getDistance(), 0.0001d);
+    }
+
+    /**
+     * Test of getPrefixSums(): the cumulative sums need to be updated on all list modifications after their creation.
+     */
+    @Test
+    public void testGetPrefixSumsAfterModifications() {
+        list.getByID(1).setDistance(10);
+        list.getByID(2).setDistance(20);
+        final LocalDate dateStart = LocalDate.of(2003, 8, 1);
+        final LocalDate dateEnd = LocalDate.of(2003, 9, 30);
+
+        ExercisePrefixSums prefixSums = list.getPrefixSums();
+        assertEquals(30d, prefixSums.getTotal(ExercisePrefixSums.Metric.DISTANCE, dateStart, dateEnd), 0.0001d);
+
+        Exercise exercise2 = list.getByID(2).clone(2L);
+        exercise2.setDistance(25);
+        exercise2.setDateTime(LocalDateTime.of(2003, 10, 5, 0, 0, 0));
+        list.set(exercise2);
+        list.removeByID(3);
+
+        assertSame(prefixSums, list.getPrefixSums());
+        assertEquals(10d, prefixSums.getTotal(ExercisePrefixSums.Metric.DISTANCE, dateStart, dateEnd), 0.0001d);
+        assertEquals(2d, prefixSums.getTotal(ExercisePrefixSums.Metric.COUNT, dateStart, dateEnd.plusDays(5)));
+        assertEquals(25d, prefixSums.getTotalForSportType(1L, ExercisePrefixSums.Metric.DISTANCE,
+                dateEnd.toEpochDay(), dateEnd.plusDays(5).toEpochDay()), 0.0001d);
+    }
+
+    /**
+     * Test of removeAllByID(): the aggregate cube and the cumulative sums must not be recreated when many exercises
+     * are removed in bulk, they need to be updated incrementally.
+     */
+    @Test
+    public void testGetAggregatesAfterBulkRemoval() {
+        final LocalDate dateStart = LocalDate.of(2003, 8, 1);
+        final LocalDate dateEnd = LocalDate.of(2003, 9, 30);
+        for (long id = 10; id < 50; id++) {
+            Exercise exercise = new Exercise(id);
+            exercise.setSportType(sportTypeList.getByID(1));
+            exercise.setSportSubType(sportTypeList.getByID(1).getSportSubTypeList().getByID(11));
+            exercise.setDateTime(LocalDateTime.of(2003, 9, (int) (id % 30) + 1, 12, 0, 0));
+            exercise.setDistance(id);
+            list.set(exercise);
+        }
+
+        ExerciseAggregateCube cube = list.getAggregateCube();
+        ExercisePrefixSums prefixSums = list.getPrefixSums();
+        assertEquals(43, cube.getTotal(dateStart, dateEnd).getCount());
+
+        // remove the exercises 2 and 10 - 29
+        final List<Long> removedIds = new ArrayList<>(List.of(2L));
+        for (long id = 10; id < 30; id++) {
+            removedIds.add(id);
+        }
+        assertEquals(21, list.removeAllByID(removedIds));
+
+        assertSame(cube, list.getAggregateCube());
+        assertSame(prefixSums, list.getPrefixSums());
+        final double expectedDistance = (30 + 49) * 20 / 2d;
+        assertEquals(22, cube.getTotal(dateStart, dateEnd).getCount());
+        assertEquals(expectedDistance, cube.getForSportType(1L, dateStart, dateEnd).getDistance(), 0.0001d);
+        assertEquals(22d, prefixSums.getTotal(ExercisePrefixSums.Metric.COUNT, dateStart, dateEnd), 0.0001d);
+        assertEquals(expectedDistance, prefixSums.getTotal(ExercisePrefixSums.Metric.DISTANCE, dateStart, dateEnd),
+                0.0001d);
+        assertTrue(list.getEntriesInDateRange(LocalDate.of(2003, 8, 20), LocalDate.of(2003, 8, 20)).isEmpty());
+        assertEquals(List.of(list.getByID(1), list.getByID(31)),
+                list.getEntriesInDateRange(LocalDate.of(2003, 9, 2), LocalDate.of(2003, 9, 2)));
+    }
+
+    /**
+     * Test of getTrainingLoad(): the training load needs to be updated on all list modifications after its creation.
+     */
+    @Test
+    public void testGetTrainingLoadAfterModifications() {
+        list.getByID(2).setDuration(3600);
+        final LocalDate date = list.getByID(2).getDateTime().toLocalDate();
+        final double loadBefore = list.getTrainingLoad().getAcuteLoad(date);
+
+        Exercise exercise2 = list.getByID(2).clone(2L);
+        exercise2.setDuration(7200);
+        list.set(exercise2);
+        final double loadDoubleDuration = list.getTrainingLoad().getAcuteLoad(date);
+        assertTrue(loadDoubleDuration > loadBefore);
+
+        list.removeByID(2);
+        ExerciseTrainingLoad expected = new ExerciseTrainingLoad();
+        list.forEach(expected::add);
+        assertEquals(expected.getAcuteLoad(date), list.getTrainingLoad().getAcuteLoad(date), 0.0001d);
+        assertEquals(expected.getChronicLoad(date), list.getTrainingLoad().getChronicLoad(date), 0.0001d);
+    }
+
+    /**
+     * Test of getEquipmentUsageIndex(): the index needs to be updated on all list modifications after its creation.
+     */
+    @Test
+    public void testGetEquipmentUsageIndexAfterModifications() {
+        Exercise exercise1 = list.getByID(1);
+        long sportTypeId = exercise1.getSportTypeId();
+        Equipment equipment = new Equipment(7L);
+        exercise1.getSportType().getEquipmentList().set(equipment);
+        exercise1.setEquipment(equipment);
+        exercise1.setDistance(10);
+
+        EquipmentUsageIndex usageIndex = list.getEquipmentUsageIndex();
+        assertEquals(10d, usageIndex.getDistance(sportTypeId, 7L), 0.0001d);
+
+        Exercise exercise1Copy = exercise1.clone(1L);
+        exercise1Copy.setDistance(30);
+        list.set(exercise1Copy);
+        assertSame(usageIndex, list.getEquipmentUsageIndex());
+        assertEquals(30d, usageIndex.getDistance(sportTypeId, 7L), 0.0001d);
+
+        list.removeByID(1);
+        assertEquals(0, usageIndex.getUsageCount(sportTypeId, 7L));
+    }
 }
@@ -0,0 +1,156 @@
+package de.saring.sportstracker.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.saring.sportstracker.data.ExercisePrefixSums.Metric;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class contains all unit tests for the ExercisePrefixSums class.
+ *
+ * @author Stefan Saring
+ */
+public class ExercisePrefixSumsTest {
+
+    private final ExercisePrefixSums prefixSums = new ExercisePrefixSums();
+
+    /**
+     * Test of getTotal(): the totals must be 0 when there are no exercises.
+     */
+    @Test
+    public void testGetTotalEmpty() {
+        assertEquals(0d, prefixSums.getTotal(Metric.DISTANCE, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31)));
+        assertEquals(0d, prefixSums.getTotalForSportType(1L, Metric.COUNT, 0, 100_000));
+        assertThrows(IllegalArgumentException.class, () -> prefixSums.getTotal(Metric.COUNT, 10, 9));
+    }
+
+    /**
+     * Test of getTotal() with exercises at a single day: only ranges including this day must contain them.
+     */
+    @Test
+    public void testGetTotalSingleDay() {
+        final LocalDate date = LocalDate.of(2020, 6, 15);
+        prefixSums.add(createExercise(1L, 1L, date, 10d));
+        prefixSums.add(createExercise(2L, 2L, date, 5d));
+
+        assertEquals(15d, prefixSums.getTotal(Metric.DISTANCE, date, date));
+        assertEquals(2d, prefixSums.getTotal(Metric.COUNT, date.minusYears(1), date.plusYears(1)));
+        assertEquals(5d, prefixSums.getTotalForSportType(2L, Metric.DISTANCE, date.toEpochDay(), date.toEpochDay()));
+        assertEquals(0d, prefixSums.getTotal(Metric.COUNT, date.minusDays(10), date.minusDays(1)));
+        assertEquals(0d, prefixSums.getTotal(Metric.COUNT, date.plusDays(1), date.plusDays(10)));
+    }
+
+    /**
+     * Test of getTotal() for ranges starting or ending at the first or last day of the contained exercises.
+     */
+    @Test
+    public void testGetTotalFirstAndLastDayOfRange() {
+        final LocalDate firstDay = LocalDate.of(2020, 1, 1);
+        final LocalDate lastDay = LocalDate.of(2020, 12, 31);
+        prefixSums.add(createExercise(1L, 1L, LocalDate.of(2020, 7, 1), 20d));
+        prefixSums.add(createExercise(2L, 1L, lastDay, 30d));
+        prefixSums.add(createExercise(3L, 1L, firstDay, 10d));
+
+        assertEquals(10d, prefixSums.getTotal(Metric.DISTANCE, firstDay, firstDay));
+        assertEquals(30d, prefixSums.getTotal(Metric.DISTANCE, lastDay, lastDay));
+        assertEquals(20d, prefixSums.getTotal(Metric.DISTANCE, firstDay.plusDays(1), lastDay.minusDays(1)));
+        assertEquals(60d, prefixSums.getTotal(Metric.DISTANCE, firstDay, lastDay));
+        assertEquals(30d, prefixSums.getTotal(Metric.DISTANCE, firstDay.minusDays(1), LocalDate.of(2020, 7, 1)));
+        assertEquals(50d, prefixSums.getTotal(Metric.DISTANCE, firstDay.plusDays(1), lastDay.plusDays(1)));
+    }
+
+    /**
+     * Test of remove(): the added values must be removed, also when the exercise has been modified after adding.
+     */
+    @Test
+    public void testRemoveModifiedExercise() {
+        final LocalDate date = LocalDate.of(2020, 6, 15);
+        final Exercise exercise = createExercise(1L, 1L, date, 10d);
+        prefixSums.add(exercise);
+        prefixSums.add(createExercise(2L, 1L, date, 5d));
+
+        exercise.setDistance(100d);
+        exercise.setDateTime(exercise.getDateTime().plusDays(5));
+        exercise.setSportType(new SportType(2L));
+        prefixSums.remove(exercise);
+        prefixSums.remove(exercise);
+
+        assertEquals(5d, prefixSums.getTotal(Metric.DISTANCE, date, date.plusDays(5)));
+        assertEquals(1d, prefixSums.getTotalForSportType(1L, Metric.COUNT, date.toEpochDay(), date.toEpochDay()));
+        assertEquals(0d, prefixSums.getTotalForSportType(2L, Metric.COUNT, date.toEpochDay(),
+                date.plusDays(5).toEpochDay()));
+    }
+
+    /**
+     * Test of getTotal() and getTotalForSportType() with many random exercises: the totals of random date ranges
+     * must be the same as the sums of the exercises. Exercises are added in random date order (so the day range
+     * grows in both directions) and some of them are removed between the queries.
+     */
+    @Test
+    public void testGetTotalCompareWithExerciseSums() {
+        final Random random = DataTestFixture.createRandom();
+        final LocalDate firstDay = LocalDate.of(2015, 1, 1);
+        final List<Exercise> exercises = new ArrayList<>();
+
+        for (long id = 1; id <= 3000; id++) {
+            final Exercise exercise = DataTestFixture.createRandomExercise(random, id, firstDay, 3000);
+            exercises.add(exercise);
+            prefixSums.add(exercise);
+
+            if (id % 500 == 0) {
+                assertRandomRanges(random, exercises, firstDay.toEpochDay());
+            }
+            if (id % 7 == 0) {
+                final Exercise removedExercise = DataTestFixture.removeRandomEntry(random, exercises);
+                // modification after adding must not have any effect on removal
+                removedExercise.setDistance(1000);
+                prefixSums.remove(removedExercise);
+            }
+        }
+        assertRandomRanges(random, exercises, firstDay.toEpochDay());
+    }
+
+    private void assertRandomRanges(final Random random, final List<Exercise> exercises, final long firstEpochDay) {
+        for (int i = 0; i < 50; i++) {
+            final long dayStart = firstEpochDay - 10 + random.nextInt(3020);
+            final long dayEnd = dayStart + random.nextInt(400);
+            final long sportTypeId = DataTestFixture.SPORT_TYPE_IDS[random.nextInt(2)];
+
+            for (Metric metric : Metric.values()) {
+                assertEquals(sum(exercises, metric, null, dayStart, dayEnd),
+                        prefixSums.getTotal(metric, dayStart, dayEnd), 0.0001d);
+                assertEquals(sum(exercises, metric, sportTypeId, dayStart, dayEnd),
+                        prefixSums.getTotalForSportType(sportTypeId, metric, dayStart, dayEnd), 0.0001d);
+            }
+        }
+    }
+
+    private static double sum(final List<Exercise> exercises, final Metric metric, final Long sportTypeId,
+                              final long dayStart, final long dayEnd) {
+        return exercises.stream()
+                .filter(exercise -> exercise.isInDateRange(dayStart, dayEnd))
+                .filter(exercise -> sportTypeId == null || sportTypeId.equals(exercise.getSportTypeId()))
+                .mapToDouble(exercise -> switch (metric) {
+                    case DISTANCE -> exercise.getDistance();
+                    case DURATION -> exercise.getDuration();
+                    case ASCENT -> exercise.getAscent() == null ? 0 : exercise.getAscent();
+                    case CALORIES -> exercise.getCalories() == null ? 0 : exercise.getCalories();
+                    case COUNT -> 1;
+                })
+                .sum();
+    }
+
+    private static Exercise createExercise(final long id, final long sportTypeId, final LocalDate date,
+                                           final double distance) {
+        final Exercise exercise = DataTestFixture.createExercise(id, sportTypeId, date);
+        exercise.setDistance(distance);
+        return exercise;
+    }
+}
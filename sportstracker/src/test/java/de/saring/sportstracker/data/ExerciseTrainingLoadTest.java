@@ -0,0 +1,163 @@
+package de.saring.sportstracker.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.saring.sportstracker.data.Exercise.IntensityType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * This class contains all unit tests for the ExerciseTrainingLoad class.
+ *
+ * @author Stefan Saring
+ */
+public class ExerciseTrainingLoadTest {
+
+    private static final double ACUTE_DECAY = Math.exp(-1d / ExerciseTrainingLoad.ACUTE_TIME_CONSTANT);
+    private static final double CHRONIC_DECAY = Math.exp(-1d / ExerciseTrainingLoad.CHRONIC_TIME_CONSTANT);
+
+    private final ExerciseTrainingLoad trainingLoad = new ExerciseTrainingLoad();
+
+    /**
+     * Test of getLoad(): the load depends on duration, intensity and average heartrate.
+     */
+    @Test
+    public void testGetLoad() {
+        assertEquals(180d, ExerciseTrainingLoad.getLoad(createExercise(1L, LocalDate.of(2020, 1, 1), 3600,
+                IntensityType.NORMAL, null)), 0.0001d);
+        assertEquals(180d, ExerciseTrainingLoad.getLoad(createExercise(1L, LocalDate.of(2020, 1, 1), 3600,
+                null, null)), 0.0001d);
+        assertEquals(30d, ExerciseTrainingLoad.getLoad(createExercise(1L, LocalDate.of(2020, 1, 1), 1800,
+                IntensityType.MINIMUM, null)), 0.0001d);
+        assertEquals(300d, ExerciseTrainingLoad.getLoad(createExercise(1L, LocalDate.of(2020, 1, 1), 3600,
+                IntensityType.MAXIMUM, 140)), 0.0001d);
+        assertEquals(360d, ExerciseTrainingLoad.getLoad(createExercise(1L, LocalDate.of(2020, 1, 1), 3600,
+                IntensityType.MAXIMUM, 168)), 0.0001d);
+    }
+
+    /**
+     * Test without exercises: all values must be 0.
+     */
+    @Test
+    public void testEmpty() {
+        assertEquals(0d, trainingLoad.getAcuteLoad(LocalDate.of(2020, 1, 1)));
+        assertEquals(0d, trainingLoad.getChronicLoad(LocalDate.of(2020, 1, 1)));
+        assertEquals(0d, trainingLoad.getForm(LocalDate.of(2020, 1, 1)));
+    }
+
+    /**
+     * Test with a single exercise: the averages must be 0 before the exercise and decay after it.
+     */
+    @Test
+    public void testSingleExercise() {
+        final LocalDate date = LocalDate.of(2020, 3, 10);
+        trainingLoad.add(createExercise(1L, date, 3600, IntensityType.NORMAL, null));
+
+        assertEquals(0d, trainingLoad.getAcuteLoad(date.minusDays(1)));
+        assertEquals(180d * (1 - ACUTE_DECAY), trainingLoad.getAcuteLoad(date), 0.0001d);
+        assertEquals(180d * (1 - CHRONIC_DECAY), trainingLoad.getChronicLoad(date), 0.0001d);
+        assertEquals(180d * (1 - ACUTE_DECAY) * Math.pow(ACUTE_DECAY, 10),
+                trainingLoad.getAcuteLoad(date.plusDays(10)), 0.0001d);
+        assertEquals(trainingLoad.getChronicLoad(date.plusDays(3)) - trainingLoad.getAcuteLoad(date.plusDays(3)),
+                trainingLoad.getForm(date.plusDays(3)), 0.0001d);
+    }
+
+    /**
+     * Test with exercises at the first and last day of a range: the averages must be 0 before the first day,
+     * include the loads exactly at the first and last day and decay after the last day.
+     */
+    @Test
+    public void testFirstAndLastDayOfRange() {
+        final LocalDate firstDay = LocalDate.of(2020, 1, 1);
+        final LocalDate lastDay = LocalDate.of(2020, 1, 31);
+        trainingLoad.add(createExercise(1L, lastDay, 3600, IntensityType.NORMAL, null));
+        trainingLoad.add(createExercise(2L, firstDay, 3600, IntensityType.NORMAL, null));
+
+        final double acuteFirstDay = 180d * (1 - ACUTE_DECAY);
+        final double acuteLastDay = acuteFirstDay * Math.pow(ACUTE_DECAY, 30) + acuteFirstDay;
+        assertEquals(0d, trainingLoad.getAcuteLoad(firstDay.minusDays(1)));
+        assertEquals(acuteFirstDay, trainingLoad.getAcuteLoad(firstDay), 0.0001d);
+        assertEquals(acuteFirstDay * Math.pow(ACUTE_DECAY, 29), trainingLoad.getAcuteLoad(lastDay.minusDays(1)),
+                0.0001d);
+        assertEquals(acuteLastDay, trainingLoad.getAcuteLoad(lastDay), 0.0001d);
+        assertEquals(acuteLastDay * ACUTE_DECAY, trainingLoad.getAcuteLoad(lastDay.plusDays(1)), 0.0001d);
+    }
+
+    /**
+     * Test of remove(): the added load must be removed, also when the exercise has been modified after adding.
+     */
+    @Test
+    public void testRemoveModifiedExercise() {
+        final LocalDate date = LocalDate.of(2020, 3, 10);
+        final Exercise exercise = createExercise(1L, date, 3600, IntensityType.NORMAL, null);
+        trainingLoad.add(exercise);
+        trainingLoad.add(createExercise(2L, date, 1800, IntensityType.MINIMUM, null));
+
+        exercise.setDuration(7200);
+        exercise.setIntensity(IntensityType.MAXIMUM);
+        exercise.setDateTime(exercise.getDateTime().minusDays(3));
+        trainingLoad.remove(exercise);
+        trainingLoad.remove(exercise);
+
+        assertEquals(0d, trainingLoad.getAcuteLoad(date.minusDays(3)), 0.0001d);
+        assertEquals(30d * (1 - ACUTE_DECAY), trainingLoad.getAcuteLoad(date), 0.0001d);
+    }
+
+    /**
+     * Test with many random exercises added in random date order and removed in between: the incrementally
+     * recalculated averages must be the same as the averages calculated from scratch.
+     */
+    @Test
+    public void testCompareWithFullRecalculation() {
+        final Random random = DataTestFixture.createRandom();
+        final LocalDate firstDay = LocalDate.of(2010, 1, 1);
+        final List<Exercise> exercises = new ArrayList<>();
+
+        for (long id = 1; id <= 2000; id++) {
+            final Exercise exercise = DataTestFixture.createRandomExercise(random, id, firstDay, 3000);
+            exercises.add(exercise);
+            trainingLoad.add(exercise);
+
+            if (id % 400 == 0) {
+                for (int i = 0; i < 50; i++) {
+                    trainingLoad.remove(DataTestFixture.removeRandomEntry(random, exercises));
+                }
+                assertSameAsFullRecalculation(exercises, firstDay.minusDays(10), firstDay.plusDays(3100));
+            }
+        }
+    }
+
+    private void assertSameAsFullRecalculation(final List<Exercise> exercises, final LocalDate dateStart,
+                                               final LocalDate dateEnd) {
+        final int dayCount = (int) (dateEnd.toEpochDay() - dateStart.toEpochDay() + 1);
+        final double[] dailyLoad = new double[dayCount];
+        for (Exercise exercise : exercises) {
+            final int dayIndex = (int) (exercise.getEpochDay() - dateStart.toEpochDay());
+            dailyLoad[dayIndex] += ExerciseTrainingLoad.getLoad(exercise);
+        }
+
+        double acute = 0;
+        double chronic = 0;
+        for (int i = 0; i < dayCount; i++) {
+            acute = acute * ACUTE_DECAY + dailyLoad[i] * (1 - ACUTE_DECAY);
+            chronic = chronic * CHRONIC_DECAY + dailyLoad[i] * (1 - CHRONIC_DECAY);
+            final LocalDate date = dateStart.plusDays(i);
+            assertEquals(acute, trainingLoad.getAcuteLoad(date), 0.001d);
+            assertEquals(chronic, trainingLoad.getChronicLoad(date), 0.001d);
+        }
+    }
+
+    private static Exercise createExercise(final long id, final LocalDate date, final int duration,
+                                           final IntensityType intensity, final Integer avgHeartRate) {
+        final Exercise exercise = DataTestFixture.createExercise(id, 1L, date);
+        exercise.setDuration(duration);
+        exercise.setIntensity(intensity);
+        exercise.setAvgHeartRate(avgHeartRate);
+        return exercise;
+    }
+}
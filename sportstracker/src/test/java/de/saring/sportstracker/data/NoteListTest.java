@@ -255,4 +255,42 @@ public class NoteListTest {
         assertEquals(1, entryList.size());
         assertEquals("Dummy note 3", entryList.getAt(0).getComment());
     }
+
+    /**
+     * Tests for getEntriesForFilter() - scenario: the comment index needs to be updated after adding, replacing and
+     * removing notes.
+     */
+    @Test
+    public void testGetEntriesForFilterAfterModifications() {
+
+        EntryFilter filter = new EntryFilter();
+        filter.setDateStart(LocalDate.of(2003, 1, 1));
+        filter.setDateEnd(LocalDate.of(2003, 12, 31));
+        filter.setEntryType(EntryFilter.EntryType.NOTE);
+        filter.setCommentSubString("note");
+        filter.setRegularExpressionMode(false);
+        assertEquals(3, list.getEntriesForFilter(filter).size());
+
+        Note note4 = new Note(4L);
+        note4.setDateTime(LocalDateTime.of(2003, 9, 8, 0, 0, 0));
+        note4.setComment("Another notepad");
+        list.set(note4);
+
+        Note note2Updated = new Note(2L);
+        note2Updated.setDateTime(LocalDateTime.of(2003, 8, 20, 0, 0, 0));
+        note2Updated.setComment("Dummy text 2");
+        list.set(note2Updated);
+
+        list.removeByID(1L);
+
+        EntryList<Note> entryList = list.getEntriesForFilter(filter);
+        assertEquals(2, entryList.size());
+        assertEquals(3, entryList.getAt(0).getId());
+        assertEquals(4, entryList.getAt(1).getId());
+
+        filter.setCommentSubString("text");
+        entryList = list.getEntriesForFilter(filter);
+        assertEquals(1, entryList.size());
+        assertEquals(2, entryList.getAt(0).getId());
+    }
 }
@@ -234,4 +234,33 @@ public class WeightListTest {
         assertThrows(PatternSyntaxException.class, () ->
             list.getEntriesForFilter(filter));
     }
+
+    /**
+     * Tests that the weight series is updated on all list modifications after it has been created.
+     */
+    @Test
+    public void testGetWeightSeriesAfterModifications() {
+        list.forEach(weight -> weight.setValue(80d));
+        WeightSeries weightSeries = list.getWeightSeries();
+        LocalDate dateStart = LocalDate.of(2003, 8, 1);
+        LocalDate dateEnd = LocalDate.of(2003, 9, 30);
+        assertEquals(3, weightSeries.getCount(dateStart, dateEnd));
+        assertEquals(80d, weightSeries.getAverage(dateStart, dateEnd), 0.0001d);
+
+        Weight weight4 = new Weight(4L);
+        weight4.setDateTime(LocalDateTime.of(2003, 9, 10, 0, 0, 0));
+        weight4.setValue(84d);
+        list.set(weight4);
+        assertEquals(81d, weightSeries.getAverage(dateStart, dateEnd), 0.0001d);
+
+        Weight weight4Modified = weight4.clone(4L);
+        weight4Modified.setValue(88d);
+        list.set(weight4Modified);
+        assertEquals(4, weightSeries.getCount(dateStart, dateEnd));
+        assertEquals(82d, weightSeries.getAverage(dateStart, dateEnd), 0.0001d);
+
+        list.removeByID(4L);
+        assertEquals(3, weightSeries.getCount(dateStart, dateEnd));
+        assertEquals(80d, weightSeries.getAverage(dateStart, dateEnd), 0.0001d);
+    }
 }
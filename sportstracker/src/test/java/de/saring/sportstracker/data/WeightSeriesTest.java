@@ -0,0 +1,167 @@
+package de.saring.sportstracker.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * This class contains all unit tests for the WeightSeries class.
+ *
+ * @author Stefan Saring
+ */
+public class WeightSeriesTest {
+
+    private final WeightSeries weightSeries = new WeightSeries();
+
+    /**
+     * Test of the queries without weights: all values must be 0.
+     */
+    @Test
+    public void testEmpty() {
+        final LocalDate date = LocalDate.of(2020, 5, 1);
+        assertEquals(0, weightSeries.getCount(date, date.plusDays(10)));
+        assertEquals(0d, weightSeries.getAverage(date, date.plusDays(10)));
+        assertEquals(0d, weightSeries.getMovingAverage(date, 7));
+        assertEquals(0d, weightSeries.getTrend(date));
+    }
+
+    /**
+     * Test of the queries with a few weights, the date ranges include the first and the last day.
+     */
+    @Test
+    public void testAverageAndTrend() {
+        weightSeries.add(DataTestFixture.createWeight(1L, LocalDate.of(2020, 5, 1), 80d));
+        weightSeries.add(DataTestFixture.createWeight(2L, LocalDate.of(2020, 5, 3), 82d));
+        weightSeries.add(DataTestFixture.createWeight(3L, LocalDate.of(2020, 5, 2), 78d));
+
+        assertEquals(3, weightSeries.getCount(LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 3)));
+        assertEquals(80d, weightSeries.getAverage(LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 3)), 0.0001d);
+        assertEquals(80d, weightSeries.getAverage(LocalDate.of(2020, 5, 2), LocalDate.of(2020, 5, 3)), 0.0001d);
+        assertEquals(0d, weightSeries.getAverage(LocalDate.of(2020, 5, 4), LocalDate.of(2020, 5, 10)));
+        assertEquals(79d, weightSeries.getMovingAverage(LocalDate.of(2020, 5, 2), 2), 0.0001d);
+
+        // the trend starts with the first value and is then smoothed in chronological order
+        assertEquals(0d, weightSeries.getTrend(LocalDate.of(2020, 4, 30)));
+        assertEquals(80d, weightSeries.getTrend(LocalDate.of(2020, 5, 1)), 0.0001d);
+        assertEquals(79.8d, weightSeries.getTrend(LocalDate.of(2020, 5, 2)), 0.0001d);
+        assertEquals(80.02d, weightSeries.getTrend(LocalDate.of(2020, 5, 3)), 0.0001d);
+        assertEquals(80.02d, weightSeries.getTrend(LocalDate.of(2020, 6, 1)), 0.0001d);
+    }
+
+    /**
+     * Test with weights at a single day and at the first and last day of the ranges: the weights of the first
+     * and last day must be included, the order of the weights at the same day is their time.
+     */
+    @Test
+    public void testSingleDayAndFirstAndLastDayOfRange() {
+        final LocalDate date = LocalDate.of(2020, 2, 29);
+        final Weight weightEvening = DataTestFixture.createWeight(1L, date, 81d);
+        weightEvening.setDateTime(date.atTime(23, 59, 59));
+        final Weight weightMorning = DataTestFixture.createWeight(2L, date, 79d);
+        weightMorning.setDateTime(date.atStartOfDay());
+        weightSeries.add(weightEvening);
+        weightSeries.add(weightMorning);
+
+        assertEquals(2, weightSeries.getCount(date, date));
+        assertEquals(80d, weightSeries.getAverage(date, date), 0.0001d);
+        assertEquals(80d, weightSeries.getMovingAverage(date, 1), 0.0001d);
+        assertEquals(79.2d, weightSeries.getTrend(date), 0.0001d);
+        assertEquals(0, weightSeries.getCount(date.minusDays(7), date.minusDays(1)));
+        assertEquals(0, weightSeries.getCount(date.plusDays(1), date.plusDays(7)));
+        assertEquals(0d, weightSeries.getTrend(date.minusDays(1)));
+        assertEquals(2, weightSeries.getCount(date.minusDays(1), date.plusDays(1)));
+    }
+
+    /**
+     * Test of remove(): the added value must be removed, also when the weight has been modified after adding.
+     */
+    @Test
+    public void testRemoveModifiedWeight() {
+        final Weight weight1 = DataTestFixture.createWeight(1L, LocalDate.of(2020, 5, 1), 80d);
+        weightSeries.add(weight1);
+        weightSeries.add(DataTestFixture.createWeight(2L, LocalDate.of(2020, 5, 1), 80d));
+        weightSeries.add(DataTestFixture.createWeight(3L, LocalDate.of(2020, 5, 2), 90d));
+
+        weight1.setValue(100d);
+        weight1.setDateTime(weight1.getDateTime().plusDays(1));
+        weightSeries.remove(weight1);
+        weightSeries.remove(weight1);
+
+        assertEquals(1, weightSeries.getCount(LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 1)));
+        assertEquals(85d, weightSeries.getAverage(LocalDate.of(2020, 5, 1), LocalDate.of(2020, 5, 2)), 0.0001d);
+        assertEquals(81d, weightSeries.getTrend(LocalDate.of(2020, 5, 2)), 0.0001d);
+    }
+
+    /**
+     * Test of the moving average with an invalid number of days.
+     */
+    @Test
+    public void testMovingAverageInvalidDays() {
+        assertThrows(IllegalArgumentException.class, () ->
+                weightSeries.getMovingAverage(LocalDate.of(2020, 5, 1), 0));
+    }
+
+    /**
+     * Test with many random weights added in random date order and removed in between: the count, average and
+     * trend in random date ranges must be the same as when calculated from the weights.
+     */
+    @Test
+    public void testCompareWithWeightValues() {
+        final Random random = DataTestFixture.createRandom();
+        final LocalDate firstDay = LocalDate.of(2015, 1, 1);
+        final List<Weight> weights = new ArrayList<>();
+
+        for (long id = 1; id <= 2000; id++) {
+            // unique times of day, so the chronological order of all weights is defined
+            final Weight weight = DataTestFixture.createWeight(id, firstDay.plusDays(random.nextInt(1000)),
+                    60d + random.nextInt(4000) / 100d);
+            weight.setDateTime(weight.getDateTime().toLocalDate().atStartOfDay().plusSeconds(id));
+            weights.add(weight);
+            weightSeries.add(weight);
+
+            if (id % 400 == 0) {
+                for (int i = 0; i < 50; i++) {
+                    weightSeries.remove(DataTestFixture.removeRandomEntry(random, weights));
+                }
+
+                for (int i = 0; i < 30; i++) {
+                    final LocalDate dateStart = firstDay.plusDays(random.nextInt(1050) - 25);
+                    final LocalDate dateEnd = dateStart.plusDays(random.nextInt(60));
+                    final List<Weight> weightsInRange = weights.stream()
+                            .filter(w -> !w.getDateTime().toLocalDate().isBefore(dateStart))
+                            .filter(w -> !w.getDateTime().toLocalDate().isAfter(dateEnd))
+                            .toList();
+                    final double expectedAverage = weightsInRange.stream()
+                            .mapToDouble(Weight::getValue).average().orElse(0d);
+
+                    assertEquals(weightsInRange.size(), weightSeries.getCount(dateStart, dateEnd));
+                    assertEquals(expectedAverage, weightSeries.getAverage(dateStart, dateEnd), 0.0001d);
+                    assertEquals(getExpectedTrend(weights, dateEnd), weightSeries.getTrend(dateEnd), 0.0001d);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the trend of the weights until the specified date sequentially in chronological order.
+     */
+    private static double getExpectedTrend(final List<Weight> weights, final LocalDate date) {
+        final List<Weight> weightsUntilDate = weights.stream()
+                .filter(w -> !w.getDateTime().toLocalDate().isAfter(date))
+                .sorted(Comparator.comparing(Weight::getDateTime))
+                .toList();
+
+        double trend = weightsUntilDate.isEmpty() ? 0d : weightsUntilDate.get(0).getValue();
+        for (Weight weight : weightsUntilDate) {
+            trend += WeightSeries.TREND_SMOOTHING_FACTOR * (weight.getValue() - trend);
+        }
+        return trend;
+    }
+}
@@ -0,0 +1,138 @@
+package de.saring.sportstracker.data.statistic;
+
+import de.saring.sportstracker.data.Exercise;
+import de.saring.util.data.IdObjectList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * This class contains all unit tests for the ExerciseStatsAccumulator class.
+ *
+ * @author Stefan Saring
+ */
+public class ExerciseStatsAccumulatorTest {
+
+    /**
+     * Test of accept(): the optional values must only be collected for the exercises which contain them.
+     */
+    @Test
+    public void testAccept() {
+        ExerciseStatsAccumulator accumulator = new ExerciseStatsAccumulator();
+        accumulator.accept(createExercise(1L, 10d, 3600, 200, 140));
+        accumulator.accept(createExercise(2L, 20d, 1800, null, null));
+
+        assertEquals(2, accumulator.getCount());
+        assertEquals(30d, accumulator.getDistance().getSum(), 0.0001d);
+        assertEquals(1800, accumulator.getDuration().getMin());
+        assertEquals(1, accumulator.getAscent().getCount());
+        assertEquals(200, accumulator.getAscent().getMax());
+        assertEquals(140, (int) accumulator.getAvgHeartRate().getAverage());
+        assertEquals(1, accumulator.getCalories().getCount());
+        assertEquals(900, accumulator.getCalories().getSum());
+
+        assertEquals(2, accumulator.getDistanceSketch().getCount());
+        assertEquals(10d, accumulator.getDistanceSketch().getMedian());
+        assertEquals(1, accumulator.getAvgHeartRateSketch().getCount());
+        assertEquals(140d, accumulator.getAvgHeartRateSketch().getMedian());
+    }
+
+    /**
+     * Test of combine(): the combination of the accumulators for multiple parts of the exercises must be the same
+     * as the accumulator for all exercises.
+     */
+    @Test
+    public void testCombine() {
+        List<Exercise> exercises = createRandomExercises(1000);
+
+        ExerciseStatsAccumulator accumulatorAll = new ExerciseStatsAccumulator();
+        exercises.forEach(accumulatorAll);
+
+        ExerciseStatsAccumulator accumulatorPart1 = new ExerciseStatsAccumulator();
+        ExerciseStatsAccumulator accumulatorPart2 = new ExerciseStatsAccumulator();
+        exercises.subList(0, 400).forEach(accumulatorPart1);
+        exercises.subList(400, 1000).forEach(accumulatorPart2);
+        ExerciseStatsAccumulator accumulatorCombined = accumulatorPart1.combine(accumulatorPart2);
+
+        assertAccumulatorsEqual(accumulatorAll, accumulatorCombined);
+    }
+
+    /**
+     * Test of the StatisticCalculator for 20.000 exercises, it's calculated by a parallel stream then (above the
+     * parallel threshold). The results must be the same as for the sequential single pass accumulation.
+     */
+    @Test
+    public void testStatisticCalculatorInParallel() {
+        List<Exercise> exercises = createRandomExercises(20_000);
+        IdObjectList<Exercise> lExercises = new IdObjectList<>();
+        lExercises.clearAndAddAll(exercises);
+
+        ExerciseStatsAccumulator accumulator = new ExerciseStatsAccumulator();
+        exercises.forEach(accumulator);
+        StatisticCalculator expected = new StatisticCalculator(accumulator);
+        StatisticCalculator statistic = new StatisticCalculator(lExercises);
+
+        assertEquals(20_000, statistic.getExerciseCount());
+        assertEquals(expected.getTotalDistance(), statistic.getTotalDistance(), 0.01d);
+        assertEquals(expected.getAvgDistance(), statistic.getAvgDistance(), 0.0001f);
+        assertEquals(expected.getMaxDistance(), statistic.getMaxDistance(), 0f);
+        assertEquals(expected.getAvgSpeed(), statistic.getAvgSpeed(), 0.0001f);
+        assertEquals(expected.getTotalDuration(), statistic.getTotalDuration());
+        assertEquals(expected.getMinDuration(), statistic.getMinDuration());
+        assertEquals(expected.getAvgAscent(), statistic.getAvgAscent());
+        assertEquals(expected.getMaxDescent(), statistic.getMaxDescent());
+        assertEquals(expected.getMinAvgHeartRate(), statistic.getMinAvgHeartRate());
+        assertEquals(expected.getTotalCalories(), statistic.getTotalCalories());
+
+        // the distances, durations and heartrates are uniformly distributed, the estimated percentiles must be
+        // within the rank error bounds of the quantile sketch (1% of the value range)
+        assertEquals(10f, statistic.getP10Distance(), 1f);
+        assertEquals(50f, statistic.getMedianDistance(), 1f);
+        assertEquals(90f, statistic.getP90Distance(), 1f);
+        assertEquals(10000, statistic.getMedianDuration(), 200);
+        assertEquals(18000, statistic.getP90Duration(), 200);
+        assertEquals(90, statistic.getP10AvgHeartRate(), 1);
+        assertEquals(130, statistic.getMedianAvgHeartRate(), 1);
+        assertEquals(170, statistic.getP90AvgHeartRate(), 1);
+    }
+
+    private static void assertAccumulatorsEqual(ExerciseStatsAccumulator expected, ExerciseStatsAccumulator actual) {
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getDistance().getSum(), actual.getDistance().getSum(), 0.0001d);
+        assertEquals(expected.getDistance().getMin(), actual.getDistance().getMin(), 0d);
+        assertEquals(expected.getAvgSpeed().getAverage(), actual.getAvgSpeed().getAverage(), 0.0001d);
+        assertEquals(expected.getDuration().toString(), actual.getDuration().toString());
+        assertEquals(expected.getAscent().toString(), actual.getAscent().toString());
+        assertEquals(expected.getDescent().toString(), actual.getDescent().toString());
+        assertEquals(expected.getAvgHeartRate().toString(), actual.getAvgHeartRate().toString());
+        assertEquals(expected.getCalories().toString(), actual.getCalories().toString());
+    }
+
+    private static List<Exercise> createRandomExercises(int count) {
+        Random random = new Random(4711);
+        List<Exercise> exercises = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            exercises.add(createExercise(i + 1L, random.nextDouble() * 100d, random.nextInt(20000),
+                    random.nextBoolean() ? random.nextInt(2000) : null,
+                    random.nextBoolean() ? 80 + random.nextInt(100) : null));
+        }
+        return exercises;
+    }
+
+    private static Exercise createExercise(long id, double distance, int duration, Integer ascent,
+                                           Integer avgHeartRate) {
+        Exercise exercise = new Exercise(id);
+        exercise.setDistance(distance);
+        exercise.setAvgSpeed(distance / Math.max(duration, 1) * 3600d);
+        exercise.setDuration(duration);
+        exercise.setAscent(ascent);
+        exercise.setDescent(ascent);
+        exercise.setAvgHeartRate(avgHeartRate);
+        exercise.setCalories(ascent == null ? null : duration / 4);
+        return exercise;
+    }
+}
@@ -0,0 +1,225 @@
+package de.saring.sportstracker.data.statistic;
+
+import org.junit.jupiter.api.Test;
+
+import de.saring.sportstracker.data.DataTestFixture;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.DoubleSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class contains all unit tests for the QuantileSketch class. The estimated quantiles are compared with the
+ * exact quantiles of the sorted values.
+ *
+ * @author Stefan Saring
+ */
+public class QuantileSketchTest {
+
+    private static final double[] FRACTIONS = {0.01d, 0.1d, 0.25d, 0.5d, 0.75d, 0.9d, 0.99d};
+
+    /** Maximum allowed rank error (normalized by value count) for the default capacity. */
+    private static final double MAX_RANK_ERROR = 0.01d;
+
+    /**
+     * Test without values: the quantiles must be NaN.
+     */
+    @Test
+    public void testEmpty() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertEquals(0, sketch.getCount());
+        assertTrue(Double.isNaN(sketch.getMedian()));
+        assertThrows(IllegalArgumentException.class, () -> sketch.getQuantile(1.1d));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(1));
+    }
+
+    /**
+     * Test with a single value: all quantiles must be this value.
+     */
+    @Test
+    public void testSingleValue() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(42d);
+
+        assertEquals(1, sketch.getCount());
+        assertEquals(42d, sketch.getQuantile(0d));
+        assertEquals(42d, sketch.getMedian());
+        assertEquals(42d, sketch.getQuantile(1d));
+    }
+
+    /**
+     * Test of the first and last quantile of many values (multiple compaction levels): they must be the exact
+     * minimum and maximum, also after merging an empty sketch.
+     */
+    @Test
+    public void testFirstAndLastQuantile() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 10_000; i > 0; i--) {
+            sketch.add(i);
+        }
+        sketch.merge(new QuantileSketch());
+
+        assertEquals(10_000, sketch.getCount());
+        assertEquals(1d, sketch.getQuantile(0d));
+        assertEquals(10_000d, sketch.getQuantile(1d));
+        assertThrows(IllegalArgumentException.class, () -> sketch.getQuantile(-0.1d));
+    }
+
+    /**
+     * Test with less values than the capacity: the quantiles must be exact.
+     */
+    @Test
+    public void testExactForSmallCounts() {
+        QuantileSketch sketch = new QuantileSketch();
+        double[] values = new double[500];
+        Random random = new Random(1);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000) / 10d;
+            sketch.add(values[i]);
+        }
+        sketch.add(Double.NaN);
+
+        Arrays.sort(values);
+        assertEquals(500, sketch.getCount());
+        for (double fraction : FRACTIONS) {
+            assertEquals(getExactQuantile(values, fraction), sketch.getQuantile(fraction));
+        }
+        assertEquals(values[0], sketch.getQuantile(0d));
+        assertEquals(values[values.length - 1], sketch.getQuantile(1d));
+
+        QuantileSketch sketch2 = new QuantileSketch();
+        sketch2.add(3d);
+        sketch2.add(1d);
+        sketch2.add(2d);
+        sketch2.add(4d);
+        assertEquals(2d, sketch2.getMedian());
+    }
+
+    /**
+     * Test with 50.000 values of different distributions (multiple compaction levels): the rank errors of the
+     * estimated quantiles must be below the documented bounds.
+     */
+    @Test
+    public void testRankErrorForLargeCounts() {
+        Random random = DataTestFixture.createRandom();
+        assertRankErrors(createValues(random, 50_000, random::nextDouble));
+        assertRankErrors(createValues(random, 50_000, () -> Math.exp(random.nextGaussian() * 2)));
+        assertRankErrors(createValues(random, 50_000, () -> random.nextInt(20)));
+
+        // sorted input is a worst case for some sketches
+        double[] sortedValues = createValues(random, 50_000, random::nextGaussian);
+        Arrays.sort(sortedValues);
+        assertRankErrors(sortedValues);
+    }
+
+    /**
+     * Test of merge(): the sketch merged from multiple parts must have the same count, minimum and maximum as the
+     * sketch for all values and the rank errors must also be below the documented bounds.
+     */
+    @Test
+    public void testMerge() {
+        Random random = new Random(42);
+        double[] values = createValues(random, 300_000, () -> random.nextGaussian() * 10 + 100);
+
+        QuantileSketch mergedSketch = new QuantileSketch();
+        for (int part = 0; part < 7; part++) {
+            QuantileSketch partSketch = new QuantileSketch();
+            for (int i = part; i < values.length; i += 7) {
+                partSketch.add(values[i]);
+            }
+            mergedSketch.merge(partSketch);
+        }
+        mergedSketch.merge(new QuantileSketch());
+
+        Arrays.sort(values);
+        assertEquals(values.length, mergedSketch.getCount());
+        assertEquals(values[0], mergedSketch.getQuantile(0d));
+        assertEquals(values[values.length - 1], mergedSketch.getQuantile(1d));
+        for (double fraction : FRACTIONS) {
+            assertRankError(values, fraction, mergedSketch.getQuantile(fraction));
+        }
+    }
+
+    /**
+     * Test of the quantiles after modifications: the sorted values of a previous quantile query must not be reused
+     * after adding or merging values.
+     */
+    @Test
+    public void testQuantilesAfterModification() {
+        QuantileSketch sketch = new QuantileSketch(4);
+        for (int i = 1; i <= 3; i++) {
+            sketch.add(i);
+        }
+        assertEquals(2d, sketch.getMedian());
+        assertEquals(2d, sketch.getMedian());
+
+        sketch.add(10d);
+        sketch.add(11d);
+        assertEquals(5, sketch.getCount());
+        assertTrue(sketch.getMedian() > 2d);
+
+        QuantileSketch otherSketch = new QuantileSketch(4);
+        for (int i = 0; i < 20; i++) {
+            otherSketch.add(100d);
+        }
+        sketch.merge(otherSketch);
+        assertEquals(100d, sketch.getMedian());
+    }
+
+    private static void assertRankErrors(double[] values) {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.add(value);
+        }
+
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        for (double fraction : FRACTIONS) {
+            assertRankError(sortedValues, fraction, sketch.getQuantile(fraction));
+        }
+    }
+
+    /**
+     * Asserts that the rank range of the estimated value in the sorted values (can be multiple equal values)
+     * is within the maximum rank error of the expected rank.
+     */
+    private static void assertRankError(double[] sortedValues, double fraction, double estimatedValue) {
+        int lowestRank = lowerBound(sortedValues, estimatedValue);
+        int highestRank = lowerBound(sortedValues, Math.nextUp(estimatedValue));
+        double expectedRank = fraction * sortedValues.length;
+        double rankError = expectedRank < lowestRank ? lowestRank - expectedRank :
+                expectedRank > highestRank ? expectedRank - highestRank : 0;
+        assertTrue(rankError / sortedValues.length <= MAX_RANK_ERROR,
+                "Rank error " + rankError / sortedValues.length + " for fraction " + fraction);
+    }
+
+    private static int lowerBound(double[] sortedValues, double value) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedValues[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static double getExactQuantile(double[] sortedValues, double fraction) {
+        return sortedValues[(int) Math.ceil(fraction * sortedValues.length) - 1];
+    }
+
+    private static double[] createValues(Random random, int count, DoubleSupplier valueSupplier) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = valueSupplier.getAsDouble();
+        }
+        return values;
+    }
+}
@@ -1,19 +1,41 @@
 package de.saring.sportstracker.gui;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import de.saring.sportstracker.core.ApplicationDataChangeListener;
+import de.saring.sportstracker.core.EntityChange;
+import de.saring.sportstracker.core.EntityChangeListener;
+import de.saring.sportstracker.core.STException;
+import de.saring.sportstracker.data.DocumentSnapshot;
+import de.saring.sportstracker.data.EntryFilter;
+import de.saring.sportstracker.data.EntryList;
 import de.saring.sportstracker.data.Exercise;
+import de.saring.sportstracker.data.Note;
+import de.saring.sportstracker.data.SportSubType;
 import de.saring.sportstracker.data.SportType;
 import de.saring.sportstracker.storage.db.DbStorage;
+import de.saring.sportstracker.storage.db.ExerciseRepository;
+import de.saring.sportstracker.storage.db.NoteRepository;
+import de.saring.sportstracker.storage.db.SportTypeRepository;
+import de.saring.sportstracker.storage.db.WeightRepository;
 import de.saring.util.unitcalc.SpeedMode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 /**
  * Unit tests of class STDocument/Impl. All the involved components will be
@@ -24,13 +46,15 @@ import org.junit.jupiter.api.Test;
 public class STDocumentTest {
 
     private STDocument document;
+    private DbStorage dbStorageMock;
     private long nextEntityId = 1;
 
     @BeforeEach
     public void setUp() {
         // STContext needs to be mocked
         STContext contextMock = mock(STContext.class);
-        document = new STDocumentImpl(contextMock, mock(DbStorage.class));
+        dbStorageMock = mock(DbStorage.class);
+        document = new STDocumentImpl(contextMock, dbStorageMock);
         document.loadOptions();
         nextEntityId = 1;
     }
@@ -94,6 +118,195 @@ public class STDocumentTest {
         assertEquals(document.getOptions().getPreferredSpeedMode(), speedMode);
     }
 
+    /**
+     * Test of method getFilterableExerciseList(): the filtered list must be reused until the filter or the
+     * application data has been changed.
+     */
+    @Test
+    public void testGetFilterableExerciseListCached() throws STException {
+        STDocumentImpl documentImpl = (STDocumentImpl) document;
+        appendExerciseWithSpeedMode(SpeedMode.SPEED);
+        appendExerciseWithSpeedMode(SpeedMode.PACE);
+
+        // no filtering and caching when the filter is disabled
+        assertSame(document.getExerciseList(), document.getFilterableExerciseList());
+        assertEquals(0, documentImpl.getFilterCacheMisses());
+
+        EntryFilter filter = new EntryFilter();
+        filter.setDateStart(LocalDate.now().minusDays(1));
+        filter.setDateEnd(LocalDate.now().plusDays(1));
+        document.setCurrentFilter(filter);
+        document.setFilterEnabled(true);
+
+        EntryList<Exercise> filteredExercises = document.getFilterableExerciseList();
+        assertEquals(2, filteredExercises.size());
+        assertSame(filteredExercises, document.getFilterableExerciseList());
+        assertEquals(1, documentImpl.getFilterCacheHits());
+        assertEquals(1, documentImpl.getFilterCacheMisses());
+
+        // modification of the current filter must be detected
+        filter.setDateEnd(LocalDate.now().minusDays(1));
+        assertEquals(0, document.getFilterableExerciseList().size());
+        assertEquals(2, documentImpl.getFilterCacheMisses());
+
+        // setting a new filter invalidates the cache
+        filter = filter.clone();
+        filter.setDateEnd(LocalDate.now().plusDays(1));
+        document.setCurrentFilter(filter);
+        filteredExercises = document.getFilterableExerciseList();
+        assertEquals(2, filteredExercises.size());
+        assertEquals(3, documentImpl.getFilterCacheMisses());
+
+        // application data update invalidates the cache (all data was removed in storage)
+        long dataVersion = document.getDataVersion();
+        mockRepositories();
+        document.updateApplicationData(null);
+        assertEquals(dataVersion + 1, document.getDataVersion());
+
+        assertNotSame(filteredExercises, document.getFilterableExerciseList());
+        assertEquals(0, document.getFilterableExerciseList().size());
+        assertEquals(2, documentImpl.getFilterCacheHits());
+        assertEquals(4, documentImpl.getFilterCacheMisses());
+    }
+
+    /**
+     * Test of method updateApplicationData(): the entity changes reported by the storage need to be applied to the
+     * lists without reloading, the listeners need to receive these changes.
+     */
+    @Test
+    public void testUpdateApplicationDataAppliesChanges() throws STException {
+        final long exerciseId1 = appendExerciseWithSpeedMode(SpeedMode.SPEED);
+        final long exerciseId2 = appendExerciseWithSpeedMode(SpeedMode.PACE);
+        final EntityChangeListener storageListener = captureStorageChangeListener();
+
+        final List<List<EntityChange>> notifiedChanges = new ArrayList<>();
+        document.registerChangeListener((changedObject, changes) -> notifiedChanges.add(changes));
+
+        final Note note = new Note(nextEntityId++);
+        note.setDateTime(LocalDateTime.now());
+        note.setComment("Foo");
+        final Exercise exercise2Updated = document.getExerciseList().getByID(exerciseId2).clone(exerciseId2);
+        exercise2Updated.setComment("Bar");
+
+        final List<EntityChange> changes = List.of(
+                new EntityChange(EntityChange.Type.CREATED, Note.class, note.getId(), note),
+                new EntityChange(EntityChange.Type.UPDATED, Exercise.class, exerciseId2, exercise2Updated),
+                new EntityChange(EntityChange.Type.DELETED, Exercise.class, exerciseId1, null));
+        changes.forEach(storageListener::entityChanged);
+        document.updateApplicationData(note);
+
+        assertEquals(1, document.getNoteList().size());
+        assertSame(note, document.getNoteList().getByID(note.getId()));
+        assertEquals(1, document.getExerciseList().size());
+        assertNull(document.getExerciseList().getByID(exerciseId1));
+        assertEquals("Bar", document.getExerciseList().getByID(exerciseId2).getComment());
+        assertEquals(List.of(changes), notifiedChanges);
+
+        // nothing must be read from the storage
+        verify(dbStorageMock, never()).getExerciseRepository();
+        verify(dbStorageMock, never()).getNoteRepository();
+    }
+
+    /**
+     * Test of method getSnapshot(): a new snapshot with the new data version needs to be published after the
+     * application data has been updated, the previous snapshot must not be changed.
+     */
+    @Test
+    public void testSnapshotPublishedOnUpdate() throws STException {
+        final EntityChangeListener storageListener = captureStorageChangeListener();
+        final DocumentSnapshot snapshot1 = document.getSnapshot();
+        assertTrue(snapshot1.getNotes().isEmpty());
+
+        final Note note = new Note(nextEntityId++);
+        note.setDateTime(LocalDateTime.now());
+        storageListener.entityChanged(new EntityChange(EntityChange.Type.CREATED, Note.class, note.getId(), note));
+        document.updateApplicationData(note);
+
+        final DocumentSnapshot snapshot2 = document.getSnapshot();
+        assertEquals(document.getDataVersion(), snapshot2.getDataVersion());
+        assertTrue(snapshot2.getDataVersion() > snapshot1.getDataVersion());
+        assertEquals(List.of(note), snapshot2.getNotes());
+        assertEquals(document.getSportTypeList().size(), snapshot2.getSportTypes().size());
+
+        storageListener.entityChanged(new EntityChange(EntityChange.Type.DELETED, Note.class, note.getId(), null));
+        document.updateApplicationData(null);
+
+        assertTrue(document.getSnapshot().getNotes().isEmpty());
+        assertEquals(List.of(note), snapshot2.getNotes());
+        assertTrue(snapshot1.getNotes().isEmpty());
+    }
+
+    /**
+     * Test of method getSnapshot(): the sport types of a snapshot must not be changed by later modifications of
+     * the sport types in the application data, the exercise references are resolved by the snapshot sport types.
+     */
+    @Test
+    public void testSnapshotSportTypesFrozen() throws STException {
+        final SportType sportType = new SportType(nextEntityId++);
+        sportType.setName("Cycling");
+        final SportSubType sportSubType = new SportSubType(nextEntityId++);
+        sportSubType.setName("MTB");
+        sportType.getSportSubTypeList().set(sportSubType);
+        document.getSportTypeList().set(sportType);
+
+        final Exercise exercise = new Exercise(nextEntityId++);
+        exercise.setDateTime(LocalDateTime.now());
+        exercise.setSportType(sportType);
+        exercise.setSportSubType(sportSubType);
+        final EntityChangeListener storageListener = captureStorageChangeListener();
+        storageListener.entityChanged(new EntityChange(EntityChange.Type.CREATED, Exercise.class, exercise.getId(),
+                exercise));
+        document.updateApplicationData(exercise);
+        final DocumentSnapshot snapshot = document.getSnapshot();
+
+        // modify the sport type and the subtype in the application data directly
+        sportType.setName("Biking");
+        sportType.getSportSubTypeList().getByID(sportSubType.getId()).setName("Mountainbike");
+        sportType.getSportSubTypeList().set(new SportSubType(nextEntityId++));
+
+        final SportType snapshotSportType = snapshot.getSportType(exercise.getSportTypeId());
+        assertNotSame(sportType, snapshotSportType);
+        assertEquals("Cycling", snapshotSportType.getName());
+        assertEquals(1, snapshotSportType.getSportSubTypeList().size());
+        assertEquals("MTB", snapshot.getSportSubType(exercise).getName());
+        assertNull(snapshot.getEquipment(exercise));
+        assertNull(snapshot.getSportType(null));
+    }
+
+    /**
+     * Test of method updateApplicationData(): all data needs to be reloaded when sport types were changed, the
+     * listeners get no entity changes then.
+     */
+    @Test
+    public void testUpdateApplicationDataReloadsForSportTypeChanges() throws STException {
+        appendExerciseWithSpeedMode(SpeedMode.SPEED);
+        final EntityChangeListener storageListener = captureStorageChangeListener();
+        mockRepositories();
+
+        final ApplicationDataChangeListener listener = mock(ApplicationDataChangeListener.class);
+        document.registerChangeListener(listener);
+
+        storageListener.entityChanged(new EntityChange(EntityChange.Type.DELETED, SportType.class, 1L, null));
+        document.updateApplicationData(null);
+
+        assertEquals(0, document.getExerciseList().size());
+        verify(dbStorageMock).getExerciseRepository();
+        verify(listener).applicationDataChanged(null, null);
+    }
+
+    private EntityChangeListener captureStorageChangeListener() {
+        final ArgumentCaptor<EntityChangeListener> captor = ArgumentCaptor.forClass(EntityChangeListener.class);
+        verify(dbStorageMock).registerChangeListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private void mockRepositories() {
+        when(dbStorageMock.getSportTypeRepository()).thenReturn(mock(SportTypeRepository.class));
+        when(dbStorageMock.getExerciseRepository()).thenReturn(mock(ExerciseRepository.class));
+        when(dbStorageMock.getNoteRepository()).thenReturn(mock(NoteRepository.class));
+        when(dbStorageMock.getWeightRepository()).thenReturn(mock(WeightRepository.class));
+    }
+
     private long appendExerciseWithSpeedMode(SpeedMode speedMode) {
         final Exercise exercise = new Exercise(nextEntityId++);
         exercise.setDateTime(LocalDateTime.now());
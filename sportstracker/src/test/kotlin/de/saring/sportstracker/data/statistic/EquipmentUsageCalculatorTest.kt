@@ -2,6 +2,7 @@ package de.saring.sportstracker.data.statistic
 
 import de.saring.sportstracker.data.*
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
 import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.Test
 import java.time.LocalDate
@@ -61,7 +62,8 @@ class EquipmentUsageCalculatorTest {
         val exerciseList = ExerciseList()
 
         // test
-        val usages = EquipmentUsageCalculator.calculateEquipmentUsage(exerciseList, this.sportTypeList)
+        val usages = EquipmentUsageCalculator.calculateEquipmentUsage(
+                exerciseList.equipmentUsageIndex, this.sportTypeList)
 
         // verify
         assertEquals(3, usages.sportTypeMap.size)
@@ -89,7 +91,7 @@ class EquipmentUsageCalculatorTest {
 
     /**
      * Tests the calculation: there are exercises with equipment usage available, so the calculated usage has to be
-     * valid.
+     * valid. The distances since a date are only calculated when the date is specified.
      */
     @Test
     fun testStatisticCalculatorWithExercises() {
@@ -145,7 +147,8 @@ class EquipmentUsageCalculatorTest {
         }
 
         // test
-        val usages = EquipmentUsageCalculator.calculateEquipmentUsage(exerciseList, this.sportTypeList)
+        val usages = EquipmentUsageCalculator.calculateEquipmentUsage(
+                exerciseList.equipmentUsageIndex, this.sportTypeList)
 
         // verify
         assertEquals(3, usages.sportTypeMap.size)
@@ -171,10 +174,19 @@ class EquipmentUsageCalculatorTest {
         assertUsage(euTrailShoes!!, eqTrailShoes, 29.0, (2.7 * 3600).toLong(),
                 LocalDate.of(2019, 6, 20),
                 LocalDate.of(2019, 7, 15))
+        assertNull(euTrailShoes.distanceSince)
 
         // check swimming usage
         val euSwimming = usages.sportTypeMap[stSwimming]
         assertTrue(euSwimming!!.equipmentMap.isEmpty())
+
+        // check the distances since a date, the date is included
+        val usagesSince = EquipmentUsageCalculator.calculateEquipmentUsage(
+                exerciseList.equipmentUsageIndex, this.sportTypeList, LocalDate.of(2019, 5, 15))
+        assertEquals(40.0, usagesSince.sportTypeMap[stCycling]!!.equipmentMap[eqRoadBike]!!.distanceSince)
+        assertEquals(44.0, usagesSince.sportTypeMap[stCycling]!!.equipmentMap[eqMTB]!!.distanceSince)
+        assertEquals(0.0, usagesSince.sportTypeMap[stRunning]!!.equipmentMap[eqRoadShoes]!!.distanceSince)
+        assertEquals(29.0, usagesSince.sportTypeMap[stRunning]!!.equipmentMap[eqTrailShoes]!!.distanceSince)
     }
 
     private fun assertUsage(equipmentUsage: EquipmentUsage, expectedEquipment: Equipment,
@@ -0,0 +1,223 @@
+package de.saring.sportstracker.data.statistic
+
+import de.saring.sportstracker.data.EntryFilter
+import de.saring.sportstracker.data.Equipment
+import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.PeriodType
+import de.saring.sportstracker.data.SportSubType
+import de.saring.sportstracker.data.SportType
+import de.saring.sportstracker.data.statistic.ExercisePivotCalculator.GroupType
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.time.LocalDate
+import java.time.LocalDateTime
+
+/**
+ * This class contains all unit tests for the [ExercisePivotCalculator] class.
+ *
+ * @author Stefan Saring
+ */
+class ExercisePivotCalculatorTest {
+
+    private val eqBike = Equipment(21)
+    private val sstRoad = SportSubType(11)
+    private val sstMtb = SportSubType(12)
+
+    private val stCycling = SportType(1).apply {
+        sportSubTypeList.set(sstRoad)
+        sportSubTypeList.set(sstMtb)
+        equipmentList.set(eqBike)
+    }
+    private val stRunning = SportType(2).apply {
+        sportSubTypeList.set(SportSubType(13))
+    }
+
+    private val exercises = listOf(
+            createExercise(1, stCycling, sstRoad, eqBike, LocalDateTime.of(2020, 3, 2, 10, 0), 50.0, 7200),
+            createExercise(2, stCycling, sstMtb, null, LocalDateTime.of(2020, 3, 8, 10, 0), 30.0, 3600),
+            createExercise(3, stRunning, null, null, LocalDateTime.of(2020, 3, 9, 10, 0), 10.0, 3600),
+            createExercise(4, stCycling, sstRoad, eqBike, LocalDateTime.of(2020, 5, 31, 10, 0), 40.0, 3600))
+
+    private val aggregateCube = ExercisePivotCalculator.createAggregateCube(exercises)
+
+    /**
+     * Test of calculatePeriodRows(): monthly periods, the latest comes first and empty months are skipped.
+     */
+    @Test
+    fun calculatePeriodRowsMonthly() {
+        val rows = ExercisePivotCalculator.calculatePeriodRows(aggregateCube, PeriodType.MONTH, false,
+                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31))
+
+        assertEquals(listOf(LocalDate.of(2020, 5, 1), LocalDate.of(2020, 3, 1)), rows.map { it.dateStart })
+        assertEquals(LocalDate.of(2020, 3, 31), rows[1].dateEnd)
+        assertEquals(3, rows[1].aggregate.count)
+        assertEquals(90.0, rows[1].aggregate.distance, 0.0001)
+        assertEquals(30.0, rows[1].avgDistance, 0.0001)
+        assertEquals(4800, rows[1].avgDuration)
+        assertEquals(22.5, rows[1].avgSpeed, 0.0001)
+        assertNull(rows[1].sportType)
+    }
+
+    /**
+     * Test of calculatePeriodRows(): weekly periods starting on Monday or Sunday, the first and last period are
+     * limited to the date range.
+     */
+    @Test
+    fun calculatePeriodRowsWeekly() {
+        val rowsMonday = ExercisePivotCalculator.calculatePeriodRows(aggregateCube, PeriodType.WEEK, false,
+                LocalDate.of(2020, 3, 3), LocalDate.of(2020, 3, 31))
+        assertEquals(listOf(LocalDate.of(2020, 3, 9), LocalDate.of(2020, 3, 3)), rowsMonday.map { it.dateStart })
+        assertEquals(listOf(1, 1), rowsMonday.map { it.aggregate.count })
+
+        val rowsSunday = ExercisePivotCalculator.calculatePeriodRows(aggregateCube, PeriodType.WEEK, true,
+                LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31))
+        assertEquals(listOf(LocalDate.of(2020, 3, 8), LocalDate.of(2020, 3, 1)), rowsSunday.map { it.dateStart })
+        assertEquals(listOf(2, 1), rowsSunday.map { it.aggregate.count })
+    }
+
+    /**
+     * Test of calculatePeriodRows() with an invalid date range.
+     */
+    @Test
+    fun calculatePeriodRowsInvalidRange() {
+        assertThrows<IllegalArgumentException> {
+            ExercisePivotCalculator.calculatePeriodRows(aggregateCube, PeriodType.YEAR, false,
+                    LocalDate.of(2020, 1, 2), LocalDate.of(2020, 1, 1))
+        }
+    }
+
+    /**
+     * Test of calculateGroupRows(): the group rows of a period for all group types, only groups with exercises
+     * are returned.
+     */
+    @Test
+    fun calculateGroupRows() {
+        val periodRow = ExercisePivotCalculator.calculatePeriodRows(aggregateCube, PeriodType.MONTH, false,
+                LocalDate.of(2020, 3, 1), LocalDate.of(2020, 3, 31)).single()
+        val sportTypes = listOf(stCycling, stRunning)
+
+        val sportTypeRows = ExercisePivotCalculator.calculateGroupRows(
+                aggregateCube, periodRow, GroupType.SPORT_TYPE, sportTypes)
+        assertEquals(listOf(stCycling, stRunning), sportTypeRows.map { it.sportType })
+        assertEquals(listOf(80.0, 10.0), sportTypeRows.map { it.aggregate.distance })
+
+        val subTypeRows = ExercisePivotCalculator.calculateGroupRows(
+                aggregateCube, periodRow, GroupType.SPORT_SUBTYPE, sportTypes)
+        assertEquals(listOf(sstRoad, sstMtb), subTypeRows.map { it.sportSubType })
+        assertEquals(listOf(50.0, 30.0), subTypeRows.map { it.aggregate.distance })
+
+        val equipmentRows = ExercisePivotCalculator.calculateGroupRows(
+                aggregateCube, periodRow, GroupType.EQUIPMENT, sportTypes)
+        assertEquals(listOf(stCycling, stCycling, stRunning), equipmentRows.map { it.sportType })
+        assertEquals(listOf(eqBike, null, null), equipmentRows.map { it.equipment })
+        assertEquals(listOf(50.0, 30.0, 10.0), equipmentRows.map { it.aggregate.distance })
+    }
+
+    /**
+     * Test of createAggregateCube(): the cube contains only the specified (e.g. filtered) exercises.
+     */
+    @Test
+    fun createAggregateCube() {
+        val filteredCube = ExercisePivotCalculator.createAggregateCube(listOf(
+                createExercise(1, stCycling, sstRoad, eqBike, LocalDateTime.of(2020, 3, 2, 10, 0), 50.0, 7200),
+                createExercise(4, stCycling, sstRoad, eqBike, LocalDateTime.of(2020, 5, 31, 10, 0), 40.0, 3600)))
+
+        val rows = ExercisePivotCalculator.calculatePeriodRows(filteredCube, PeriodType.MONTH, false,
+                LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31))
+        assertEquals(listOf(1, 1), rows.map { it.aggregate.count })
+        assertEquals(listOf(40.0, 50.0), rows.map { it.aggregate.distance })
+        assertEquals(0, filteredCube.getForSportType(2, LocalDate.of(2020, 1, 1),
+                LocalDate.of(2020, 12, 31)).count)
+    }
+
+    /**
+     * Test of isCubeFilter(): only the criteria which are keys of the aggregate cube can be used.
+     */
+    @Test
+    fun isCubeFilter() {
+        assertTrue(ExercisePivotCalculator.isCubeFilter(createFilter(), GroupType.EQUIPMENT))
+        assertTrue(ExercisePivotCalculator.isCubeFilter(createFilter(stCycling), GroupType.SPORT_SUBTYPE))
+        assertTrue(ExercisePivotCalculator.isCubeFilter(createFilter(stCycling, sstRoad), GroupType.SPORT_TYPE))
+        assertTrue(ExercisePivotCalculator.isCubeFilter(createFilter(stCycling, sstRoad), GroupType.SPORT_SUBTYPE))
+        assertFalse(ExercisePivotCalculator.isCubeFilter(createFilter(stCycling, sstRoad), GroupType.EQUIPMENT))
+        assertTrue(ExercisePivotCalculator.isCubeFilter(createFilter(stCycling, null, eqBike), GroupType.EQUIPMENT))
+        assertFalse(ExercisePivotCalculator.isCubeFilter(
+                createFilter(stCycling, null, eqBike), GroupType.SPORT_SUBTYPE))
+        assertFalse(ExercisePivotCalculator.isCubeFilter(
+                createFilter(stCycling, sstRoad, eqBike), GroupType.SPORT_TYPE))
+        assertFalse(ExercisePivotCalculator.isCubeFilter(createFilter(null, sstRoad), GroupType.SPORT_TYPE))
+        assertFalse(ExercisePivotCalculator.isCubeFilter(
+                createFilter().apply { intensity = Exercise.IntensityType.LOW }, GroupType.SPORT_TYPE))
+        assertFalse(ExercisePivotCalculator.isCubeFilter(
+                createFilter().apply { commentSubString = "run" }, GroupType.SPORT_TYPE))
+    }
+
+    /**
+     * Test of calculatePeriodRows() and calculateGroupRows() with a filter: the rows taken from the cube of all
+     * exercises must be the same as the rows of a cube containing the filtered exercises only.
+     */
+    @Test
+    fun calculateRowsWithFilter() {
+        val dateStart = LocalDate.of(2020, 1, 1)
+        val dateEnd = LocalDate.of(2020, 12, 31)
+        val sportTypes = listOf(stCycling, stRunning)
+
+        val filters = listOf(
+                createFilter(stCycling), createFilter(stCycling, sstRoad), createFilter(stCycling, null, eqBike))
+
+        filters.forEach { filter ->
+            val matcher = filter.compile()
+            val filteredCube = ExercisePivotCalculator.createAggregateCube(exercises.filter { matcher.matches(it) })
+
+            GroupType.values().filter { ExercisePivotCalculator.isCubeFilter(filter, it) }.forEach { groupType ->
+                val rows = ExercisePivotCalculator.calculatePeriodRows(
+                        aggregateCube, PeriodType.MONTH, false, dateStart, dateEnd, filter)
+                val expectedRows = ExercisePivotCalculator.calculatePeriodRows(
+                        filteredCube, PeriodType.MONTH, false, dateStart, dateEnd)
+                assertEquals(expectedRows.map { it.dateStart to it.aggregate.distance },
+                        rows.map { it.dateStart to it.aggregate.distance })
+
+                rows.zip(expectedRows).forEach { (row, expectedRow) ->
+                    val groupRows = ExercisePivotCalculator.calculateGroupRows(
+                            aggregateCube, row, groupType, sportTypes, filter)
+                    val expectedGroupRows = ExercisePivotCalculator.calculateGroupRows(
+                            filteredCube, expectedRow, groupType, sportTypes)
+                    assertEquals(expectedGroupRows.map { listOf(it.sportType, it.sportSubType, it.equipment) },
+                            groupRows.map { listOf(it.sportType, it.sportSubType, it.equipment) })
+                    assertEquals(expectedGroupRows.map { it.aggregate.distance },
+                            groupRows.map { it.aggregate.distance })
+                }
+            }
+        }
+    }
+
+    private fun createFilter(
+            sportType: SportType? = null,
+            sportSubType: SportSubType? = null,
+            equipment: Equipment? = null) = EntryFilter().apply {
+        entryType = EntryFilter.EntryType.EXERCISE
+        this.sportType = sportType
+        this.sportSubType = sportSubType
+        this.equipment = equipment
+    }
+
+    private fun createExercise(
+            id: Long,
+            sportType: SportType,
+            sportSubType: SportSubType?,
+            equipment: Equipment?,
+            dateTime: LocalDateTime,
+            distance: Double,
+            duration: Int) = Exercise(id).apply {
+        this.sportType = sportType
+        this.sportSubType = sportSubType
+        this.equipment = equipment
+        this.dateTime = dateTime
+        this.distance = distance
+        this.duration = duration
+    }
+}
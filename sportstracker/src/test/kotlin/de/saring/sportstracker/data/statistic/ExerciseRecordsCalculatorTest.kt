@@ -0,0 +1,144 @@
+package de.saring.sportstracker.data.statistic
+
+import de.saring.exerciseviewer.data.EVExercise
+import de.saring.exerciseviewer.data.ExerciseSample
+import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.SportType
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Test
+import java.util.Random
+
+/**
+ * This class contains all unit tests for the [ExerciseRecordsCalculator] class.
+ *
+ * @author Stefan Saring
+ */
+class ExerciseRecordsCalculatorTest {
+
+    /**
+     * Test of calculateBestTime(): the fastest window is in the middle of the samples, decreasing distances
+     * (e.g. GPS corrections) must be ignored.
+     */
+    @Test
+    fun calculateBestTime() {
+        val timestamps = longArrayOf(0, 100, 200, 300, 400, 500, 600)
+        val distances = doubleArrayOf(0.0, 300.0, 500.0, 450.0, 1100.0, 1400.0, 1600.0)
+
+        assertEquals(100L, ExerciseRecordsCalculator.calculateBestTime(timestamps, distances, 600.0))
+        assertEquals(300L, ExerciseRecordsCalculator.calculateBestTime(timestamps, distances, 1000.0))
+        assertEquals(600L, ExerciseRecordsCalculator.calculateBestTime(timestamps, distances, 1600.0))
+        assertNull(ExerciseRecordsCalculator.calculateBestTime(timestamps, distances, 1600.1))
+        assertNull(ExerciseRecordsCalculator.calculateBestTime(LongArray(0), DoubleArray(0), 1000.0))
+    }
+
+    /**
+     * Test of calculateBestTime(): the results of the two pointer pass must be the same as of a brute force
+     * search over all sample pairs.
+     */
+    @Test
+    fun calculateBestTimeCompareWithBruteForce() {
+        val random = Random(4711)
+        val timestamps = LongArray(500) { it * 1000L }
+        val distances = DoubleArray(500)
+        for (index in 1 until distances.size) {
+            distances[index] = distances[index - 1] + random.nextInt(8)
+        }
+
+        for (distance in listOf(1.0, 50.0, 333.0, 1000.0)) {
+            var expected: Long? = null
+            for (start in distances.indices) {
+                for (end in start until distances.size) {
+                    if (distances[end] - distances[start] >= distance) {
+                        val time = timestamps[end] - timestamps[start]
+                        expected = if (expected == null) time else minOf(expected, time)
+                        break
+                    }
+                }
+            }
+            assertEquals(expected, ExerciseRecordsCalculator.calculateBestTime(timestamps, distances, distance))
+        }
+    }
+
+    /**
+     * Test of calculateMaxAscent(): only the altitude increases inside the time window are summed up.
+     */
+    @Test
+    fun calculateMaxAscent() {
+        val timestamps = longArrayOf(0, 1000, 2000, 3000, 4000, 5000)
+        val altitudes = intArrayOf(100, 150, 120, 180, 170, 200)
+
+        assertEquals(0, ExerciseRecordsCalculator.calculateMaxAscent(timestamps, altitudes, 500))
+        assertEquals(60, ExerciseRecordsCalculator.calculateMaxAscent(timestamps, altitudes, 1000))
+        assertEquals(110, ExerciseRecordsCalculator.calculateMaxAscent(timestamps, altitudes, 3000))
+        assertEquals(140, ExerciseRecordsCalculator.calculateMaxAscent(timestamps, altitudes, 5000))
+        assertEquals(0, ExerciseRecordsCalculator.calculateMaxAscent(longArrayOf(0), intArrayOf(100), 1000))
+        assertNull(ExerciseRecordsCalculator.calculateMaxAscent(LongArray(0), IntArray(0), 1000))
+    }
+
+    /**
+     * Test of calculateFileRecords(): samples without timestamp are ignored, there are no ascent records
+     * without altitude samples.
+     */
+    @Test
+    fun calculateFileRecords() {
+        val evExercise = EVExercise(EVExercise.ExerciseFileType.GPX)
+        evExercise.sampleList.add(ExerciseSample(timestamp = 0, distance = 0))
+        evExercise.sampleList.add(ExerciseSample(timestamp = 200_000, distance = 1000))
+        evExercise.sampleList.add(ExerciseSample(timestamp = null, distance = 3000))
+        evExercise.sampleList.add(ExerciseSample(timestamp = 380_000, distance = 2000))
+        evExercise.sampleList.add(ExerciseSample(timestamp = 1_500_000, distance = 5200))
+
+        val records = ExerciseRecordsCalculator.calculateFileRecords(evExercise)
+        assertEquals(5200.0, records.distance)
+        assertEquals(mapOf(RecordDistance.KM_1 to 180_000L, RecordDistance.KM_5 to 1_500_000L), records.bestTimes)
+        assertNull(records.maxAscentInHour)
+
+        assertEquals(ExerciseFileRecords.EMPTY, ExerciseRecordsCalculator.calculateFileRecords(
+                EVExercise(EVExercise.ExerciseFileType.GPX)))
+    }
+
+    /**
+     * Test of calculatePersonalRecords(): the best records of all exercises are grouped by the sport type IDs,
+     * exercises without records are ignored.
+     */
+    @Test
+    fun calculatePersonalRecords() {
+        val stRunning = SportType(1)
+        val stCycling = SportType(2)
+        val exercise1 = createExercise(1, stRunning)
+        val exercise2 = createExercise(2, stRunning)
+        val exercise3 = createExercise(3, stCycling)
+        val exercise4 = createExercise(4, stCycling)
+
+        val fileRecords = mapOf(
+                exercise1 to ExerciseFileRecords(5500.0, mapOf(RecordDistance.KM_1 to 240_000L,
+                        RecordDistance.KM_5 to 1_400_000L), 20),
+                exercise2 to ExerciseFileRecords(10500.0, mapOf(RecordDistance.KM_1 to 250_000L,
+                        RecordDistance.KM_5 to 1_300_000L, RecordDistance.KM_10 to 2_700_000L), null),
+                exercise3 to ExerciseFileRecords(80000.0, emptyMap(), 650))
+
+        val personalRecords = ExerciseRecordsCalculator.calculatePersonalRecords(
+                listOf(exercise1, exercise2, exercise3, exercise4)) { fileRecords[it] }
+        assertEquals(setOf(1L, 2L), personalRecords.keys)
+
+        val runningRecords = personalRecords.getValue(1L)
+        assertEquals(listOf(RecordDistance.KM_1, RecordDistance.KM_5, RecordDistance.KM_10),
+                runningRecords.bestTimes.keys.toList())
+        assertSame(exercise1, runningRecords.bestTimes.getValue(RecordDistance.KM_1).exercise)
+        assertEquals(240_000L, runningRecords.bestTimes.getValue(RecordDistance.KM_1).value)
+        assertSame(exercise2, runningRecords.bestTimes.getValue(RecordDistance.KM_5).exercise)
+        assertSame(exercise2, runningRecords.longestDistance!!.exercise)
+        assertSame(exercise1, runningRecords.maxAscentInHour!!.exercise)
+
+        val cyclingRecords = personalRecords.getValue(2L)
+        assertEquals(0, cyclingRecords.bestTimes.size)
+        assertEquals(80000.0, cyclingRecords.longestDistance!!.value)
+        assertEquals(650, cyclingRecords.maxAscentInHour!!.value)
+    }
+
+    private fun createExercise(id: Long, sportType: SportType) = Exercise(id).apply {
+        this.sportType = sportType
+    }
+}
@@ -0,0 +1,82 @@
+package de.saring.sportstracker.data.statistic
+
+import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.ExercisePrefixSums
+import de.saring.sportstracker.data.ExercisePrefixSums.Metric
+import de.saring.sportstracker.data.SportType
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.assertThrows
+import java.time.LocalDateTime
+
+/**
+ * This class contains all unit tests for the [YearOverYearCalculator] class.
+ *
+ * @author Stefan Saring
+ */
+class YearOverYearCalculatorTest {
+
+    private val stCycling = SportType(1)
+    private val stRunning = SportType(2)
+
+    private val prefixSums = ExercisePrefixSums().apply {
+        add(createExercise(1, stCycling, LocalDateTime.of(2019, 12, 31, 10, 0), 50.0))
+        add(createExercise(2, stCycling, LocalDateTime.of(2020, 1, 1, 10, 0), 30.0))
+        add(createExercise(3, stRunning, LocalDateTime.of(2020, 3, 1, 10, 0), 10.0))
+        add(createExercise(4, stCycling, LocalDateTime.of(2020, 12, 31, 10, 0), 40.0))
+        add(createExercise(5, stCycling, LocalDateTime.of(2021, 2, 1, 10, 0), 60.0))
+    }
+
+    /**
+     * Test of calculateComparison(): the cumulative curves of all sport types for multiple years.
+     */
+    @Test
+    fun calculateComparison() {
+        val curves = YearOverYearCalculator.calculateComparison(prefixSums, Metric.DISTANCE, null, 2019, 2021)
+
+        assertEquals(listOf(2019, 2020, 2021), curves.map { it.year })
+        assertEquals(365, curves[0].values.size)
+        assertEquals(366, curves[1].values.size)
+
+        assertEquals(0.0, curves[0].getValueUntil(364), 0.0001)
+        assertEquals(50.0, curves[0].getTotal(), 0.0001)
+
+        assertEquals(30.0, curves[1].getValueUntil(1), 0.0001)
+        assertEquals(30.0, curves[1].getValueUntil(60), 0.0001)
+        assertEquals(40.0, curves[1].getValueUntil(61), 0.0001)
+        assertEquals(40.0, curves[1].getValueUntil(365), 0.0001)
+        assertEquals(80.0, curves[1].getTotal(), 0.0001)
+
+        assertEquals(0.0, curves[2].getValueUntil(31), 0.0001)
+        assertEquals(60.0, curves[2].getValueUntil(32), 0.0001)
+    }
+
+    /**
+     * Test of calculateCumulativeCurve(): the curve for a single sport type only.
+     */
+    @Test
+    fun calculateCumulativeCurveForSportType() {
+        val curve = YearOverYearCalculator.calculateCumulativeCurve(prefixSums, Metric.COUNT, stRunning.id, 2020)
+
+        assertEquals(0.0, curve.getValueUntil(60), 0.0001)
+        assertEquals(1.0, curve.getValueUntil(61), 0.0001)
+        assertEquals(1.0, curve.getTotal(), 0.0001)
+    }
+
+    /**
+     * Test of calculateComparison() with an invalid year range.
+     */
+    @Test
+    fun calculateComparisonInvalidYears() {
+        assertThrows<IllegalArgumentException> {
+            YearOverYearCalculator.calculateComparison(prefixSums, Metric.DISTANCE, null, 2021, 2020)
+        }
+    }
+
+    private fun createExercise(id: Long, sportType: SportType, dateTime: LocalDateTime, distance: Double) =
+            Exercise(id).apply {
+                this.sportType = sportType
+                this.dateTime = dateTime
+                this.distance = distance
+            }
+}
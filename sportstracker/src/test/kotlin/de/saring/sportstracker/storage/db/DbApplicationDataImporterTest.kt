@@ -6,6 +6,10 @@ import org.junit.jupiter.api.AfterEach
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Path
+import java.sql.DriverManager
 import java.time.LocalDateTime
 
 /**
@@ -100,4 +104,136 @@ class DbApplicationDataImporterTest : DbStorageTestBase() {
         assertEquals(123.4, weights[0].value)
         assertEquals("Some other comment...", weights[0].comment)
     }
+
+    /**
+     * Test of the batched import with a small batch size in a database file: the generated primary keys of the
+     * sport subtypes and equipments must be assigned correctly across multiple batches, the progress listener must
+     * be notified after each batch and the SQLite modes must be restored after the import.
+     */
+    @Test
+    fun testImportApplicationDataInBatches(@TempDir tempDir: Path) {
+        val sportTypes = SportTypeList()
+        val exercises = ExerciseList()
+        for (sportTypeId in 1L..3L) {
+            val sportType = SportType(sportTypeId)
+            sportType.setName("Sport Type $sportTypeId")
+            sportType.color = Color.RED
+            for (id in 1L..3L) {
+                sportType.sportSubTypeList.set(SportSubType(id).apply { setName("Subtype $sportTypeId-$id") })
+                sportType.equipmentList.set(Equipment(id).apply { setName("Equipment $sportTypeId-$id") })
+            }
+            sportTypes.set(sportType)
+
+            for (id in 1L..3L) {
+                exercises.set(Exercise(sportTypeId * 10 + id).apply {
+                    dateTime = LocalDateTime.of(2023, 1, sportTypeId.toInt(), 10, id.toInt())
+                    this.sportType = sportType
+                    sportSubType = sportType.sportSubTypeList.getByID(4 - id)
+                    equipment = if (id == 2L) null else sportType.equipmentList.getByID(id)
+                    intensity = Exercise.IntensityType.NORMAL
+                })
+            }
+        }
+
+        // create the database schema in a new database file
+        val dbFilename = tempDir.resolve("import.db").toString()
+        DbStorage().apply {
+            openDatabase(dbFilename)
+            closeDatabase()
+        }
+
+        val progress = mutableListOf<Int>()
+        DriverManager.getConnection("jdbc:sqlite:$dbFilename").use { connection ->
+            connection.autoCommit = false
+            DbApplicationDataImporter(connection, 2).importApplicationData(sportTypes, exercises, NoteList(),
+                    WeightList()) { importedCount, totalCount ->
+                assertEquals(30, totalCount)
+                progress.add(importedCount)
+            }
+
+            connection.createStatement().use { statement ->
+                assertEquals("delete", statement.executeQuery("PRAGMA journal_mode").getString(1))
+                assertEquals(2, statement.executeQuery("PRAGMA synchronous").getInt(1))
+            }
+        }
+        assertEquals(listOf(2, 3, 5, 7, 9, 11, 12, 14, 16, 18, 20, 21, 23, 25, 27, 29, 30), progress)
+
+        val importedStorage = DbStorage()
+        importedStorage.openDatabase(dbFilename)
+        try {
+            val importedSportTypes = importedStorage.sportTypeRepository.readAll()
+            val importedExercises = importedStorage.exerciseRepository.readAll(importedSportTypes)
+            assertEquals(9, importedExercises.size)
+
+            importedExercises.forEach { exercise ->
+                val original = exercises.getByID(exercise.id!!)!!
+                assertEquals(original.sportType.id, exercise.sportType.id)
+                assertEquals(original.sportSubType.getName(), exercise.sportSubType.getName())
+                assertEquals(original.equipment?.getName(), exercise.equipment?.getName())
+            }
+        } finally {
+            importedStorage.closeDatabase()
+        }
+    }
+
+    /**
+     * Test of the import of many exercises: they must be imported by multiple JDBC batches (the last one is
+     * incomplete) in a single transaction, all imported rows must be readable.
+     */
+    @Test
+    fun testImportManyExercises() {
+        val exerciseCount = DbApplicationDataImporter.DEFAULT_BATCH_SIZE * 5 + 250
+        importManyExercises(exerciseCount)
+
+        val importedExercises = dbStorage.exerciseRepository.readAll(dbStorage.sportTypeRepository.readAll())
+        assertEquals(exerciseCount, importedExercises.size)
+        assertEquals(1L, importedExercises.first().id)
+        assertEquals("Comment $exerciseCount", importedExercises.last().comment)
+        assertEquals(sportTypes.getAt(0).equipmentList.getAt(0).id, importedExercises[exerciseCount - 1].equipment?.id)
+    }
+
+    /**
+     * Benchmark of the import of 500.000 synthetic exercises, it prints the import duration. It's not part of the
+     * unit test run, it's executed by "mvn test -Dtest=DbApplicationDataImporterTest -Dst.benchmark=true" only.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "st.benchmark", matches = "true")
+    fun benchmarkImportManyExercises() {
+        val exerciseCount = 500_000
+
+        val startTime = System.currentTimeMillis()
+        importManyExercises(exerciseCount)
+        val importDuration = System.currentTimeMillis() - startTime
+        println("Imported $exerciseCount exercises in $importDuration ms")
+
+        assertEquals(exerciseCount, dbStorage.exerciseRepository.readAll(dbStorage.sportTypeRepository.readAll()).size)
+    }
+
+    /**
+     * Imports the specified number of synthetic exercises with the test sport types, notes and weights and checks
+     * the reported progress.
+     */
+    private fun importManyExercises(exerciseCount: Int) {
+        val sportType = sportTypes.getAt(0)
+        val manyExercises = ExerciseList()
+        val firstDateTime = LocalDateTime.of(1990, 1, 1, 12, 0)
+        for (id in 1L..exerciseCount) {
+            manyExercises.set(Exercise(id).apply {
+                dateTime = firstDateTime.plusHours(id)
+                this.sportType = sportType
+                sportSubType = sportType.sportSubTypeList.getAt(0)
+                equipment = if (id % 2 == 0L) sportType.equipmentList.getAt(0) else null
+                intensity = Exercise.IntensityType.NORMAL
+                distance = (id % 100).toDouble()
+                duration = 3600
+                comment = if (id % 10 == 0L) "Comment $id" else null
+            })
+        }
+
+        var lastImportedCount = 0
+        dbStorage.importExistingApplicationData(sportTypes, manyExercises, notes, weights) { importedCount, _ ->
+            lastImportedCount = importedCount
+        }
+        assertEquals(exerciseCount + 5, lastImportedCount)
+    }
 }
@@ -1,8 +1,15 @@
 package de.saring.sportstracker.storage.db
 
+import de.saring.sportstracker.core.EntityChange
+import de.saring.sportstracker.core.STException
+import de.saring.sportstracker.core.STExceptionID
 import de.saring.sportstracker.data.Note
 import org.junit.jupiter.api.Assertions
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.nio.file.Path
+import java.sql.Connection
+import java.sql.DriverManager
 import java.time.LocalDateTime
 
 /**
@@ -30,4 +37,159 @@ class DbStorageTest : DbStorageTestBase() {
         Assertions.assertEquals(1, notes.size)
         Assertions.assertEquals("FooBar", notes[0].comment)
     }
-}
\ No newline at end of file
+
+    /**
+     * All entity changes done by the repositories need to be reported to the registered change listeners.
+     */
+    @Test
+    fun testChangeListener() {
+        val changes = mutableListOf<EntityChange>()
+        dbStorage.registerChangeListener { changes.add(it) }
+
+        val note = Note(null)
+        note.dateTime = LocalDateTime.now()
+        note.comment = "FooBar"
+
+        val createdNote = dbStorage.noteRepository.create(note)
+        createdNote.comment = "BarFoo"
+        dbStorage.noteRepository.update(createdNote)
+        dbStorage.noteRepository.delete(createdNote.id!!)
+
+        Assertions.assertEquals(listOf(
+            EntityChange(EntityChange.Type.CREATED, Note::class.java, createdNote.id!!, createdNote),
+            EntityChange(EntityChange.Type.UPDATED, Note::class.java, createdNote.id!!, createdNote),
+            EntityChange(EntityChange.Type.DELETED, Note::class.java, createdNote.id!!, null)
+        ), changes)
+    }
+
+    /**
+     * Opening a database with schema version 1 needs to migrate it to the latest version, the existing data (with
+     * the migrated epoch date time) and the new indexes must be available afterwards.
+     */
+    @Test
+    fun testMigrateSchema(@TempDir tempDir: Path) {
+        val dbFilename = tempDir.resolve("st-v1.db").toString()
+        openConnection(dbFilename).use { connection ->
+            connection.createStatement().use { statement ->
+                statement.executeUpdate(DbStorage::class.java.getResource("/sql/st-schema.sql")!!.readText())
+                statement.executeUpdate("INSERT INTO NOTE (DATE_TIME, COMMENT) VALUES ('2023-03-10 10:00:00', 'Foo')")
+            }
+        }
+
+        val migratedStorage = DbStorage()
+        migratedStorage.openDatabase(dbFilename)
+        try {
+            val notes = migratedStorage.noteRepository.readAll()
+            Assertions.assertEquals("Foo", notes[0].comment)
+            Assertions.assertEquals(LocalDateTime.of(2023, 3, 10, 10, 0, 0), notes[0].dateTime)
+        } finally {
+            migratedStorage.closeDatabase()
+        }
+
+        openConnection(dbFilename).use { connection ->
+            Assertions.assertEquals(DbSchemaMigrator.LATEST_SCHEMA_VERSION, readSchemaVersion(connection))
+            Assertions.assertTrue(readIndexNames(connection).containsAll(listOf("IDX_EXERCISE_DATE_TIME_EPOCH",
+                "IDX_EXERCISE_SPORT_TYPE_ID", "IDX_EXERCISE_SPORT_SUBTYPE_ID", "IDX_EXERCISE_EQUIPMENT_ID",
+                "IDX_NOTE_DATE_TIME_EPOCH", "IDX_WEIGHT_DATE_TIME_EPOCH")))
+            Assertions.assertTrue(readIndexNames(connection).none { it.endsWith("_DATE_TIME") })
+        }
+    }
+
+    /**
+     * Rows written with the TEXT column DATE_TIME only (e.g. by external or manual edits) must get the epoch date
+     * time by the triggers. When the epoch date time is missing anyway, the TEXT column must be read instead.
+     */
+    @Test
+    fun testDateTimeEpochSync(@TempDir tempDir: Path) {
+        val dbFilename = tempDir.resolve("st-sync.db").toString()
+        val newStorage = DbStorage()
+        newStorage.openDatabase(dbFilename)
+        newStorage.closeDatabase()
+
+        openConnection(dbFilename).use { connection ->
+            connection.createStatement().use { statement ->
+                statement.executeUpdate("INSERT INTO NOTE VALUES (1, '2023-03-10 10:00:00', 'Foo', NULL)")
+                statement.executeUpdate("INSERT INTO NOTE VALUES (2, '2023-03-11 10:00:00', 'Bar', NULL)")
+                statement.executeUpdate("UPDATE NOTE SET DATE_TIME = '2023-04-01 08:30:00' WHERE ID = 2")
+                statement.executeUpdate("INSERT INTO WEIGHT VALUES (1, '2023-03-12 07:00:00', 80, NULL, NULL)")
+                statement.executeUpdate("UPDATE WEIGHT SET DATE_TIME_EPOCH = NULL WHERE ID = 1")
+            }
+        }
+
+        val syncedStorage = DbStorage()
+        syncedStorage.openDatabase(dbFilename)
+        try {
+            val notes = syncedStorage.noteRepository.readInDateRange(
+                LocalDateTime.of(2023, 3, 1, 0, 0), LocalDateTime.of(2023, 5, 1, 0, 0))
+            Assertions.assertEquals(listOf(LocalDateTime.of(2023, 3, 10, 10, 0), LocalDateTime.of(2023, 4, 1, 8, 30)),
+                notes.map { it.dateTime })
+
+            val weights = syncedStorage.weightRepository.readAll()
+            Assertions.assertEquals(LocalDateTime.of(2023, 3, 12, 7, 0), weights[0].dateTime)
+        } finally {
+            syncedStorage.closeDatabase()
+        }
+    }
+
+    /**
+     * A new database needs to be created with the latest schema version including all migrations.
+     */
+    @Test
+    fun testCreateSchemaWithMigrations(@TempDir tempDir: Path) {
+        val dbFilename = tempDir.resolve("st-new.db").toString()
+        val newStorage = DbStorage()
+        newStorage.openDatabase(dbFilename)
+        newStorage.closeDatabase()
+
+        openConnection(dbFilename).use { connection ->
+            Assertions.assertEquals(DbSchemaMigrator.LATEST_SCHEMA_VERSION, readSchemaVersion(connection))
+            Assertions.assertTrue(readIndexNames(connection).contains("IDX_EXERCISE_DATE_TIME_EPOCH"))
+        }
+    }
+
+    /**
+     * Databases with a schema version newer than the latest known version must be rejected.
+     */
+    @Test
+    fun testOpenDatabaseWithNewerSchema(@TempDir tempDir: Path) {
+        val dbFilename = tempDir.resolve("st-newer.db").toString()
+        val newStorage = DbStorage()
+        newStorage.openDatabase(dbFilename)
+        newStorage.closeDatabase()
+
+        openConnection(dbFilename).use { connection ->
+            connection.createStatement().use { statement ->
+                statement.executeUpdate("UPDATE META SET SCHEMA_VERSION = ${DbSchemaMigrator.LATEST_SCHEMA_VERSION + 1}")
+            }
+        }
+
+        val newerStorage = DbStorage()
+        try {
+            val exception = Assertions.assertThrows(STException::class.java) { newerStorage.openDatabase(dbFilename) }
+            Assertions.assertEquals(STExceptionID.DBSTORAGE_INVALID_SCHEMA, exception.id)
+        } finally {
+            newerStorage.closeDatabase()
+        }
+    }
+
+    private fun openConnection(dbFilename: String): Connection = DriverManager.getConnection("jdbc:sqlite:$dbFilename")
+
+    private fun readSchemaVersion(connection: Connection): Int {
+        connection.createStatement().use { statement ->
+            val rs = statement.executeQuery("SELECT SCHEMA_VERSION FROM META")
+            rs.next()
+            return rs.getInt(1)
+        }
+    }
+
+    private fun readIndexNames(connection: Connection): List<String> {
+        val indexNames = mutableListOf<String>()
+        connection.createStatement().use { statement ->
+            val rs = statement.executeQuery("SELECT NAME FROM sqlite_master WHERE TYPE = 'index'")
+            while (rs.next()) {
+                indexNames.add(rs.getString(1))
+            }
+        }
+        return indexNames
+    }
+}
@@ -0,0 +1,153 @@
+package de.saring.sportstracker.storage.db
+
+import de.saring.exerciseviewer.core.EVException
+import de.saring.exerciseviewer.data.EVExercise
+import de.saring.exerciseviewer.data.ExerciseSample
+import de.saring.exerciseviewer.parser.ExerciseParser
+import de.saring.exerciseviewer.parser.ExerciseParserInfo
+import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.statistic.ExerciseFileRecords
+import de.saring.sportstracker.data.statistic.RecordDistance
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
+import java.nio.file.Path
+import java.util.Collections
+
+/**
+ * This class contains all unit tests for the [ExerciseRecordsLoader] class, the records are cached in an
+ * in-memory [ExerciseRecordsCache].
+ *
+ * @author Stefan Saring
+ */
+class ExerciseRecordsLoaderTest {
+
+    @TempDir
+    lateinit var tempDir: Path
+
+    private val cache = ExerciseRecordsCache()
+
+    /** Paths of all files parsed by the test parser. */
+    private val parsedFiles: MutableList<String> = Collections.synchronizedList(mutableListOf())
+
+    /** Test parser, the distance of the exercise is the file size in meters, it fails for files named "*.err". */
+    private val parser = object : ExerciseParser {
+        override val info = ExerciseParserInfo("Test", listOf("tst"))
+
+        override fun parseExercise(filename: String): EVExercise {
+            parsedFiles.add(filename)
+            if (filename.endsWith(".err")) {
+                throw EVException("Failed to parse the file!")
+            }
+
+            val evExercise = EVExercise(EVExercise.ExerciseFileType.GPX)
+            evExercise.sampleList.add(ExerciseSample(timestamp = 0, distance = 0))
+            evExercise.sampleList.add(ExerciseSample(timestamp = 300_000, distance = File(filename).length().toInt()))
+            return evExercise
+        }
+    }
+
+    private val loader = ExerciseRecordsLoader(cache, 2) { parser }
+
+    @BeforeEach
+    fun setUp() {
+        cache.open(DbStorage.IN_MEMORY_FILENAME)
+    }
+
+    @AfterEach
+    fun tearDown() {
+        cache.close()
+    }
+
+    /**
+     * Test of loadRecords(): all files are parsed on the first call, the records of the unchanged files are read
+     * from the cache on the second call. Missing files and exercises without files are ignored.
+     */
+    @Test
+    fun loadRecordsUsesCache() {
+        val file1 = createFile("exercise1.tst", 1500)
+        val file2 = createFile("exercise2.tst", 800)
+        val exercises = listOf(
+                createExercise(1, file1), createExercise(2, file2), createExercise(3, file1),
+                createExercise(4, tempDir.resolve("missing.tst").toString()), createExercise(5, null))
+
+        val progress = mutableListOf<Int>()
+        val records = loader.loadRecords(exercises, { parsed, total -> progress.add(parsed * 10 + total) })
+        assertEquals(setOf(file1, file2), parsedFiles.toSet())
+        assertEquals(2, parsedFiles.size)
+        assertEquals(listOf(12, 22), progress)
+        assertEquals(setOf(file1, file2), records.keys)
+        assertEquals(1500.0, records.getValue(file1).distance)
+        assertEquals(mapOf(RecordDistance.KM_1 to 300_000L), records.getValue(file1).bestTimes)
+        assertEquals(800.0, records.getValue(file2).distance)
+
+        parsedFiles.clear()
+        assertEquals(records, loader.loadRecords(exercises))
+        assertEquals(emptyList<String>(), parsedFiles)
+    }
+
+    /**
+     * Test of loadRecords(): changed files and files of another parser version must be parsed again.
+     */
+    @Test
+    fun loadRecordsForChangedFiles() {
+        val file1 = createFile("exercise1.tst", 1500)
+        val file2 = createFile("exercise2.tst", 800)
+        val exercises = listOf(createExercise(1, file1), createExercise(2, file2))
+        loader.loadRecords(exercises)
+
+        parsedFiles.clear()
+        createFile("exercise1.tst", 1200)
+        val records = loader.loadRecords(exercises)
+        assertEquals(listOf(file1), parsedFiles)
+        assertEquals(1200.0, records.getValue(file1).distance)
+
+        parsedFiles.clear()
+        val cachedEntry = cache.readAll().getValue(file2)
+        cache.storeAll(listOf(cachedEntry.copy(parserVersion = "Test/0")))
+        loader.loadRecords(exercises)
+        assertEquals(listOf(file2), parsedFiles)
+    }
+
+    /**
+     * Test of loadRecords(): the empty records of files which can't be parsed are cached too, so these files are
+     * not parsed again.
+     */
+    @Test
+    fun loadRecordsForInvalidFile() {
+        val file = createFile("exercise.err", 100)
+        val exercises = listOf(createExercise(1, file))
+
+        assertEquals(mapOf(file to ExerciseFileRecords.EMPTY), loader.loadRecords(exercises))
+        parsedFiles.clear()
+        assertEquals(mapOf(file to ExerciseFileRecords.EMPTY), loader.loadRecords(exercises))
+        assertEquals(emptyList<String>(), parsedFiles)
+    }
+
+    /**
+     * Test of loadRecords(): no files are parsed after cancellation, the loaded records are returned.
+     */
+    @Test
+    fun loadRecordsCancelled() {
+        val exercises = (1..10).map { createExercise(it.toLong(), createFile("exercise$it.tst", 100 * it)) }
+
+        val records = loader.loadRecords(exercises, null) { true }
+        assertEquals(emptyMap<String, ExerciseFileRecords>(), records)
+        assertEquals(emptyMap<String, CachedFileRecords>(), cache.readAll())
+    }
+
+    private fun createFile(filename: String, size: Int): String {
+        val file = tempDir.resolve(filename).toFile()
+        file.writeBytes(ByteArray(size))
+        // make sure that the modification time changes when the file will be written again
+        file.setLastModified(file.lastModified() - 10_000 + size)
+        return file.path
+    }
+
+    private fun createExercise(id: Long, hrmFile: String?) = Exercise(id).apply {
+        this.hrmFile = hrmFile
+    }
+}
@@ -1,13 +1,17 @@
 package de.saring.sportstracker.storage.db
 
+import de.saring.sportstracker.data.EntryFilter
 import de.saring.sportstracker.data.Equipment
 import de.saring.sportstracker.data.Exercise
+import de.saring.sportstracker.data.PeriodType
 import de.saring.sportstracker.data.SportSubType
 import de.saring.sportstracker.data.SportType
+import de.saring.sportstracker.data.statistic.ExercisePivotCalculator
 import de.saring.util.unitcalc.SpeedMode
 import javafx.scene.paint.Color
 import org.junit.jupiter.api.Assertions
 import org.junit.jupiter.api.Test
+import java.time.LocalDate
 import java.time.LocalDateTime
 
 /**
@@ -112,6 +116,195 @@ class ExerciseRepositoryTest : DbStorageTestBase() {
         Assertions.assertEquals(exercise2.id, exercises[0].id)
     }
 
+    /**
+     * Test of createAll(): the created exercises must contain the generated IDs, the stored data and the sport type
+     * references of the passed exercises.
+     */
+    @Test
+    fun testCreateAll() {
+        val newExercise1 = exercise1.clone(null)
+        val newExercise2 = exercise2.clone(null)
+        newExercise2.equipment = null
+
+        val createdExercises = dbStorage.exerciseRepository.createAll(listOf(newExercise1, newExercise2))
+        Assertions.assertEquals(2, createdExercises.size)
+
+        val exercises = dbStorage.exerciseRepository.readAll(sportTypes)
+        Assertions.assertEquals(4, exercises.size)
+        Assertions.assertEquals(listOf(exercises[2].id, exercises[3].id), createdExercises.map { it.id })
+
+        createdExercises.forEachIndexed { index, createdExercise ->
+            val exercise = exercises[index + 2]
+            Assertions.assertEquals(exercise.dateTime, createdExercise.dateTime)
+            Assertions.assertEquals(exercise.sportType, createdExercise.sportType)
+            Assertions.assertEquals(exercise.sportSubType, createdExercise.sportSubType)
+            Assertions.assertEquals(exercise.equipment, createdExercise.equipment)
+            Assertions.assertEquals(exercise.comment, createdExercise.comment)
+        }
+    }
+
+    /**
+     * Test of updateAll(): needs to update all passed exercises, will be verified by reading the exercises.
+     */
+    @Test
+    fun testUpdateAll() {
+        exercise1.distance = 75.123
+        exercise2.equipment = null
+        dbStorage.exerciseRepository.updateAll(listOf(exercise1, exercise2))
+
+        val exercises = dbStorage.exerciseRepository.readAll(sportTypes)
+        Assertions.assertEquals(75.123, exercises[0].distance)
+        Assertions.assertNull(exercises[1].equipment)
+    }
+
+    /**
+     * Test of deleteAll(): needs to delete all exercises with the passed IDs.
+     */
+    @Test
+    fun testDeleteAll() {
+        dbStorage.exerciseRepository.deleteAll(listOf(exercise1.id!!, exercise2.id!!))
+
+        Assertions.assertEquals(0, dbStorage.exerciseRepository.readAll(sportTypes).size)
+    }
+
+    /**
+     * Test of readInDateRange(): needs to provide the exercises in the range with the sport type references.
+     */
+    @Test
+    fun testReadInDateRange() {
+        exercise1.dateTime = LocalDateTime.of(2023, 3, 10, 18, 30, 15)
+        exercise2.dateTime = LocalDateTime.of(2023, 3, 12, 8, 0, 0)
+        dbStorage.exerciseRepository.updateAll(listOf(exercise1, exercise2))
+
+        val exercises = dbStorage.exerciseRepository.readInDateRange(
+            LocalDateTime.of(2023, 3, 10, 0, 0), LocalDateTime.of(2023, 3, 11, 0, 0), sportTypes)
+        Assertions.assertEquals(1, exercises.size)
+        Assertions.assertEquals(exercise1.id, exercises[0].id)
+        Assertions.assertEquals(exercise1.dateTime, exercises[0].dateTime)
+        Assertions.assertEquals(sportType1, exercises[0].sportType)
+        Assertions.assertEquals(sportType1.equipmentList.first(), exercises[0].equipment)
+    }
+
+    /**
+     * Test of findByFilter(): the exercises found by the database query must be the same as the ones found by the
+     * in-memory filtering of all exercises (EntryFilterMatcher) for all kinds of filter criteria.
+     */
+    @Test
+    fun testFindByFilter() {
+        createFilterTestExercises()
+        val allExercises = dbStorage.exerciseRepository.readAll(sportTypes)
+
+        val filters = listOf(
+            createFilter(null, null),
+            createFilter(LocalDate.of(2023, 3, 6), LocalDate.of(2023, 3, 31)),
+            createFilter(LocalDate.of(2023, 4, 1), null).apply { sportType = sportType2 },
+            createFilter(null, null).apply {
+                sportType = sportType1
+                sportSubType = sportType1.sportSubTypeList.first()
+                equipment = sportType1.equipmentList.first()
+            },
+            createFilter(null, null).apply { intensity = Exercise.IntensityType.LOW },
+            createFilter(null, null).apply { commentSubString = "  morning  RUN " },
+            createFilter(null, null).apply { commentSubString = "50%_" },
+            createFilter(null, null).apply { commentSubString = "über" },
+            createFilter(null, null).apply { commentSubString = "   " },
+            // the em space is not trimmed or split by the in-memory filtering, so nothing must be found
+            createFilter(null, null).apply { commentSubString = "\u2003run " },
+            createFilter(null, null).apply {
+                commentSubString = "^[A-Z].*run$"
+                isRegularExpressionMode = true
+            })
+
+        filters.forEach { filter ->
+            val matcher = filter.compile()
+            val expectedIds = allExercises.filter { matcher.matches(it) }.sortedBy { it.dateTime }.map { it.id }
+
+            val foundExercises = dbStorage.exerciseRepository.findByFilter(filter, sportTypes)
+            Assertions.assertEquals(expectedIds, foundExercises.map { it.id })
+            foundExercises.forEach { Assertions.assertNotNull(it.sportType) }
+        }
+
+        // the found exercises can also be processed one by one
+        var count = 0
+        dbStorage.exerciseRepository.findByFilter(createFilter(null, null), sportTypes) { count++ }
+        Assertions.assertEquals(allExercises.size, count)
+    }
+
+    /**
+     * Test of aggregateByFilter(): the aggregates of the periods calculated by the database must be the same as the
+     * ones calculated for the in-memory exercises.
+     */
+    @Test
+    fun testAggregateByFilter() {
+        createFilterTestExercises()
+        val allExercises = dbStorage.exerciseRepository.readAll(sportTypes)
+
+        listOf(PeriodType.WEEK, PeriodType.MONTH, PeriodType.YEAR).forEach { periodType ->
+            listOf(false, true).forEach { weekStartSunday ->
+                val expected = allExercises
+                    .groupBy {
+                        ExercisePivotCalculator.getPeriodStart(periodType, weekStartSunday, it.dateTime.toLocalDate())
+                    }
+                    .toSortedMap()
+                    .map { (periodStart, exercises) ->
+                        val distances = exercises.map { it.distance }
+                        ExercisePeriodAggregate(periodStart, exercises.size, exercises.size, distances.sum(),
+                            distances.min(), distances.max(), distances.average())
+                    }
+
+                val aggregates = dbStorage.exerciseRepository.aggregateByFilter(
+                    createFilter(null, null), ExerciseAggregateColumn.DISTANCE, periodType, weekStartSunday)
+                Assertions.assertEquals(expected, aggregates)
+            }
+        }
+
+        // the optional values are aggregated only for the exercises containing them
+        val filter = createFilter(LocalDate.of(2023, 3, 5), LocalDate.of(2023, 3, 6))
+        val aggregates = dbStorage.exerciseRepository.aggregateByFilter(
+            filter, ExerciseAggregateColumn.CALORIES, PeriodType.YEAR, false)
+        Assertions.assertEquals(listOf(ExercisePeriodAggregate(LocalDate.of(2023, 1, 1), 2, 1, 2345.0, 2345.0,
+            2345.0, 2345.0)), aggregates)
+    }
+
+    private fun createFilterTestExercises() {
+        val exercises = listOf(
+            createFilterTestExercise(exercise1, LocalDateTime.of(2022, 12, 31, 23, 59, 59), 10.0, "Morning run"),
+            createFilterTestExercise(exercise1, LocalDateTime.of(2023, 3, 5, 8, 0), 20.0, "Über den Berg"),
+            createFilterTestExercise(exercise2, LocalDateTime.of(2023, 3, 6, 0, 0), 30.0, "50%_done run"),
+            createFilterTestExercise(exercise2, LocalDateTime.of(2023, 3, 31, 23, 59, 59), 40.5, null),
+            createFilterTestExercise(exercise1, LocalDateTime.of(2023, 4, 1, 0, 0), 55.0, "morning RUN"),
+            createFilterTestExercise(exercise2, LocalDateTime.of(2023, 4, 2, 18, 0), 60.0, "evening run"))
+        exercises[2].intensity = Exercise.IntensityType.LOW
+        exercises[3].equipment = null
+        exercises[4].calories = null
+        exercises[1].calories = null
+        dbStorage.exerciseRepository.createAll(exercises)
+
+        // the exercises of the test setup are not used in the filter tests
+        dbStorage.exerciseRepository.deleteAll(listOf(exercise1.id!!, exercise2.id!!))
+    }
+
+    private fun createFilterTestExercise(
+        template: Exercise,
+        dateTime: LocalDateTime,
+        distance: Double,
+        comment: String?
+    ): Exercise {
+        val exercise = template.clone(null)
+        exercise.dateTime = dateTime
+        exercise.distance = distance
+        exercise.comment = comment
+        return exercise
+    }
+
+    private fun createFilter(dateStart: LocalDate?, dateEnd: LocalDate?): EntryFilter {
+        val filter = EntryFilter()
+        filter.entryType = EntryFilter.EntryType.EXERCISE
+        filter.dateStart = dateStart
+        filter.dateEnd = dateEnd
+        return filter
+    }
+
     private fun createExercise(
         sportType: SportType,
         sportSubType: SportSubType,
@@ -67,6 +67,87 @@ class NoteRepositoryTest : DbStorageTestBase() {
         Assertions.assertEquals(note2.id, notes[0].id)
     }
 
+    /**
+     * Test of createAll(): needs to create all notes in multiple batches, the returned notes must contain the
+     * generated IDs in the order of the passed notes.
+     */
+    @Test
+    fun testCreateAll() {
+        val newNotes = (1..1200).map { index ->
+            val note = Note(null)
+            note.dateTime = LocalDateTime.now().plusMinutes(index.toLong())
+            note.comment = "Bulk Note $index"
+            note
+        }
+
+        val createdNotes = dbStorage.noteRepository.createAll(newNotes)
+        Assertions.assertEquals(1200, createdNotes.size)
+        Assertions.assertEquals(1202, dbStorage.noteRepository.readAll().size)
+
+        createdNotes.forEachIndexed { index, createdNote ->
+            Assertions.assertEquals("Bulk Note ${index + 1}", createdNote.comment)
+            val note = dbStorage.noteRepository.readById(createdNote.id!!)
+            Assertions.assertEquals(createdNote.dateTime, note.dateTime)
+            Assertions.assertEquals(createdNote.comment, note.comment)
+        }
+    }
+
+    /**
+     * Test of updateAll(): needs to update all passed notes, will be verified by reading the notes.
+     */
+    @Test
+    fun testUpdateAll() {
+        note1.comment = "Foo"
+        note2.comment = "Bar"
+        dbStorage.noteRepository.updateAll(listOf(note1, note2))
+
+        Assertions.assertEquals("Foo", dbStorage.noteRepository.readById(note1.id!!).comment)
+        Assertions.assertEquals("Bar", dbStorage.noteRepository.readById(note2.id!!).comment)
+    }
+
+    /**
+     * Test of deleteAll(): needs to delete all notes with the passed IDs in multiple chunks, will be verified by
+     * reading all notes.
+     */
+    @Test
+    fun testDeleteAll() {
+        val newNotes = (1..1100).map { index ->
+            val note = Note(null)
+            note.dateTime = LocalDateTime.now()
+            note.comment = "Bulk Note $index"
+            note
+        }
+        val createdNotes = dbStorage.noteRepository.createAll(newNotes)
+
+        dbStorage.noteRepository.deleteAll(createdNotes.map { it.id!! } + note1.id!!)
+
+        val notes = dbStorage.noteRepository.readAll()
+        Assertions.assertEquals(1, notes.size)
+        Assertions.assertEquals(note2.id, notes[0].id)
+    }
+
+    /**
+     * Test of readInDateRange(): needs to provide all notes in the range ordered by date, the start of the range is
+     * inclusive, the end is exclusive.
+     */
+    @Test
+    fun testReadInDateRange() {
+        val start = LocalDateTime.of(2023, 3, 10, 0, 0)
+        val newNotes = listOf(5L, 1L, 3L, 2L, 4L).map { day ->
+            val note = Note(null)
+            note.dateTime = start.plusDays(day)
+            note.comment = "Day $day"
+            note
+        }
+        dbStorage.noteRepository.createAll(newNotes)
+
+        val notes = dbStorage.noteRepository.readInDateRange(start.plusDays(2), start.plusDays(5))
+        Assertions.assertEquals(listOf("Day 2", "Day 3", "Day 4"), notes.map { it.comment })
+        Assertions.assertEquals(start.plusDays(2), notes[0].dateTime)
+
+        Assertions.assertEquals(0, dbStorage.noteRepository.readInDateRange(start, start.plusDays(1)).size)
+    }
+
     private fun createNote(comment: String): Note {
         val note = Note(null)
         note.dateTime = LocalDateTime.now()
@@ -70,6 +70,21 @@ class WeightRepositoryTest : DbStorageTestBase() {
         Assertions.assertEquals(weight2.id, weights[0].id)
     }
 
+    /**
+     * Test of readInDateRange(): needs to provide all weights in the range, the end of the range is exclusive.
+     */
+    @Test
+    fun testReadInDateRange() {
+        weight1.dateTime = LocalDateTime.of(2023, 3, 10, 8, 0)
+        weight2.dateTime = LocalDateTime.of(2023, 3, 11, 8, 0)
+        dbStorage.weightRepository.updateAll(listOf(weight1, weight2))
+
+        val weights = dbStorage.weightRepository.readInDateRange(
+            LocalDateTime.of(2023, 3, 10, 8, 0), LocalDateTime.of(2023, 3, 11, 8, 0))
+        Assertions.assertEquals(listOf(weight1.id), weights.map { it.id })
+        Assertions.assertEquals(75.0, weights[0].value)
+    }
+
     private fun createWeight(value: Double, comment: String?): Weight {
         val weight = Weight(null)
         weight.dateTime = LocalDateTime.now()
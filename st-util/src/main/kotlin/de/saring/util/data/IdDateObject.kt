@@ -3,10 +3,14 @@ package de.saring.util.data
 import java.time.LocalDate
 import java.time.LocalDateTime
 import java.time.LocalTime
+import java.time.ZoneOffset
 
 /**
  * Abstract base class for all objects which needs to have an ID for referencing and contain a date  and a time.
  *
+ * The epoch day and the epoch second of the date and time are precomputed on each change, so date comparisons can
+ * be done on primitive values without creating temporary date objects.
+ *
  * @property id the ID of the object (null for new, not persisted objects)
  *
  * @author Stefan Saring
@@ -17,6 +21,33 @@ abstract class IdDateObject (id: Long?) : IdObject(id) {
      * The date and time of this object. The initial value is today, 12:00:00.
      */
     var dateTime: LocalDateTime = LocalDateTime.of(LocalDate.now(), LocalTime.of(12, 0, 0))
+        set(value) {
+            field = value
+            epochDay = value.toLocalDate().toEpochDay()
+            epochSecond = value.toEpochSecond(ZoneOffset.UTC)
+        }
+
+    /**
+     * The epoch day of the date of this object (days since 1970-01-01).
+     */
+    var epochDay: Long = dateTime.toLocalDate().toEpochDay()
+        private set
+
+    /**
+     * The epoch second of the local date and time of this object (seconds since 1970-01-01T00:00:00, the time zone
+     * is not considered).
+     */
+    var epochSecond: Long = dateTime.toEpochSecond(ZoneOffset.UTC)
+        private set
+
+    /**
+     * Checks whether the date of this object is in the specified range of epoch days.
+     *
+     * @param epochDayStart start epoch day of the range (inclusive)
+     * @param epochDayEnd end epoch day of the range (inclusive)
+     * @return true when the date is in the range
+     */
+    fun isInDateRange(epochDayStart: Long, epochDayEnd: Long): Boolean = epochDay in epochDayStart..epochDayEnd
 
     override fun toString(): String = "${this.javaClass.name}: id=$id, dateTime=$dateTime"
 }
\ No newline at end of file
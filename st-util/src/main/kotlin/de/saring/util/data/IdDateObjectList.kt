@@ -1,34 +1,245 @@
 package de.saring.util.data
 
 import java.time.LocalDate
-import java.util.stream.Collectors
 
 /**
  * This list extends IdObjectList and contains unique entries of IdDateObject subclasses. It provides query methods for
  * getting entries in specific date ranges.
  *
+ * The date range queries are using a secondary index, which contains the epoch days of all entries sorted ascending
+ * and their positions in the list. The index will be created on the first query after the list content has been
+ * replaced and will be updated incrementally on all following modifications. The date of an entry must not be
+ * modified while it is stored in the list, the modified entry needs to be stored by using set() afterwards.
+ *
  * @param <T> the object type to store in this list, must be a subclass of IdDateObject
  *
  * @author Stefan Saring
  */
 open class IdDateObjectList<T : IdDateObject> : IdObjectList<T>() {
 
+    /** Flag whether the date index has been created and is valid for the current list content. */
+    private var dateIndexValid = false
+
+    /** Number of entries in the date index (same as list size when the index is valid). */
+    private var dateIndexSize = 0
+
+    /** Epoch days of all entries, sorted ascending. */
+    private var sortedEpochDays = LongArray(0)
+
+    /** List positions of all entries, in the same order as in sortedEpochDays. */
+    private var sortedPositions = IntArray(0)
+
+    /** Epoch days of all entries, in the same order as in the list (needed for locating modified entries). */
+    private var positionEpochDays = LongArray(0)
+
     /**
      * Returns all IdDateObject entries of this list for which their datetime is in the specified date range.
-     *
+     * The returned entries have the same order as in this list.
      *
      * @param dStart start date of the time range (inclusive)
      * @param dEnd end date of the time range (inclusive)
      * @return list of entries in this time range
      */
-    fun getEntriesInDateRange(dStart: LocalDate, dEnd: LocalDate): List<T> {
+    fun getEntriesInDateRange(dStart: LocalDate, dEnd: LocalDate): List<T> =
+            getEntriesInDateRange(dStart.toEpochDay(), dEnd.toEpochDay())
 
-        if (dStart.isAfter(dEnd)) {
+    /**
+     * Returns all IdDateObject entries of this list for which their datetime is in the specified range of epoch days.
+     * The returned entries have the same order as in this list.
+     *
+     * @param epochDayStart start epoch day of the time range (inclusive)
+     * @param epochDayEnd end epoch day of the time range (inclusive)
+     * @return list of entries in this time range
+     */
+    fun getEntriesInDateRange(epochDayStart: Long, epochDayEnd: Long): List<T> =
+            getIndexesInDateRange(epochDayStart, epochDayEnd).map { getAt(it) }
+
+    /**
+     * Returns the list indexes of all IdDateObject entries of this list for which their datetime is in the specified
+     * date range. The indexes are sorted ascending.
+     *
+     * @param dStart start date of the time range (inclusive)
+     * @param dEnd end date of the time range (inclusive)
+     * @return array of the entry indexes in this time range
+     */
+    fun getIndexesInDateRange(dStart: LocalDate, dEnd: LocalDate): IntArray =
+            getIndexesInDateRange(dStart.toEpochDay(), dEnd.toEpochDay())
+
+    /**
+     * Returns the list indexes of all IdDateObject entries of this list for which their datetime is in the specified
+     * range of epoch days. The indexes are sorted ascending.
+     *
+     * @param epochDayStart start epoch day of the time range (inclusive)
+     * @param epochDayEnd end epoch day of the time range (inclusive)
+     * @return array of the entry indexes in this time range
+     */
+    fun getIndexesInDateRange(epochDayStart: Long, epochDayEnd: Long): IntArray {
+
+        if (epochDayStart > epochDayEnd) {
             throw IllegalArgumentException("Start date is after end date!")
         }
 
-        return stream()
-                .filter { !it.dateTime.toLocalDate().isBefore(dStart) && !it.dateTime.toLocalDate().isAfter(dEnd) }
-                .collect(Collectors.toList())
+        ensureDateIndex()
+        val indexFrom = lowerBound(epochDayStart)
+        val indexTo = if (epochDayEnd == Long.MAX_VALUE) dateIndexSize else lowerBound(epochDayEnd + 1)
+
+        // the found entries are sorted by date => sort them by their list position
+        val positions = sortedPositions.copyOfRange(indexFrom, maxOf(indexFrom, indexTo))
+        positions.sort()
+        return positions
+    }
+
+    override fun onEntryAdded(index: Int, entry: T) {
+        if (dateIndexValid) {
+            ensureDateIndexCapacity(dateIndexSize + 1)
+            val epochDay = getEpochDay(entry)
+            positionEpochDays[index] = epochDay
+            insertIntoDateIndex(epochDay, index)
+        }
+    }
+
+    override fun onEntryReplaced(index: Int, oldEntry: T, newEntry: T) {
+        if (dateIndexValid) {
+            val oldEpochDay = positionEpochDays[index]
+            val newEpochDay = getEpochDay(newEntry)
+            if (oldEpochDay != newEpochDay) {
+                removeFromDateIndex(oldEpochDay, index)
+                insertIntoDateIndex(newEpochDay, index)
+                positionEpochDays[index] = newEpochDay
+            }
+        }
+    }
+
+    override fun onEntryRemoved(index: Int, entry: T) {
+        if (dateIndexValid) {
+            removeFromDateIndex(positionEpochDays[index], index)
+            System.arraycopy(positionEpochDays, index + 1, positionEpochDays, index, dateIndexSize - index)
+
+            // all following entries have been moved by one position
+            for (i in 0 until dateIndexSize) {
+                if (sortedPositions[i] > index) {
+                    sortedPositions[i]--
+                }
+            }
+        }
+    }
+
+    override fun onEntriesRemoved(indexes: IntArray, entries: List<T>) {
+        if (dateIndexValid) {
+            // map the previous positions to the new ones (-1 for the removed entries)
+            val newPositions = IntArray(dateIndexSize)
+            var removedCount = 0
+            for (position in 0 until dateIndexSize) {
+                if (removedCount < indexes.size && indexes[removedCount] == position) {
+                    newPositions[position] = -1
+                    removedCount++
+                } else {
+                    val newPosition = position - removedCount
+                    newPositions[position] = newPosition
+                    positionEpochDays[newPosition] = positionEpochDays[position]
+                }
+            }
+
+            // the sort order of the remaining entries is the same, they only need to be compacted
+            var writeIndex = 0
+            for (i in 0 until dateIndexSize) {
+                val newPosition = newPositions[sortedPositions[i]]
+                if (newPosition >= 0) {
+                    sortedEpochDays[writeIndex] = sortedEpochDays[i]
+                    sortedPositions[writeIndex] = newPosition
+                    writeIndex++
+                }
+            }
+            dateIndexSize = writeIndex
+        }
+    }
+
+    override fun onEntriesReset() {
+        dateIndexValid = false
+    }
+
+    /**
+     * Creates the date index for the complete list content, when it is not valid.
+     */
+    private fun ensureDateIndex() {
+        if (dateIndexValid) {
+            return
+        }
+
+        val size = size()
+        dateIndexSize = 0
+        ensureDateIndexCapacity(size)
+
+        // sort by epoch day and position at once, both are packed in one long value (day in the upper 32 bits)
+        val packedEntries = LongArray(size)
+        for (i in 0 until size) {
+            val epochDay = getEpochDay(getAt(i))
+            positionEpochDays[i] = epochDay
+            packedEntries[i] = (epochDay shl 32) or i.toLong()
+        }
+        packedEntries.sort()
+
+        for (i in 0 until size) {
+            sortedEpochDays[i] = packedEntries[i] shr 32
+            sortedPositions[i] = (packedEntries[i] and 0xFFFFFFFFL).toInt()
+        }
+        dateIndexSize = size
+        dateIndexValid = true
+    }
+
+    private fun ensureDateIndexCapacity(capacity: Int) {
+        if (sortedEpochDays.size < capacity) {
+            val newCapacity = maxOf(capacity, sortedEpochDays.size + (sortedEpochDays.size shr 1), MIN_CAPACITY)
+            sortedEpochDays = sortedEpochDays.copyOf(newCapacity)
+            sortedPositions = sortedPositions.copyOf(newCapacity)
+            positionEpochDays = positionEpochDays.copyOf(newCapacity)
+        }
+    }
+
+    private fun insertIntoDateIndex(epochDay: Long, position: Int) {
+        // insert behind all entries of the same day (usually at the end, new entries are mostly the latest ones)
+        val insertIndex = lowerBound(epochDay + 1)
+        val moveCount = dateIndexSize - insertIndex
+        System.arraycopy(sortedEpochDays, insertIndex, sortedEpochDays, insertIndex + 1, moveCount)
+        System.arraycopy(sortedPositions, insertIndex, sortedPositions, insertIndex + 1, moveCount)
+        sortedEpochDays[insertIndex] = epochDay
+        sortedPositions[insertIndex] = position
+        dateIndexSize++
+    }
+
+    private fun removeFromDateIndex(epochDay: Long, position: Int) {
+        var removeIndex = lowerBound(epochDay)
+        while (sortedPositions[removeIndex] != position) {
+            removeIndex++
+        }
+
+        val moveCount = dateIndexSize - removeIndex - 1
+        System.arraycopy(sortedEpochDays, removeIndex + 1, sortedEpochDays, removeIndex, moveCount)
+        System.arraycopy(sortedPositions, removeIndex + 1, sortedPositions, removeIndex, moveCount)
+        dateIndexSize--
+    }
+
+    /**
+     * Returns the index of the first entry in the date index with an epoch day greater or equal to the specified
+     * one (or the index size when there is no such entry).
+     */
+    private fun lowerBound(epochDay: Long): Int {
+        var low = 0
+        var high = dateIndexSize
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (sortedEpochDays[mid] < epochDay) {
+                low = mid + 1
+            } else {
+                high = mid
+            }
+        }
+        return low
+    }
+
+    private fun getEpochDay(entry: T): Long = entry.epochDay
+
+    companion object {
+        private const val MIN_CAPACITY = 16
     }
 }
@@ -6,6 +6,13 @@ import java.util.stream.Stream
  * This list contains unique instances of IdObject subclasses. It will never contain multiple instances with the same
  * ID. It also provides useful methods for getting and removing instances by ID or by their index.
  *
+ * The list maintains an index of the IDs of all contained objects and their position in the list. So the lookup and
+ * the replacement of objects by their ID needs constant time, also for huge lists.
+ *
+ * Immutable snapshots of the list content can be created for readers in other threads. Once a snapshot has been
+ * created, the next snapshot will be derived from the previous one on each modification (with structural sharing),
+ * so creating snapshots after small modifications is cheap.
+ *
  * @param <T> the object type to store in this list, must be a subclass of IdObject
  *
  * @author Stefan Saring
@@ -13,9 +20,22 @@ import java.util.stream.Stream
 open class IdObjectList<T : IdObject> : Iterable<T> {
 
     /**
-     * Generic list of subclasses of IdObject. Only subclasses can directly access this list.
+     * Generic list of subclasses of IdObject. It must not be modified directly, otherwise the ID index will be
+     * inconsistent.
+     */
+    private val idObjects = mutableListOf<T>()
+
+    /**
+     * Index of all contained objects, maps the object ID to the position in the list. Objects without an ID
+     * (new, not persisted objects) are not contained in the index.
+     */
+    private val idIndex = HashMap<Long, Int>()
+
+    /**
+     * Immutable snapshot of the current list content, it's updated on each modification after it has been created
+     * once (null when there is no current snapshot).
      */
-    protected val idObjects = mutableListOf<T>()
+    private var snapshot: PersistentList<T>? = null
 
     /**
      * Returns the IdObject with the specified ID.
@@ -24,10 +44,8 @@ open class IdObjectList<T : IdObject> : Iterable<T> {
      * @return the IdObject object or null
      */
     fun getByID(id: Long): T? {
-        return stream()
-                .filter { o -> o.id == id }
-                .findFirst()
-                .orElse(null)
+        val index = idIndex[id] ?: return null
+        return idObjects[index]
     }
 
     /**
@@ -37,14 +55,18 @@ open class IdObjectList<T : IdObject> : Iterable<T> {
      * @return the IdObject
      */
     fun getAt(index: Int): T = idObjects[index]
-  
+
     /**
      * Returns the index of the specified object in the list or -1 if it is not contained.
      *
      * @param t the object to lookup in the list
      * @return the index of the object or -1
      */
-    fun indexOf(t: T): Int = idObjects.indexOf(t)
+    fun indexOf(t: T): Int {
+        val id = t.id ?: return idObjects.indexOfFirst { it === t }
+        val index = idIndex[id] ?: return -1
+        return if (idObjects[index] == t) index else -1
+    }
 
     /**
      * Checks whether the specified object is contained in list.
@@ -52,7 +74,7 @@ open class IdObjectList<T : IdObject> : Iterable<T> {
      * @param t the object to lookup in the list
      * @return true if the list contains the specified object
      */
-    fun contains(t: T): Boolean = idObjects.contains(t)
+    fun contains(t: T): Boolean = indexOf(t) >= 0
 
     /**
      * Stores the specified IdObject in the list. If there is already an IDObject with that ID then the old object will
@@ -62,13 +84,18 @@ open class IdObjectList<T : IdObject> : Iterable<T> {
      */
     fun set(t: T) {
 
-        val index = idObjects.indexOf(t)
+        val index = t.id?.let { idIndex[it] } ?: indexOf(t)
         if (index >= 0) {
             // replace old IdObject if there is one with the ID of the new one
-            this.idObjects[index] = t
+            val oldObject = this.idObjects.set(index, t)
+            snapshot = snapshot?.replacing(index, t)
+            onEntryReplaced(index, oldObject, t)
         } else {
             // the object has a new ID => add to end of list
             this.idObjects.add(t)
+            t.id?.let { idIndex[it] = idObjects.size - 1 }
+            snapshot = snapshot?.adding(t)
+            onEntryAdded(idObjects.size - 1, t)
         }
     }
 
@@ -80,7 +107,11 @@ open class IdObjectList<T : IdObject> : Iterable<T> {
      */
     fun clearAndAddAll(entries: List<T>) {
         idObjects.clear()
+        idIndex.clear()
         idObjects.addAll(entries)
+        reindexFrom(0)
+        snapshot = null
+        onEntriesReset()
     }
 
     /**
@@ -90,13 +121,51 @@ open class IdObjectList<T : IdObject> : Iterable<T> {
      * @return true on success
      */
     fun removeByID(id: Long): Boolean {
-        var removed = false
+        val index = idIndex[id] ?: return false
+        removeAt(index)
+        return true
+    }
 
-        val idObject = getByID(id)
-        if (idObject != null) {
-            removed = this.idObjects.remove(idObject)
+    /**
+     * Removes all IdObjects with the specified IDs from the list. Each single removal needs linear time (all following
+     * objects are moved), so many objects are removed by compacting the list in a single pass. In this case the
+     * subclasses are notified by onEntriesRemoved() once for all removed objects.
+     *
+     * @param ids IDs of the IdObjects to remove
+     * @return the number of removed IdObjects
+     */
+    fun removeAllByID(ids: Collection<Long>): Int {
+        if (ids.size <= BULK_REMOVAL_THRESHOLD) {
+            return ids.count { removeByID(it) }
         }
-        return removed
+
+        val idsToRemove = ids.toHashSet()
+        val removedIndexes = mutableListOf<Int>()
+        val removedEntries = mutableListOf<T>()
+        var writeIndex = 0
+
+        for (readIndex in idObjects.indices) {
+            val idObject = idObjects[readIndex]
+            val id = idObject.id
+            if (id != null && idsToRemove.contains(id)) {
+                idIndex.remove(id)
+                removedIndexes.add(readIndex)
+                removedEntries.add(idObject)
+            } else {
+                if (writeIndex != readIndex) {
+                    idObjects[writeIndex] = idObject
+                    id?.let { idIndex[it] = writeIndex }
+                }
+                writeIndex++
+            }
+        }
+
+        if (removedEntries.isNotEmpty()) {
+            idObjects.subList(writeIndex, idObjects.size).clear()
+            snapshot = null
+            onEntriesRemoved(removedIndexes.toIntArray(), removedEntries)
+        }
+        return removedEntries.size
     }
 
     /**
@@ -107,11 +176,12 @@ open class IdObjectList<T : IdObject> : Iterable<T> {
     fun size(): Int = idObjects.size
 
     /**
-     * Returns an iterator over the list elements in proper sequence.
+     * Returns an iterator over the list elements in proper sequence. Removing elements by the iterator keeps the
+     * ID index consistent.
      *
      * @return iterator over the list elements
      */
-    override fun iterator(): Iterator<T> = idObjects.iterator()
+    override fun iterator(): MutableIterator<T> = IdObjectIterator()
 
     /**
      * Returns the Stream of the internal IdObject list for functional processing.
@@ -120,10 +190,115 @@ open class IdObjectList<T : IdObject> : Iterable<T> {
      */
     fun stream(): Stream<T> = idObjects.stream()
 
+    /**
+     * Returns an immutable snapshot of the current list content. Later modifications of this list have no effect on
+     * the returned snapshot, so it can be used by other threads without synchronization. The contained objects are
+     * not copied, they must not be modified while they are used in snapshots (modified objects need to be replaced).
+     *
+     * @return immutable list of the contained objects
+     */
+    fun snapshot(): List<T> = snapshot ?: PersistentList.of(idObjects).also { snapshot = it }
+
     /**
      * Returns a string representation of this object.
      *
      * @return string with object content
      */
     override fun toString(): String = "${this.javaClass.name}: size=${idObjects.size}"
+
+    /**
+     * Called after the specified entry has been added to the end of the list. Subclasses can override it for
+     * maintaining additional indexes.
+     *
+     * @param index the list index of the added entry
+     * @param entry the added entry
+     */
+    protected open fun onEntryAdded(index: Int, entry: T) {}
+
+    /**
+     * Called after the entry at the specified index has been replaced by a new entry with the same ID (or by the
+     * same instance). Subclasses can override it for maintaining additional indexes.
+     *
+     * @param index the list index of the replaced entry
+     * @param oldEntry the replaced entry
+     * @param newEntry the new entry
+     */
+    protected open fun onEntryReplaced(index: Int, oldEntry: T, newEntry: T) {}
+
+    /**
+     * Called after the entry at the specified index has been removed, all following entries have been moved by one
+     * position. Subclasses can override it for maintaining additional indexes.
+     *
+     * @param index the list index of the removed entry
+     * @param entry the removed entry
+     */
+    protected open fun onEntryRemoved(index: Int, entry: T) {}
+
+    /**
+     * Called after the entries at the specified indexes have been removed in a single pass, all remaining entries
+     * have been moved to their new positions. The default implementation calls onEntryRemoved() for each entry,
+     * starting with the last one (so the passed index is valid for each call). Subclasses can override it for
+     * updating their additional indexes at once.
+     *
+     * @param indexes the list indexes of the removed entries before the removal, sorted ascending
+     * @param entries the removed entries, in the same order as the indexes
+     */
+    protected open fun onEntriesRemoved(indexes: IntArray, entries: List<T>) {
+        for (i in indexes.indices.reversed()) {
+            onEntryRemoved(indexes[i], entries[i])
+        }
+    }
+
+    /**
+     * Called after the complete list content has been replaced. Subclasses can override it for maintaining
+     * additional indexes.
+     */
+    protected open fun onEntriesReset() {}
+
+    private fun removeAt(index: Int) {
+        val removed = idObjects.removeAt(index)
+        removed.id?.let { idIndex.remove(it) }
+        snapshot = snapshot?.removingAt(index)
+
+        // all following objects have been moved by one position
+        reindexFrom(index)
+        onEntryRemoved(index, removed)
+    }
+
+    private fun reindexFrom(startIndex: Int) {
+        for (i in startIndex until idObjects.size) {
+            idObjects[i].id?.let { idIndex[it] = i }
+        }
+    }
+
+    /**
+     * Iterator implementation which updates the ID index when elements are removed.
+     */
+    private inner class IdObjectIterator : MutableIterator<T> {
+
+        private var nextIndex = 0
+        private var lastIndex = -1
+
+        override fun hasNext(): Boolean = nextIndex < idObjects.size
+
+        override fun next(): T {
+            if (!hasNext()) {
+                throw NoSuchElementException()
+            }
+            lastIndex = nextIndex++
+            return idObjects[lastIndex]
+        }
+
+        override fun remove() {
+            check(lastIndex >= 0) { "next() has not been called before or the element was already removed!" }
+            removeAt(lastIndex)
+            nextIndex = lastIndex
+            lastIndex = -1
+        }
+    }
+
+    companion object {
+        /** Maximum number of objects to be removed one by one in removeAllByID(), more objects are removed in bulk. */
+        private const val BULK_REMOVAL_THRESHOLD = 16
+    }
 }
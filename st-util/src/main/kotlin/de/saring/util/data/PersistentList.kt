@@ -0,0 +1,180 @@
+package de.saring.util.data
+
+/**
+ * Immutable list which supports the creation of modified copies with structural sharing. The elements are stored in
+ * chunks, a modified copy only copies the affected chunk and the (small) array of chunk references, all other chunks
+ * are shared with the original list. So the modification costs are O(n / CHUNK_SIZE + CHUNK_SIZE) instead of O(n)
+ * for a full copy and old versions of the list can be kept cheaply.
+ *
+ * The list can be read by multiple threads without synchronization, it never changes after creation.
+ *
+ * @param <T> the element type
+ *
+ * @author Stefan Saring
+ */
+class PersistentList<T> private constructor(
+
+    /** The chunks containing the elements, chunks are never modified and never empty. */
+    private val chunks: Array<Array<Any?>>,
+
+    /** The list index of the first element of each chunk. */
+    private val chunkOffsets: IntArray,
+
+    override val size: Int
+) : AbstractList<T>() {
+
+    override fun get(index: Int): T {
+        if (index < 0 || index >= size) {
+            throw IndexOutOfBoundsException("Index: $index, size: $size")
+        }
+        val chunkIndex = findChunk(index)
+        @Suppress("UNCHECKED_CAST")
+        return chunks[chunkIndex][index - chunkOffsets[chunkIndex]] as T
+    }
+
+    override fun iterator(): Iterator<T> = object : Iterator<T> {
+        private var chunkIndex = 0
+        private var elementIndex = 0
+
+        override fun hasNext(): Boolean = chunkIndex < chunks.size
+
+        override fun next(): T {
+            if (!hasNext()) {
+                throw NoSuchElementException()
+            }
+            val chunk = chunks[chunkIndex]
+            @Suppress("UNCHECKED_CAST")
+            val element = chunk[elementIndex++] as T
+            if (elementIndex == chunk.size) {
+                chunkIndex++
+                elementIndex = 0
+            }
+            return element
+        }
+    }
+
+    /**
+     * Returns a copy of this list where the element at the specified index is replaced.
+     *
+     * @param index the index of the element to replace
+     * @param element the new element
+     * @return the modified copy
+     */
+    fun replacing(index: Int, element: T): PersistentList<T> {
+        get(index)
+        val chunkIndex = findChunk(index)
+        val newChunk = chunks[chunkIndex].copyOf()
+        newChunk[index - chunkOffsets[chunkIndex]] = element
+
+        val newChunks = chunks.copyOf()
+        newChunks[chunkIndex] = newChunk
+        return PersistentList(newChunks, chunkOffsets, size)
+    }
+
+    /**
+     * Returns a copy of this list where the specified element is added to the end.
+     *
+     * @param element the element to add
+     * @return the modified copy
+     */
+    fun adding(element: T): PersistentList<T> {
+        if (chunks.isEmpty() || chunks.last().size >= CHUNK_SIZE) {
+            val newChunks = chunks.copyOf(chunks.size + 1)
+            newChunks[chunks.size] = arrayOf(element)
+            val newChunkOffsets = chunkOffsets.copyOf(chunkOffsets.size + 1)
+            newChunkOffsets[chunkOffsets.size] = size
+            @Suppress("UNCHECKED_CAST")
+            return PersistentList(newChunks as Array<Array<Any?>>, newChunkOffsets, size + 1)
+        }
+
+        val lastChunk = chunks.last()
+        val newLastChunk = lastChunk.copyOf(lastChunk.size + 1)
+        newLastChunk[lastChunk.size] = element
+
+        val newChunks = chunks.copyOf()
+        newChunks[chunks.size - 1] = newLastChunk
+        return PersistentList(newChunks, chunkOffsets, size + 1)
+    }
+
+    /**
+     * Returns a copy of this list where the element at the specified index is removed.
+     *
+     * @param index the index of the element to remove
+     * @return the modified copy
+     */
+    fun removingAt(index: Int): PersistentList<T> {
+        get(index)
+        val chunkIndex = findChunk(index)
+        val chunk = chunks[chunkIndex]
+        val indexInChunk = index - chunkOffsets[chunkIndex]
+
+        val newChunks: Array<Array<Any?>>
+        val newChunkOffsets: IntArray
+        if (chunk.size == 1) {
+            // remove the complete chunk
+            newChunks = Array(chunks.size - 1) { if (it < chunkIndex) chunks[it] else chunks[it + 1] }
+            newChunkOffsets = IntArray(chunks.size - 1) {
+                if (it < chunkIndex) chunkOffsets[it] else chunkOffsets[it + 1] - 1
+            }
+        } else {
+            val newChunk = arrayOfNulls<Any?>(chunk.size - 1)
+            System.arraycopy(chunk, 0, newChunk, 0, indexInChunk)
+            System.arraycopy(chunk, indexInChunk + 1, newChunk, indexInChunk, chunk.size - indexInChunk - 1)
+
+            newChunks = chunks.copyOf()
+            newChunks[chunkIndex] = newChunk
+            newChunkOffsets = IntArray(chunks.size) {
+                if (it <= chunkIndex) chunkOffsets[it] else chunkOffsets[it] - 1
+            }
+        }
+        return PersistentList(newChunks, newChunkOffsets, size - 1)
+    }
+
+    /**
+     * Returns the index of the chunk which contains the element with the specified list index.
+     */
+    private fun findChunk(index: Int): Int {
+        var low = 0
+        var high = chunkOffsets.size - 1
+        while (low < high) {
+            val mid = (low + high + 1) ushr 1
+            if (chunkOffsets[mid] <= index) {
+                low = mid
+            } else {
+                high = mid - 1
+            }
+        }
+        return low
+    }
+
+    companion object {
+
+        /** Maximum number of elements in a chunk. */
+        const val CHUNK_SIZE = 64
+
+        /**
+         * Creates a new list which contains all the specified elements.
+         *
+         * @param elements the elements
+         * @return the created list
+         */
+        @JvmStatic
+        fun <T> of(elements: Collection<T>): PersistentList<T> {
+            val source = elements.toTypedArray<Any?>()
+            val chunkCount = (source.size + CHUNK_SIZE - 1) / CHUNK_SIZE
+            val chunks = Array(chunkCount) {
+                source.copyOfRange(it * CHUNK_SIZE, minOf((it + 1) * CHUNK_SIZE, source.size))
+            }
+            val chunkOffsets = IntArray(chunkCount) { it * CHUNK_SIZE }
+            return PersistentList(chunks, chunkOffsets, source.size)
+        }
+
+        /**
+         * Returns an empty list.
+         *
+         * @return the empty list
+         */
+        @JvmStatic
+        fun <T> empty(): PersistentList<T> = PersistentList(emptyArray(), IntArray(0), 0)
+    }
+}
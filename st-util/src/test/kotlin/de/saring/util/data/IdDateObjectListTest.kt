@@ -64,6 +64,89 @@ class IdDateObjectListTest {
         }
     }
 
+    /**
+     * Test of getEntriesInDateRange(): the date index must be updated when entries are added, replaced with
+     * a different date or removed after the first query.
+     */
+    @Test
+    fun testGetEntriesInDateRangeAfterModifications() {
+        assertEquals(2, list.getEntriesInDateRange(LocalDate.of(2009, 2, 1), LocalDate.of(2009, 2, 28)).size)
+
+        list.set(DateNameObject(4, LocalDateTime.of(2009, 2, 6, 8, 0, 0), "four"))
+        list.set(DateNameObject(2, LocalDateTime.of(2009, 2, 28, 23, 59, 59), "two-moved"))
+        list.set(DateNameObject(5, LocalDateTime.of(2009, 3, 1, 0, 0, 0), "five"))
+        assertTrue(list.removeByID(1))
+
+        val lFound = list.getEntriesInDateRange(LocalDate.of(2009, 2, 1), LocalDate.of(2009, 2, 28))
+        assertEquals(listOf("two-moved", "three", "four"), lFound.map { it.name })
+
+        assertTrue(list.getEntriesInDateRange(LocalDate.of(2008, 12, 1), LocalDate.of(2008, 12, 31)).isEmpty())
+        assertEquals("five", list.getEntriesInDateRange(LocalDate.of(2009, 3, 1), LocalDate.of(2009, 3, 1))[0].name)
+    }
+
+    /**
+     * Test of getEntriesInDateRange(): the query results must be the same as the results of a full scan for
+     * a bigger list with many modifications.
+     */
+    @Test
+    fun testGetEntriesInDateRangeCompareWithFullScan() {
+        val random = java.util.Random(4711)
+        val baseDate = LocalDate.of(2010, 1, 1)
+        val randomDateTime = { baseDate.plusDays(random.nextInt(1000).toLong()).atTime(random.nextInt(24), 0) }
+
+        list.clearAndAddAll((1L..2000L).map { DateNameObject(it, randomDateTime(), "entry$it") })
+        list.getEntriesInDateRange(baseDate, baseDate)
+
+        for (i in 1..500) {
+            when (random.nextInt(3)) {
+                0 -> list.set(DateNameObject(random.nextInt(3000).toLong() + 1, randomDateTime(), "set$i"))
+                1 -> list.removeByID(random.nextInt(3000).toLong() + 1)
+                else -> {
+                    val rangeStart = baseDate.plusDays(random.nextInt(1000).toLong())
+                    val rangeEnd = rangeStart.plusDays(random.nextInt(60).toLong())
+                    val expected = list.filter {
+                        !it.dateTime.toLocalDate().isBefore(rangeStart) && !it.dateTime.toLocalDate().isAfter(rangeEnd)
+                    }
+                    assertEquals(expected, list.getEntriesInDateRange(rangeStart, rangeEnd))
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of getEntriesInDateRange(): the date index must be updated when many entries are removed in bulk by
+     * removeAllByID() after the first query.
+     */
+    @Test
+    fun testGetEntriesInDateRangeAfterBulkRemoval() {
+        val baseDate = LocalDate.of(2010, 1, 1)
+        list.clearAndAddAll((1L..100L).map { DateNameObject(it, baseDate.plusDays(it % 10).atStartOfDay(), "entry$it") })
+        assertEquals(10, list.getEntriesInDateRange(baseDate.plusDays(3), baseDate.plusDays(3)).size)
+
+        assertEquals(50, list.removeAllByID((2L..100L step 2).toList()))
+
+        assertEquals(listOf(3L, 13L, 23L, 33L, 43L, 53L, 63L, 73L, 83L, 93L),
+                list.getEntriesInDateRange(baseDate.plusDays(3), baseDate.plusDays(3)).map { it.id })
+        assertTrue(list.getEntriesInDateRange(baseDate.plusDays(4), baseDate.plusDays(4)).isEmpty())
+        assertEquals(list.toList(), list.getEntriesInDateRange(Long.MIN_VALUE, Long.MAX_VALUE))
+    }
+
+    /**
+     * Test of getEntriesInDateRange() with epoch days: must find the same entries as for the dates, also for
+     * unlimited ranges.
+     */
+    @Test
+    fun testGetEntriesInDateRangeForEpochDays() {
+        val epochDayStart = LocalDate.of(2009, 2, 5).toEpochDay()
+        val epochDayEnd = LocalDate.of(2009, 2, 7).toEpochDay()
+
+        val lFound = list.getEntriesInDateRange(epochDayStart, epochDayEnd)
+        assertEquals(listOf("one", "three"), lFound.map { it.name })
+        assertEquals(3, list.getEntriesInDateRange(Long.MIN_VALUE, Long.MAX_VALUE).size)
+        assertEquals(1, list.getEntriesInDateRange(epochDayEnd, Long.MAX_VALUE).size)
+        assertThrows(IllegalArgumentException::class.java) { list.getEntriesInDateRange(epochDayEnd, epochDayStart) }
+    }
+
     /**
      * Subclass of abstract class IdDateObject for testing.
      */
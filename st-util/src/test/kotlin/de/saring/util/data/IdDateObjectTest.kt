@@ -0,0 +1,54 @@
+package de.saring.util.data
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+
+/**
+ * Unit tests of class IdDateObject.
+ *
+ * @author Stefan Saring
+ */
+class IdDateObjectTest {
+
+    /**
+     * Test of the epoch day and epoch second: must be initialized for the default date and time and must be updated
+     * on each change of the date and time.
+     */
+    @Test
+    fun testEpochDayAndSecond() {
+        val dateObject = DateObject(1)
+        assertEquals(LocalDate.now().toEpochDay(), dateObject.epochDay)
+        assertEquals(dateObject.dateTime.toEpochSecond(ZoneOffset.UTC), dateObject.epochSecond)
+
+        dateObject.dateTime = LocalDateTime.of(1970, 1, 2, 0, 0, 10)
+        assertEquals(1, dateObject.epochDay)
+        assertEquals(86_410, dateObject.epochSecond)
+
+        dateObject.dateTime = LocalDateTime.of(1969, 12, 31, 23, 59, 59)
+        assertEquals(-1, dateObject.epochDay)
+        assertEquals(-1, dateObject.epochSecond)
+    }
+
+    /**
+     * Test of isInDateRange(): both range limits must be included.
+     */
+    @Test
+    fun testIsInDateRange() {
+        val dateObject = DateObject(1)
+        dateObject.dateTime = LocalDateTime.of(2020, 5, 10, 23, 59, 59)
+        val epochDay = LocalDate.of(2020, 5, 10).toEpochDay()
+
+        assertTrue(dateObject.isInDateRange(epochDay, epochDay))
+        assertTrue(dateObject.isInDateRange(epochDay - 10, epochDay + 10))
+        assertTrue(dateObject.isInDateRange(Long.MIN_VALUE, Long.MAX_VALUE))
+        assertFalse(dateObject.isInDateRange(epochDay + 1, epochDay + 10))
+        assertFalse(dateObject.isInDateRange(epochDay - 10, epochDay - 1))
+    }
+
+    internal class DateObject(id: Long) : IdDateObject(id)
+}
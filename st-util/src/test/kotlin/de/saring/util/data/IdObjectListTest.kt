@@ -114,8 +114,161 @@ class IdObjectListTest {
         assertEquals(2, list.size())
     }
 
+    /**
+     * Test of removeByID method: the ID lookup must still work for all entries behind the removed one.
+     */
+    @Test
+    fun removeByIDKeepsLookupConsistent() {
+        list.set(NameObject(4, "four"))
+
+        assertTrue(list.removeByID(2))
+        assertEquals(3, list.size())
+        assertEquals("one", list.getByID(1)?.name)
+        assertEquals("three", list.getByID(3)?.name)
+        assertEquals("four", list.getByID(4)?.name)
+        assertEquals(1, list.indexOf(NameObject(3, "three")))
+        assertEquals(2, list.indexOf(NameObject(4, "four")))
+
+        // replacing an entry behind the removed one must not change the list order
+        list.set(NameObject(4, "vier"))
+        assertEquals(3, list.size())
+        assertEquals("vier", list.getAt(2).name)
+    }
+
+    /**
+     * Test of method clearAndAddAll(): the IDs of the previous list content must not be found anymore.
+     */
+    @Test
+    fun clearAndAddAllReplacesLookup() {
+        list.clearAndAddAll(listOf(NameObject(5, "five"), NameObject(6, "six")))
+
+        assertNull(list.getByID(1))
+        assertEquals("five", list.getByID(5)?.name)
+        assertEquals("six", list.getByID(6)?.name)
+        assertFalse(list.removeByID(3))
+    }
+
+    /**
+     * Test of the iterator: removing an element by the iterator must update the ID lookup.
+     */
+    @Test
+    fun iteratorRemove() {
+        val iterator = list.iterator()
+        assertEquals("one", iterator.next().name)
+        assertEquals("two", iterator.next().name)
+        iterator.remove()
+        assertEquals("three", iterator.next().name)
+        assertFalse(iterator.hasNext())
+
+        assertEquals(2, list.size())
+        assertNull(list.getByID(2))
+        assertEquals("three", list.getByID(3)?.name)
+        assertEquals(1, list.indexOf(NameObject(3, "three")))
+    }
+
+    /**
+     * Test of the set method for objects without an ID (new, not persisted objects): they must be added always,
+     * the lookup of the existing objects must not be affected.
+     */
+    @Test
+    fun setWithoutID() {
+        val newObject1 = NameObjectWithoutID("new1")
+        val newObject2 = NameObjectWithoutID("new2")
+        val listWithoutIDs = IdObjectList<NameObjectWithoutID>()
+        listWithoutIDs.set(newObject1)
+        listWithoutIDs.set(newObject2)
+        listWithoutIDs.set(newObject1)
+
+        assertEquals(2, listWithoutIDs.size())
+        assertEquals(0, listWithoutIDs.indexOf(newObject1))
+        assertEquals(1, listWithoutIDs.indexOf(newObject2))
+        assertFalse(listWithoutIDs.contains(NameObjectWithoutID("new1")))
+    }
+
+    /**
+     * Test of the ID lookup for a huge list with many replacements and removals, the lookup and the list order
+     * must be consistent afterwards.
+     */
+    @Test
+    fun getByIDHugeList() {
+        val count = 100_000L
+        list.clearAndAddAll((1..count).map { NameObject(it, "name$it") })
+
+        // replace all even entries and remove every 1000th entry
+        for (id in 2..count step 2) {
+            list.set(NameObject(id, "replaced$id"))
+        }
+        for (id in 1000..count step 1000) {
+            assertTrue(list.removeByID(id))
+        }
+
+        assertEquals(count.toInt() - 100, list.size())
+        for (index in 0 until list.size()) {
+            val entry = list.getAt(index)
+            assertSame(entry, list.getByID(entry.id!!))
+            assertEquals(index, list.indexOf(entry))
+        }
+        assertEquals("name999", list.getByID(999)?.name)
+        assertEquals("replaced1002", list.getByID(1002)?.name)
+        assertNull(list.getByID(2000))
+    }
+
+    /**
+     * Test of removeAllByID(): few objects are removed one by one, many objects are removed in bulk. Not contained
+     * IDs are ignored and the ID lookup must be consistent afterwards in both cases.
+     */
+    @Test
+    fun removeAllByID() {
+        assertEquals(2, list.removeAllByID(listOf(1L, 3L, 5L)))
+        assertEquals(listOf("two"), list.map { it.name })
+
+        val count = 10_000L
+        list.clearAndAddAll((1..count).map { NameObject(it, "name$it") })
+        val snapshot = list.snapshot()
+
+        assertEquals(5000, list.removeAllByID((2..count + 100 step 2).toList()))
+        assertEquals(5000, list.size())
+        for (index in 0 until list.size()) {
+            val entry = list.getAt(index)
+            assertEquals(index * 2L + 1, entry.id)
+            assertSame(entry, list.getByID(entry.id!!))
+        }
+        assertNull(list.getByID(2))
+        assertEquals(count.toInt(), snapshot.size)
+        assertEquals(5000, list.snapshot().size)
+
+        assertEquals(0, list.removeAllByID((count + 1..count + 100).toList()))
+    }
+
+    /**
+     * Test of snapshot(): a snapshot must not be changed by later list modifications, a new snapshot must contain
+     * the current list content.
+     */
+    @Test
+    fun snapshot() {
+        val snapshot1 = list.snapshot()
+        assertSame(snapshot1, list.snapshot())
+
+        list.set(NameObject(2, "two-replaced"))
+        list.set(NameObject(4, "four"))
+        list.removeByID(1)
+        val snapshot2 = list.snapshot()
+
+        assertEquals(listOf("one", "two", "three"), snapshot1.map { it.name })
+        assertEquals(listOf("two-replaced", "three", "four"), snapshot2.map { it.name })
+
+        list.clearAndAddAll(listOf(NameObject(5, "five")))
+        assertEquals(listOf("five"), list.snapshot().map { it.name })
+        assertEquals(listOf("two-replaced", "three", "four"), snapshot2.map { it.name })
+    }
+
     /**
      * Subclass of abstract class IdObject for testing.
      */
     internal class NameObject(id: Long, val name: String) : IdObject(id)
+
+    /**
+     * Subclass of abstract class IdObject without an ID for testing.
+     */
+    internal class NameObjectWithoutID(val name: String) : IdObject(null)
 }
@@ -0,0 +1,115 @@
+package de.saring.util.data
+
+import org.junit.jupiter.api.Assertions.*
+import org.junit.jupiter.api.Test
+import java.util.Random
+
+/**
+ * Unit tests of class PersistentList.
+ *
+ * @author Stefan Saring
+ */
+class PersistentListTest {
+
+    /**
+     * Test of of() and get(): the content must be the same as the source, also for multiple chunks.
+     */
+    @Test
+    fun ofAndGet() {
+        val source = (0 until PersistentList.CHUNK_SIZE * 2 + 5).toList()
+        val list = PersistentList.of(source)
+
+        assertEquals(source.size, list.size)
+        assertEquals(source, list)
+        assertEquals(source, list.iterator().asSequence().toList())
+        assertEquals(PersistentList.CHUNK_SIZE, list[PersistentList.CHUNK_SIZE])
+
+        assertThrows(IndexOutOfBoundsException::class.java) { list[-1] }
+        assertThrows(IndexOutOfBoundsException::class.java) { list[source.size] }
+        assertTrue(PersistentList.empty<Int>().isEmpty())
+        assertFalse(PersistentList.empty<Int>().iterator().hasNext())
+    }
+
+    /**
+     * Test of replacing(), adding() and removingAt(): the original list must not be changed by the modifications.
+     */
+    @Test
+    fun modificationsDontChangeOriginal() {
+        val original = PersistentList.of(listOf("a", "b", "c"))
+
+        val replaced = original.replacing(1, "x")
+        val added = original.adding("d")
+        val removed = original.removingAt(0)
+
+        assertEquals(listOf("a", "b", "c"), original)
+        assertEquals(listOf("a", "x", "c"), replaced)
+        assertEquals(listOf("a", "b", "c", "d"), added)
+        assertEquals(listOf("b", "c"), removed)
+
+        assertThrows(IndexOutOfBoundsException::class.java) { original.replacing(3, "x") }
+        assertThrows(IndexOutOfBoundsException::class.java) { original.removingAt(3) }
+    }
+
+    /**
+     * Test of the modifications at the chunk boundaries, including the removal of complete chunks.
+     */
+    @Test
+    fun modificationsAtChunkBoundaries() {
+        var list = PersistentList.empty<Int>()
+        for (i in 0..PersistentList.CHUNK_SIZE) {
+            list = list.adding(i)
+        }
+        assertEquals((0..PersistentList.CHUNK_SIZE).toList(), list)
+
+        // the last chunk contains only one element
+        val withoutLastChunk = list.removingAt(PersistentList.CHUNK_SIZE)
+        assertEquals((0 until PersistentList.CHUNK_SIZE).toList(), withoutLastChunk)
+        val readded = withoutLastChunk.adding(100)
+        assertEquals(PersistentList.CHUNK_SIZE + 1, readded.size)
+        assertEquals(100, readded[PersistentList.CHUNK_SIZE])
+        assertEquals(PersistentList.CHUNK_SIZE - 1, readded[PersistentList.CHUNK_SIZE - 1])
+
+        // remove the first element, all following indexes need to be moved
+        val withoutFirst = list.removingAt(0)
+        assertEquals((1..PersistentList.CHUNK_SIZE).toList(), withoutFirst)
+        assertEquals(PersistentList.CHUNK_SIZE, withoutFirst[PersistentList.CHUNK_SIZE - 1])
+    }
+
+    /**
+     * Test with many random modifications, the results must be the same as for an ArrayList and all previous
+     * versions must not be changed.
+     */
+    @Test
+    fun randomModificationsCompareWithArrayList() {
+        val random = Random(4711)
+        val expected = ArrayList<Int>()
+        var list = PersistentList.empty<Int>()
+        val versions = ArrayList<Pair<List<Int>, PersistentList<Int>>>()
+
+        for (i in 0 until 5_000) {
+            val operation = random.nextInt(4)
+            if (expected.isEmpty() || operation <= 1) {
+                expected.add(i)
+                list = list.adding(i)
+            } else if (operation == 2) {
+                val index = random.nextInt(expected.size)
+                expected[index] = -i
+                list = list.replacing(index, -i)
+            } else {
+                val index = random.nextInt(expected.size)
+                expected.removeAt(index)
+                list = list.removingAt(index)
+            }
+
+            if (i % 100 == 0) {
+                versions.add(Pair(ArrayList(expected), list))
+            }
+        }
+
+        assertEquals(expected, list)
+        for (index in expected.indices) {
+            assertEquals(expected[index], list[index])
+        }
+        versions.forEach { (expectedVersion, listVersion) -> assertEquals(expectedVersion, listVersion) }
+    }
+}